@@ -1,6 +1,7 @@
 package com.entityassist;
 
 import com.entityassist.querybuilder.builders.QueryBuilderRoot;
+import io.smallrye.mutiny.Multi;
 import org.hibernate.reactive.mutiny.Mutiny;
 
 import java.io.Serializable;
@@ -47,6 +48,21 @@ public final class EA
         return new From<>(entityClass, entity);
     }
 
+    /**
+     * Creates a persist pipeline that inserts the entities of a stream in parallel batches.
+     * <p>
+     * Replaces sequential {@code transformToUniAndConcatenate(e -> e.persist(session))} loops for ingesting from
+     * message topics or files - throughput scales with {@link Ingest#parallelism(int)} up to the pool size.
+     *
+     * @param source The entities to insert
+     * @param <E>    The entity type
+     * @return The pipeline configuration, run with {@link Ingest#persist()}
+     */
+    public static <E extends RootEntity<E, ?, ?>> Ingest<E> ingest(Multi<E> source)
+    {
+        return new Ingest<>(source);
+    }
+
     @SuppressWarnings("unchecked")
     private static <E extends RootEntity<E, Q, I>, Q extends QueryBuilderRoot<Q, E, I>, I extends Serializable> Class<E> resolveEntityClass(E entity)
     {
@@ -0,0 +1,268 @@
+package com.entityassist;
+
+import com.entityassist.cache.QueryCaches;
+import com.entityassist.enumerations.IngestOrdering;
+import com.guicedee.client.IGuiceContext;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded-concurrency persist pipeline for a stream of entities, created by {@link EA#ingest(Multi)}.
+ * <p>
+ * The source is cut into batches, and each batch is inserted with one {@code insertAll} in its own stateless
+ * session and transaction, so up to {@link #parallelism(int)} batches use pooled connections at the same time. In
+ * {@link IngestOrdering#SourceOrder} the batches run in windows of that size, so at most one window is held for
+ * reordering. Every entity goes through the {@code onCreate} and pre-persist logic of its builder first; entities
+ * rejected by {@code onCreate} are not inserted and not emitted. By default the first failure fails the pipeline, with
+ * {@link #onItemFailure(BiConsumer)} a failed batch is retried entity by entity and the failing entities are
+ * handed to the handler and skipped.
+ *
+ * @param <E> The entity type
+ */
+public final class Ingest<E extends RootEntity<E, ?, ?>>
+{
+    private final Multi<E> source;
+    private int parallelism = 4;
+    private int batchSize = 100;
+    private Duration batchWindow;
+    private IngestOrdering ordering = IngestOrdering.SourceOrder;
+    private BiConsumer<? super E, Throwable> failureHandler;
+    private Mutiny.SessionFactory sessionFactory;
+
+    Ingest(Multi<E> source)
+    {
+        this.source = Objects.requireNonNull(source, "source may not be null");
+    }
+
+    /**
+     * Sets the number of batches inserted at the same time, at most the size of the connection pool.
+     *
+     * @param parallelism The number of concurrent batches, 4 by default
+     * @return This
+     */
+    public Ingest<E> parallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new EntityAssistException("Ingest parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the number of entities inserted per batch.
+     *
+     * @param batchSize The batch size, 100 by default
+     * @return This
+     */
+    public Ingest<E> batchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new EntityAssistException("Ingest batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Inserts a partial batch once it waited the given time, for slow unbounded sources such as message topics.
+     *
+     * @param batchWindow The longest a partial batch waits, null to wait for full batches or the end of the source
+     * @return This
+     */
+    public Ingest<E> batchWindow(Duration batchWindow)
+    {
+        this.batchWindow = batchWindow;
+        return this;
+    }
+
+    /**
+     * Sets the ordering guarantee.
+     *
+     * @param ordering The ordering, {@link IngestOrdering#SourceOrder} by default
+     * @return This
+     */
+    public Ingest<E> ordering(IngestOrdering ordering)
+    {
+        this.ordering = Objects.requireNonNull(ordering, "ordering may not be null");
+        return this;
+    }
+
+    /**
+     * Skips entities that cannot be inserted instead of failing the pipeline.
+     *
+     * @param failureHandler Receives every skipped entity with its failure
+     * @return This
+     */
+    public Ingest<E> onItemFailure(BiConsumer<? super E, Throwable> failureHandler)
+    {
+        this.failureHandler = failureHandler;
+        return this;
+    }
+
+    /**
+     * Sets the session factory the batches are inserted through.
+     *
+     * @param sessionFactory The session factory, the default one from Guice when not set
+     * @return This
+     */
+    public Ingest<E> withSessionFactory(Mutiny.SessionFactory sessionFactory)
+    {
+        this.sessionFactory = sessionFactory;
+        return this;
+    }
+
+    /**
+     * Builds the pipeline. Nothing is read from the source until the returned Multi is subscribed.
+     *
+     * @return Multi with the inserted entities
+     */
+    public Multi<E> persist()
+    {
+        return Multi.createFrom()
+                    .deferred(() -> {
+                        Mutiny.SessionFactory factory = sessionFactory != null ? sessionFactory : IGuiceContext.get(Mutiny.SessionFactory.class);
+                        Multi<List<E>> batches = batchWindow == null
+                                                 ? source.group()
+                                                         .intoLists()
+                                                         .of(batchSize)
+                                                 : source.group()
+                                                         .intoLists()
+                                                         .of(batchSize, batchWindow);
+                        Multi<List<E>> inserted = switch (ordering)
+                        {
+                            case Sequential -> batches.onItem()
+                                                      .transformToUniAndConcatenate(batch -> insert(factory, batch));
+                            case Unordered -> batches.onItem()
+                                                     .transformToUni(batch -> insert(factory, batch))
+                                                     .merge(parallelism);
+                            case SourceOrder -> inSourceOrder(factory, batches);
+                        };
+                        return inserted.onItem()
+                                       .<E>disjoint();
+                    });
+    }
+
+    /**
+     * Inserts windows of {@link #parallelism(int)} batches one after the other, the batches of a window in parallel.
+     * A window is released in source order once all of its batches are inserted, and the next window is not read
+     * before that, so a slow batch holds back at most the rest of its window.
+     *
+     * @param factory The session factory
+     * @param batches The batches
+     * @return Multi with the inserted batches in source order
+     */
+    private Multi<List<E>> inSourceOrder(Mutiny.SessionFactory factory, Multi<List<E>> batches)
+    {
+        Multi<List<List<E>>> windows = batchWindow == null
+                                       ? batches.group()
+                                                .intoLists()
+                                                .of(parallelism)
+                                       : batches.group()
+                                                .intoLists()
+                                                .of(parallelism, batchWindow);
+        return windows.onItem()
+                      .transformToMultiAndConcatenate(window -> {
+                          List<Uni<List<E>>> inserts = new ArrayList<>(window.size());
+                          for (List<E> batch : window)
+                          {
+                              inserts.add(insert(factory, batch));
+                          }
+                          //joined results keep the order of the window
+                          return Uni.join()
+                                    .all(inserts)
+                                    .andFailFast()
+                                    .onItem()
+                                    .transformToMulti(done -> Multi.createFrom()
+                                                                   .iterable(done));
+                      });
+    }
+
+    /**
+     * Inserts a batch in its own stateless session and transaction, falling back to single entities when
+     * failures are skipped.
+     *
+     * @param factory The session factory
+     * @param batch   The batch
+     * @return Uni with the inserted entities
+     */
+    private Uni<List<E>> insert(Mutiny.SessionFactory factory, List<E> batch)
+    {
+        Uni<List<E>> inserted = factory.withStatelessTransaction(session -> insertAll(session, batch));
+        if (failureHandler == null)
+        {
+            return inserted;
+        }
+        return inserted.onFailure()
+                       .recoverWithUni(failure -> Multi.createFrom()
+                                                       .iterable(batch)
+                                                       .onItem()
+                                                       .transformToUniAndConcatenate(entity -> factory.withStatelessTransaction(session -> insertAll(session, List.of(entity)))
+                                                                                                      .onFailure()
+                                                                                                      .recoverWithItem(single -> {
+                                                                                                          failureHandler.accept(entity, single);
+                                                                                                          return List.of();
+                                                                                                      }))
+                                                       .onItem()
+                                                       .<E>disjoint()
+                                                       .collect()
+                                                       .asList());
+    }
+
+    /**
+     * Runs the builder's create logic on each entity, assigns the missing identifiers of the approved ones from the
+     * builder's generator and inserts them with one statement batch.
+     *
+     * @param session The stateless session
+     * @param batch   The batch
+     * @return Uni with the inserted entities
+     */
+    private Uni<List<E>> insertAll(Mutiny.StatelessSession session, List<E> batch)
+    {
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      var builder = batch.get(0)
+                                         .builder(session);
+                      List<E> approved = new ArrayList<>(batch.size());
+                      for (E entity : batch)
+                      {
+                          if (builder.onCreate(entity))
+                          {
+                              approved.add(entity);
+                          }
+                      }
+                      if (approved.isEmpty())
+                      {
+                          return Uni.createFrom()
+                                    .item(approved);
+                      }
+                      return builder.assignIdentifiers(approved)
+                                    .chain(() -> {
+                                        for (E entity : approved)
+                                        {
+                                            builder.prepareStatelessInsert(entity);
+                                        }
+                                        return session.insertAll(approved.size(), approved.toArray());
+                                    })
+                                    .map(done -> {
+                                        for (E entity : approved)
+                                        {
+                                            entity.setFake(false);
+                                            entity.clearChanges();
+                                        }
+                                        QueryCaches.invalidate(approved.get(0)
+                                                                       .getClass(), session);
+                                        return approved;
+                                    });
+                  });
+    }
+}
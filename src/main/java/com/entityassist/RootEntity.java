@@ -7,7 +7,18 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.guicedee.client.IGuiceContext;
 import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
 import jakarta.persistence.Transient;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
@@ -17,9 +28,13 @@ import jakarta.validation.constraints.NotNull;
 import org.hibernate.reactive.mutiny.Mutiny;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +63,16 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
 
   private static final ThreadLocal<LocalDateTime> now = new ThreadLocal<>();
 
+  /**
+   * State flag set while the entity was neither loaded from nor written to the database
+   */
+  private static final int FAKE = 1;
+
+  /**
+   * The persistent fields of each entity class, in the order of their change tracking bits
+   */
+  private static final Map<Class<?>, TrackedFields> trackedFields = new ConcurrentHashMap<>();
+
   /**
    * Returns the current logical time used by entities.
    * If no thread-local override is set, this returns {@link LocalDateTime#now()}.
@@ -102,6 +127,20 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
   @JsonIgnore
   private Map<Serializable, Object> properties;
 
+  /**
+   * The lifecycle flags of this instance, one bit each
+   */
+  @Transient
+  @JsonIgnore
+  private int state;
+
+  /**
+   * The persistent fields changed since the last write, one bit per tracked field
+   */
+  @Transient
+  @JsonIgnore
+  private BitSet changedFields;
+
   /**
    * Constructs a new base entity type
    */
@@ -247,8 +286,7 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
   @NotNull
   public boolean isFake()
   {
-    return getProperties().containsKey("fake") && Boolean.parseBoolean(getProperties().get("fake")
-                                                                           .toString());
+    return (state & FAKE) != 0;
   }
 
   /**
@@ -263,11 +301,11 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
   {
     if (fake)
     {
-      getProperties().put("fake", true);
+      state |= FAKE;
     }
     else
     {
-      getProperties().remove("fake");
+      state &= ~FAKE;
     }
     return (J) this;
   }
@@ -277,6 +315,8 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
    * <p>
    * Sets any custom properties for this core entity.
    * Dto Read only structure. Not for storage unless mapped as such in a sub-method
+   * <p>
+   * The map is allocated on first access, entities that never store a property carry none.
    *
    * @return The transient property map
    */
@@ -305,6 +345,201 @@ public abstract class RootEntity<J extends RootEntity<J, Q, I>, Q extends QueryB
     return (J) this;
   }
 
+  /**
+   * Marks a persistent field as changed, call from the setters of entities that opt in to change tracking.
+   * <p>
+   * Changed fields are written by {@code updateChanged()} on the query builder, which updates only those columns
+   * by id. Only basic attributes are tracked - associations, collections and embedded values are not. Hibernate
+   * populates field access entities through their fields, so values set when loading are never marked; entities
+   * with property access are populated through their setters and cannot be change tracked.
+   *
+   * @param field The name of the persistent field
+   * @return This entity instance
+   */
+  @SuppressWarnings("unchecked")
+  @NotNull
+  protected J markChanged(@NotNull String field)
+  {
+    TrackedFields tracked = getTrackedFields();
+    if (tracked.propertyAccess)
+    {
+      throw new EntityAssistException("Entity " + getClass().getName() + " uses property access, its setters run when loading and cannot mark changes");
+    }
+    Integer index = tracked.indexes.get(field);
+    if (index == null)
+    {
+      throw new EntityAssistException("Field [" + field + "] is not a basic persistent field of " + getClass().getName());
+    }
+    if (changedFields == null)
+    {
+      changedFields = new BitSet();
+    }
+    changedFields.set(index);
+    return (J) this;
+  }
+
+  /**
+   * Returns if any persistent field was marked as changed since the last write
+   *
+   * @return true when there are changes to write
+   */
+  public boolean hasChanges()
+  {
+    return changedFields != null && !changedFields.isEmpty();
+  }
+
+  /**
+   * Returns the names of the persistent fields marked as changed since the last write
+   *
+   * @return The changed field names in declaration order
+   */
+  @NotNull
+  public Set<String> getChangedFields()
+  {
+    return getChangedValues().keySet();
+  }
+
+  /**
+   * Returns the current values of the persistent fields marked as changed since the last write
+   *
+   * @return The changed field values by field name, in declaration order
+   */
+  @NotNull
+  public Map<String, Object> getChangedValues()
+  {
+    Map<String, Object> values = new LinkedHashMap<>();
+    if (!hasChanges())
+    {
+      return values;
+    }
+    List<Field> fields = getTrackedFields().fields;
+    for (int index = changedFields.nextSetBit(0); index >= 0; index = changedFields.nextSetBit(index + 1))
+    {
+      Field field = fields.get(index);
+      try
+      {
+        values.put(field.getName(), field.get(this));
+      }
+      catch (IllegalAccessException e)
+      {
+        throw new EntityAssistException("Unable to read changed field [" + field.getName() + "] of " + getClass().getName(), e);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Clears the change tracking bits, done by the query builders after the entity is written
+   *
+   * @return This entity instance
+   */
+  @SuppressWarnings("unchecked")
+  @NotNull
+  public J clearChanges()
+  {
+    if (changedFields != null)
+    {
+      changedFields.clear();
+    }
+    return (J) this;
+  }
+
+  /**
+   * Returns the change tracked persistent fields of this entity class
+   *
+   * @return The fields and their bit indexes
+   */
+  private TrackedFields getTrackedFields()
+  {
+    return trackedFields.computeIfAbsent(getClass(), RootEntity::resolveTrackedFields);
+  }
+
+  /**
+   * Resolves the basic persistent instance fields of a class and its super classes
+   *
+   * @param type The entity class
+   * @return The fields and their bit indexes
+   */
+  private static TrackedFields resolveTrackedFields(Class<?> type)
+  {
+    List<Field> fields = new ArrayList<>();
+    Map<String, Integer> indexes = new HashMap<>();
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+    {
+      for (Field field : current.getDeclaredFields())
+      {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isAnnotationPresent(Transient.class)
+            || field.getName()
+                   .startsWith("$$_hibernate") || indexes.containsKey(field.getName()) || !isBasic(field))
+        {
+          continue;
+        }
+        try
+        {
+          field.setAccessible(true);
+        }
+        catch (RuntimeException e)
+        {
+          log.log(Level.FINE, "Unable to access field [" + field + "] for change tracking, open the package to com.entityassist", e);
+          continue;
+        }
+        indexes.put(field.getName(), fields.size());
+        fields.add(field);
+      }
+    }
+    return new TrackedFields(List.copyOf(fields), Map.copyOf(indexes), isPropertyAccess(type));
+  }
+
+  /**
+   * Returns if a field maps a basic attribute, not an association, collection or embedded value
+   *
+   * @param field The persistent field
+   * @return true for basic attributes
+   */
+  private static boolean isBasic(Field field)
+  {
+    return !field.isAnnotationPresent(ManyToOne.class) && !field.isAnnotationPresent(OneToOne.class)
+           && !field.isAnnotationPresent(OneToMany.class) && !field.isAnnotationPresent(ManyToMany.class)
+           && !field.isAnnotationPresent(ElementCollection.class) && !field.isAnnotationPresent(Embedded.class)
+           && !field.isAnnotationPresent(EmbeddedId.class) && !field.getType()
+                                                                 .isAnnotationPresent(Embeddable.class);
+  }
+
+  /**
+   * Returns if an entity hierarchy is mapped with property access, declared by {@link Access} or by an identifier
+   * annotated on a getter
+   *
+   * @param type The entity class
+   * @return true for property access
+   */
+  private static boolean isPropertyAccess(Class<?> type)
+  {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+    {
+      Access access = current.getAnnotation(Access.class);
+      if (access != null)
+      {
+        return access.value() == AccessType.PROPERTY;
+      }
+      for (Method method : current.getDeclaredMethods())
+      {
+        if (method.isAnnotationPresent(Id.class) || method.isAnnotationPresent(EmbeddedId.class))
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The change tracked fields of an entity class, the bit index of each field name and if the entity uses property access
+   */
+  private record TrackedFields(List<Field> fields, Map<String, Integer> indexes, boolean propertyAccess)
+  {
+  }
+
   /**
    * Returns this classes associated id class type
    *
@@ -0,0 +1,559 @@
+package com.entityassist;
+
+import com.entityassist.cache.QueryCaches;
+import com.guicedee.client.IGuiceContext;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Collects persists, updates and deletes of entities of any type and writes them in one transaction with as few
+ * statements as possible.
+ * <p>
+ * Repeated writes of the same entity collapse into one: a persist followed by updates stays a persist, a persist
+ * followed by a delete is dropped, and a delete followed by a persist becomes an update. The update rewrites a row
+ * that exists, so only delete and persist again an entity that was stored before - a row that was never stored is
+ * not inserted by it. On flush the writes are grouped by operation and entity type and each group is sent as one
+ * statement batch - inserts first, parents before the types referencing them, then updates, then deletes, children
+ * before their parents. Associations to a base type count for every written subtype, and entities of a type that
+ * references itself are written parent first, or child first when deleting. Types without a dependency between
+ * them are ordered by name and the other entities of a type by identifier, so concurrent units of work lock rows in
+ * the same order and do not deadlock each other. Entities whose identifiers are not comparable, such as embedded
+ * identifiers, keep the order they were registered in.
+ * <p>
+ * Writes run through a stateless session: inserts apply the builder's {@code onCreate} and pre-persist logic,
+ * updates its {@code onUpdate}, and every column of an updated entity is written.
+ */
+public final class UnitOfWork
+{
+    /**
+     * The default number of statements sent per batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final Map<Object, Write> writes = new LinkedHashMap<>();
+    private final Map<Object, Object> identities = new IdentityHashMap<>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int statements;
+
+    /**
+     * Creates an empty unit of work.
+     */
+    public UnitOfWork()
+    {
+        //No configuration required
+    }
+
+    /**
+     * Sets the number of statements sent per batch.
+     *
+     * @param batchSize The batch size
+     * @return This
+     */
+    public UnitOfWork setBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new EntityAssistException("Unit of work batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Registers an entity to insert.
+     *
+     * @param entity The entity
+     * @return This
+     */
+    public UnitOfWork persist(RootEntity<?, ?, ?> entity)
+    {
+        return register(entity, Operation.Persist);
+    }
+
+    /**
+     * Registers an entity to update.
+     *
+     * @param entity The entity
+     * @return This
+     */
+    public UnitOfWork update(RootEntity<?, ?, ?> entity)
+    {
+        return register(entity, Operation.Update);
+    }
+
+    /**
+     * Registers an entity to delete.
+     *
+     * @param entity The entity
+     * @return This
+     */
+    public UnitOfWork delete(RootEntity<?, ?, ?> entity)
+    {
+        return register(entity, Operation.Delete);
+    }
+
+    /**
+     * Returns the number of writes left after collapsing repeated writes of the same entity.
+     *
+     * @return The pending write count
+     */
+    public int getPendingCount()
+    {
+        return writes.size();
+    }
+
+    /**
+     * Returns the number of statement batches sent by the last flush.
+     *
+     * @return The statement batch count
+     */
+    public int getStatementCount()
+    {
+        return statements;
+    }
+
+    /**
+     * Writes everything in a new transaction of the default session factory.
+     *
+     * @return Uni completing once the transaction committed
+     */
+    public Uni<Void> commit()
+    {
+        return commit(IGuiceContext.get(Mutiny.SessionFactory.class));
+    }
+
+    /**
+     * Writes everything in a new transaction of the given session factory.
+     *
+     * @param sessionFactory The session factory
+     * @return Uni completing once the transaction committed
+     */
+    public Uni<Void> commit(Mutiny.SessionFactory sessionFactory)
+    {
+        return sessionFactory.withStatelessTransaction(this::flush);
+    }
+
+    /**
+     * Writes everything through the given stateless session, in its current transaction.
+     *
+     * @param session The stateless session
+     * @return Uni completing once every statement batch executed, the unit of work is empty afterwards
+     */
+    public Uni<Void> flush(Mutiny.StatelessSession session)
+    {
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      List<Class<?>> typeOrder = orderTypes();
+                      List<Batch> batches = new ArrayList<>();
+                      for (Class<?> type : typeOrder)
+                      {
+                          addBatch(batches, type, Operation.Persist);
+                      }
+                      for (Class<?> type : typeOrder)
+                      {
+                          addBatch(batches, type, Operation.Update);
+                      }
+                      for (int i = typeOrder.size() - 1; i >= 0; i--)
+                      {
+                          addBatch(batches, typeOrder.get(i), Operation.Delete);
+                      }
+                      statements = 0;
+                      Uni<Void> flushed = Uni.createFrom()
+                                             .voidItem();
+                      for (Batch batch : batches)
+                      {
+                          flushed = flushed.chain(() -> execute(session, batch));
+                      }
+                      return flushed.invoke(() -> {
+                          writes.clear();
+                          identities.clear();
+                      });
+                  });
+    }
+
+    /**
+     * Registers a write, collapsing it with an earlier write of the same entity.
+     *
+     * @param entity    The entity
+     * @param operation The write
+     * @return This
+     */
+    private UnitOfWork register(RootEntity<?, ?, ?> entity, Operation operation)
+    {
+        Objects.requireNonNull(entity, "entity may not be null");
+        Object key = entity.getId() == null ? identities.computeIfAbsent(entity, e -> new Object())
+                                            : List.of(entity.getClass(), entity.getId());
+        Write previous = writes.get(key);
+        if (previous == null)
+        {
+            writes.put(key, new Write(entity, operation));
+            return this;
+        }
+        Operation collapsed = switch (previous.operation())
+        {
+            case Persist -> operation == Operation.Delete ? null : Operation.Persist;
+            case Update -> operation == Operation.Persist ? Operation.Update : operation;
+            case Delete ->
+            {
+                if (operation == Operation.Update)
+                {
+                    throw new EntityAssistException("Entity " + entity.getClass()
+                                                                      .getName() + " [" + entity.getId() + "] is updated after it was deleted");
+                }
+                yield operation == Operation.Persist ? Operation.Update : Operation.Delete;
+            }
+        };
+        if (collapsed == null)
+        {
+            writes.remove(key);
+        }
+        else
+        {
+            //the latest instance carries the state to write
+            writes.put(key, new Write(entity, collapsed));
+        }
+        return this;
+    }
+
+    /**
+     * Orders the written types so that every type comes after the types its owned associations reference, breaking
+     * ties and cycles by class name.
+     *
+     * @return The types in insert order
+     */
+    private List<Class<?>> orderTypes()
+    {
+        Map<String, Class<?>> remaining = new TreeMap<>();
+        for (Write write : writes.values())
+        {
+            remaining.put(write.entity()
+                               .getClass()
+                               .getName(), write.entity()
+                                                .getClass());
+        }
+        Map<Class<?>, Set<Class<?>>> dependencies = new LinkedHashMap<>();
+        for (Class<?> type : remaining.values())
+        {
+            Set<Class<?>> referenced = new LinkedHashSet<>();
+            for (Field field : owningFields(type))
+            {
+                for (Class<?> candidate : remaining.values())
+                {
+                    //an association to a base type references every written subtype of it
+                    if (candidate != type && field.getType()
+                                                  .isAssignableFrom(candidate))
+                    {
+                        referenced.add(candidate);
+                    }
+                }
+            }
+            dependencies.put(type, referenced);
+        }
+        List<Class<?>> ordered = new ArrayList<>();
+        while (!remaining.isEmpty())
+        {
+            Class<?> next = null;
+            for (Class<?> candidate : remaining.values())
+            {
+                if (ordered.containsAll(dependencies.get(candidate)))
+                {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (next == null)
+            {
+                //a cycle, continue with the first type by name
+                next = remaining.values()
+                                .iterator()
+                                .next();
+            }
+            ordered.add(next);
+            remaining.remove(next.getName());
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns the owned to-one associations of a type, declared on it or its superclasses.
+     *
+     * @param type The entity type
+     * @return The association fields
+     */
+    private static List<Field> owningFields(Class<?> type)
+    {
+        List<Field> owning = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            for (Field field : current.getDeclaredFields())
+            {
+                OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+                if (field.isAnnotationPresent(ManyToOne.class) || (oneToOne != null && oneToOne.mappedBy()
+                                                                                               .isEmpty()))
+                {
+                    owning.add(field);
+                }
+            }
+        }
+        return owning;
+    }
+
+    /**
+     * Adds the batch of one operation on one type, its entities ordered by identifier and parents inserted before
+     * and deleted after the entities of the same type referencing them.
+     *
+     * @param batches   The batches
+     * @param type      The entity type
+     * @param operation The operation
+     */
+    private void addBatch(List<Batch> batches, Class<?> type, Operation operation)
+    {
+        List<RootEntity<?, ?, ?>> entities = new ArrayList<>();
+        for (Write write : writes.values())
+        {
+            if (write.operation() == operation && write.entity()
+                                                       .getClass() == type)
+            {
+                entities.add(write.entity());
+            }
+        }
+        if (!entities.isEmpty())
+        {
+            List<RootEntity<?, ?, ?>> ordered = orderByIdentifier(entities);
+            if (operation != Operation.Update)
+            {
+                ordered = orderByParent(ordered, type, operation == Operation.Delete);
+            }
+            batches.add(new Batch(operation, ordered));
+        }
+    }
+
+    /**
+     * Orders entities by identifier, identifiers not yet assigned last.
+     *
+     * @param entities The entities in registration order
+     * @return The entities ordered by identifier, or in registration order when the identifiers are not comparable
+     */
+    @SuppressWarnings("unchecked")
+    private static List<RootEntity<?, ?, ?>> orderByIdentifier(List<RootEntity<?, ?, ?>> entities)
+    {
+        for (RootEntity<?, ?, ?> entity : entities)
+        {
+            if (entity.getId() != null && !(entity.getId() instanceof Comparable))
+            {
+                return entities;
+            }
+        }
+        List<RootEntity<?, ?, ?>> ordered = new ArrayList<>(entities);
+        try
+        {
+            ordered.sort(Comparator.comparing(entity -> (Comparable<Object>) entity.getId(), Comparator.nullsLast(Comparator.naturalOrder())));
+        }
+        catch (ClassCastException e)
+        {
+            //identifiers of different types cannot be compared with each other
+            return entities;
+        }
+        return ordered;
+    }
+
+    /**
+     * Orders entities of a type that references itself so that every parent in the batch comes before its children,
+     * or after them when deleting, keeping the given order otherwise.
+     *
+     * @param entities      The entities in identifier order
+     * @param type          The entity type
+     * @param childrenFirst If children come before their parents
+     * @return The entities in write order
+     */
+    private static List<RootEntity<?, ?, ?>> orderByParent(List<RootEntity<?, ?, ?>> entities, Class<?> type, boolean childrenFirst)
+    {
+        List<Field> parentFields = new ArrayList<>();
+        for (Field field : owningFields(type))
+        {
+            if (field.getType()
+                     .isAssignableFrom(type))
+            {
+                parentFields.add(field);
+            }
+        }
+        if (parentFields.isEmpty() || entities.size() < 2)
+        {
+            return entities;
+        }
+        Set<Object> batch = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Object, RootEntity<?, ?, ?>> byId = new HashMap<>();
+        for (RootEntity<?, ?, ?> entity : entities)
+        {
+            batch.add(entity);
+            if (entity.getId() != null)
+            {
+                byId.put(entity.getId(), entity);
+            }
+        }
+        Map<RootEntity<?, ?, ?>, List<RootEntity<?, ?, ?>>> before = new IdentityHashMap<>();
+        for (RootEntity<?, ?, ?> entity : entities)
+        {
+            for (Field field : parentFields)
+            {
+                RootEntity<?, ?, ?> parent = readParent(field, entity);
+                //a lazy parent is a proxy, match it to the batch by identifier
+                if (parent != null && !batch.contains(parent))
+                {
+                    parent = parent.getId() == null ? null : byId.get(parent.getId());
+                }
+                if (parent != null && parent != entity)
+                {
+                    before.computeIfAbsent(childrenFirst ? parent : entity, key -> new ArrayList<>())
+                          .add(childrenFirst ? entity : parent);
+                }
+            }
+        }
+        List<RootEntity<?, ?, ?>> ordered = new ArrayList<>(entities.size());
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (RootEntity<?, ?, ?> entity : entities)
+        {
+            visit(entity, before, visited, ordered);
+        }
+        return ordered;
+    }
+
+    /**
+     * Adds an entity to the write order after the entities that must be written before it.
+     *
+     * @param entity  The entity
+     * @param before  The entities to write before each entity
+     * @param visited The entities already added or being added, which also breaks cycles
+     * @param ordered The write order
+     */
+    private static void visit(RootEntity<?, ?, ?> entity, Map<RootEntity<?, ?, ?>, List<RootEntity<?, ?, ?>>> before, Set<Object> visited,
+                              List<RootEntity<?, ?, ?>> ordered)
+    {
+        if (!visited.add(entity))
+        {
+            return;
+        }
+        for (RootEntity<?, ?, ?> first : before.getOrDefault(entity, List.of()))
+        {
+            visit(first, before, visited, ordered);
+        }
+        ordered.add(entity);
+    }
+
+    /**
+     * Reads the parent an entity references through an association to its own type.
+     *
+     * @param field  The association field
+     * @param entity The entity
+     * @return The parent, null when not set or not an entity of this library
+     */
+    private static RootEntity<?, ?, ?> readParent(Field field, RootEntity<?, ?, ?> entity)
+    {
+        try
+        {
+            field.setAccessible(true);
+            return field.get(entity) instanceof RootEntity<?, ?, ?> parent ? parent : null;
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            throw new EntityAssistException("Unable to read association [" + field.getName() + "] from " + entity.getClass()
+                                                                                                              .getName(), e);
+        }
+    }
+
+    /**
+     * Sends one batch through the session.
+     *
+     * @param session The stateless session
+     * @param batch   The batch
+     * @return Uni completing once the batch executed
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Uni<Void> execute(Mutiny.StatelessSession session, Batch batch)
+    {
+        List<RootEntity> writing = new ArrayList<>();
+        RootEntity first = batch.entities()
+                                .get(0);
+        var builder = first.builder(session);
+        for (RootEntity entity : batch.entities())
+        {
+            boolean approved = switch (batch.operation())
+            {
+                case Persist -> builder.onCreate(entity);
+                case Update -> builder.onUpdate(entity);
+                case Delete -> true;
+            };
+            if (approved)
+            {
+                writing.add(entity);
+            }
+        }
+        if (writing.isEmpty())
+        {
+            return Uni.createFrom()
+                      .voidItem();
+        }
+        statements++;
+        Uni<Void> executed = switch (batch.operation())
+        {
+            case Persist -> builder.assignIdentifiers(writing)
+                                   .chain(() -> {
+                                       for (RootEntity entity : writing)
+                                       {
+                                           builder.prepareStatelessInsert(entity);
+                                       }
+                                       return session.insertAll(batchSize, writing.toArray());
+                                   });
+            case Update -> session.updateAll(batchSize, writing.toArray());
+            case Delete -> session.deleteAll(batchSize, writing.toArray());
+        };
+        return executed.invoke(() -> {
+            for (RootEntity entity : writing)
+            {
+                entity.setFake(false);
+                entity.clearChanges();
+                QueryCaches.invalidate(entity, session);
+            }
+        });
+    }
+
+    /**
+     * A write operation
+     */
+    private enum Operation
+    {
+        Persist,
+        Update,
+        Delete,
+    }
+
+    /**
+     * The pending write of an entity
+     */
+    private record Write(RootEntity<?, ?, ?> entity, Operation operation)
+    {
+    }
+
+    /**
+     * The entities of one type written by one operation
+     */
+    private record Batch(Operation operation, List<RootEntity<?, ?, ?>> entities)
+    {
+    }
+}
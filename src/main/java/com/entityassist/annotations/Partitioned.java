@@ -0,0 +1,36 @@
+package com.entityassist.annotations;
+
+import com.entityassist.enumerations.PartitionInterval;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that the table of an entity is range partitioned on a temporal attribute.
+ * <p>
+ * The query builders of the entity then always render a prunable literal range on the partition key, warn about
+ * queries without a partition key filter, and can split long ranges into one query per partition. Builders may
+ * declare the same metadata by overriding {@code getPartitionKeyAttribute()} and {@code getPartitionInterval()}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Partitioned
+{
+    /**
+     * The temporal attribute the table is partitioned on
+     *
+     * @return The attribute name
+     */
+    String attribute();
+
+    /**
+     * The width of each partition
+     *
+     * @return The partition interval
+     */
+    PartitionInterval interval() default PartitionInterval.Month;
+}
@@ -0,0 +1,173 @@
+package com.entityassist.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters for a single cache region.
+ * <p>
+ * Counters are striped {@link LongAdder}s so that recording from many event loop threads does not
+ * contend on a single memory location. Values are a live view and are not reset on read.
+ */
+public final class CacheStatistics
+{
+    private final String region;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates the statistics holder for a region.
+     *
+     * @param region The region name
+     */
+    public CacheStatistics(String region)
+    {
+        this.region = region;
+    }
+
+    /**
+     * Records a cache hit.
+     */
+    public void recordHit()
+    {
+        hits.increment();
+    }
+
+    /**
+     * Records a cache miss.
+     */
+    public void recordMiss()
+    {
+        misses.increment();
+    }
+
+    /**
+     * Records a stored entry.
+     */
+    public void recordPut()
+    {
+        puts.increment();
+    }
+
+    /**
+     * Records an entry removed to stay within the size bound.
+     */
+    public void recordEviction()
+    {
+        evictions.increment();
+    }
+
+    /**
+     * Records an entry removed because its time to live elapsed.
+     */
+    public void recordExpiration()
+    {
+        expirations.increment();
+    }
+
+    /**
+     * Records an entry removed because a write made it stale.
+     */
+    public void recordInvalidation()
+    {
+        invalidations.increment();
+    }
+
+    /**
+     * Returns the region name.
+     *
+     * @return The region
+     */
+    public String getRegion()
+    {
+        return region;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return The hit count
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to go to the database.
+     *
+     * @return The miss count
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries stored.
+     *
+     * @return The put count
+     */
+    public long getPuts()
+    {
+        return puts.sum();
+    }
+
+    /**
+     * Returns the number of entries removed to stay within the size bound.
+     *
+     * @return The eviction count
+     */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of entries removed after their time to live.
+     *
+     * @return The expiration count
+     */
+    public long getExpirations()
+    {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because a write invalidated them.
+     *
+     * @return The invalidation count
+     */
+    public long getInvalidations()
+    {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns the ratio of hits to lookups.
+     *
+     * @return A value between 0 and 1, 0 when nothing was looked up yet
+     */
+    public double getHitRatio()
+    {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0d : (double) h / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStatistics{region=" + region
+               + ", hits=" + getHits()
+               + ", misses=" + getMisses()
+               + ", puts=" + getPuts()
+               + ", evictions=" + getEvictions()
+               + ", expirations=" + getExpirations()
+               + ", invalidations=" + getInvalidations()
+               + '}';
+    }
+}
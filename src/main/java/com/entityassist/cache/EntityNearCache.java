@@ -0,0 +1,406 @@
+package com.entityassist.cache;
+
+import com.entityassist.EntityAssistException;
+
+import jakarta.persistence.Transient;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cross-session cache of entity snapshots keyed by identifier, for reference data that is read by id
+ * on almost every request.
+ * <p>
+ * Caching is opt-in per entity class through {@link #enable(Class, int, Duration)}. Once enabled,
+ * {@code find(id).get()} and {@code find(ids).getAll()} on stateless sessions are answered from the cache first;
+ * stateful sessions always load, as they must hand out managed instances whose changes are flushed. The cache holds
+ * its own shallow copy of every entity and hands out a fresh copy on each hit, so callers may modify what
+ * they receive without affecting other readers. Returned instances are detached from any session;
+ * associations are copied by reference and should already be initialised.
+ * <p>
+ * Writes through the builders evict the written identifier; bulk deletes clear the whole class.
+ */
+public final class EntityNearCache
+{
+    private static final Map<Class<?>, List<Field>> copyableFields = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty near-cache with no entity classes enabled.
+     */
+    public EntityNearCache()
+    {
+        //No configuration required
+    }
+
+    /**
+     * Enables caching for an entity class, replacing any previous configuration and content.
+     *
+     * @param entityClass The entity class
+     * @param maximumSize The maximum number of cached entities, least recently used are evicted first
+     * @param ttl         How long a snapshot may be served
+     * @return This
+     */
+    public EntityNearCache enable(Class<?> entityClass, int maximumSize, Duration ttl)
+    {
+        if (maximumSize < 1 || ttl == null || ttl.isNegative() || ttl.isZero())
+        {
+            throw new EntityAssistException("Near-cache size and time to live must be positive");
+        }
+        regions.put(entityClass, new Region(entityClass.getName(), maximumSize, ttl.toNanos()));
+        return this;
+    }
+
+    /**
+     * Disables caching for an entity class and drops its entries.
+     *
+     * @param entityClass The entity class
+     */
+    public void disable(Class<?> entityClass)
+    {
+        regions.remove(entityClass);
+    }
+
+    /**
+     * Returns whether the entity class is near-cached.
+     *
+     * @param entityClass The entity class
+     * @return true when enabled
+     */
+    public boolean isEnabled(Class<?> entityClass)
+    {
+        return regions.containsKey(entityClass);
+    }
+
+    /**
+     * Returns a copy of the cached entity with the given identifier.
+     *
+     * @param entityClass The entity class
+     * @param id          The identifier
+     * @param <E>         The entity type
+     * @return A fresh copy of the snapshot, empty on a miss or for a class that is not enabled
+     */
+    public <E> Optional<E> get(Class<E> entityClass, Object id)
+    {
+        Region region = regions.get(entityClass);
+        if (region == null || id == null)
+        {
+            return Optional.empty();
+        }
+        Entry entry;
+        synchronized (region)
+        {
+            entry = region.entries.get(id);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0)
+            {
+                region.remove(id);
+                region.statistics.recordExpiration();
+                entry = null;
+            }
+        }
+        if (entry == null)
+        {
+            region.statistics.recordMiss();
+            return Optional.empty();
+        }
+        region.statistics.recordHit();
+        return Optional.of(entityClass.cast(copy(entry.snapshot)));
+    }
+
+    /**
+     * Returns the write version of an entity class, read before loading so that {@link #put} can reject
+     * an entity that was written while it was being loaded.
+     *
+     * @param entityClass The entity class
+     * @return The current version, 0 for a class that is not enabled
+     */
+    public long version(Class<?> entityClass)
+    {
+        Region region = regions.get(entityClass);
+        return region == null ? 0 : region.version.get();
+    }
+
+    /**
+     * Stores a snapshot of a loaded entity.
+     *
+     * @param entityClass The entity class
+     * @param id          The identifier
+     * @param entity      The loaded entity, copied before it is stored
+     * @param version     The {@link #version(Class)} read before the entity was loaded
+     */
+    public void put(Class<?> entityClass, Object id, Object entity, long version)
+    {
+        Region region = regions.get(entityClass);
+        if (region == null || id == null || entity == null || region.version.get() != version)
+        {
+            return;
+        }
+        Object snapshot = copy(entity);
+        long bytes = estimateSize(snapshot);
+        synchronized (region)
+        {
+            if (region.version.get() != version)
+            {
+                return;
+            }
+            region.remove(id);
+            region.entries.put(id, new Entry(snapshot, bytes, System.nanoTime() + region.ttlNanos));
+            region.bytes += bytes;
+            Iterator<Map.Entry<Object, Entry>> eldest = region.entries.entrySet()
+                                                                      .iterator();
+            while (region.entries.size() > region.maximumSize && eldest.hasNext())
+            {
+                region.bytes -= eldest.next()
+                                      .getValue().bytes;
+                eldest.remove();
+                region.statistics.recordEviction();
+            }
+        }
+        region.statistics.recordPut();
+    }
+
+    /**
+     * Evicts a single entity after it was written.
+     *
+     * @param entityClass The written entity class, enabled super classes are evicted as well
+     * @param id          The identifier
+     */
+    public void invalidate(Class<?> entityClass, Object id)
+    {
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass())
+        {
+            Region region = regions.get(type);
+            if (region == null)
+            {
+                continue;
+            }
+            synchronized (region)
+            {
+                region.version.incrementAndGet();
+                if (id != null && region.remove(id))
+                {
+                    region.statistics.recordInvalidation();
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears every enabled class assignable to the given type, after a bulk write.
+     *
+     * @param entityClass The written entity class
+     */
+    public void invalidateAll(Class<?> entityClass)
+    {
+        regions.forEach((type, region) -> {
+            if (type.isAssignableFrom(entityClass) || entityClass.isAssignableFrom(type))
+            {
+                synchronized (region)
+                {
+                    region.version.incrementAndGet();
+                    region.entries.clear();
+                    region.bytes = 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the statistics of an entity class.
+     *
+     * @param entityClass The entity class
+     * @return The statistics, empty statistics for a class that is not enabled
+     */
+    public CacheStatistics getStatistics(Class<?> entityClass)
+    {
+        Region region = regions.get(entityClass);
+        return region == null ? new CacheStatistics(entityClass.getName()) : region.statistics;
+    }
+
+    /**
+     * Returns the number of cached entities of an entity class.
+     *
+     * @param entityClass The entity class
+     * @return The entry count
+     */
+    public int getSize(Class<?> entityClass)
+    {
+        Region region = regions.get(entityClass);
+        if (region == null)
+        {
+            return 0;
+        }
+        synchronized (region)
+        {
+            return region.entries.size();
+        }
+    }
+
+    /**
+     * Returns the estimated heap retained by the cached snapshots of an entity class.
+     * <p>
+     * The estimate counts object headers, field slots and the payload of strings, arrays and boxed values
+     * held directly by each snapshot; associated entities are not followed.
+     *
+     * @param entityClass The entity class
+     * @return The estimated size in bytes
+     */
+    public long getEstimatedBytes(Class<?> entityClass)
+    {
+        Region region = regions.get(entityClass);
+        if (region == null)
+        {
+            return 0;
+        }
+        synchronized (region)
+        {
+            return region.bytes;
+        }
+    }
+
+    /**
+     * Creates a shallow copy of the persistent state of an entity.
+     *
+     * @param source The entity to copy
+     * @return A new instance with the same field values
+     */
+    private static Object copy(Object source)
+    {
+        Class<?> type = source.getClass();
+        try
+        {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            Object target = constructor.newInstance();
+            for (Field field : copyableFields.computeIfAbsent(type, EntityNearCache::resolveCopyableFields))
+            {
+                field.set(target, field.get(source));
+            }
+            return target;
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            throw new EntityAssistException("Unable to snapshot " + type.getName() + " for the near-cache. Ensure a no-arg constructor exists and the package is open to com.entityassist", e);
+        }
+    }
+
+    /**
+     * Resolves the instance fields that make up the persistent state of a class and its super classes.
+     *
+     * @param type The entity class
+     * @return The accessible fields
+     */
+    private static List<Field> resolveCopyableFields(Class<?> type)
+    {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            for (Field field : current.getDeclaredFields())
+            {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers)
+                    || field.isAnnotationPresent(Transient.class)
+                    || field.getName()
+                            .startsWith("$$_hibernate"))
+                {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Estimates the shallow heap of a snapshot plus the strings, arrays and boxed values it references.
+     *
+     * @param snapshot The snapshot
+     * @return The estimated size in bytes
+     */
+    private static long estimateSize(Object snapshot)
+    {
+        List<Field> fields = copyableFields.get(snapshot.getClass());
+        long bytes = 16 + 8L * fields.size();
+        for (Field field : fields)
+        {
+            if (field.getType()
+                     .isPrimitive())
+            {
+                continue;
+            }
+            try
+            {
+                Object value = field.get(snapshot);
+                if (value instanceof String string)
+                {
+                    bytes += 40 + string.length();
+                }
+                else if (value instanceof byte[] array)
+                {
+                    bytes += 16 + array.length;
+                }
+                else if (value instanceof Number || value instanceof Boolean || value instanceof Character
+                         || value instanceof Enum<?> || value instanceof Temporal)
+                {
+                    bytes += value instanceof Enum<?> ? 0 : 24;
+                }
+            }
+            catch (IllegalAccessException e)
+            {
+                //accessible since resolveCopyableFields
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The cached snapshots of one entity class, in access order
+     */
+    private static final class Region
+    {
+        private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final AtomicLong version = new AtomicLong();
+        private final CacheStatistics statistics;
+        private final int maximumSize;
+        private final long ttlNanos;
+        private long bytes;
+
+        private Region(String name, int maximumSize, long ttlNanos)
+        {
+            this.statistics = new CacheStatistics(name);
+            this.maximumSize = maximumSize;
+            this.ttlNanos = ttlNanos;
+        }
+
+        private boolean remove(Object id)
+        {
+            Entry removed = entries.remove(id);
+            if (removed != null)
+            {
+                bytes -= removed.bytes;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A cached snapshot with its estimated size and expiry deadline
+     */
+    private record Entry(Object snapshot, long bytes, long expiresAt)
+    {
+    }
+}
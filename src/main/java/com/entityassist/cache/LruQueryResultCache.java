@@ -0,0 +1,229 @@
+package com.entityassist.cache;
+
+import com.entityassist.EntityAssistException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link QueryResultCache} - a weight bounded, least-recently-used store per region.
+ * <p>
+ * The weight of an entry is the number of rows it holds (one for single results), so a region bound
+ * limits the retained rows rather than the number of queries. Each region is guarded by its own lock;
+ * invalidation is a constant-time version bump per entity type, and stale entries are discarded the
+ * next time they are read or when they reach the cold end of the LRU order.
+ */
+public class LruQueryResultCache implements QueryResultCache
+{
+    /**
+     * The default maximum weight (retained rows) per region
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 100_000;
+
+    private final long defaultMaximumWeight;
+    private final Map<String, Long> maximumWeights = new ConcurrentHashMap<>();
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private final Map<String, CacheStatistics> statistics = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache with the {@link #DEFAULT_MAXIMUM_WEIGHT} per region.
+     */
+    public LruQueryResultCache()
+    {
+        this(DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * Creates a cache with the given maximum weight per region.
+     *
+     * @param defaultMaximumWeight The maximum number of retained rows per region
+     */
+    public LruQueryResultCache(long defaultMaximumWeight)
+    {
+        if (defaultMaximumWeight < 1)
+        {
+            throw new EntityAssistException("Maximum cache weight must be positive");
+        }
+        this.defaultMaximumWeight = defaultMaximumWeight;
+    }
+
+    /**
+     * Overrides the maximum weight of a single region. Applies to entries stored after the call.
+     *
+     * @param region        The region name
+     * @param maximumWeight The maximum number of retained rows
+     * @return This
+     */
+    public LruQueryResultCache setMaximumWeight(String region, long maximumWeight)
+    {
+        if (maximumWeight < 1)
+        {
+            throw new EntityAssistException("Maximum cache weight must be positive");
+        }
+        maximumWeights.put(region, maximumWeight);
+        return this;
+    }
+
+    @Override
+    public Optional<Object> get(String region, QueryKey key)
+    {
+        CacheStatistics stats = getStatistics(region);
+        Region store = regions.get(region);
+        if (store == null)
+        {
+            stats.recordMiss();
+            return Optional.empty();
+        }
+        Entry entry;
+        synchronized (store)
+        {
+            entry = store.entries.get(key);
+            if (entry != null)
+            {
+                if (entry.expiresAt - System.nanoTime() <= 0)
+                {
+                    store.remove(key);
+                    stats.recordExpiration();
+                    entry = null;
+                }
+                else if (entry.version != version(key))
+                {
+                    store.remove(key);
+                    stats.recordInvalidation();
+                    entry = null;
+                }
+            }
+        }
+        if (entry == null)
+        {
+            stats.recordMiss();
+            return Optional.empty();
+        }
+        stats.recordHit();
+        return Optional.ofNullable(entry.value);
+    }
+
+    @Override
+    public long version(QueryKey key)
+    {
+        long version = 0;
+        for (Class<?> type : key.getEntityTypes())
+        {
+            AtomicLong generation = generations.get(type);
+            if (generation != null)
+            {
+                version += generation.get();
+            }
+        }
+        return version;
+    }
+
+    @Override
+    public void put(String region, QueryKey key, Object value, Duration ttl, long version)
+    {
+        if (ttl == null || ttl.isZero() || ttl.isNegative() || version != version(key))
+        {
+            //already stale - a write landed while the query was running
+            return;
+        }
+        long maximumWeight = maximumWeights.getOrDefault(region, defaultMaximumWeight);
+        long weight = value instanceof Collection<?> collection ? Math.max(1, collection.size()) : 1;
+        if (weight > maximumWeight)
+        {
+            return;
+        }
+        CacheStatistics stats = getStatistics(region);
+        Region store = regions.computeIfAbsent(region, r -> new Region());
+        synchronized (store)
+        {
+            store.remove(key);
+            store.entries.put(key, new Entry(value, weight, version, System.nanoTime() + ttl.toNanos()));
+            store.weight += weight;
+            Iterator<Map.Entry<QueryKey, Entry>> eldest = store.entries.entrySet()
+                                                                       .iterator();
+            while (store.weight > maximumWeight && eldest.hasNext())
+            {
+                Map.Entry<QueryKey, Entry> next = eldest.next();
+                if (next.getKey()
+                        .equals(key))
+                {
+                    continue;
+                }
+                store.weight -= next.getValue().weight;
+                eldest.remove();
+                stats.recordEviction();
+            }
+        }
+        stats.recordPut();
+    }
+
+    @Override
+    public void invalidate(Class<?> entityType)
+    {
+        Class<?> current = entityType;
+        while (current != null && current != Object.class)
+        {
+            generations.computeIfAbsent(current, t -> new AtomicLong())
+                       .incrementAndGet();
+            current = current.getSuperclass();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        regions.values()
+               .forEach(store -> {
+                   synchronized (store)
+                   {
+                       store.entries.clear();
+                       store.weight = 0;
+                   }
+               });
+    }
+
+    @Override
+    public CacheStatistics getStatistics(String region)
+    {
+        return statistics.computeIfAbsent(region, CacheStatistics::new);
+    }
+
+    @Override
+    public Map<String, CacheStatistics> getStatistics()
+    {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * An access ordered entry map with its running weight
+     */
+    private static final class Region
+    {
+        private final LinkedHashMap<QueryKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long weight;
+
+        private void remove(QueryKey key)
+        {
+            Entry removed = entries.remove(key);
+            if (removed != null)
+            {
+                weight -= removed.weight;
+            }
+        }
+    }
+
+    /**
+     * A stored result with its weight, version stamp and expiry deadline
+     */
+    private record Entry(Object value, long weight, long version, long expiresAt)
+    {
+    }
+}
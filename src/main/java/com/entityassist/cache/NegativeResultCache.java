@@ -0,0 +1,182 @@
+package com.entityassist.cache;
+
+import com.entityassist.EntityAssistException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers single-row lookups that found nothing, so repeated misses are answered in memory.
+ * <p>
+ * Only the fact that a query shape with its binds returned no row is stored - never a value. The store
+ * is bounded by entry count with least-recently-used eviction, entries carry the short time to live of
+ * the builder that recorded them, and any write of a queried entity type makes its entries stale.
+ */
+public final class NegativeResultCache
+{
+    /**
+     * The default maximum number of remembered misses
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final LinkedHashMap<QueryKey, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final CacheStatistics statistics = new CacheStatistics("negative");
+    private volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * Creates an empty negative result cache.
+     */
+    public NegativeResultCache()
+    {
+        //No configuration required
+    }
+
+    /**
+     * Sets the maximum number of remembered misses.
+     *
+     * @param maximumSize The entry bound, least recently used entries are evicted first
+     * @return This
+     */
+    public NegativeResultCache setMaximumSize(int maximumSize)
+    {
+        if (maximumSize < 1)
+        {
+            throw new EntityAssistException("Negative cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Returns whether the query is known to return no row.
+     *
+     * @param key The query key
+     * @return true when a live, non-stale miss is recorded
+     */
+    public boolean isKnownMiss(QueryKey key)
+    {
+        boolean known;
+        synchronized (entries)
+        {
+            Entry entry = entries.get(key);
+            known = entry != null;
+            if (known && entry.expiresAt - System.nanoTime() <= 0)
+            {
+                entries.remove(key);
+                statistics.recordExpiration();
+                known = false;
+            }
+            else if (known && entry.version != version(key))
+            {
+                entries.remove(key);
+                statistics.recordInvalidation();
+                known = false;
+            }
+        }
+        if (known)
+        {
+            statistics.recordHit();
+        }
+        else
+        {
+            statistics.recordMiss();
+        }
+        return known;
+    }
+
+    /**
+     * Returns the combined write version of the entity types the key reads from.
+     *
+     * @param key The query key
+     * @return A value that changes whenever one of the key's entity types is written
+     */
+    public long version(QueryKey key)
+    {
+        long version = 0;
+        for (Class<?> type : key.getEntityTypes())
+        {
+            AtomicLong generation = generations.get(type);
+            if (generation != null)
+            {
+                version += generation.get();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Records that the query returned no row.
+     *
+     * @param key     The query key
+     * @param ttl     How long the miss may be served
+     * @param version The {@link #version(QueryKey)} read before the query was executed
+     */
+    public void recordMiss(QueryKey key, Duration ttl, long version)
+    {
+        if (ttl == null || ttl.isNegative() || ttl.isZero() || version != version(key))
+        {
+            return;
+        }
+        synchronized (entries)
+        {
+            entries.put(key, new Entry(version, System.nanoTime() + ttl.toNanos()));
+            var eldest = entries.entrySet()
+                                .iterator();
+            while (entries.size() > maximumSize && eldest.hasNext())
+            {
+                eldest.next();
+                eldest.remove();
+                statistics.recordEviction();
+            }
+        }
+        statistics.recordPut();
+    }
+
+    /**
+     * Makes every remembered miss reading from the entity type or one of its super types stale.
+     *
+     * @param entityType The written entity type
+     */
+    public void invalidate(Class<?> entityType)
+    {
+        for (Class<?> type = entityType; type != null && type != Object.class; type = type.getSuperclass())
+        {
+            generations.computeIfAbsent(type, t -> new AtomicLong())
+                       .incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of remembered misses, stale entries included until they are next touched.
+     *
+     * @return The entry count
+     */
+    public int getSize()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the hit, miss and eviction statistics.
+     *
+     * @return The statistics
+     */
+    public CacheStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * A remembered miss with its version stamp and expiry deadline
+     */
+    private record Entry(long version, long expiresAt)
+    {
+    }
+}
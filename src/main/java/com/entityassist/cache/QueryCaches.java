@@ -0,0 +1,229 @@
+package com.entityassist.cache;
+
+import com.entityassist.services.entities.IRootEntity;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Static registry of the application-level caches used by the query builders.
+ * <p>
+ * A {@link LruQueryResultCache} is registered by default; replace it at boot with
+ * {@link #setResultCache(QueryResultCache)} to plug in another implementation. The {@link EntityNearCache}
+ * starts with no entity classes enabled. Writes performed through the builders call
+ * {@link #invalidate(IRootEntity, Object)} or {@link #invalidate(Class, Object)} automatically - call them directly
+ * after writes that bypass the builders, such as native statements.
+ * <p>
+ * A write inside a transaction is not visible to other sessions until the commit, so a reader could load the old
+ * row after the invalidation and store it again. The written types are therefore held until the writing session's
+ * transaction ended: while held, no cache stores results reading from them, and once the transaction ended they are
+ * invalidated a second time.
+ */
+public final class QueryCaches
+{
+    private static volatile QueryResultCache resultCache = new LruQueryResultCache();
+    private static final EntityNearCache nearCache = new EntityNearCache();
+    private static final SingleFlight singleFlight = new SingleFlight();
+    private static final NegativeResultCache negativeCache = new NegativeResultCache();
+    private static final Map<Object, List<Object>> uncommittedWrites = new IdentityHashMap<>();
+
+    private QueryCaches()
+    {
+        // utility class
+    }
+
+    /**
+     * Returns the active query result cache.
+     *
+     * @return The result cache
+     */
+    public static QueryResultCache getResultCache()
+    {
+        return resultCache;
+    }
+
+    /**
+     * Replaces the active query result cache.
+     *
+     * @param resultCache The cache implementation to use
+     */
+    public static void setResultCache(QueryResultCache resultCache)
+    {
+        QueryCaches.resultCache = Objects.requireNonNull(resultCache, "resultCache may not be null");
+    }
+
+    /**
+     * Returns the cross-session entity near-cache.
+     *
+     * @return The near-cache
+     */
+    public static EntityNearCache getNearCache()
+    {
+        return nearCache;
+    }
+
+    /**
+     * Returns the single-flight group that coalesces identical in-flight queries.
+     *
+     * @return The single-flight group
+     */
+    public static SingleFlight getSingleFlight()
+    {
+        return singleFlight;
+    }
+
+    /**
+     * Returns the cache of single-row lookups known to return nothing.
+     *
+     * @return The negative result cache
+     */
+    public static NegativeResultCache getNegativeCache()
+    {
+        return negativeCache;
+    }
+
+    /**
+     * Marks every cached result reading from the given entity type as stale and clears its near-cached
+     * entities. Used after bulk writes.
+     *
+     * @param entityType The written entity type
+     */
+    public static void invalidate(Class<?> entityType)
+    {
+        if (entityType != null)
+        {
+            resultCache.invalidate(entityType);
+            negativeCache.invalidate(entityType);
+            nearCache.invalidateAll(entityType);
+        }
+    }
+
+    /**
+     * Marks every cached result reading from the entity's type as stale and evicts the entity from the
+     * near-cache. Used after single entity writes.
+     *
+     * @param entity The written entity
+     */
+    public static void invalidate(IRootEntity<?, ?, ?> entity)
+    {
+        if (entity != null)
+        {
+            resultCache.invalidate(entity.getClass());
+            negativeCache.invalidate(entity.getClass());
+            nearCache.invalidate(entity.getClass(), entity.getId());
+        }
+    }
+
+    /**
+     * Invalidates after a bulk write through a session, holding the type until the session's transaction ended.
+     *
+     * @param entityType The written entity type
+     * @param session    The writing {@link Mutiny.Session} or {@link Mutiny.StatelessSession}
+     */
+    public static void invalidate(Class<?> entityType, Object session)
+    {
+        invalidate(entityType);
+        holdUntilCommitted(session, entityType);
+    }
+
+    /**
+     * Invalidates after a single entity write through a session, holding its type until the session's transaction
+     * ended.
+     *
+     * @param entity  The written entity
+     * @param session The writing {@link Mutiny.Session} or {@link Mutiny.StatelessSession}
+     */
+    public static void invalidate(IRootEntity<?, ?, ?> entity, Object session)
+    {
+        invalidate(entity);
+        holdUntilCommitted(session, entity);
+    }
+
+    /**
+     * Returns whether an uncommitted write of one of the entity types, or of a sub or super type, is held. Results
+     * reading from those types must not be stored.
+     * <p>
+     * Releases the writes of sessions whose transaction ended first, invalidating them a second time, so a result
+     * loaded before the commit fails the version check of its store.
+     *
+     * @param entityTypes The entity types a result reads from
+     * @return true while a write is uncommitted
+     */
+    public static boolean isWritePending(Collection<Class<?>> entityTypes)
+    {
+        List<Object> committed = new ArrayList<>();
+        boolean pending = false;
+        synchronized (uncommittedWrites)
+        {
+            Iterator<Map.Entry<Object, List<Object>>> writes = uncommittedWrites.entrySet()
+                                                                                .iterator();
+            while (writes.hasNext())
+            {
+                Map.Entry<Object, List<Object>> write = writes.next();
+                if (!isInTransaction(write.getKey()))
+                {
+                    committed.addAll(write.getValue());
+                    writes.remove();
+                    continue;
+                }
+                for (Object written : write.getValue())
+                {
+                    Class<?> writtenType = written instanceof Class<?> type ? type : written.getClass();
+                    for (Class<?> entityType : entityTypes)
+                    {
+                        pending |= entityType.isAssignableFrom(writtenType) || writtenType.isAssignableFrom(entityType);
+                    }
+                }
+            }
+        }
+        for (Object written : committed)
+        {
+            if (written instanceof Class<?> type)
+            {
+                invalidate(type);
+            }
+            else
+            {
+                invalidate((IRootEntity<?, ?, ?>) written);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Returns whether the session is open with a transaction in progress.
+     *
+     * @param session A {@link Mutiny.Session} or {@link Mutiny.StatelessSession}
+     * @return true while the session's writes may still be uncommitted
+     */
+    public static boolean isInTransaction(Object session)
+    {
+        if (session instanceof Mutiny.Session stateful)
+        {
+            return stateful.isOpen() && stateful.currentTransaction() != null;
+        }
+        if (session instanceof Mutiny.StatelessSession stateless)
+        {
+            return stateless.isOpen() && stateless.currentTransaction() != null;
+        }
+        return false;
+    }
+
+    private static void holdUntilCommitted(Object session, Object written)
+    {
+        if (written != null && isInTransaction(session))
+        {
+            synchronized (uncommittedWrites)
+            {
+                uncommittedWrites.computeIfAbsent(session, s -> new ArrayList<>())
+                                 .add(written);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.entityassist.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The identity of a cacheable query - the normalized query shape plus its bound values.
+ * <p>
+ * The shape is produced from the builder's own expression model (where, select, group by, order by,
+ * joins, CTEs and paging) with every value replaced by a {@code ?} placeholder, so two builders that
+ * would render the same SQL with the same parameters produce equal keys. The entity types the query
+ * reads from are carried alongside for write invalidation, but are not part of the identity.
+ */
+public final class QueryKey
+{
+    private final Class<?> entityClass;
+    private final String shape;
+    private final List<Object> binds;
+    private final Set<Class<?>> entityTypes;
+    private final int hash;
+
+    /**
+     * Creates a new query key.
+     *
+     * @param entityClass The root entity class of the query
+     * @param shape       The normalized query shape
+     * @param binds       The bound values in shape order
+     * @param entityTypes Every entity type the query reads from, used for invalidation
+     */
+    public QueryKey(Class<?> entityClass, String shape, List<Object> binds, Set<Class<?>> entityTypes)
+    {
+        this.entityClass = entityClass;
+        this.shape = shape;
+        this.binds = Collections.unmodifiableList(new ArrayList<>(binds));
+        Set<Class<?>> types = new LinkedHashSet<>(entityTypes);
+        types.add(entityClass);
+        this.entityTypes = Collections.unmodifiableSet(types);
+        this.hash = 31 * (31 * entityClass.hashCode() + shape.hashCode()) + this.binds.hashCode();
+    }
+
+    /**
+     * Returns the root entity class of the query.
+     *
+     * @return The entity class
+     */
+    public Class<?> getEntityClass()
+    {
+        return entityClass;
+    }
+
+    /**
+     * Returns the normalized query shape.
+     *
+     * @return The shape with placeholders for every bound value
+     */
+    public String getShape()
+    {
+        return shape;
+    }
+
+    /**
+     * Returns the bound values in shape order.
+     *
+     * @return An unmodifiable list of values
+     */
+    public List<Object> getBinds()
+    {
+        return binds;
+    }
+
+    /**
+     * Returns every entity type the query reads from, the root entity class included.
+     *
+     * @return An unmodifiable set of entity classes
+     */
+    public Set<Class<?>> getEntityTypes()
+    {
+        return entityTypes;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof QueryKey other))
+        {
+            return false;
+        }
+        return hash == other.hash
+               && entityClass.equals(other.entityClass)
+               && shape.equals(other.shape)
+               && binds.equals(other.binds);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return entityClass.getSimpleName() + "[" + shape + "]" + binds;
+    }
+}
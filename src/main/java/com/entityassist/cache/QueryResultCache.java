@@ -0,0 +1,71 @@
+package com.entityassist.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Application-level store for query results, independent of Hibernate's second-level query cache.
+ * <p>
+ * Entries are grouped into named regions, each with its own size bound and statistics. Staleness is
+ * tracked with a version per entity type: {@link #version(QueryKey)} is read before the query runs and
+ * handed to {@link #put}, and any {@link #invalidate(Class)} in between makes the stored entry unusable.
+ * The active implementation is registered through {@link QueryCaches#setResultCache(QueryResultCache)}.
+ */
+public interface QueryResultCache
+{
+    /**
+     * Looks up a cached result.
+     *
+     * @param region The cache region
+     * @param key    The query key
+     * @return The cached result, empty on a miss, an expired entry or an invalidated entry
+     */
+    Optional<Object> get(String region, QueryKey key);
+
+    /**
+     * Returns the current combined version of the entity types the key reads from.
+     *
+     * @param key The query key
+     * @return A value that changes whenever one of the key's entity types is invalidated
+     */
+    long version(QueryKey key);
+
+    /**
+     * Stores a result.
+     *
+     * @param region  The cache region
+     * @param key     The query key
+     * @param value   The result to store
+     * @param ttl     How long the entry may be served
+     * @param version The {@link #version(QueryKey)} read before the query was executed
+     */
+    void put(String region, QueryKey key, Object value, Duration ttl, long version);
+
+    /**
+     * Invalidates every cached result that reads from the given entity type or one of its super types.
+     *
+     * @param entityType The written entity type
+     */
+    void invalidate(Class<?> entityType);
+
+    /**
+     * Removes every entry from every region.
+     */
+    void clear();
+
+    /**
+     * Returns the statistics of a region, creating empty statistics for an unknown region.
+     *
+     * @param region The region name
+     * @return The region statistics
+     */
+    CacheStatistics getStatistics(String region);
+
+    /**
+     * Returns the statistics of every region that has been used.
+     *
+     * @return The statistics keyed by region name
+     */
+    Map<String, CacheStatistics> getStatistics();
+}
@@ -0,0 +1,247 @@
+package com.entityassist.cache;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical in-flight queries into a single database execution.
+ * <p>
+ * The first subscriber for a key starts the query; every subscriber arriving while it runs joins the
+ * same execution and receives the same result (or failure). Each caller still gets its own {@link Uni},
+ * and the result is delivered on the Vert.x context the caller subscribed from. A cancelling subscriber
+ * only leaves the flight - the underlying query is cancelled when the last remaining subscriber cancels.
+ * Once a flight completes the key is released, so only concurrent executions are shared.
+ */
+public final class SingleFlight
+{
+    private final Map<Object, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+
+    /**
+     * Creates an empty single-flight group.
+     */
+    public SingleFlight()
+    {
+        //No configuration required
+    }
+
+    /**
+     * Executes the loader for the key, or joins the execution already running for an equal key.
+     *
+     * @param key    The identity of the query
+     * @param loader Starts the query, only invoked by the subscriber that starts the flight
+     * @param <T>    The result type
+     * @return A Uni for this caller
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Uni<T> execute(Object key, Supplier<Uni<T>> loader)
+    {
+        return Uni.createFrom()
+                  .emitter(emitter -> {
+                      Member member = new Member((UniEmitter<Object>) emitter, Vertx.currentContext());
+                      while (true)
+                      {
+                          Flight flight = inFlight.computeIfAbsent(key, k -> new Flight(key));
+                          if (flight.join(member))
+                          {
+                              emitter.onTermination(() -> flight.leave(member));
+                              if (flight.claimStart())
+                              {
+                                  executions.increment();
+                                  Uni<Object> query;
+                                  try
+                                  {
+                                      query = (Uni<Object>) loader.get();
+                                  }
+                                  catch (RuntimeException e)
+                                  {
+                                      query = Uni.createFrom()
+                                                 .failure(e);
+                                  }
+                                  flight.start(query);
+                              }
+                              else
+                              {
+                                  coalesced.increment();
+                              }
+                              return;
+                          }
+                          //completed or abandoned between lookup and join
+                          inFlight.remove(key, flight);
+                      }
+                  });
+    }
+
+    /**
+     * Returns the number of queries that were actually executed.
+     *
+     * @return The execution count
+     */
+    public long getExecutions()
+    {
+        return executions.sum();
+    }
+
+    /**
+     * Returns the number of subscribers that joined an execution already in flight.
+     *
+     * @return The coalesced subscriber count
+     */
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of executions cancelled because every subscriber cancelled.
+     *
+     * @return The cancelled execution count
+     */
+    public long getCancellations()
+    {
+        return cancellations.sum();
+    }
+
+    /**
+     * Returns the number of keys currently in flight.
+     *
+     * @return The in-flight count
+     */
+    public int getInFlight()
+    {
+        return inFlight.size();
+    }
+
+    /**
+     * A subscriber and the Vert.x context it subscribed from
+     */
+    private record Member(UniEmitter<Object> emitter, Context context)
+    {
+        private void deliver(Object item, Throwable failure)
+        {
+            if (context != null && context != Vertx.currentContext())
+            {
+                context.runOnContext(v -> complete(item, failure));
+            }
+            else
+            {
+                complete(item, failure);
+            }
+        }
+
+        private void complete(Object item, Throwable failure)
+        {
+            if (failure != null)
+            {
+                emitter.fail(failure);
+            }
+            else
+            {
+                emitter.complete(item);
+            }
+        }
+    }
+
+    /**
+     * One running execution and its subscribers
+     */
+    private final class Flight
+    {
+        private final Object key;
+        private final List<Member> members = new ArrayList<>();
+        private boolean started;
+        private boolean closed;
+        private Cancellable upstream;
+
+        private Flight(Object key)
+        {
+            this.key = key;
+        }
+
+        private synchronized boolean join(Member member)
+        {
+            if (closed)
+            {
+                return false;
+            }
+            members.add(member);
+            return true;
+        }
+
+        private synchronized boolean claimStart()
+        {
+            if (started || closed)
+            {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+
+        private void start(Uni<Object> query)
+        {
+            Cancellable subscription = query.subscribe()
+                                            .with(item -> finish(item, null), failure -> finish(null, failure));
+            boolean cancelNow;
+            synchronized (this)
+            {
+                upstream = subscription;
+                //every member may have left before the subscription handle was available
+                cancelNow = closed && members.isEmpty();
+            }
+            if (cancelNow)
+            {
+                subscription.cancel();
+            }
+        }
+
+        private void finish(Object item, Throwable failure)
+        {
+            List<Member> delivering;
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                closed = true;
+                delivering = new ArrayList<>(members);
+                members.clear();
+            }
+            inFlight.remove(key, this);
+            delivering.forEach(member -> member.deliver(item, failure));
+        }
+
+        private void leave(Member member)
+        {
+            Cancellable cancelling = null;
+            synchronized (this)
+            {
+                if (closed || !members.remove(member) || !members.isEmpty())
+                {
+                    return;
+                }
+                closed = true;
+                cancelling = upstream;
+            }
+            inFlight.remove(key, this);
+            cancellations.increment();
+            if (cancelling != null)
+            {
+                cancelling.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.entityassist.enumerations;
+
+/**
+ * How a large collection of values is applied as a membership filter, chosen by the size of the collection.
+ */
+public enum IdFilterStrategy
+{
+	/**
+	 * An {@code IN} list with one parameter per value
+	 */
+	Inline,
+	/**
+	 * A single array parameter rendered as {@code = ANY(?)}
+	 */
+	Array,
+	/**
+	 * A semi-join over the rows of a single array parameter, {@code IN (SELECT unnest(?))}
+	 */
+	Values,
+	/**
+	 * A session-scoped temporary table loaded before the query and joined as a semi-join
+	 */
+	TemporaryTable,
+}
@@ -0,0 +1,24 @@
+package com.entityassist.enumerations;
+
+/**
+ * How {@link Operand#InList} and {@link Operand#NotInList} values are bound to the statement.
+ */
+public enum InListBinding
+{
+	/**
+	 * Array binding where the dialect supports it, padded binding everywhere else
+	 */
+	Auto,
+	/**
+	 * A single array parameter rendered as {@code = ANY(?)}, one statement text for every list size
+	 */
+	Array,
+	/**
+	 * One parameter per value, padded to the next power of two by repeating the last value
+	 */
+	Padded,
+	/**
+	 * One parameter per value, a distinct statement text for every list size
+	 */
+	Expanded,
+}
@@ -0,0 +1,20 @@
+package com.entityassist.enumerations;
+
+/**
+ * The ordering guarantee of an ingestion pipeline.
+ */
+public enum IngestOrdering
+{
+	/**
+	 * Batches are inserted in parallel and emitted as they complete
+	 */
+	Unordered,
+	/**
+	 * Batches are inserted in parallel and emitted in source order
+	 */
+	SourceOrder,
+	/**
+	 * Batches are inserted one after the other, so they commit in source order
+	 */
+	Sequential,
+}
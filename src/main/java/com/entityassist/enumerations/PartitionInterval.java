@@ -0,0 +1,28 @@
+package com.entityassist.enumerations;
+
+/**
+ * The width of the range partitions of a time partitioned table.
+ */
+public enum PartitionInterval
+{
+	/**
+	 * One partition per calendar day
+	 */
+	Day,
+	/**
+	 * One partition per ISO week, starting on Monday
+	 */
+	Week,
+	/**
+	 * One partition per calendar month
+	 */
+	Month,
+	/**
+	 * One partition per calendar quarter
+	 */
+	Quarter,
+	/**
+	 * One partition per calendar year
+	 */
+	Year,
+}
@@ -0,0 +1,17 @@
+package com.entityassist.enumerations;
+
+/**
+ * How a read is kept consistent with writes made earlier through the same session.
+ */
+public enum ReplicaConsistency
+{
+	/**
+	 * Reads of a session that wrote are served by the primary
+	 */
+	Primary,
+	/**
+	 * Reads of a session that wrote wait for the replica to replay the primary's current WAL position, and fall
+	 * back to the primary when it does not catch up in time
+	 */
+	AwaitReplay,
+}
@@ -0,0 +1,16 @@
+package com.entityassist.enumerations;
+
+/**
+ * How a read replica is picked for a routed query.
+ */
+public enum ReplicaSelection
+{
+	/**
+	 * Each replica in turn
+	 */
+	RoundRobin,
+	/**
+	 * The replica with the fewest queries in flight, the first registered on a tie
+	 */
+	LeastLoaded,
+}
@@ -0,0 +1,20 @@
+package com.entityassist.enumerations;
+
+/**
+ * The order in which the rows of a recursive hierarchy traversal are returned.
+ */
+public enum TraversalOrder
+{
+	/**
+	 * No ordering, the database returns rows in any order
+	 */
+	Unordered,
+	/**
+	 * Level by level, the anchors first
+	 */
+	BreadthFirst,
+	/**
+	 * Every subtree directly after its parent, by path
+	 */
+	DepthFirst,
+}
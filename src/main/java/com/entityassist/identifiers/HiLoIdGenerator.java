@@ -0,0 +1,186 @@
+package com.entityassist.identifiers;
+
+import com.entityassist.EntityAssistException;
+import io.smallrye.mutiny.Uni;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Hands out blocks of long identifiers reserved with one database sequence call per block.
+ * <p>
+ * A sequence value {@code hi} reserves the identifiers {@code hi * blockSize} up to {@code (hi + 1) * blockSize - 1}.
+ * Identifiers are taken from the current block with an atomic increment. Once half of a block is used, the next
+ * block is fetched in the background, so a steady stream of inserts never waits for the sequence. Only
+ * {@link #reserve(int)} waits for a block when everything reserved is used up, {@link #next()} fails instead.
+ * Concurrent refills share one sequence call.
+ */
+@Log4j2
+public final class HiLoIdGenerator implements IdGenerator<Long>
+{
+    private final int blockSize;
+    private final Supplier<Uni<Long>> nextHi;
+    private final AtomicReference<Block> current = new AtomicReference<>();
+    private final ConcurrentLinkedDeque<Block> ready = new ConcurrentLinkedDeque<>();
+    private final AtomicReference<Uni<Void>> fetching = new AtomicReference<>();
+
+    /**
+     * Creates a generator.
+     *
+     * @param blockSize The number of identifiers per sequence value
+     * @param nextHi    Supplies the next sequence value
+     */
+    public HiLoIdGenerator(int blockSize, Supplier<Uni<Long>> nextHi)
+    {
+        if (blockSize < 1)
+        {
+            throw new EntityAssistException("Hi/lo block size must be positive");
+        }
+        this.blockSize = blockSize;
+        this.nextHi = Objects.requireNonNull(nextHi, "nextHi may not be null");
+    }
+
+    @Override
+    public Long next()
+    {
+        Long id = poll();
+        if (id == null)
+        {
+            throw new EntityAssistException("No hi/lo identifiers are available, reserve(count) them before calling next()");
+        }
+        return id;
+    }
+
+    @Override
+    public Uni<List<Long>> reserve(int count)
+    {
+        return Uni.createFrom()
+                  .deferred(() -> take(new ArrayList<>(count), count));
+    }
+
+    /**
+     * Returns the number of identifiers left in the current and the prefetched blocks.
+     *
+     * @return The available identifier count
+     */
+    public long getAvailable()
+    {
+        Block block = current.get();
+        long available = block == null ? 0 : Math.max(0, block.end() - block.next()
+                                                                         .get());
+        return available + (long) ready.size() * blockSize;
+    }
+
+    /**
+     * Returns the number of identifiers per sequence value.
+     *
+     * @return The block size
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Fills the list, fetching blocks until it holds the requested count.
+     *
+     * @param ids   The identifiers taken so far
+     * @param count The requested count
+     * @return Uni with the filled list
+     */
+    private Uni<List<Long>> take(List<Long> ids, int count)
+    {
+        while (ids.size() < count)
+        {
+            Long id = poll();
+            if (id == null)
+            {
+                return fetch().chain(() -> take(ids, count));
+            }
+            ids.add(id);
+        }
+        return Uni.createFrom()
+                  .item(ids);
+    }
+
+    /**
+     * Takes the next identifier of the current block, moving on to a prefetched block when it is used up.
+     *
+     * @return The identifier, null when no block is left
+     */
+    private Long poll()
+    {
+        while (true)
+        {
+            Block block = current.get();
+            if (block != null)
+            {
+                long id = block.next()
+                               .getAndIncrement();
+                if (id < block.end())
+                {
+                    if (block.end() - id == Math.max(1, blockSize / 2) && ready.isEmpty())
+                    {
+                        prefetch();
+                    }
+                    return id;
+                }
+            }
+            Block next = ready.pollFirst();
+            if (next == null)
+            {
+                return null;
+            }
+            if (!current.compareAndSet(block, next))
+            {
+                //another caller moved on first, keep the block for later
+                ready.offerFirst(next);
+            }
+        }
+    }
+
+    private void prefetch()
+    {
+        fetch().subscribe()
+               .with(done -> {
+               }, failure -> log.warn("Prefetching a hi/lo identifier block failed", failure));
+    }
+
+    /**
+     * Fetches one block, or joins the fetch already running.
+     *
+     * @return Uni completing once the block is ready
+     */
+    private Uni<Void> fetch()
+    {
+        Uni<Void> running = fetching.get();
+        if (running != null)
+        {
+            return running;
+        }
+        AtomicReference<Uni<Void>> self = new AtomicReference<>();
+        Uni<Void> started = Uni.createFrom()
+                               .deferred(nextHi)
+                               .invoke(hi -> ready.offerLast(new Block(new AtomicLong(hi * blockSize), hi * blockSize + blockSize)))
+                               .replaceWithVoid()
+                               .onTermination()
+                               .invoke(() -> fetching.compareAndSet(self.get(), null))
+                               .memoize()
+                               .indefinitely();
+        self.set(started);
+        return fetching.compareAndSet(null, started) ? started : fetch();
+    }
+
+    /**
+     * A reserved range of identifiers, from the next one to take up to the exclusive end
+     */
+    private record Block(AtomicLong next, long end)
+    {
+    }
+}
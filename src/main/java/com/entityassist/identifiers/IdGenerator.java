@@ -0,0 +1,81 @@
+package com.entityassist.identifiers;
+
+import io.smallrye.mutiny.Uni;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Generates entity identifiers in process, so that inserts never wait for a database round trip per row.
+ * <p>
+ * Declared by a query builder through {@code getIdGenerator()}, and applied to entities without an identifier before
+ * {@code persist} and the batch inserts of {@code EA.ingest} and {@code UnitOfWork}. Implementations must be safe for
+ * concurrent use, and a builder should return a shared instance - see {@link IdGenerators}.
+ *
+ * @param <I> The identifier type
+ */
+public interface IdGenerator<I extends Serializable>
+{
+    /**
+     * Returns the next identifier without waiting.
+     *
+     * @return The identifier
+     * @throws com.entityassist.EntityAssistException when the generator needs an asynchronous refill first
+     */
+    I next();
+
+    /**
+     * Takes a number of identifiers, refilling asynchronously where the generator needs to.
+     *
+     * @param count The number of identifiers
+     * @return Uni with the identifiers in generation order
+     */
+    default Uni<List<I>> reserve(int count)
+    {
+        List<I> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            ids.add(next());
+        }
+        return Uni.createFrom()
+                  .item(ids);
+    }
+
+    /**
+     * Returns a generator converting the identifiers of this one, for example {@code uuidV7().map(UUID::toString)}.
+     *
+     * @param mapper The conversion
+     * @param <T>    The converted identifier type
+     * @return The converting generator
+     */
+    default <T extends Serializable> IdGenerator<T> map(Function<? super I, ? extends T> mapper)
+    {
+        Objects.requireNonNull(mapper, "mapper may not be null");
+        IdGenerator<I> source = this;
+        return new IdGenerator<>()
+        {
+            @Override
+            public T next()
+            {
+                return mapper.apply(source.next());
+            }
+
+            @Override
+            public Uni<List<T>> reserve(int count)
+            {
+                return source.reserve(count)
+                             .map(ids -> {
+                                 List<T> mapped = new ArrayList<>(ids.size());
+                                 for (I id : ids)
+                                 {
+                                     mapped.add(mapper.apply(id));
+                                 }
+                                 return mapped;
+                             });
+            }
+        };
+    }
+}
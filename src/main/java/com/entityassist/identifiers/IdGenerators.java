@@ -0,0 +1,138 @@
+package com.entityassist.identifiers;
+
+import com.entityassist.EntityAssistException;
+import com.guicedee.client.IGuiceContext;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Shared identifier generators for query builders to return from {@code getIdGenerator()}.
+ * <pre>{@code
+ * public IdGenerator<String> getIdGenerator()
+ * {
+ *     return IdGenerators.uuidV7String();
+ * }
+ * }</pre>
+ * The Snowflake worker id is read from the {@value #WORKER_ID_PROPERTY} system property or environment variable
+ * {@value #WORKER_ID_ENVIRONMENT}, 0 when neither is set, and can be set with {@link #setWorkerId(int)} before the
+ * first use.
+ */
+public final class IdGenerators
+{
+    /**
+     * The system property holding the Snowflake worker id
+     */
+    public static final String WORKER_ID_PROPERTY = "entityassist.snowflake.worker";
+    /**
+     * The environment variable holding the Snowflake worker id
+     */
+    public static final String WORKER_ID_ENVIRONMENT = "ENTITYASSIST_SNOWFLAKE_WORKER";
+
+    private static final Pattern SEQUENCE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final UuidV7Generator uuidV7 = new UuidV7Generator();
+    private static final IdGenerator<String> uuidV7String = uuidV7.map(UUID::toString);
+    private static final Map<String, HiLoIdGenerator> hiLo = new ConcurrentHashMap<>();
+    private static volatile SnowflakeIdGenerator snowflake;
+
+    private IdGenerators()
+    {
+        // utility class
+    }
+
+    /**
+     * Returns the time-ordered UUID generator.
+     *
+     * @return The UUIDv7 generator
+     */
+    public static IdGenerator<UUID> uuidV7()
+    {
+        return uuidV7;
+    }
+
+    /**
+     * Returns the time-ordered UUID generator for string identifiers.
+     *
+     * @return The UUIDv7 generator in canonical string form
+     */
+    public static IdGenerator<String> uuidV7String()
+    {
+        return uuidV7String;
+    }
+
+    /**
+     * Returns the Snowflake generator of this process.
+     *
+     * @return The Snowflake generator
+     */
+    public static SnowflakeIdGenerator snowflake()
+    {
+        SnowflakeIdGenerator generator = snowflake;
+        if (generator == null)
+        {
+            synchronized (IdGenerators.class)
+            {
+                if (snowflake == null)
+                {
+                    snowflake = new SnowflakeIdGenerator(configuredWorkerId());
+                }
+                generator = snowflake;
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * Sets the Snowflake worker id of this process.
+     *
+     * @param workerId The worker id, unique among the processes writing the same tables
+     */
+    public static synchronized void setWorkerId(int workerId)
+    {
+        snowflake = new SnowflakeIdGenerator(workerId);
+    }
+
+    /**
+     * Returns the hi/lo generator of a database sequence, shared by every builder using the sequence.
+     *
+     * @param sequenceName The sequence, optionally schema qualified
+     * @param blockSize    The number of identifiers per sequence value, must be the same for every caller
+     * @return The hi/lo generator
+     */
+    public static HiLoIdGenerator hiLo(String sequenceName, int blockSize)
+    {
+        if (sequenceName == null || !SEQUENCE_NAME.matcher(sequenceName)
+                                                  .matches())
+        {
+            throw new EntityAssistException("Invalid sequence name [" + sequenceName + "]");
+        }
+        HiLoIdGenerator generator = hiLo.computeIfAbsent(sequenceName, name -> new HiLoIdGenerator(blockSize, () -> IGuiceContext.get(Mutiny.SessionFactory.class)
+                                                                                                                              .withStatelessSession(session -> session.createNativeQuery("select nextval('" + name + "')", Long.class)
+                                                                                                                                                                      .getSingleResult())));
+        if (generator.getBlockSize() != blockSize)
+        {
+            throw new EntityAssistException("Sequence [" + sequenceName + "] is already used with a hi/lo block size of " + generator.getBlockSize());
+        }
+        return generator;
+    }
+
+    private static int configuredWorkerId()
+    {
+        String configured = System.getProperty(WORKER_ID_PROPERTY, System.getenv(WORKER_ID_ENVIRONMENT));
+        if (configured == null || configured.isBlank())
+        {
+            return 0;
+        }
+        try
+        {
+            return Integer.parseInt(configured.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new EntityAssistException("Invalid Snowflake worker id [" + configured + "]", e);
+        }
+    }
+}
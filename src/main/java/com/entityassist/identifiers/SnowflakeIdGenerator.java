@@ -0,0 +1,72 @@
+package com.entityassist.identifiers;
+
+import com.entityassist.EntityAssistException;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates Snowflake-style 64 bit identifiers: 41 bits of milliseconds since {@link #EPOCH}, a 10 bit worker id and
+ * a 12 bit sequence.
+ * <p>
+ * Every process writing the same table needs its own worker id. The identifiers of one generator are strictly
+ * increasing; the timestamp and sequence are advanced with a single compare-and-set, and more than 4096 identifiers
+ * within a millisecond borrow from the next millisecond instead of waiting for the clock.
+ */
+public final class SnowflakeIdGenerator implements IdGenerator<Long>
+{
+    /**
+     * The start of the timestamp, 2020-01-01T00:00:00Z
+     */
+    public static final long EPOCH = Instant.parse("2020-01-01T00:00:00Z")
+                                            .toEpochMilli();
+    /**
+     * The largest worker id
+     */
+    public static final int MAXIMUM_WORKER_ID = 1023;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_BITS = 10;
+
+    private final long workerId;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Creates a generator for a worker.
+     *
+     * @param workerId The worker id, unique among the processes writing the same table
+     */
+    public SnowflakeIdGenerator(int workerId)
+    {
+        if (workerId < 0 || workerId > MAXIMUM_WORKER_ID)
+        {
+            throw new EntityAssistException("Snowflake worker id must be between 0 and " + MAXIMUM_WORKER_ID);
+        }
+        this.workerId = workerId;
+    }
+
+    @Override
+    public Long next()
+    {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long previous;
+        long stamp;
+        do
+        {
+            previous = last.get();
+            stamp = Math.max(now, previous + 1);
+        }
+        while (!last.compareAndSet(previous, stamp));
+        return (stamp >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS) | workerId << SEQUENCE_BITS | (stamp & 0xFFFL);
+    }
+
+    /**
+     * Returns the worker id.
+     *
+     * @return The worker id
+     */
+    public int getWorkerId()
+    {
+        return (int) workerId;
+    }
+}
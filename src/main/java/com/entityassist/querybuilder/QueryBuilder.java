@@ -1,36 +1,94 @@
 package com.entityassist.querybuilder;
 
 import com.entityassist.BaseEntity;
+import com.entityassist.EntityAssistException;
+import com.entityassist.annotations.Partitioned;
+import com.entityassist.cache.EntityNearCache;
+import com.entityassist.cache.QueryCaches;
+import com.entityassist.cache.QueryKey;
+import com.entityassist.cache.QueryResultCache;
+import com.entityassist.enumerations.IdFilterStrategy;
+import com.entityassist.enumerations.Operand;
 import com.entityassist.enumerations.OrderByType;
+import com.entityassist.enumerations.PartitionInterval;
+import com.entityassist.enumerations.ReplicaConsistency;
+import com.entityassist.enumerations.TraversalOrder;
 import com.entityassist.querybuilder.builders.CteExpression;
+import com.entityassist.querybuilder.builders.CteReference;
 import com.entityassist.querybuilder.builders.DefaultQueryBuilder;
+import com.entityassist.querybuilder.builders.HierarchyOptions;
+import com.entityassist.querybuilder.builders.IdFilterStrategies;
 import com.entityassist.querybuilder.builders.JoinExpression;
+import com.entityassist.querybuilder.builders.PartitionRange;
+import com.entityassist.querybuilder.builders.StatementCancellation;
+import com.entityassist.querybuilder.results.ColumnBatch;
+import com.entityassist.querybuilder.results.HierarchyNode;
+import com.entityassist.routing.ReplicaRouter;
+import com.entityassist.routing.ShardRouter;
+import com.entityassist.routing.ShardRouting;
 import com.entityassist.services.querybuilders.IQueryBuilder;
 import com.google.common.base.Strings;
+import com.guicedee.client.IGuiceContext;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
 import jakarta.persistence.CacheRetrieveMode;
 import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.NoResultException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.Version;
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
 import jakarta.persistence.metamodel.PluralAttribute;
 import jakarta.persistence.metamodel.SingularAttribute;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.log4j.Log4j2;
 import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.NonUniqueResultException;
 import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.hibernate.query.criteria.JpaCriteriaQuery;
 import org.hibernate.query.criteria.JpaCteCriteria;
 import org.hibernate.query.criteria.JpaRoot;
 import org.hibernate.query.criteria.JpaSubQuery;
+import org.hibernate.query.sqm.tree.cte.CteMaterialization;
 import org.hibernate.reactive.mutiny.Mutiny;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import static com.entityassist.querybuilder.builders.IFilterExpression.isPluralOrMapAttribute;
 import static com.entityassist.querybuilder.builders.IFilterExpression.isSingularAttribute;
@@ -58,6 +116,143 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
      * If the first result must be returned from a list
      */
     private boolean returnFirst;
+    /**
+     * Association paths (dot-separated) to load with fetch joins on entity selections
+     */
+    private final Set<String> fetches = new LinkedHashSet<>();
+    /**
+     * A programmatic entity graph applied as the load plan of entity selections
+     */
+    private EntityGraph<E> entityGraph;
+    /**
+     * A named entity graph applied as the load plan of entity selections
+     */
+    private String entityGraphName;
+    /**
+     * Association paths (dot-separated) loaded in batched IN queries after the main query
+     */
+    private final Set<String> prefetches = new LinkedHashSet<>();
+    /**
+     * The maximum number of owner identifiers bound into a single prefetch IN query
+     */
+    private int prefetchBatchSize = 500;
+    /**
+     * The prefetched association rows per path, keyed by the owning row identifier
+     */
+    private final Map<String, Map<Object, List<Object>>> prefetched = new HashMap<>();
+    /**
+     * How long results are served from the application query result cache, null when not cached
+     */
+    private Duration resultCacheTtl;
+    /**
+     * The query result cache region, defaults to the entity class name
+     */
+    private String resultCacheRegion;
+    /**
+     * The level column of the recursive hierarchy registered with options, null without one
+     */
+    private Expression<Integer> hierarchyLevel;
+    /**
+     * The path column of the recursive hierarchy registered with options, null without one
+     */
+    private Expression<String> hierarchyPath;
+    /**
+     * The row order of the recursive hierarchy registered with options
+     */
+    private TraversalOrder traversalOrder = TraversalOrder.Unordered;
+    /**
+     * How long a single-row lookup that found nothing is remembered, null when misses are not cached
+     */
+    private Duration missCacheTtl;
+    /**
+     * If identical in-flight read-only executions of this query are coalesced into one
+     */
+    private boolean singleFlight;
+    /**
+     * The normalized builder shape, captured once before the criteria query is built
+     */
+    private String queryShape;
+    /**
+     * The bound values of the captured builder shape
+     */
+    private List<Object> queryBinds;
+    /**
+     * The entity types read by the captured builder shape
+     */
+    private Set<Class<?>> queryEntityTypes;
+    /**
+     * If the builder shape has been captured (it may have been found not describable)
+     */
+    private boolean queryShapeCaptured;
+    /**
+     * The strategies chosen for the large value filters of this builder
+     */
+    private final List<IdFilterStrategy> idFilterStrategies = new ArrayList<>();
+    /**
+     * The large value filters loaded into the temporary table before the query executes
+     */
+    private final List<TemporaryIdFilter> temporaryIdFilters = new ArrayList<>();
+    /**
+     * The longest a single execution of this query may run, null when unbounded
+     */
+    private Duration timeout;
+    /**
+     * The instant by which every execution of this query must complete, null when unbounded
+     */
+    private Instant deadline;
+    /**
+     * The number of rows read per round trip by {@link #stream()}, null to read all rows at once
+     */
+    private Integer fetchSize;
+    /**
+     * If abandoned executions are cancelled on the database server
+     */
+    private boolean cancellable;
+    /**
+     * If terminal reads run on a read replica, null to route read-only builders only
+     */
+    private Boolean replicaRead;
+    /**
+     * The shard key set explicitly, null to take it from an equals filter or scatter across all shards
+     */
+    private Object shardKey;
+    /**
+     * The inclusive lower bound of the partition key set by {@link #inPartitionRange(Object, Object)}
+     */
+    private Object partitionFrom;
+    /**
+     * The exclusive upper bound of the partition key set by {@link #inPartitionRange(Object, Object)}
+     */
+    private Object partitionTo;
+    /**
+     * If the partition range is read with one query per partition
+     */
+    private boolean splitByPartition;
+    /**
+     * If the built query bounds the partition key with the range parameters
+     */
+    private boolean partitionParameters;
+    /**
+     * The partition the next created query is bound to, null for the whole partition range
+     */
+    private PartitionRange activePartition;
+
+    /**
+     * The name of the parameter holding the lower bound of the partition range
+     */
+    private static final String PARTITION_FROM_PARAMETER = "eaPartitionFrom";
+    /**
+     * The name of the parameter holding the upper bound of the partition range
+     */
+    private static final String PARTITION_TO_PARAMETER = "eaPartitionTo";
+    /**
+     * The builder classes already warned about queries without a partition key filter
+     */
+    private static final Set<Class<?>> warnedPartitionScans = ConcurrentHashMap.newKeySet();
+    /**
+     * The version field of each entity class written by {@link #updateChanged()}
+     */
+    private static final Map<Class<?>, Optional<Field>> versionFields = new ConcurrentHashMap<>();
 
     /**
      * Creates a query builder instance.
@@ -115,9 +310,76 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
      * @param definition The builder that produces the CTE body
      * @return This builder, constrained by the CTE
      */
-    @SuppressWarnings("unchecked")
     @NotNull
     public J with(String name, QueryBuilder<?, E, ?> definition)
+    {
+        return with(name, definition, CteMaterialization.UNDEFINED);
+    }
+
+    /**
+     * Registers a non-recursive Common Table Expression with a materialization hint and constrains this
+     * entity query to the rows produced by it.
+     * <p>
+     * {@link CteMaterialization#MATERIALIZED} renders {@code AS MATERIALIZED}, forcing the database to
+     * compute the CTE once - the better plan when the body is expensive and referenced several times.
+     * {@link CteMaterialization#NOT_MATERIALIZED} lets the planner inline the body and push outer predicates
+     * into it - the better plan for selective outer filters over a large body. Databases without the
+     * syntax ignore the hint.
+     *
+     * @param name            A logical name for the CTE (a unique one is generated when null/blank)
+     * @param definition      The builder that produces the CTE body
+     * @param materialization The materialization hint
+     * @return This builder, constrained by the CTE
+     * @see #declareCte(String, QueryBuilder, CteMaterialization)
+     */
+    @NotNull
+    public J with(String name, QueryBuilder<?, E, ?> definition, CteMaterialization materialization)
+    {
+        return whereInCte(null, registerCte(name, definition, materialization));
+    }
+
+    /**
+     * Registers a non-recursive Common Table Expression without constraining this query.
+     * <p>
+     * The CTE is declared once in the {@code WITH} clause and can then be referenced any number of times:
+     * by this query through {@link #whereInCte(String, String)} or {@link #joinCte(String, String)}, and by
+     * the definitions of CTEs registered after it through {@link #whereInCte(String, CteExpression)} with
+     * {@link #getCte(String)}.
+     *
+     * <pre>{@code
+     * var query = new EntityClass().builder(session)
+     *         .declareCte("active", activeOnly, CteMaterialization.MATERIALIZED);
+     * var named = new EntityClass().builder(session)
+     *         .where("name", Operand.Like, "A%")
+     *         .whereInCte(null, query.getCte("active"));
+     * return query.with("active_named", named)
+     *         .joinCte(null, "active")
+     *         .getAll();
+     * }</pre>
+     *
+     * @param name            A logical name for the CTE (a unique one is generated when null/blank)
+     * @param definition      The builder that produces the CTE body
+     * @param materialization The materialization hint
+     * @return This
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J declareCte(String name, QueryBuilder<?, E, ?> definition, CteMaterialization materialization)
+    {
+        registerCte(name, definition, materialization);
+        return (J) this;
+    }
+
+    /**
+     * Builds the body of a non-recursive CTE from the definition builder and registers it on this query.
+     *
+     * @param name            A logical name for the CTE (a unique one is generated when null/blank)
+     * @param definition      The builder that produces the CTE body
+     * @param materialization The materialization hint
+     * @return The registered CTE
+     */
+    @SuppressWarnings("unchecked")
+    private CteExpression<Object> registerCte(String name, QueryBuilder<?, E, ?> definition, CteMaterialization materialization)
     {
         String cteName = resolveCteName(name);
         HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) getCriteriaBuilder();
@@ -134,22 +396,159 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         Path<Object> idSelection = definitionRoot.get(idName);
         idSelection.alias(idAlias);
         definitionQuery.select(idSelection);
+        definition.applyCteReferences();
         List<Predicate> definitionFilters = new ArrayList<>(definition.getFilters());
         definitionQuery.where(definitionFilters.toArray(new Predicate[0]));
 
-        // Register the CTE on this (entity-rooted) query and add an id IN (SELECT id FROM cte) filter
+        // Register the CTE on this (entity-rooted) query
         JpaCriteriaQuery<?> mainQuery = (JpaCriteriaQuery<?>) getCriteriaQuery();
         JpaCteCriteria<Object> cte = mainQuery.with(cteName, definitionQuery);
-        applyCteMembership(mainQuery, cte, idName, idAlias, idType);
 
         CteExpression<Object> expression = new CteExpression<>()
                 .setName(cteName)
                 .setDefinition(definition)
-                .setGeneratedCte(cte);
+                .setIdAlias(idAlias)
+                .setGeneratedCte(cte)
+                .setMaterialization(materialization);
         getCtes().add(expression);
+        return expression;
+    }
+
+    /**
+     * Returns the registered CTE with the given name.
+     *
+     * @param name The CTE name
+     * @return The CTE expression, usable in {@link #whereInCte(String, CteExpression)} of other builders
+     */
+    @NotNull
+    public CteExpression<?> getCte(String name)
+    {
+        for (CteExpression<?> cte : getCtes())
+        {
+            if (cte.getName()
+                   .equals(name))
+            {
+                return cte;
+            }
+        }
+        throw new EntityAssistException("No CTE named [" + name + "] is registered on " + getEntityClass().getName());
+    }
+
+    /**
+     * Changes the materialization hint of a registered CTE, recursive ones included.
+     *
+     * @param name            The CTE name
+     * @param materialization The materialization hint
+     * @return This
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J materialize(String name, CteMaterialization materialization)
+    {
+        getCte(name).setMaterialization(materialization);
+        return (J) this;
+    }
+
+    /**
+     * Constrains this query with {@code attribute IN (SELECT id FROM cte)} against a registered CTE.
+     *
+     * @param attribute The dot-separated attribute holding the identifier to match, null for this entity's identifier
+     * @param cteName   The CTE name
+     * @return This
+     */
+    @NotNull
+    public J whereInCte(String attribute, String cteName)
+    {
+        return whereInCte(attribute, getCte(cteName));
+    }
+
+    /**
+     * Constrains this query with {@code attribute IN (SELECT id FROM cte)} against a CTE registered on this
+     * or an enclosing query. Use it on the definition of a later CTE to build one CTE from another.
+     *
+     * @param attribute The dot-separated attribute holding the identifier to match, null for this entity's identifier
+     * @param cte       The CTE, see {@link #getCte(String)}
+     * @return This
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J whereInCte(String attribute, CteExpression<?> cte)
+    {
+        addCteReference(new CteReference(attribute, cte, false));
         return (J) this;
     }
 
+    /**
+     * Joins a registered CTE to this query on {@code attribute = cte.id} instead of filtering with
+     * {@code IN}. Joining lets the planner pick a hash or merge join against large CTE results; only use it
+     * when the CTE yields each identifier once, as duplicates multiply the outer rows.
+     *
+     * @param attribute The dot-separated attribute holding the identifier to match, null for this entity's identifier
+     * @param cteName   The CTE name
+     * @return This
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J joinCte(String attribute, String cteName)
+    {
+        addCteReference(new CteReference(attribute, getCte(cteName), true));
+        return (J) this;
+    }
+
+    /**
+     * Records a CTE reference and applies it to the current root.
+     *
+     * @param reference The reference
+     * @return The CTE root joined to this query, null for a membership filter
+     */
+    private JpaRoot<Object> addCteReference(CteReference reference)
+    {
+        if (reference.cte()
+                     .getGeneratedCte() == null)
+        {
+            throw new EntityAssistException("CTE [" + reference.cte()
+                                                           .getName() + "] is not registered yet");
+        }
+        getCteReferences().add(reference);
+        return applyCteReference(reference);
+    }
+
+    /**
+     * Re-applies the CTE references after this builder was reset onto the root of a CTE body.
+     */
+    private void applyCteReferences()
+    {
+        getCteReferences().forEach(this::applyCteReference);
+    }
+
+    /**
+     * Adds the {@code IN (SELECT <idAlias> FROM cte)} membership predicate, or the join to the CTE, for a
+     * reference against this builder's root.
+     *
+     * @param reference The reference
+     * @return The CTE root joined to this query, null for a membership filter
+     */
+    @SuppressWarnings("unchecked")
+    private JpaRoot<Object> applyCteReference(CteReference reference)
+    {
+        CteExpression<Object> cte = (CteExpression<Object>) reference.cte();
+        JpaCriteriaQuery<?> query = (JpaCriteriaQuery<?>) getCriteriaQuery();
+        Path<Object> matched = reference.attribute() == null
+                               ? getRoot().get(findIdField().getName())
+                               : traversePath(getRoot(), reference.attribute());
+        if (reference.joined())
+        {
+            JpaRoot<Object> cteRoot = query.from(cte.getGeneratedCte());
+            getFilters().add(getCriteriaBuilder().equal(matched, cteRoot.get(cte.getIdAlias())));
+            return cteRoot;
+        }
+        JpaSubQuery<Object> sub = (JpaSubQuery<Object>) query.subquery((Class<Object>) matched.getJavaType());
+        JpaRoot<Object> cteSubRoot = sub.from(cte.getGeneratedCte());
+        sub.select(cteSubRoot.get(cte.getIdAlias()));
+        getFilters().add(matched.in(sub));
+        return null;
+    }
+
     /**
      * Registers a recursive Common Table Expression (CTE) and constrains this entity query to the
      * identifiers it produces.
@@ -189,6 +588,7 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         Path<Object> idSelection = anchorRoot.get(idName);
         idSelection.alias(idAlias);
         anchorQuery.select(idSelection);
+        anchor.applyCteReferences();
         List<Predicate> anchorFilters = new ArrayList<>(anchor.getFilters());
         anchorQuery.where(anchorFilters.toArray(new Predicate[0]));
 
@@ -196,7 +596,6 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         JpaCteCriteria<Object> cte = unionAll
                 ? mainQuery.withRecursiveUnionAll(cteName, anchorQuery, recursiveProducer)
                 : mainQuery.withRecursiveUnionDistinct(cteName, anchorQuery, recursiveProducer);
-        applyCteMembership(mainQuery, cte, idName, idAlias, idType);
 
         CteExpression<Object> expression = new CteExpression<>()
                 .setName(cteName)
@@ -204,26 +603,10 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
                 .setUnionAll(unionAll)
                 .setDefinition(anchor)
                 .setRecursiveProducer(recursiveProducer)
+                .setIdAlias(idAlias)
                 .setGeneratedCte(cte);
         getCtes().add(expression);
-        return (J) this;
-    }
-
-    /**
-     * Adds the {@code <id> IN (SELECT <idAlias> FROM cte)} membership predicate against this builder's
-     * root using a sub-query over the registered CTE.
-     */
-    @SuppressWarnings("unchecked")
-    private void applyCteMembership(JpaCriteriaQuery<?> mainQuery,
-                                    JpaCteCriteria<Object> cte,
-                                    String idName,
-                                    String idAlias,
-                                    Class<Object> idType)
-    {
-        JpaSubQuery<Object> sub = (JpaSubQuery<Object>) mainQuery.subquery(idType);
-        JpaRoot<Object> cteSubRoot = sub.from(cte);
-        sub.select(cteSubRoot.get(idAlias));
-        getFilters().add(getRoot().get(idName).in(sub));
+        return whereInCte(null, expression);
     }
 
     /**
@@ -279,6 +662,7 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         Path<Object> anchorId = anchorRoot.get(idName);
         anchorId.alias(idAlias);
         anchorQuery.select(anchorId);
+        anchor.applyCteReferences();
         anchorQuery.where(new ArrayList<>(anchor.getFilters()).toArray(new Predicate[0]));
 
         JpaCriteriaQuery<?> mainQuery = (JpaCriteriaQuery<?>) getCriteriaQuery();
@@ -297,7 +681,6 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         };
 
         JpaCteCriteria<Object> cte = mainQuery.withRecursiveUnionAll(cteName, anchorQuery, recursiveProducer);
-        applyCteMembership(mainQuery, cte, idName, idAlias, idType);
 
         CteExpression<Object> expression = new CteExpression<>()
                 .setName(cteName)
@@ -305,537 +688,3609 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
                 .setUnionAll(true)
                 .setDefinition(anchor)
                 .setRecursiveProducer(recursiveProducer)
+                .setRecursiveShape("hierarchy:" + parentAttribute)
+                .setIdAlias(idAlias)
                 .setGeneratedCte(cte);
         getCtes().add(expression);
-        return (J) this;
+        return whereInCte(null, expression);
     }
 
     /**
-     * Traverses a dot-separated attribute path from the given root.
+     * Registers a recursive hierarchy CTE that tracks the level and path of every row, with a depth
+     * limit, cycle detection and breadth-first or depth-first ordering.
+     * <p>
+     * The anchors are level 0 with path {@code /id/}; every step appends the child identifier to the path.
+     * With cycle detection a child already on its parent's path is not followed, so corrupt data with a
+     * cycle in the parent attribute ends the walk instead of running until the statement times out. The
+     * CTE is joined to the outer query, one row per path from an anchor - anchors that are descendants of
+     * other anchors therefore return their subtree once per anchor. Use {@link #getHierarchy()} to read
+     * the level and path with each entity.
+     * <p>
+     * Generated SQL shape:
+     * <pre>{@code WITH RECURSIVE tree(id, level, path) AS (
+     *     SELECT e.id, 0, '/' || e.id || '/' FROM entity e WHERE <anchor>
+     *     UNION ALL
+     *     SELECT c.id, tree.level + 1, tree.path || c.id || '/' FROM entity c, tree
+     *     WHERE c.parent_id = tree.id AND tree.level < :maxDepth AND locate('/' || c.id || '/', tree.path) = 0
+     * )
+     * SELECT m.* FROM entity m, tree WHERE m.id = tree.id ORDER BY tree.level, tree.path}</pre>
      *
-     * @param root The starting from-node
-     * @param path The dot-separated attribute path
-     * @return The resolved path expression
+     * @param name            A logical name for the CTE (a unique one is generated when null/blank)
+     * @param anchor          The builder selecting the anchor (starting) rows
+     * @param parentAttribute The self-referencing attribute holding the parent identifier
+     * @param options         The depth limit, cycle detection and ordering
+     * @return This builder, constrained by the recursive hierarchy CTE
      */
-    private Path<Object> traversePath(From<?, ?> root, String path)
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J withRecursiveHierarchy(String name, QueryBuilder<?, E, ?> anchor, String parentAttribute, HierarchyOptions options)
     {
-        Path<?> current = root;
-        for (String segment : path.split("\\."))
+        String cteName = resolveCteName(name);
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) getCriteriaBuilder();
+        String idName = findIdField().getName();
+        String idAlias = cteName + "_id";
+        String levelAlias = cteName + "_level";
+        String pathAlias = cteName + "_path";
+        Class<E> entityClass = getEntityClass();
+
+        // Anchor member: SELECT e.<id>, 0, '/' || e.<id> || '/' FROM entity e WHERE <anchor filters>
+        JpaCriteriaQuery<Tuple> anchorQuery = cb.createTupleQuery();
+        JpaRoot<E> anchorRoot = anchorQuery.from(entityClass);
+        anchor.setCriteriaQuery(anchorQuery);
+        anchor.reset(anchorRoot);
+        Path<Object> anchorId = anchorRoot.get(idName);
+        anchorQuery.multiselect(anchorId.alias(idAlias),
+                                cb.literal(0)
+                                  .alias(levelAlias),
+                                appendPathSegment(cb, cb.literal("/"), anchorId).alias(pathAlias));
+        anchor.applyCteReferences();
+        anchorQuery.where(new ArrayList<>(anchor.getFilters()).toArray(new Predicate[0]));
+
+        JpaCriteriaQuery<?> mainQuery = (JpaCriteriaQuery<?>) getCriteriaQuery();
+
+        // Recursive member: SELECT c.<id>, cte.level + 1, cte.path || c.<id> || '/' FROM entity c, cte WHERE c.<parent> = cte.<idAlias> ...
+        Function<JpaCteCriteria<Tuple>, AbstractQuery<Tuple>> recursiveProducer = cteRef ->
         {
-            current = current.get(segment);
-        }
-        //noinspection unchecked
-        return (Path<Object>) current;
+            JpaCriteriaQuery<Tuple> recursive = cb.createTupleQuery();
+            JpaRoot<E> child = recursive.from(entityClass);
+            JpaRoot<Tuple> parentRef = recursive.from(cteRef);
+            Path<Object> childId = child.get(idName);
+            Expression<Integer> parentLevel = parentRef.get(levelAlias);
+            Expression<String> parentPath = parentRef.get(pathAlias);
+            recursive.multiselect(childId.alias(idAlias),
+                                  cb.sum(parentLevel, 1)
+                                    .alias(levelAlias),
+                                  appendPathSegment(cb, parentPath, childId).alias(pathAlias));
+            List<Predicate> step = new ArrayList<>();
+            step.add(cb.equal(traversePath(child, parentAttribute), parentRef.get(idAlias)));
+            if (options.getMaxDepth() > 0)
+            {
+                step.add(cb.lessThan(parentLevel, options.getMaxDepth()));
+            }
+            if (options.isDetectCycles())
+            {
+                step.add(cb.equal(cb.locate(parentPath, appendPathSegment(cb, cb.literal("/"), childId)), 0));
+            }
+            recursive.where(step.toArray(new Predicate[0]));
+            return recursive;
+        };
+
+        JpaCteCriteria<Tuple> cte = mainQuery.withRecursiveUnionAll(cteName, anchorQuery, recursiveProducer);
+
+        CteExpression<Tuple> expression = new CteExpression<Tuple>()
+                .setName(cteName)
+                .setRecursive(true)
+                .setUnionAll(true)
+                .setDefinition(anchor)
+                .setRecursiveProducer(recursiveProducer)
+                .setRecursiveShape("hierarchy:" + parentAttribute + "[" + options.describe() + "]")
+                .setIdAlias(idAlias)
+                .setGeneratedCte(cte);
+        getCtes().add(expression);
+        JpaRoot<Object> traversal = addCteReference(new CteReference(null, expression, true));
+        hierarchyLevel = traversal.get(levelAlias);
+        hierarchyPath = traversal.get(pathAlias);
+        traversalOrder = options.getOrder();
+        return (J) this;
     }
 
     /**
-     * Locates the {@link jakarta.persistence.Id} annotated field on the entity hierarchy.
+     * Registers a recursive CTE that walks a graph along a plural self-referencing association and
+     * constrains this query to every entity reachable from the anchor set, without a hop limit.
      *
-     * @return The identifier field
+     * @param name          A logical name for the CTE (a unique one is generated when null/blank)
+     * @param anchor        The builder selecting the starting rows
+     * @param edgeAttribute The plural association to follow, typically mapped through a join table
+     * @return This builder, constrained to the reachable entities
+     * @see #withRecursiveGraph(String, QueryBuilder, String, int)
      */
-    private Field findIdField()
+    @NotNull
+    public J withRecursiveGraph(String name, QueryBuilder<?, E, ?> anchor, String edgeAttribute)
     {
-        Class<?> current = getEntityClass();
-        while (current != null && current != Object.class)
-        {
-            for (Field field : current.getDeclaredFields())
-            {
-                if (field.isAnnotationPresent(jakarta.persistence.Id.class))
-                {
-                    return field;
-                }
-            }
-            current = current.getSuperclass();
-        }
-        throw new com.entityassist.EntityAssistException("No @Id field found on " + getEntityClass().getName() + " - CTE support requires a single @Id field");
+        return withRecursiveGraph(name, anchor, edgeAttribute, 0);
     }
 
     /**
-     * Resolves the CTE name, generating a stable unique one when none is supplied.
-     *
-     * @param name The requested name, may be {@code null} or blank
-     * @return A non-blank CTE name
+     * Registers a recursive CTE that walks a graph along a plural self-referencing association - role
+     * inheritance, dependency graphs - and constrains this query to every entity reachable from the anchor
+     * set within the given number of hops.
+     * <p>
+     * Each walked row carries the {@code /id/.../} path it was reached by, and an edge back to a node already
+     * on the path is not followed, so cycles end the walk. Nodes reachable along several paths are walked
+     * once per path and returned once, as the outer query filters with {@code IN}. On dense graphs the number
+     * of paths grows quickly with depth - bound it with {@code maxHops}.
+     * <p>
+     * Generated SQL shape:
+     * <pre>{@code WITH RECURSIVE reach(id, hops, path) AS (
+     *     SELECT e.id, 0, '/' || e.id || '/' FROM entity e WHERE <anchor>
+     *     UNION ALL
+     *     SELECT t.id, reach.hops + 1, reach.path || t.id || '/'
+     *     FROM entity n JOIN edge_table et ON ... JOIN entity t ON ..., reach
+     *     WHERE n.id = reach.id AND reach.hops < :maxHops AND locate('/' || t.id || '/', reach.path) = 0
+     * )
+     * SELECT m.* FROM entity m WHERE m.id IN (SELECT reach.id FROM reach)}</pre>
+     *
+     * @param name          A logical name for the CTE (a unique one is generated when null/blank)
+     * @param anchor        The builder selecting the starting rows
+     * @param edgeAttribute The plural association to follow, typically mapped through a join table
+     * @param maxHops       The maximum number of edges followed from an anchor, 0 for unlimited
+     * @return This builder, constrained to the reachable entities
      */
-    private String resolveCteName(String name)
+    @NotNull
+    public J withRecursiveGraph(String name, QueryBuilder<?, E, ?> anchor, String edgeAttribute, int maxHops)
     {
-        if (!Strings.isNullOrEmpty(name))
+        if (maxHops < 0)
         {
-            return name;
+            throw new EntityAssistException("Maximum hops may not be negative");
         }
-        return "cte_" + Integer.toHexString(System.identityHashCode(this)) + "_" + getCtes().size();
+        String cteName = resolveCteName(name);
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) getCriteriaBuilder();
+        String idName = findIdField().getName();
+        String idAlias = cteName + "_id";
+        String hopsAlias = cteName + "_hops";
+        String pathAlias = cteName + "_path";
+        Class<E> entityClass = getEntityClass();
+
+        // Anchor member: SELECT e.<id>, 0, '/' || e.<id> || '/' FROM entity e WHERE <anchor filters>
+        JpaCriteriaQuery<Tuple> anchorQuery = cb.createTupleQuery();
+        JpaRoot<E> anchorRoot = anchorQuery.from(entityClass);
+        anchor.setCriteriaQuery(anchorQuery);
+        anchor.reset(anchorRoot);
+        Path<Object> anchorId = anchorRoot.get(idName);
+        anchorQuery.multiselect(anchorId.alias(idAlias),
+                                cb.literal(0)
+                                  .alias(hopsAlias),
+                                appendPathSegment(cb, cb.literal("/"), anchorId).alias(pathAlias));
+        anchor.applyCteReferences();
+        anchorQuery.where(new ArrayList<>(anchor.getFilters()).toArray(new Predicate[0]));
+
+        JpaCriteriaQuery<?> mainQuery = (JpaCriteriaQuery<?>) getCriteriaQuery();
+
+        // Recursive member: SELECT t.<id>, cte.hops + 1, cte.path || t.<id> || '/' FROM entity n JOIN n.<edge> t, cte WHERE n.<id> = cte.<idAlias> ...
+        Function<JpaCteCriteria<Tuple>, AbstractQuery<Tuple>> recursiveProducer = cteRef ->
+        {
+            JpaCriteriaQuery<Tuple> recursive = cb.createTupleQuery();
+            JpaRoot<E> node = recursive.from(entityClass);
+            Join<E, Object> target = node.join(edgeAttribute);
+            JpaRoot<Tuple> visited = recursive.from(cteRef);
+            Path<Object> targetId = target.get(idName);
+            Expression<Integer> hops = visited.get(hopsAlias);
+            Expression<String> path = visited.get(pathAlias);
+            recursive.multiselect(targetId.alias(idAlias),
+                                  cb.sum(hops, 1)
+                                    .alias(hopsAlias),
+                                  appendPathSegment(cb, path, targetId).alias(pathAlias));
+            List<Predicate> step = new ArrayList<>();
+            step.add(cb.equal(node.get(idName), visited.get(idAlias)));
+            if (maxHops > 0)
+            {
+                step.add(cb.lessThan(hops, maxHops));
+            }
+            step.add(cb.equal(cb.locate(path, appendPathSegment(cb, cb.literal("/"), targetId)), 0));
+            recursive.where(step.toArray(new Predicate[0]));
+            return recursive;
+        };
+
+        JpaCteCriteria<Tuple> cte = mainQuery.withRecursiveUnionAll(cteName, anchorQuery, recursiveProducer);
+
+        CteExpression<Tuple> expression = new CteExpression<Tuple>()
+                .setName(cteName)
+                .setRecursive(true)
+                .setUnionAll(true)
+                .setDefinition(anchor)
+                .setRecursiveProducer(recursiveProducer)
+                .setRecursiveShape("graph:" + edgeAttribute + "[hops=" + maxHops + "]")
+                .setIdAlias(idAlias)
+                .setGeneratedCte(cte);
+        getCtes().add(expression);
+        return whereInCte(null, expression);
     }
 
     /**
-     * Returns a long of the count for the given builder
+     * Appends {@code id/} to a hierarchy path expression, casting non-string identifiers.
      *
-     * @return Uni with a Long result, or a failure if onSelect() returns false
+     * @param cb     The criteria builder
+     * @param prefix The path so far, ending with {@code /}
+     * @param id     The identifier to append
+     * @return The extended path expression
      */
-    @Override
-    public Uni<Long> getCount()
+    @SuppressWarnings("unchecked")
+    private static Expression<String> appendPathSegment(HibernateCriteriaBuilder cb, Expression<String> prefix, Path<Object> id)
     {
-        if (!selected)
-        {
-            selectCount();
-            select();
-        }
-        if (onSelect())
-        {
-            Mutiny.SelectionQuery<Long> query = getQueryCount();
-            applyCache(query);
-            applyReadOnly(query);
-            onSelectExecution(query);
-            return query.getSingleResult();
-        }
-        return Uni.createFrom()
-                       .failure(new NoResultException("No results found for the given criteria - onSelect() returned false"));
+        Expression<String> segment = String.class.equals(id.getJavaType())
+                                     ? (Expression<String>) (Expression<?>) id
+                                     : id.cast(String.class);
+        return cb.concat(cb.concat(prefix, segment), "/");
     }
 
     /**
-     * Returns the generated query, always created new
+     * Returns the traversal order of a recursive hierarchy registered with options.
      *
-     * @param <T> Any type returned
-     * @return A built typed query
+     * @return The orders to apply ahead of the builder's own order by
      */
-    @Override
-    public <T> Mutiny.SelectionQuery<T> getQuery()
+    private List<Order> getTraversalOrders()
     {
-        if (!selected)
-        {
-            select();
-        }
-        if(isStateless())
+        CriteriaBuilder cb = getCriteriaBuilder();
+        return switch (traversalOrder)
         {
-            return getEntityManagerStateless().createQuery(getCriteriaQuery());
-        }else
-            return getEntityManager().createQuery(getCriteriaQuery());
+            case BreadthFirst -> List.of(cb.asc(hierarchyLevel), cb.asc(hierarchyPath));
+            case DepthFirst -> List.of(cb.asc(hierarchyPath));
+            case Unordered -> List.of();
+        };
     }
 
     /**
-     * Returns the query for a count, always created new
+     * Traverses a dot-separated attribute path from the given root.
      *
-     * @param <T> Any type returned
-     * @return A built typed query
+     * @param root The starting from-node
+     * @param path The dot-separated attribute path
+     * @return The resolved path expression
      */
-    @Override
-    public <T> Mutiny.SelectionQuery<T> getQueryCount()
+    private Path<Object> traversePath(From<?, ?> root, String path)
     {
-        if (!selected)
+        Path<?> current = root;
+        for (String segment : path.split("\\."))
         {
-            selectCount();
-            select();
+            current = current.get(segment);
         }
-        if(isStateless())
-        {
-            return getEntityManagerStateless().createQuery(getCriteriaQuery());
-        }else
-            return getEntityManager().createQuery(getCriteriaQuery());
+        //noinspection unchecked
+        return (Path<Object>) current;
     }
 
     /**
-     * Prepares the select statement
+     * Locates the {@link jakarta.persistence.Id} annotated field on the entity hierarchy.
      *
-     * @return This
+     * @return The identifier field
      */
-    @SuppressWarnings({"UnusedReturnValue"})
-    @NotNull
-    private J select()
+    private Field findIdField()
     {
-        if (!selected)
+        Class<?> current = getEntityClass();
+        while (current != null && current != Object.class)
         {
-            getJoins().forEach(this::processJoins);
-            if (!isDelete() && !isUpdate())
-            {
-                processCriteriaQuery();
-            }
-            else if (isDelete())
-            {
-                CriteriaDelete<E> cq = getCriteriaDelete();
-                List<Predicate> allWheres = new ArrayList<>(getFilters());
-                Predicate[] preds = new Predicate[allWheres.size()];
-                preds = allWheres.toArray(preds);
-                cq.where(preds);
-            }
-            else if (isUpdate())
+            for (Field field : current.getDeclaredFields())
             {
-                CriteriaUpdate<E> cq = getCriteriaUpdate();
-                List<Predicate> allWheres = new ArrayList<>(getFilters());
-                Predicate[] preds = new Predicate[allWheres.size()];
-                preds = allWheres.toArray(preds);
-                cq.where(preds);
+                if (field.isAnnotationPresent(jakarta.persistence.Id.class))
+                {
+                    return field;
+                }
             }
+            current = current.getSuperclass();
         }
-        selected = true;
-        return (J) this;
+        throw new com.entityassist.EntityAssistException("No @Id field found on " + getEntityClass().getName() + " - CTE support requires a single @Id field");
     }
 
     /**
-     * Physically applies the cache attributes to the query
-     * <p>
-     * Adds cacheable, cache region, and sets persistence cache retrieve mode as use, and store mode as use
+     * Resolves the CTE name, generating a stable unique one when none is supplied.
      *
-     * @param query The query to apply to
+     * @param name The requested name, may be {@code null} or blank
+     * @return A non-blank CTE name
      */
-    private void applyCache(Mutiny.SelectionQuery<?> query)
+    private String resolveCteName(String name)
     {
-        if (!Strings.isNullOrEmpty(getCacheName()))
+        if (!Strings.isNullOrEmpty(name))
         {
-            query.setCacheable(true);
-            query.setCacheRegion(getCacheRegion());
-            query.setCacheRetrieveMode(CacheRetrieveMode.USE);
-            query.setCacheStoreMode(CacheStoreMode.USE);
+            return name;
         }
+        return "cte_" + Integer.toHexString(System.identityHashCode(this)) + "_" + getCtes().size();
     }
 
     /**
-     * Applies read-only tuning to the query when {@link #isReadOnly()} is enabled.
+     * Constrains this query to the rows whose identifier is one of the given values, choosing how the values
+     * are applied by the size of the collection.
+     *
+     * @param ids The identifiers
+     * @return This
+     * @see #whereIn(String, Collection)
+     */
+    @NotNull
+    public J whereIdIn(Collection<? extends I> ids)
+    {
+        return whereIn(findIdField().getName(), ids);
+    }
+
+    /**
+     * Constrains this query to the rows whose attribute is one of the given values, choosing how the values
+     * are applied by the size of the collection - an inline {@code IN} list, one array parameter, a semi-join
+     * over the unnested array, or for very large collections a session-scoped temporary table loaded with one
+     * statement right before the query executes and emptied after it.
      * <p>
-     * Read-only queries skip Hibernate's dirty-state snapshot retention and the pre-query
-     * auto-flush ({@link FlushMode#MANUAL}), reducing CPU and GC for read-heavy paths such as
-     * GraphQL data fetchers. Opt-in and additive — does nothing unless {@code setReadOnly(true)}
-     * was called on the builder.
+     * Use this for id collections from external systems that are too large for chunked {@code IN} lists. The
+     * thresholds are configured through {@link IdFilterStrategies#setThresholds(int, int, int)}, the chosen
+     * strategies are reported by {@link #getIdFilterStrategies()} and counted in
+     * {@link IdFilterStrategies#getStrategyCount(IdFilterStrategy)}. The filter also applies to {@link #delete()}
+     * and bulk updates, and makes the query uncacheable. Temporary tables are created on the primary, so the
+     * {@link IdFilterStrategy#TemporaryTable} strategy runs the reads of this builder {@link #onPrimary()}.
      *
-     * @param query The query to apply to
+     * @param attribute The dot-separated attribute
+     * @param values    The values, duplicates are removed
+     * @return This
      */
-    private void applyReadOnly(Mutiny.SelectionQuery<?> query)
+    @NotNull
+    public J whereIn(String attribute, Collection<?> values)
     {
-        if (isReadOnly())
+        Path<Object> path = traversePath(getRoot(), attribute);
+        List<Object> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        IdFilterStrategy strategy = IdFilterStrategies.choose(getCriteriaBuilder(), distinct, path.getJavaType());
+        long filterId = 0;
+        if (strategy == IdFilterStrategy.TemporaryTable)
         {
-            query.setReadOnly(true);
-            query.setFlushMode(FlushMode.MANUAL);
+            filterId = IdFilterStrategies.nextFilterId();
+            temporaryIdFilters.add(new TemporaryIdFilter(filterId, IdFilterStrategies.getTemporaryColumn(path.getJavaType()),
+                                                         IdFilterStrategies.toArray(distinct, path.getJavaType())));
+            //a hot standby replica cannot create temporary tables
+            onPrimary();
         }
+        whereMembership(attribute, distinct, strategy, filterId);
+        idFilterStrategies.add(strategy);
+        log.debug("Filtering {} on {} by {} values with strategy {}", getEntityClass().getName(), attribute, distinct.size(), strategy);
+        return (J) this;
     }
 
     /**
-     * Builds up the criteria query to perform (Criteria Query Only)
+     * Returns the strategies chosen by {@link #whereIn(String, Collection)} on this builder, in call order.
+     *
+     * @return The chosen strategies
      */
-    private void processCriteriaQuery()
+    public List<IdFilterStrategy> getIdFilterStrategies()
     {
-        CriteriaQuery<E> cq = getCriteriaQuery();
-        List<Predicate> allWheres = new ArrayList<>(getFilters());
-        Predicate[] preds = new Predicate[allWheres.size()];
-        preds = allWheres.toArray(preds);
-        getCriteriaQuery().where(preds);
-        for (Expression<?> p : getGroupBys())
-        {
-            cq.groupBy(p);
-        }
+        return Collections.unmodifiableList(idFilterStrategies);
+    }
 
-        for (Expression<?> expression : getHavingExpressions())
-        {
-            cq.having((Expression<Boolean>) expression);
-        }
+    /**
+     * Runs the query after loading the values of temporary table filters, removing them again once the query
+     * terminates.
+     *
+     * @param execution Executes the query
+     * @param <T>       The result type
+     * @return Uni with the query result
+     */
+    private <T> Uni<T> withTemporaryIdFilters(Supplier<Uni<T>> execution)
+    {
+        return withTemporaryIdFilters(execution, null);
+    }
 
-        if (!getOrderBys().isEmpty())
+    /**
+     * Runs the query after loading the values of temporary table filters, removing them again once the query
+     * terminates.
+     *
+     * @param execution   Executes the query
+     * @param onCancelled Cancels the statement on the server when the query is cancelled, before the temporary
+     *                    table rows are removed on the same connection; null for none
+     * @param <T>         The result type
+     * @return Uni with the query result
+     */
+    private <T> Uni<T> withTemporaryIdFilters(Supplier<Uni<T>> execution, Supplier<Uni<Void>> onCancelled)
+    {
+        if (temporaryIdFilters.isEmpty())
         {
-            List<Order> orderBys = new ArrayList<>();
-            getOrderBys().forEach((key, value) ->
-                                          orderBys.add(processOrderBys(key, value)));
-            cq.orderBy(orderBys);
+            return onCancelled == null ? execution.get() : execution.get()
+                                                                    .onCancellation()
+                                                                    .call(onCancelled);
         }
-
-        if (getSelections().isEmpty())
+        Uni<?> loaded = executeNative(IdFilterStrategies.CREATE_TEMPORARY_TABLE);
+        for (TemporaryIdFilter filter : temporaryIdFilters)
         {
-            getCriteriaQuery().select(getRoot());
+            loaded = loaded.chain(() -> executeNative("insert into " + IdFilterStrategies.TEMPORARY_TABLE + " (filter_id, " + filter.column() + ") select ?1, unnest(?2)",
+                                                      filter.filterId(), filter.values()));
         }
-        else if (getSelections().size() > 1)
+        //temporary tables are never auto-analyzed, give the planner row estimates
+        return loaded.chain(() -> executeNative("analyze " + IdFilterStrategies.TEMPORARY_TABLE))
+                     .chain(execution)
+                     .onTermination()
+                     .call((result, failure, cancelled) -> {
+                         Uni<?> removed = cancelled && onCancelled != null ? onCancelled.get() : Uni.createFrom()
+                                                                                                   .voidItem();
+                         for (TemporaryIdFilter filter : temporaryIdFilters)
+                         {
+                             removed = removed.chain(() -> executeNative("delete from " + IdFilterStrategies.TEMPORARY_TABLE + " where filter_id = ?1", filter.filterId()));
+                         }
+                         return removed.onFailure()
+                                       .recoverWithNull();
+                     });
+    }
+
+    /**
+     * Executes a native statement on the bound session.
+     *
+     * @param sql        The statement, with positional {@code ?n} parameters
+     * @param parameters The parameter values
+     * @return Uni with the number of affected rows
+     */
+    private Uni<Integer> executeNative(String sql, Object... parameters)
+    {
+        if (isStateless())
         {
-            if (getConstruct() != null)
+            var statement = getEntityManagerStateless().createNativeQuery(sql);
+            for (int i = 0; i < parameters.length; i++)
             {
-                ArrayList<Selection<?>> aS = new ArrayList<>(getSelections());
-                Selection<?>[] selections = aS.toArray(new Selection[0]);
-                CompoundSelection<?> cs = getCriteriaBuilder().construct(getConstruct(), selections);
-                getCriteriaQuery().select(cs);
-            }
-            else
-            {
-                getCriteriaQuery().multiselect(new ArrayList<>(getSelections()));
+                statement.setParameter(i + 1, parameters[i]);
             }
+            return statement.executeUpdate();
         }
-        else
+        var statement = getEntityManager().createNativeQuery(sql);
+        for (int i = 0; i < parameters.length; i++)
         {
-            getSelections().forEach(a -> getCriteriaQuery().select(a));
+            statement.setParameter(i + 1, parameters[i]);
         }
+        return statement.executeUpdate();
     }
 
     /**
-     * Processes the order bys into the given query
+     * The values of a temporary table filter, loaded before the query executes
      *
-     * @param key   The attribute to apply
-     * @param value The value to use
+     * @param filterId The identifier separating the rows of this filter
+     * @param column   The value column matching the attribute type
+     * @param values   The typed array of values
      */
-    private Order processOrderBys(Attribute<?, ?> key, OrderByType value)
+    private record TemporaryIdFilter(long filterId, String column, Object values)
     {
-        //noinspection EnhancedSwitchMigration
-        switch (value)
-        {
-
-            case DESC:
-            {
-                if (isSingularAttribute(key))
-                {
-                    return getCriteriaBuilder().desc(getRoot().get((SingularAttribute<?, ?>) key));
-                }
-                else if (isPluralOrMapAttribute(key))
-                {
-                    return getCriteriaBuilder().desc(getRoot().get((PluralAttribute<?, ?, ?>) key));
-                }
-                return getCriteriaBuilder().desc(getRoot().get((SingularAttribute<?, ?>) key));
-            }
-            case ASC:
-            default:
-            {
-                if (isSingularAttribute(key))
-                {
-                    return getCriteriaBuilder().asc(getRoot().get((SingularAttribute<?, ?>) key));
-                }
-                else if (isPluralOrMapAttribute(key))
-                {
-                    return getCriteriaBuilder().asc(getRoot().get((PluralAttribute<?, ?, ?>) key));
-                }
-                return getCriteriaBuilder().asc(getRoot().get((SingularAttribute<?, ?>) key));
-            }
-        }
     }
 
     /**
-     * Processors the join section
+     * Loads the given association together with the root rows using a left fetch join.
+     * <p>
+     * Only applied when the builder selects the entity itself - counts and column projections ignore it.
+     * Hibernate returns each root entity once even when a collection fetch join repeats its row.
      *
-     * @param executor Processes the joins into the expression
+     * @param attribute The association to fetch
+     * @return This
+     */
+    @NotNull
+    public J fetch(Attribute<?, ?> attribute)
+    {
+        return fetch(attribute.getName());
+    }
+
+    /**
+     * Loads the given association path together with the root rows using nested left fetch joins.
+     * <p>
+     * Dot-notation walks nested associations, for example {@code fetch("children.children")} fetches two
+     * levels. Shared prefixes of several paths are fetched once. For paginated collection loads prefer
+     * {@code prefetch}, as Hibernate has to paginate collection fetch joins in memory.
+     *
+     * @param attributePath The dot-separated association path
+     * @return This
+     */
+    @NotNull
+    public J fetch(String attributePath)
+    {
+        if (Strings.isNullOrEmpty(attributePath))
+        {
+            throw new EntityAssistException("Fetch path must not be empty");
+        }
+        fetches.add(attributePath);
+        return (J) this;
+    }
+
+    /**
+     * Applies a named entity graph (declared with {@code @NamedEntityGraph}) as the load graph of entity selections.
+     *
+     * @param graphName The entity graph name
+     * @return This
+     */
+    @NotNull
+    public J withEntityGraph(String graphName)
+    {
+        this.entityGraphName = graphName;
+        this.entityGraph = null;
+        return (J) this;
+    }
+
+    /**
+     * Applies a programmatic entity graph, for example one created through
+     * {@code session.createEntityGraph(EntityClass.class)}, as the load graph of entity selections.
+     *
+     * @param graph The entity graph
+     * @return This
+     */
+    @NotNull
+    public J withEntityGraph(EntityGraph<E> graph)
+    {
+        this.entityGraph = graph;
+        this.entityGraphName = null;
+        return (J) this;
+    }
+
+    /**
+     * Returns the registered fetch paths.
+     *
+     * @return The dot-separated association paths to fetch join
+     */
+    public Set<String> getFetches()
+    {
+        return fetches;
+    }
+
+    /**
+     * Loads the given association for every row returned by {@link #getAll()} with batched {@code IN} queries.
+     * <p>
+     * Unlike {@link #fetch(Attribute)} the main query is left untouched, so pagination stays in the database.
+     * After the main query the owner identifiers are collected and the association is loaded with one
+     * {@code IN} query per association level (split into chunks of {@link #setPrefetchBatchSize(int)}).
+     * On a stateful session the loaded associations are initialised on the managed entities themselves;
+     * on a stateless session they are exposed through {@link #getPrefetched(String)}.
+     *
+     * @param attribute The association to prefetch
+     * @return This
+     */
+    @NotNull
+    public J prefetch(Attribute<?, ?> attribute)
+    {
+        return prefetch(attribute.getName());
+    }
+
+    /**
+     * Loads the given association path for every row returned by {@link #getAll()} with batched {@code IN}
+     * queries, one per path segment - for example {@code prefetch("children.children")} issues two.
+     *
+     * @param attributePath The dot-separated association path
+     * @return This
+     */
+    @NotNull
+    public J prefetch(String attributePath)
+    {
+        if (Strings.isNullOrEmpty(attributePath))
+        {
+            throw new EntityAssistException("Prefetch path must not be empty");
+        }
+        prefetches.add(attributePath);
+        return (J) this;
+    }
+
+    /**
+     * Sets the maximum number of owner identifiers bound into a single prefetch {@code IN} query.
+     *
+     * @param prefetchBatchSize The chunk size, must be positive
+     * @return This
+     */
+    @NotNull
+    public J setPrefetchBatchSize(int prefetchBatchSize)
+    {
+        if (prefetchBatchSize < 1)
+        {
+            throw new EntityAssistException("Prefetch batch size must be positive");
+        }
+        this.prefetchBatchSize = prefetchBatchSize;
+        return (J) this;
+    }
+
+    /**
+     * Returns the associated rows loaded by a prefetch, keyed by the owning row identifier.
+     * <p>
+     * Nested levels are keyed by their full path, e.g. {@code "children.children"} maps each child id to
+     * its own children.
+     *
+     * @param attributePath The prefetched path
+     * @return The associated rows per owner identifier, empty when nothing was prefetched
+     */
+    public Map<Object, List<Object>> getPrefetched(String attributePath)
+    {
+        return prefetched.getOrDefault(attributePath, Map.of());
+    }
+
+    /**
+     * Runs every registered prefetch path against the given owners, sequentially on the bound session.
+     * <p>
+     * The owners of a sharded entity are grouped by the shard of their shard key and each group is prefetched
+     * on a new session of its shard, one shard after the other.
+     * <p>
+     * The rows of a previous execution are discarded first, so {@link #getPrefetched(String)} only holds the
+     * associations of the latest owners.
+     *
+     * @param owners The rows returned by the main query
+     * @return A Uni completing once every path is loaded
+     */
+    private Uni<Void> applyPrefetches(List<E> owners)
+    {
+        prefetched.clear();
+        if (prefetches.isEmpty() || !ShardRouting.isSharded(getEntityClass()))
+        {
+            return prefetchPaths(owners);
+        }
+        String shardKeyAttribute = ShardRouting.getShardKeyAttribute(getEntityClass());
+        Map<Mutiny.SessionFactory, List<E>> byShard = new LinkedHashMap<>();
+        for (E owner : owners)
+        {
+            byShard.computeIfAbsent(ShardRouting.getSessionFactory(getEntityClass(), readDottedMember(owner, shardKeyAttribute)), k -> new ArrayList<>())
+                   .add(owner);
+        }
+        Uni<Void> chain = Uni.createFrom()
+                             .voidItem();
+        for (Map.Entry<Mutiny.SessionFactory, List<E>> shard : byShard.entrySet())
+        {
+            chain = chain.chain(() -> onNewSession(shard.getKey(), () -> prefetchPaths(shard.getValue())));
+        }
+        return chain;
+    }
+
+    /**
+     * Runs every registered prefetch path against the given owners, sequentially on the bound session.
+     *
+     * @param owners The owning rows
+     * @return A Uni completing once every path is loaded
+     */
+    private Uni<Void> prefetchPaths(List<E> owners)
+    {
+        Uni<Void> chain = Uni.createFrom()
+                             .voidItem();
+        for (String path : prefetches)
+        {
+            chain = chain.chain(() -> prefetchLevel(new ArrayList<>(owners), getEntityClass(), path.split("\\."), 0));
+        }
+        return chain;
+    }
+
+    /**
+     * Loads one level of a prefetch path for the given owners and recurses into the loaded rows.
+     *
+     * @param owners     The owning rows of this level
+     * @param ownerClass The owning entity class
+     * @param segments   The path segments
+     * @param level      The segment index to load
+     * @return A Uni completing once this and all deeper levels are loaded
+     */
+    private Uni<Void> prefetchLevel(List<Object> owners, Class<?> ownerClass, String[] segments, int level)
+    {
+        if (level >= segments.length || owners.isEmpty())
+        {
+            return Uni.createFrom()
+                      .voidItem();
+        }
+        Metamodel metamodel = IGuiceContext.get(Mutiny.SessionFactory.class)
+                                           .getMetamodel();
+        EntityType<?> ownerType = metamodel.entity(ownerClass);
+        Attribute<?, ?> attribute = ownerType.getAttribute(segments[level]);
+        SingularAttribute<?, ?> idAttribute = ownerType.getId(ownerType.getIdType()
+                                                                        .getJavaType());
+        Class<?> targetClass = attribute instanceof PluralAttribute<?, ?, ?> plural
+                               ? plural.getElementType()
+                                       .getJavaType()
+                               : attribute.getJavaType();
+        String levelPath = String.join(".", Arrays.copyOf(segments, level + 1));
+        Map<Object, List<Object>> byOwner = prefetched.computeIfAbsent(levelPath, k -> new LinkedHashMap<>());
+
+        List<Object> ids = new ArrayList<>(new LinkedHashSet<>(owners.stream()
+                                                                     .map(owner -> readMember(owner, idAttribute))
+                                                                     .filter(Objects::nonNull)
+                                                                     .toList()));
+        List<List<Object>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += prefetchBatchSize)
+        {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + prefetchBatchSize)));
+        }
+        return Multi.createFrom()
+                    .iterable(chunks)
+                    .onItem()
+                    .transformToUniAndConcatenate(chunk -> prefetchChunk(ownerClass, idAttribute, attribute, chunk, byOwner))
+                    .collect()
+                    .asList()
+                    .chain(loaded -> {
+                        List<Object> targets = new ArrayList<>();
+                        loaded.forEach(targets::addAll);
+                        return prefetchLevel(targets, targetClass, segments, level + 1);
+                    });
+    }
+
+    /**
+     * Loads the association for one chunk of owner identifiers.
+     * <p>
+     * A stateful session re-selects the owners with a fetch join, which initialises the association on the
+     * already managed instances. A stateless session selects {@code [ownerId, target]} pairs into the side map.
+     *
+     * @param ownerClass  The owning entity class
+     * @param idAttribute The owner identifier attribute
+     * @param attribute   The association to load
+     * @param chunk       The owner identifiers of this chunk
+     * @param byOwner     The side map to fill
+     * @return Uni with the loaded association rows
+     */
+    @SuppressWarnings({"rawtypes"})
+    private Uni<List<Object>> prefetchChunk(Class<?> ownerClass,
+                                            SingularAttribute<?, ?> idAttribute,
+                                            Attribute<?, ?> attribute,
+                                            List<Object> chunk,
+                                            Map<Object, List<Object>> byOwner)
+    {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        if (isStateless())
+        {
+            CriteriaQuery<Object[]> pairs = cb.createQuery(Object[].class);
+            Root owner = pairs.from(ownerClass);
+            Join target = owner.join(attribute.getName(), JoinType.INNER);
+            pairs.multiselect(owner.get(idAttribute.getName()), target)
+                 .where(owner.get(idAttribute.getName())
+                             .in(chunk));
+            return getEntityManagerStateless().createQuery(pairs)
+                                              .getResultList()
+                                              .map(rows -> {
+                                                  List<Object> targets = new ArrayList<>(rows.size());
+                                                  for (Object[] row : rows)
+                                                  {
+                                                      byOwner.computeIfAbsent(row[0], k -> new ArrayList<>())
+                                                             .add(row[1]);
+                                                      targets.add(row[1]);
+                                                  }
+                                                  return targets;
+                                              });
+        }
+        CriteriaQuery owners = cb.createQuery(ownerClass);
+        Root owner = owners.from(ownerClass);
+        owner.fetch(attribute.getName(), JoinType.LEFT);
+        owners.select(owner)
+              .where(owner.get(idAttribute.getName())
+                          .in(chunk));
+        return getEntityManager().createQuery((CriteriaQuery<Object>) owners)
+                                 .getResultList()
+                                 .map(rows -> {
+                                     List<Object> targets = new ArrayList<>();
+                                     for (Object row : new LinkedHashSet<>(rows))
+                                     {
+                                         List<Object> values = new ArrayList<>();
+                                         Object value = readMember(row, attribute);
+                                         if (value instanceof Collection<?> collection)
+                                         {
+                                             values.addAll(collection);
+                                         }
+                                         else if (value instanceof Map<?, ?> map)
+                                         {
+                                             values.addAll(map.values());
+                                         }
+                                         else if (value != null)
+                                         {
+                                             values.add(value);
+                                         }
+                                         byOwner.put(readMember(row, idAttribute), values);
+                                         targets.addAll(values);
+                                     }
+                                     return targets;
+                                 });
+    }
+
+    /**
+     * Reads a mapped attribute value from an entity through its Java member.
+     *
+     * @param entity    The entity instance
+     * @param attribute The mapped attribute
+     * @return The attribute value
+     */
+    private static Object readMember(Object entity, Attribute<?, ?> attribute)
+    {
+        try
+        {
+            if (attribute.getJavaMember() instanceof Field field)
+            {
+                field.setAccessible(true);
+                return field.get(entity);
+            }
+            if (attribute.getJavaMember() instanceof Method method)
+            {
+                method.setAccessible(true);
+                return method.invoke(entity);
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            throw new EntityAssistException("Unable to read attribute [" + attribute.getName() + "] from " + entity.getClass()
+                                                                                                           .getName(), e);
+        }
+        throw new EntityAssistException("Attribute [" + attribute.getName() + "] has no readable Java member");
+    }
+
+    /**
+     * Serves the results of this builder from the application query result cache for the given time.
+     * <p>
+     * Unlike {@link #setCacheName(String, String)}, which only hints Hibernate's second-level query cache,
+     * this cache lives inside EntityAssist and needs no provider configuration. Results are keyed by the
+     * normalized query shape plus the bound values, and are invalidated automatically by writes made
+     * through the builders on any entity type the query reads. Cached entities are shared between callers
+     * and sessions - use it for read-only data, ideally together with {@code setReadOnly(true)}.
+     * Builders that cannot be described (raw predicates, custom recursive CTEs, prefetches) are not cached.
+     *
+     * @param ttl How long a result may be served
+     * @return This
+     */
+    @NotNull
+    public J cacheResults(Duration ttl)
+    {
+        return cacheResults(null, ttl);
+    }
+
+    /**
+     * Serves the results of this builder from the given region of the application query result cache.
+     *
+     * @param region The cache region, the entity class name when null or empty
+     * @param ttl    How long a result may be served
+     * @return This
+     */
+    @NotNull
+    public J cacheResults(String region, Duration ttl)
+    {
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+        {
+            throw new EntityAssistException("Result cache time to live must be positive");
+        }
+        this.resultCacheRegion = region;
+        this.resultCacheTtl = ttl;
+        return (J) this;
+    }
+
+    /**
+     * Remembers for the given (short) time that {@code get()} found no row for this query shape and binds.
+     * <p>
+     * Repeated lookups of identifiers that do not exist yet - idempotency keys, external references - then
+     * fail with {@link NoResultException} from memory instead of a round trip. Any write through the
+     * builders on an entity type the query reads forgets the recorded misses, so a persisted row is found
+     * by the next lookup. Misses found inside a transaction, or while a write to a type the query reads is
+     * uncommitted, are not recorded.
+     *
+     * @param ttl How long a miss is remembered, keep it short
+     * @return This
+     */
+    @NotNull
+    public J cacheMisses(Duration ttl)
+    {
+        if (ttl == null || ttl.isNegative() || ttl.isZero())
+        {
+            throw new EntityAssistException("Miss cache time to live must be positive");
+        }
+        this.missCacheTtl = ttl;
+        return (J) this;
+    }
+
+    /**
+     * Coalesces this query with identical queries already in flight.
+     * <p>
+     * When many callers run the same read-only query at the same moment (for example right after a popular
+     * cache entry expired), only the first one reaches the database; the others join its execution and
+     * receive the same result on their own Vert.x context. A caller that cancels only leaves the shared
+     * execution, which is cancelled when its last caller cancels. The shared execution runs on its own session
+     * of the bound session's factory, so the returned entities are detached. Applies only to read-only builders
+     * ({@code setReadOnly(true)}) whose shape can be described and that are not inside a transaction, and shares
+     * the result instances between callers.
+     *
+     * @return This
+     */
+    @NotNull
+    public J singleFlight()
+    {
+        this.singleFlight = true;
+        return (J) this;
+    }
+
+    /**
+     * Bounds how long a single execution of this query may run.
+     * <p>
+     * An execution still running after the timeout fails with {@link QueryTimeoutException} and, where
+     * supported, is cancelled on the database server.
+     *
+     * @param timeout The maximum execution time
+     * @return This
+     * @see #cancellable()
+     */
+    @NotNull
+    public J timeout(Duration timeout)
+    {
+        if (timeout == null || timeout.isNegative() || timeout.isZero())
+        {
+            throw new EntityAssistException("Query timeout must be positive");
+        }
+        this.timeout = timeout;
+        this.cancellable = true;
+        return (J) this;
+    }
+
+    /**
+     * Propagates the caller's deadline, for example the time left of an HTTP request, to this query.
+     * <p>
+     * Executions started after the deadline fail immediately with {@link QueryTimeoutException}; executions
+     * still running at the deadline fail and are cancelled as with {@link #timeout(Duration)}. When both are
+     * set the earlier bound applies.
+     *
+     * @param deadline The instant by which the query must complete
+     * @return This
+     */
+    @NotNull
+    public J deadline(Instant deadline)
+    {
+        this.deadline = Objects.requireNonNull(deadline, "deadline may not be null");
+        this.cancellable = true;
+        return (J) this;
+    }
+
+    /**
+     * Sets the number of rows read per round trip by {@link #stream()}.
+     *
+     * @param fetchSize The page size, must be positive
+     * @return This
+     */
+    @NotNull
+    public J fetchSize(int fetchSize)
+    {
+        if (fetchSize < 1)
+        {
+            throw new EntityAssistException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+        return (J) this;
+    }
+
+    /**
+     * Cancels the statement on the database server when the returned {@code Uni} or {@code Multi} is cancelled,
+     * so abandoned requests stop using database CPU and their pooled connection.
+     * <p>
+     * Enabled implicitly by {@link #timeout(Duration)} and {@link #deadline(Instant)}. Costs one extra round trip
+     * per execution to resolve the server process of the session's connection, and only applies on PostgreSQL
+     * (see {@link StatementCancellation}).
+     *
+     * @return This
+     */
+    @NotNull
+    public J cancellable()
+    {
+        this.cancellable = true;
+        return (J) this;
+    }
+
+    /**
+     * Returns the execution timeout of this query.
+     *
+     * @return The timeout, null when unbounded
+     */
+    public Duration getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * Returns the deadline of this query.
+     *
+     * @return The deadline, null when unbounded
+     */
+    public Instant getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Returns the number of rows read per round trip by {@link #stream()}.
+     *
+     * @return The fetch size, null when all rows are read at once
+     */
+    public Integer getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Returns the time an execution starting now may take, the earlier of the timeout and the deadline.
+     *
+     * @return The remaining time, null when unbounded
+     */
+    private Duration getRemainingTime()
+    {
+        Duration remaining = timeout;
+        if (deadline != null)
+        {
+            Duration untilDeadline = Duration.between(Instant.now(), deadline);
+            if (remaining == null || untilDeadline.compareTo(remaining) < 0)
+            {
+                remaining = untilDeadline;
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Executes a query with the execution hints of this builder and the values of its temporary table filters.
+     *
+     * @param execution Executes the query
+     * @param <T>       The result type
+     * @return Uni with the query result
+     */
+    private <T> Uni<T> execute(Supplier<Uni<T>> execution)
+    {
+        if (!cancellable)
+        {
+            return withTemporaryIdFilters(execution);
+        }
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      Duration remaining = getRemainingTime();
+                      if (remaining != null && (remaining.isNegative() || remaining.isZero()))
+                      {
+                          return Uni.createFrom()
+                                    .failure(new QueryTimeoutException("Deadline passed before the query on " + getEntityClass().getName() + " started"));
+                      }
+                      Uni<T> guarded = StatementCancellation.isSupported()
+                                       ? selectBackendId().chain(backendId -> cancelOnServer(execution, backendId))
+                                       : withTemporaryIdFilters(execution);
+                      if (remaining == null)
+                      {
+                          return guarded;
+                      }
+                      Context context = Vertx.currentContext();
+                      guarded = guarded.ifNoItem()
+                                       .after(remaining)
+                                       .failWith(() -> new QueryTimeoutException("Query on " + getEntityClass().getName() + " exceeded " + remaining));
+                      //the timeout fires on a timer thread, continue on the caller's context for the session
+                      return context == null ? guarded : guarded.emitOn(command -> context.runOnContext(v -> command.run()));
+                  });
+    }
+
+    /**
+     * Runs the query, cancelling it on the server when it is cancelled while its statement is in flight.
+     * <p>
+     * The cancel request is sent through the factory of the session executing the statement, which may be a
+     * replica or a shard, and never once the statement completed, so it cannot abort a later statement of the
+     * connection.
+     *
+     * @param execution Executes the query
+     * @param backendId The server process of the connection bound to the session
+     * @param <T>       The result type
+     * @return Uni with the query result
+     */
+    private <T> Uni<T> cancelOnServer(Supplier<Uni<T>> execution, Integer backendId)
+    {
+        Mutiny.SessionFactory sessionFactory = getBoundSessionFactory();
+        AtomicBoolean inFlight = new AtomicBoolean();
+        Supplier<Uni<T>> tracked = () -> Uni.createFrom()
+                                            .deferred(() -> {
+                                                inFlight.set(true);
+                                                return execution.get();
+                                            })
+                                            .onItemOrFailure()
+                                            .invoke((result, failure) -> inFlight.set(false));
+        return withTemporaryIdFilters(tracked, () -> inFlight.getAndSet(false)
+                                                     ? StatementCancellation.cancel(sessionFactory, backendId)
+                                                     : Uni.createFrom()
+                                                          .voidItem());
+    }
+
+    /**
+     * Resolves the server process of the connection bound to the session.
+     *
+     * @return Uni with the backend process identifier
+     */
+    private Uni<Integer> selectBackendId()
+    {
+        return isStateless()
+               ? getEntityManagerStateless().createNativeQuery(StatementCancellation.BACKEND_ID_QUERY, Integer.class)
+                                            .getSingleResult()
+               : getEntityManager().createNativeQuery(StatementCancellation.BACKEND_ID_QUERY, Integer.class)
+                                   .getSingleResult();
+    }
+
+    /**
+     * Runs the terminal reads of this builder on a registered read replica, even when it is not read-only.
+     * <p>
+     * Read-only builders are routed automatically once replicas are registered with {@link ReplicaRouter}.
+     * Routed reads run on a stateless session of the replica, so the returned entities are detached. Reads of a
+     * session that wrote through the builders follow {@link ReplicaRouter#getConsistency()}.
+     *
+     * @return This
+     */
+    @NotNull
+    public J onReplica()
+    {
+        this.replicaRead = true;
+        return (J) this;
+    }
+
+    /**
+     * Runs the terminal reads of this builder on the session it is bound to, even when it is read-only.
+     *
+     * @return This
+     */
+    @NotNull
+    public J onPrimary()
+    {
+        this.replicaRead = false;
+        return (J) this;
+    }
+
+    /**
+     * Runs the read on a replica when this builder is routed, keeping the reads of a session that wrote
+     * consistent with its writes.
+     *
+     * @param loader Executes the query on the session bound to the builder
+     * @param <T>    The result type
+     * @return Uni with the result
+     */
+    private <T> Uni<T> routed(Supplier<Uni<T>> loader)
+    {
+        boolean route = replicaRead != null ? replicaRead : isReadOnly();
+        if (!route || !ReplicaRouter.isEnabled())
+        {
+            return loader.get();
+        }
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      ReplicaRouter.Replica replica = ReplicaRouter.select();
+                      if (replica == null)
+                      {
+                          return loader.get();
+                      }
+                      Object primary = getBoundSession();
+                      if (!ReplicaRouter.hasWritten(primary))
+                      {
+                          return replica.withSession(session -> onSession(session, loader));
+                      }
+                      boolean inTransaction = isStateless()
+                                              ? getEntityManagerStateless().currentTransaction() != null
+                                              : getEntityManager().currentTransaction() != null;
+                      if (inTransaction || ReplicaRouter.getConsistency() == ReplicaConsistency.Primary)
+                      {
+                          //uncommitted writes are never visible on a replica
+                          ReplicaRouter.recordPrimaryFallback();
+                          return loader.get();
+                      }
+                      Uni<String> position = isStateless()
+                                             ? getEntityManagerStateless().createNativeQuery(ReplicaRouter.PRIMARY_POSITION_QUERY, String.class)
+                                                                          .getSingleResult()
+                                             : getEntityManager().createNativeQuery(ReplicaRouter.PRIMARY_POSITION_QUERY, String.class)
+                                                                 .getSingleResult();
+                      return position.chain(lsn -> replica.withSession(session -> ReplicaRouter.awaitReplay(session, lsn)))
+                                     .chain(caughtUp -> {
+                                         if (caughtUp)
+                                         {
+                                             return replica.withSession(session -> onSession(session, loader));
+                                         }
+                                         ReplicaRouter.recordPrimaryFallback();
+                                         return loader.get();
+                                     });
+                  });
+    }
+
+    /**
+     * Runs the query with the builder temporarily bound to another session.
+     *
+     * @param session The stateful or stateless session to run on
+     * @param loader  Executes the query on the bound session
+     * @param <T>     The result type
+     * @return Uni with the result, the original session is bound again once it terminates
+     */
+    private <T> Uni<T> onSession(Object session, Supplier<Uni<T>> loader)
+    {
+        Runnable rebind = bindSession(session);
+        return Uni.createFrom()
+                  .deferred(loader)
+                  .onTermination()
+                  .invoke(rebind);
+    }
+
+    /**
+     * Returns the session factory of the session this builder is bound to.
+     *
+     * @return The bound session's factory, the default session factory when the builder is not bound
+     */
+    private Mutiny.SessionFactory getBoundSessionFactory()
+    {
+        if (isStateless() && getEntityManagerStateless() != null)
+        {
+            return getEntityManagerStateless().getFactory();
+        }
+        if (!isStateless() && getEntityManager() != null)
+        {
+            return getEntityManager().getFactory();
+        }
+        return IGuiceContext.get(Mutiny.SessionFactory.class);
+    }
+
+    /**
+     * Binds the builder to another session.
+     *
+     * @param session The stateful or stateless session
+     * @return Binds the previous session again
+     */
+    private Runnable bindSession(Object session)
+    {
+        Mutiny.Session boundSession = getEntityManager();
+        Mutiny.StatelessSession boundStatelessSession = getEntityManagerStateless();
+        boolean boundStateless = isStateless();
+        if (session instanceof Mutiny.StatelessSession stateless)
+        {
+            setStatelessSession(stateless);
+            setStateless(true);
+        }
+        else
+        {
+            setSession((Mutiny.Session) session);
+            setStateless(false);
+        }
+        return () -> {
+            setSession(boundSession);
+            setStatelessSession(boundStatelessSession);
+            setStateless(boundStateless);
+        };
+    }
+
+    /**
+     * Routes this query to the shard holding the given key, instead of scattering it across all shards.
+     * <p>
+     * Only needed when the builder has no equals filter on the shard key attribute of the
+     * {@link ShardRouter}.
+     *
+     * @param shardKey The shard key, for example the tenant identifier
+     * @return This
+     */
+    @NotNull
+    public J shardKey(Object shardKey)
+    {
+        this.shardKey = shardKey;
+        return (J) this;
+    }
+
+    /**
+     * Returns the shard key of this query, set explicitly or taken from an equals filter on the shard key
+     * attribute.
+     *
+     * @return The shard key, null when the query is scattered across all shards
+     */
+    public Object getShardKey()
+    {
+        if (shardKey != null)
+        {
+            return shardKey;
+        }
+        String attribute = ShardRouting.getShardKeyAttribute(getEntityClass());
+        return attribute == null ? null : getEqualsFilterValue(attribute);
+    }
+
+    /**
+     * Returns the temporal attribute the table of the entity is range partitioned on.
+     * <p>
+     * Taken from {@link Partitioned} on the entity class, override on the builder to declare it there.
+     *
+     * @return The partition key attribute, null when the table is not partitioned
+     */
+    public String getPartitionKeyAttribute()
+    {
+        Partitioned partitioned = getEntityClass().getAnnotation(Partitioned.class);
+        return partitioned == null ? null : partitioned.attribute();
+    }
+
+    /**
+     * Returns the width of the partitions of the table of the entity.
+     * <p>
+     * Taken from {@link Partitioned} on the entity class, override on the builder to declare it there.
+     *
+     * @return The partition interval, null when the table is not partitioned
+     */
+    public PartitionInterval getPartitionInterval()
+    {
+        Partitioned partitioned = getEntityClass().getAnnotation(Partitioned.class);
+        return partitioned == null ? null : partitioned.interval();
+    }
+
+    /**
+     * Constrains this query to the half-open range {@code [from, to)} of the partition key.
+     * <p>
+     * The bounds are rendered as literals, so the planner prunes the partitions outside the range even for
+     * prepared statements. Bounds may be {@link java.time.LocalDate}, {@link java.time.LocalDateTime},
+     * {@link Instant}, {@link java.time.OffsetDateTime} or {@link java.time.ZonedDateTime} and should match the
+     * type of the partition key attribute.
+     *
+     * @param from The inclusive lower bound
+     * @param to   The exclusive upper bound
+     * @return This
+     */
+    @NotNull
+    public J inPartitionRange(@NotNull Object from, @NotNull Object to)
+    {
+        if (getPartitionKeyAttribute() == null)
+        {
+            throw new EntityAssistException("Entity " + getEntityClass().getName() + " declares no partition key, annotate it with @Partitioned or override getPartitionKeyAttribute()");
+        }
+        this.partitionFrom = from;
+        this.partitionTo = to;
+        return (J) this;
+    }
+
+    /**
+     * Reads a partition range spanning several partitions with one query per partition, run in parallel, and
+     * merges the results - counts are summed and rows merged by the order of the builder and cut to its page.
+     * <p>
+     * Each query reads a single partition, which keeps plans simple and lets the partitions be scanned
+     * concurrently on separate connections - one after the other on the bound session inside a transaction. Requires {@link #inPartitionRange(Object, Object)}; {@link #stream()}
+     * and sharded entities read the whole range in one query.
+     *
+     * @return This
+     */
+    @NotNull
+    public J splitByPartition()
+    {
+        this.splitByPartition = true;
+        return (J) this;
+    }
+
+    /**
+     * Returns the partition ranges this query is split into.
+     *
+     * @return One range per partition, empty when the query is not split
+     */
+    public List<PartitionRange> getPartitionRanges()
+    {
+        if (!splitByPartition || partitionFrom == null || getPartitionInterval() == null)
+        {
+            return List.of();
+        }
+        return new PartitionRange(partitionFrom, partitionTo).split(getPartitionInterval());
+    }
+
+    /**
+     * Adds the literal partition key bounds of the partition range and of the range filters on the partition
+     * key, so the partitions are pruned at plan time, and the bound parameters of split queries. Warns once per
+     * builder class about queries on a partitioned table without a partition key filter.
+     */
+    private void applyPartitionPredicates()
+    {
+        String attribute = getPartitionKeyAttribute();
+        if (attribute == null)
+        {
+            return;
+        }
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) getCriteriaBuilder();
+        Path<Comparable<Object>> key = (Path<Comparable<Object>>) (Path<?>) traversePath(getRoot(), attribute);
+        boolean bounded = partitionFrom != null;
+        if (bounded)
+        {
+            getFilters().add(cb.greaterThanOrEqualTo(key, partitionLiteral(cb, partitionFrom)));
+            getFilters().add(cb.lessThan(key, partitionLiteral(cb, partitionTo)));
+        }
+        for (Map.Entry<Operand, Object> filter : getRangeFilterValues(attribute).entrySet())
+        {
+            //the filter itself is bound as a parameter, repeat it as a literal the planner can prune on
+            Expression<Comparable<Object>> value = partitionLiteral(cb, filter.getValue());
+            getFilters().add(switch (filter.getKey())
+            {
+                case Equals -> cb.equal(key, value);
+                case LessThan -> cb.lessThan(key, value);
+                case LessThanEqualTo -> cb.lessThanOrEqualTo(key, value);
+                case GreaterThan -> cb.greaterThan(key, value);
+                default -> cb.greaterThanOrEqualTo(key, value);
+            });
+            bounded = true;
+        }
+        if (!isDelete() && !isUpdate() && getPartitionRanges().size() > 1)
+        {
+            Class<Comparable<Object>> type = (Class<Comparable<Object>>) (Class<?>) partitionFrom.getClass();
+            getFilters().add(cb.greaterThanOrEqualTo(key, cb.parameter(type, PARTITION_FROM_PARAMETER)));
+            getFilters().add(cb.lessThan(key, cb.parameter(type, PARTITION_TO_PARAMETER)));
+            partitionParameters = true;
+        }
+        if (!bounded && warnedPartitionScans.add(getClass()))
+        {
+            log.warn("Query on partitioned {} has no filter on partition key {} and scans every partition - use inPartitionRange() or a range filter",
+                     getEntityClass().getName(), attribute);
+        }
+    }
+
+    /**
+     * Creates a literal of a partition key value, rendered into the statement text so the planner prunes partitions
+     * at plan time.
+     * <p>
+     * {@code literal()} renders inline whatever the value handling mode, unlike {@code value()} which in-list filters
+     * use to bind their values as parameters.
+     *
+     * @param cb    The criteria builder
+     * @param value The value
+     * @return The literal expression
+     */
+    private static Expression<Comparable<Object>> partitionLiteral(HibernateCriteriaBuilder cb, Object value)
+    {
+        return (Expression<Comparable<Object>>) (Expression<?>) cb.literal(value);
+    }
+
+    /**
+     * Binds the bounds of the active partition, or of the whole partition range, to a query split by partition.
+     *
+     * @param query The created query
+     */
+    private void applyPartitionRange(Mutiny.SelectionQuery<?> query)
+    {
+        if (partitionParameters)
+        {
+            PartitionRange range = activePartition != null ? activePartition : new PartitionRange(partitionFrom, partitionTo);
+            query.setParameter(PARTITION_FROM_PARAMETER, range.from());
+            query.setParameter(PARTITION_TO_PARAMETER, range.to());
+        }
+    }
+
+    /**
+     * Runs the read on the shard of the shard key, scatters it across all shards when there is none, or - when
+     * the entity type is not sharded - splits it by partition or routes it to a replica.
+     *
+     * @param operation The terminal operation, deciding how scattered results are merged
+     * @param loader    Executes the query on the session bound to the builder
+     * @param <T>       The result type
+     * @return Uni with the result
+     */
+    private <T> Uni<T> distributed(String operation, Supplier<Uni<T>> loader)
+    {
+        if (!ShardRouting.isSharded(getEntityClass()))
+        {
+            if (!"stream".equals(operation) && getPartitionRanges().size() > 1)
+            {
+                return routed(() -> partitioned(operation, loader));
+            }
+            return routed(loader);
+        }
+        Object key = getShardKey();
+        if (key != null)
+        {
+            ShardRouting.recordTargeted();
+            return onNewSession(ShardRouting.getSessionFactory(getEntityClass(), key), loader);
+        }
+        if ("stream".equals(operation))
+        {
+            //pages taken by offset cannot be scattered, a shard's offset is not the global offset
+            return Uni.createFrom()
+                      .failure(new EntityAssistException("Streaming " + getEntityClass().getSimpleName()
+                                                                          + " requires a shard key, use getAll() to read across all shards"));
+        }
+        return scattered(operation, loader);
+    }
+
+    /**
+     * Runs the query on a new session of the session factory, stateless when the builder is.
+     *
+     * @param sessionFactory The session factory, for example of a shard
+     * @param loader         Executes the query on the bound session
+     * @param <T>            The result type
+     * @return Uni with the result
+     */
+    private <T> Uni<T> onNewSession(Mutiny.SessionFactory sessionFactory, Supplier<Uni<T>> loader)
+    {
+        return isStateless()
+               ? sessionFactory.withStatelessSession(session -> onSession(session, loader))
+               : sessionFactory.withSession(session -> onSession(session, loader));
+    }
+
+    /**
+     * Runs the query on every shard and merges the results: counts are summed, single rows taken as the first
+     * by the builder's order of the rows the shards found, and lists concatenated, merged by the builder's order
+     * and cut to its page. Each
+     * shard is asked for the first {@code firstResults + maxResults} rows so the global top rows are found.
+     * <p>
+     * Shards are queried in parallel, or one after the other when the builder loads temporary table filters or
+     * is cancellable, as those need the builder bound to the shard session while they run.
+     *
+     * @param operation The terminal operation
+     * @param loader    Executes the query on the bound session
+     * @param <T>       The result type
+     * @return Uni with the merged result
+     */
+    private <T> Uni<T> scattered(String operation, Supplier<Uni<T>> loader)
+    {
+        ShardRouting.recordScattered();
+        List<String> shards = new ArrayList<>(ShardRouting.getRouter()
+                                                          .getShards(getEntityClass()));
+        boolean parallel = temporaryIdFilters.isEmpty() && !cancellable;
+        return gather(operation, shards.size(), parallel, index -> {
+            Mutiny.SessionFactory sessionFactory = ShardRouting.getSessionFactory(shards.get(index));
+            if (!parallel)
+            {
+                return onNewSession(sessionFactory, loader);
+            }
+            //the queries are created while the session is bound, they hold on to it themselves
+            return isStateless()
+                   ? sessionFactory.withStatelessSession(session -> assembleOn(session, loader))
+                   : sessionFactory.withSession(session -> assembleOn(session, loader));
+        });
+    }
+
+    /**
+     * Runs the query once per partition of {@link #getPartitionRanges()} and merges the results like a
+     * scattered query.
+     * <p>
+     * Partitions are queried in parallel on new sessions of the bound session's factory - the persistence unit
+     * or replica the read is routed to - so the returned entities are detached. When the bound session is in a
+     * transaction, so its uncommitted writes are seen, or the builder loads temporary table filters or is
+     * cancellable, the partitions are read one after the other on the bound session.
+     *
+     * @param operation The terminal operation
+     * @param loader    Executes the query on the bound session
+     * @param <T>       The result type
+     * @return Uni with the merged result
+     */
+    private <T> Uni<T> partitioned(String operation, Supplier<Uni<T>> loader)
+    {
+        List<PartitionRange> ranges = getPartitionRanges();
+        boolean parallel = temporaryIdFilters.isEmpty() && !cancellable && !QueryCaches.isInTransaction(getBoundSession());
+        return gather(operation, ranges.size(), parallel, index -> {
+            Supplier<Uni<T>> partitionLoader = () -> {
+                activePartition = ranges.get(index);
+                try
+                {
+                    return loader.get();
+                }
+                finally
+                {
+                    activePartition = null;
+                }
+            };
+            if (!parallel)
+            {
+                return Uni.createFrom()
+                          .deferred(partitionLoader);
+            }
+            Mutiny.SessionFactory sessionFactory = getBoundSessionFactory();
+            return isStateless()
+                   ? sessionFactory.withStatelessSession(session -> assembleOn(session, partitionLoader))
+                   : sessionFactory.withSession(session -> assembleOn(session, partitionLoader));
+        });
+    }
+
+    /**
+     * Runs one execution per target and merges the results: counts are summed, single rows taken from the
+     * target that found one, and lists concatenated, merged by the builder's order and cut to its page. Each
+     * target is asked for the first {@code firstResults + maxResults} rows so the global top rows are found.
+     *
+     * @param operation The terminal operation
+     * @param targets   The number of targets
+     * @param parallel  If the executions run concurrently, otherwise they are subscribed one after the other
+     * @param execution Creates the execution of a target by its index
+     * @param <T>       The result type
+     * @return Uni with the merged result
+     */
+    private <T> Uni<T> gather(String operation, int targets, boolean parallel, IntFunction<Uni<T>> execution)
+    {
+        Integer first = getFirstResults();
+        Integer max = getMaxResults();
+        boolean paged = "getAll".equals(operation) && (first != null || max != null);
+        if (paged)
+        {
+            setFirstResults(null);
+            setMaxResults(max == null ? null : (first == null ? 0 : first) + max);
+        }
+        List<Uni<T>> executions = new ArrayList<>();
+        for (int index = 0; index < targets; index++)
+        {
+            Uni<T> target = execution.apply(index);
+            executions.add("get".equals(operation)
+                           ? target.onFailure(NoResultException.class)
+                                   .recoverWithNull()
+                           : target);
+        }
+        Uni<List<T>> gathered;
+        if (executions.isEmpty())
+        {
+            gathered = Uni.createFrom()
+                          .item(new ArrayList<>());
+        }
+        else if (parallel)
+        {
+            gathered = Uni.join()
+                          .all(executions)
+                          .andFailFast();
+        }
+        else
+        {
+            gathered = Multi.createFrom()
+                            .iterable(executions)
+                            .onItem()
+                            .transformToUniAndConcatenate(result -> result.map(Optional::ofNullable))
+                            .map(result -> result.orElse(null))
+                            .collect()
+                            .asList();
+        }
+        return gathered.map(results -> mergeShardResults(operation, results, first, max))
+                       .onTermination()
+                       .invoke(() -> {
+                           if (paged)
+                           {
+                               setFirstResults(first);
+                               setMaxResults(max);
+                           }
+                       });
+    }
+
+    /**
+     * Creates the query with the builder bound to the session, binding the previous session again straight away.
+     *
+     * @param session The session to create the query on
+     * @param loader  Creates and executes the query
+     * @param <T>     The result type
+     * @return Uni with the result
+     */
+    private <T> Uni<T> assembleOn(Object session, Supplier<Uni<T>> loader)
+    {
+        Runnable rebind = bindSession(session);
+        try
+        {
+            return loader.get();
+        }
+        finally
+        {
+            rebind.run();
+        }
+    }
+
+    /**
+     * Merges the results of a scattered or partitioned query.
+     *
+     * @param operation The terminal operation
+     * @param results   The result of every shard or partition
+     * @param first     The first row of the page, null for the first row
+     * @param max       The number of rows of the page, null for all rows
+     * @param <T>       The result type
+     * @return The merged result
+     */
+    private <T> T mergeShardResults(String operation, List<T> results, Integer first, Integer max)
+    {
+        if ("getCount".equals(operation))
+        {
+            long count = 0;
+            for (T result : results)
+            {
+                count += result == null ? 0 : ((Number) result).longValue();
+            }
+            return (T) Long.valueOf(count);
+        }
+        if ("get".equals(operation))
+        {
+            //every shard returned its first row by the builder's order, the global first row is the least of them
+            Comparator<Object> order = getShardMergeOrder();
+            T found = null;
+            for (T result : results)
+            {
+                if (result != null && (found == null || (order != null && order.compare(result, found) < 0)))
+                {
+                    found = result;
+                }
+            }
+            if (found == null)
+            {
+                throw new NoResultException("No results found for the given criteria on any shard or partition");
+            }
+            return found;
+        }
+        List<Object> rows = new ArrayList<>();
+        for (T result : results)
+        {
+            rows.addAll((List<?>) result);
+        }
+        Comparator<Object> order = getShardMergeOrder();
+        if (order != null)
+        {
+            rows.sort(order);
+        }
+        int from = first == null ? 0 : Math.min(first, rows.size());
+        int to = max == null ? rows.size() : Math.min(rows.size(), from + max);
+        return (T) new ArrayList<>(rows.subList(from, to));
+    }
+
+    /**
+     * Returns the order of the builder as a comparator over result rows, used to merge sorted shard and partition results.
+     * <p>
+     * Entity rows are compared by their ordered attributes. Projected rows are compared by the selected columns of
+     * the ordered attributes, so every ordered attribute must be selected.
+     *
+     * @return The comparator, null when the builder is not ordered
+     */
+    private Comparator<Object> getShardMergeOrder()
+    {
+        List<Selection<?>> selections = new ArrayList<>(getSelections());
+        Comparator<Object> order = null;
+        for (Map.Entry<Attribute<?, ?>, OrderByType> orderBy : getOrderBys().entrySet())
+        {
+            Attribute<?, ?> attribute = orderBy.getKey();
+            Function<Object, Object> value;
+            if (selections.isEmpty())
+            {
+                value = row -> readMember(row, attribute);
+            }
+            else
+            {
+                int column = getSelectedColumn(selections, attribute);
+                value = row -> readSelectedColumn(row, column, selections.size());
+            }
+            //the database sorts nulls as the largest values
+            Comparator<Object> next = Comparator.comparing(row -> (Comparable<Object>) value.apply(row),
+                                                           Comparator.nullsLast(Comparator.naturalOrder()));
+            if (orderBy.getValue() == OrderByType.DESC)
+            {
+                next = next.reversed();
+            }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the index of the selection reading an attribute of the root.
+     *
+     * @param selections The selections in query order
+     * @param attribute  The ordered attribute
+     * @return The column index
+     */
+    private int getSelectedColumn(List<Selection<?>> selections, Attribute<?, ?> attribute)
+    {
+        for (int i = 0; i < selections.size(); i++)
+        {
+            if (selections.get(i) instanceof Path<?> path && path.getParentPath() == getRoot()
+                && path.getModel() instanceof Attribute<?, ?> selected && selected.getName()
+                                                                                  .equals(attribute.getName()))
+            {
+                return i;
+            }
+        }
+        throw new EntityAssistException("Ordered column " + attribute.getName() + " must be selected to merge the results of "
+                                                         + getEntityClass().getSimpleName() + " across shards or partitions");
+    }
+
+    /**
+     * Reads one column of a projected row.
+     *
+     * @param row     The row
+     * @param column  The column index
+     * @param columns The number of selected columns
+     * @return The column value
+     */
+    private Object readSelectedColumn(Object row, int column, int columns)
+    {
+        if (columns == 1)
+        {
+            return row;
+        }
+        if (row instanceof Object[] array)
+        {
+            return array[column];
+        }
+        if (row instanceof Tuple tuple)
+        {
+            return tuple.get(column);
+        }
+        throw new EntityAssistException("Rows of type " + row.getClass()
+                                                                              .getName() + " cannot be merged across shards or partitions, read them as Object[] or Tuple");
+    }
+
+    /**
+     * Returns the application query result cache region of this builder.
+     *
+     * @return The configured region, or the entity class name
+     */
+    public String getResultCacheRegion()
+    {
+        return Strings.isNullOrEmpty(resultCacheRegion) ? getEntityClass().getName() : resultCacheRegion;
+    }
+
+    /**
+     * Returns the key identifying this query for the given terminal operation.
+     * <p>
+     * The builder shape is captured on the first call and must be taken before the query is built -
+     * the terminal operations do so automatically.
+     *
+     * @param operation  The terminal operation, for example {@code "getAll"}
+     * @param resultType The requested result type
+     * @return The query key, or null when the builder cannot be described
+     */
+    public QueryKey getQueryKey(String operation, Class<?> resultType)
+    {
+        if (!queryShapeCaptured)
+        {
+            queryShapeCaptured = true;
+            StringBuilder shape = new StringBuilder();
+            List<Object> binds = new ArrayList<>();
+            Set<Class<?>> entityTypes = new LinkedHashSet<>();
+            if (!selected && describeBuilder(shape, binds, entityTypes))
+            {
+                queryShape = shape.toString();
+                queryBinds = binds;
+                queryEntityTypes = entityTypes;
+            }
+        }
+        if (queryShape == null)
+        {
+            return null;
+        }
+        return new QueryKey(getEntityClass(), operation + "<" + (resultType == null ? "" : resultType.getName()) + ">" + queryShape,
+                            queryBinds, queryEntityTypes);
+    }
+
+    /**
+     * Describes this builder with its joins, CTEs, fetch plan and paging on top of the filter shape.
+     *
+     * @param shape       The shape buffer
+     * @param binds       The bound values
+     * @param entityTypes The entity types the query reads
+     * @return false when part of the builder cannot be described
+     */
+    private boolean describeBuilder(StringBuilder shape, List<Object> binds, Set<Class<?>> entityTypes)
+    {
+        if (!prefetches.isEmpty() || !describeQuery(shape, binds))
+        {
+            return false;
+        }
+        entityTypes.add(getEntityClass());
+        for (JoinExpression<?, ?, ?> join : getJoins())
+        {
+            Attribute<?, ?> attribute = join.getAttribute();
+            shape.append("join(")
+                 .append(attribute.getName())
+                 .append(' ')
+                 .append(join.getJoinType());
+            entityTypes.add(attribute instanceof PluralAttribute<?, ?, ?> plural
+                            ? plural.getElementType()
+                                    .getJavaType()
+                            : attribute.getJavaType());
+            if (join.getExecutor() != null)
+            {
+                shape.append(" by ");
+                if (!join.getExecutor()
+                         .describeBuilder(shape, binds, entityTypes))
+                {
+                    return false;
+                }
+            }
+            if (join.getOnBuilder() != null)
+            {
+                shape.append(" on ");
+                if (!join.getOnBuilder()
+                         .describeBuilder(shape, binds, entityTypes))
+                {
+                    return false;
+                }
+            }
+            shape.append(')');
+        }
+        for (CteExpression<?> cte : getCtes())
+        {
+            if (cte.isRecursive() && cte.getRecursiveShape() == null)
+            {
+                return false;
+            }
+            shape.append(cte.isRecursive() ? "cteRecursive(" : "cte(")
+                 .append(cte.getMaterialization())
+                 .append(' ');
+            if (cte.isRecursive())
+            {
+                shape.append(cte.getRecursiveShape())
+                     .append(cte.isUnionAll() ? " all " : " distinct ");
+            }
+            if (!cte.getDefinition()
+                    .describeBuilder(shape, binds, entityTypes))
+            {
+                return false;
+            }
+            shape.append(')');
+        }
+        List<CteExpression<?>> declared = new ArrayList<>(getCtes());
+        for (CteReference reference : getCteReferences())
+        {
+            //generated names differ per builder, refer to own CTEs by position
+            int position = declared.indexOf(reference.cte());
+            shape.append(reference.joined() ? "cteJoin(" : "cteIn(")
+                 .append(reference.attribute())
+                 .append(' ')
+                 .append(position >= 0 ? "#" + position : reference.cte()
+                                                                   .getName())
+                 .append(')');
+        }
+        if (!fetches.isEmpty())
+        {
+            shape.append("fetch")
+                 .append(fetches);
+        }
+        if (entityGraph != null || !Strings.isNullOrEmpty(entityGraphName))
+        {
+            shape.append("graph(")
+                 .append(entityGraph != null ? entityGraph.getName() + "@" + System.identityHashCode(entityGraph) : entityGraphName)
+                 .append(')');
+        }
+        if (shardKey != null)
+        {
+            shape.append("shard(?)");
+            binds.add(shardKey);
+        }
+        if (partitionFrom != null)
+        {
+            shape.append(splitByPartition ? "partitions(?,?)" : "partition(?,?)");
+            binds.add(partitionFrom);
+            binds.add(partitionTo);
+        }
+        shape.append("page(")
+             .append(getFirstResults())
+             .append(',')
+             .append(getMaxResults())
+             .append(')');
+        return true;
+    }
+
+    /**
+     * Serves the terminal operation from the application query result cache when {@link #cacheResults(Duration)}
+     * is configured, storing the loaded result on a miss. Lookups known to find nothing fail from memory
+     * when {@link #cacheMisses(Duration)} is enabled, and queries are coalesced with identical in-flight
+     * queries when {@link #singleFlight()} is enabled. Sessions that wrote while replicas are registered always
+     * load, as their reads are routed to keep them consistent with their writes.
+     *
+     * @param operation  The terminal operation
+     * @param resultType The requested result type
+     * @param loader     Executes the query
+     * @param <T>        The result type
+     * @return Uni with the cached or loaded result
+     */
+    private <T> Uni<T> cached(String operation, Class<?> resultType, Supplier<Uni<T>> executor)
+    {
+        Supplier<Uni<T>> loader = () -> distributed(operation, executor);
+        //a read inside a transaction must see its own uncommitted writes, which a shared flight would not
+        boolean coalesce = singleFlight && isReadOnly() && !QueryCaches.isInTransaction(getBoundSession());
+        boolean rememberMisses = missCacheTtl != null && "get".equals(operation);
+        if ((resultCacheTtl == null && !coalesce && !rememberMisses) || !onSelect())
+        {
+            return loader.get();
+        }
+        if (ReplicaRouter.isEnabled() && ReplicaRouter.hasWritten(getBoundSession()))
+        {
+            //the read-your-writes routing of a session that wrote is not part of any cache or flight key
+            return loader.get();
+        }
+        QueryKey key = getQueryKey(operation, resultType);
+        if (key == null)
+        {
+            log.debug("Query on {} cannot be described and is not result cached or coalesced", getEntityClass().getName());
+            return loader.get();
+        }
+        if (coalesce)
+        {
+            Supplier<Uni<T>> direct = loader;
+            Mutiny.SessionFactory sessionFactory = getBoundSessionFactory();
+            //the flight owns its session, so a joiner never depends on the session of the caller that started it
+            Supplier<Uni<T>> flown = () -> onNewSession(sessionFactory, direct);
+            //stateful and stateless sessions return differently managed instances, never share between them
+            boolean replica = (replicaRead != null ? replicaRead : isReadOnly()) && ReplicaRouter.isEnabled();
+            List<Object> flightKey = List.of(key, sessionFactory, isStateless(), replica);
+            loader = () -> QueryCaches.getSingleFlight()
+                                      .execute(flightKey, flown)
+                                      .map(result -> (T) (result instanceof List<?> list ? new ArrayList<>(list) : result));
+        }
+        if (rememberMisses)
+        {
+            Supplier<Uni<T>> direct = loader;
+            Duration missTtl = missCacheTtl;
+            Object reader = getBoundSession();
+            loader = () -> Uni.createFrom()
+                              .deferred(() -> {
+                                  var negativeCache = QueryCaches.getNegativeCache();
+                                  if (negativeCache.isKnownMiss(key))
+                                  {
+                                      return Uni.createFrom()
+                                                .failure(new NoResultException("No results found for the given criteria (cached miss)"));
+                                  }
+                                  long version = negativeCache.version(key);
+                                  return direct.get()
+                                               .onFailure(NoResultException.class)
+                                               .invoke(() -> {
+                                                   //a miss inside a transaction, or while another one inserts, may not hold once committed
+                                                   if (!QueryCaches.isInTransaction(reader) && !QueryCaches.isWritePending(key.getEntityTypes()))
+                                                   {
+                                                       negativeCache.recordMiss(key, missTtl, version);
+                                                   }
+                                               });
+                              });
+        }
+        if (resultCacheTtl == null)
+        {
+            return loader.get();
+        }
+        Supplier<Uni<T>> load = loader;
+        String region = getResultCacheRegion();
+        Duration ttl = resultCacheTtl;
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      QueryResultCache cache = QueryCaches.getResultCache();
+                      Optional<Object> hit = cache.get(region, key);
+                      if (hit.isPresent())
+                      {
+                          Object value = hit.get();
+                          return Uni.createFrom()
+                                    .item((T) (value instanceof List<?> list ? new ArrayList<>(list) : value));
+                      }
+                      long version = cache.version(key);
+                      return load.get()
+                                   .invoke(result -> {
+                                       //a result read while a write is uncommitted may already be stale
+                                       if (!QueryCaches.isWritePending(key.getEntityTypes()))
+                                       {
+                                           cache.put(region, key,
+                                                     result instanceof List<?> list ? Collections.unmodifiableList(new ArrayList<>(list)) : result,
+                                                     ttl, version);
+                                       }
+                                   });
+                  });
+    }
+
+    /**
+     * Returns the identifiers to resolve through the entity near-cache, when this builder is a plain
+     * {@code find} lookup of the entity on a near-cached class.
+     * <p>
+     * Only stateless builders use the near-cache: its detached copies are not managed, so a stateful session would
+     * never flush changes made to them.
+     *
+     * @param resultType The requested result type
+     * @return The identifiers, or null when the near-cache does not apply
+     */
+    private List<Object> getNearCacheLookup(Class<?> resultType)
+    {
+        if (selected
+            || !isStateless()
+            || !getEntityClass().equals(resultType)
+            || !QueryCaches.getNearCache()
+                           .isEnabled(getEntityClass())
+            || !fetches.isEmpty()
+            || !prefetches.isEmpty()
+            || entityGraph != null
+            || !Strings.isNullOrEmpty(entityGraphName)
+            || getFirstResults() != null
+            || !onSelect())
+        {
+            return null;
+        }
+        return getIdentifierLookup();
+    }
+
+    /**
+     * Resolves a single entity through the near-cache, loading and storing it on a miss.
+     *
+     * @param id The identifier
+     * @return Uni with the entity, or a failure when none is found
+     */
+    private Uni<E> nearCachedOne(Object id)
+    {
+        Class<E> entityClass = getEntityClass();
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      EntityNearCache nearCache = QueryCaches.getNearCache();
+                      Optional<E> hit = nearCache.get(entityClass, id);
+                      if (hit.isPresent())
+                      {
+                          hit.get()
+                             .setFake(false);
+                          return Uni.createFrom()
+                                    .item(hit.get());
+                      }
+                      long version = nearCache.version(entityClass);
+                      return cached("get", entityClass, () -> loadOne(entityClass))
+                              .invoke(entity -> {
+                                  if (!QueryCaches.isWritePending(Set.of(entityClass)))
+                                  {
+                                      nearCache.put(entityClass, id, entity, version);
+                                  }
+                              });
+                  });
+    }
+
+    /**
+     * Resolves entities through the near-cache, loading only the missing identifiers with one {@code IN} query.
+     *
+     * @param ids The identifiers
+     * @return Uni with the found entities in the order of their identifiers
+     */
+    private Uni<List<E>> nearCachedAll(List<Object> ids)
+    {
+        Class<E> entityClass = getEntityClass();
+        return Uni.createFrom()
+                  .deferred(() -> {
+                      EntityNearCache nearCache = QueryCaches.getNearCache();
+                      Map<Object, E> found = new LinkedHashMap<>();
+                      List<Object> missing = new ArrayList<>();
+                      for (Object id : new LinkedHashSet<>(ids))
+                      {
+                          Optional<E> hit = nearCache.get(entityClass, id);
+                          if (hit.isPresent())
+                          {
+                              hit.get()
+                                 .setFake(false);
+                              found.put(id, hit.get());
+                          }
+                          else
+                          {
+                              missing.add(id);
+                          }
+                      }
+                      if (missing.isEmpty())
+                      {
+                          return Uni.createFrom()
+                                    .item(new ArrayList<>(found.values()));
+                      }
+                      long version = nearCache.version(entityClass);
+                      return loadByIds(missing).map(loaded -> {
+                          boolean store = !QueryCaches.isWritePending(Set.of(entityClass));
+                          for (E entity : loaded)
+                          {
+                              entity.setFake(false);
+                              if (store)
+                              {
+                                  nearCache.put(entityClass, entity.getId(), entity, version);
+                              }
+                              found.put(entity.getId(), entity);
+                          }
+                          List<E> ordered = new ArrayList<>(found.size());
+                          for (Object id : new LinkedHashSet<>(ids))
+                          {
+                              E entity = found.get(id);
+                              if (entity != null)
+                              {
+                                  ordered.add(entity);
+                              }
+                          }
+                          return ordered;
+                      });
+                  });
+    }
+
+    /**
+     * Loads the entities with the given identifiers in a single {@code IN} query on the bound session.
+     *
+     * @param ids The identifiers
+     * @return Uni with the loaded entities
+     */
+    private Uni<List<E>> loadByIds(List<Object> ids)
+    {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<E> byIds = cb.createQuery(getEntityClass());
+        Root<E> root = byIds.from(getEntityClass());
+        byIds.select(root)
+             .where(root.get(findIdField().getName())
+                        .in(ids));
+        Mutiny.SelectionQuery<E> query = isStateless()
+                                         ? getEntityManagerStateless().createQuery(byIds)
+                                         : getEntityManager().createQuery(byIds);
+        applyReadOnly(query);
+        onSelectExecution(query);
+        return query.getResultList();
+    }
+
+    /**
+     * Returns a long of the count for the given builder
+     *
+     * @return Uni with a Long result, or a failure if onSelect() returns false
+     */
+    @Override
+    public Uni<Long> getCount()
+    {
+        return cached("getCount", Long.class, this::loadCount);
+    }
+
+    /**
+     * Executes the count query
+     *
+     * @return Uni with a Long result, or a failure if onSelect() returns false
+     */
+    private Uni<Long> loadCount()
+    {
+        if (!selected)
+        {
+            selectCount();
+            select();
+        }
+        if (onSelect())
+        {
+            Mutiny.SelectionQuery<Long> query = getQueryCount();
+            applyCache(query);
+            applyReadOnly(query);
+            onSelectExecution(query);
+            return execute(query::getSingleResult);
+        }
+        return Uni.createFrom()
+                       .failure(new NoResultException("No results found for the given criteria - onSelect() returned false"));
+    }
+
+    /**
+     * Returns the generated query, always created new
+     *
+     * @param <T> Any type returned
+     * @return A built typed query
+     */
+    @Override
+    public <T> Mutiny.SelectionQuery<T> getQuery()
+    {
+        if (!selected)
+        {
+            select();
+        }
+        Mutiny.SelectionQuery<T> query;
+        if(isStateless())
+        {
+            query = getEntityManagerStateless().createQuery(getCriteriaQuery());
+        }else
+            query = getEntityManager().createQuery(getCriteriaQuery());
+        applyPartitionRange(query);
+        return query;
+    }
+
+    /**
+     * Returns the query for a count, always created new
+     *
+     * @param <T> Any type returned
+     * @return A built typed query
+     */
+    @Override
+    public <T> Mutiny.SelectionQuery<T> getQueryCount()
+    {
+        if (!selected)
+        {
+            selectCount();
+            select();
+        }
+        Mutiny.SelectionQuery<T> query;
+        if(isStateless())
+        {
+            query = getEntityManagerStateless().createQuery(getCriteriaQuery());
+        }else
+            query = getEntityManager().createQuery(getCriteriaQuery());
+        applyPartitionRange(query);
+        return query;
+    }
+
+    /**
+     * Prepares the select statement
+     *
+     * @return This
+     */
+    @SuppressWarnings({"UnusedReturnValue"})
+    @NotNull
+    private J select()
+    {
+        if (!selected)
+        {
+            applyPartitionPredicates();
+            getJoins().forEach(this::processJoins);
+            if (!isDelete() && !isUpdate())
+            {
+                processCriteriaQuery();
+            }
+            else if (isDelete())
+            {
+                CriteriaDelete<E> cq = getCriteriaDelete();
+                List<Predicate> allWheres = new ArrayList<>(getFilters());
+                Predicate[] preds = new Predicate[allWheres.size()];
+                preds = allWheres.toArray(preds);
+                cq.where(preds);
+            }
+            else if (isUpdate())
+            {
+                CriteriaUpdate<E> cq = getCriteriaUpdate();
+                List<Predicate> allWheres = new ArrayList<>(getFilters());
+                Predicate[] preds = new Predicate[allWheres.size()];
+                preds = allWheres.toArray(preds);
+                cq.where(preds);
+            }
+        }
+        selected = true;
+        return (J) this;
+    }
+
+    /**
+     * Physically applies the cache attributes to the query
+     * <p>
+     * Adds cacheable, cache region, and sets persistence cache retrieve mode as use, and store mode as use
+     *
+     * @param query The query to apply to
+     */
+    private void applyCache(Mutiny.SelectionQuery<?> query)
+    {
+        if (!Strings.isNullOrEmpty(getCacheName()))
+        {
+            query.setCacheable(true);
+            query.setCacheRegion(getCacheRegion());
+            query.setCacheRetrieveMode(CacheRetrieveMode.USE);
+            query.setCacheStoreMode(CacheStoreMode.USE);
+        }
+    }
+
+    /**
+     * Applies read-only tuning to the query when {@link #isReadOnly()} is enabled.
+     * <p>
+     * Read-only queries skip Hibernate's dirty-state snapshot retention and the pre-query
+     * auto-flush ({@link FlushMode#MANUAL}), reducing CPU and GC for read-heavy paths such as
+     * GraphQL data fetchers. Opt-in and additive — does nothing unless {@code setReadOnly(true)}
+     * was called on the builder.
+     *
+     * @param query The query to apply to
+     */
+    private void applyReadOnly(Mutiny.SelectionQuery<?> query)
+    {
+        if (isReadOnly())
+        {
+            query.setReadOnly(true);
+            query.setFlushMode(FlushMode.MANUAL);
+        }
+    }
+
+    /**
+     * Applies the configured entity graph as the load plan when the entity itself is selected.
+     *
+     * @param query The query to apply to
+     */
+    private void applyFetchPlan(Mutiny.SelectionQuery<?> query)
+    {
+        if (!getSelections().isEmpty())
+        {
+            return;
+        }
+        EntityGraph<E> graph = entityGraph;
+        if (graph == null && !Strings.isNullOrEmpty(entityGraphName))
+        {
+            graph = isStateless()
+                    ? getEntityManagerStateless().getEntityGraph(getEntityClass(), entityGraphName)
+                    : getEntityManager().getEntityGraph(getEntityClass(), entityGraphName);
+        }
+        if (graph != null)
+        {
+            ((Mutiny.SelectionQuery<E>) query).setPlan(graph);
+        }
+    }
+
+    /**
+     * Creates the left fetch joins for the registered fetch paths, sharing common prefixes.
+     */
+    private void applyFetches()
+    {
+        Map<String, Fetch<?, ?>> created = new HashMap<>();
+        for (String path : fetches)
+        {
+            FetchParent<?, ?> parent = getRoot();
+            StringBuilder walked = new StringBuilder();
+            for (String segment : path.split("\\."))
+            {
+                if (!walked.isEmpty())
+                {
+                    walked.append('.');
+                }
+                walked.append(segment);
+                Fetch<?, ?> fetch = created.get(walked.toString());
+                if (fetch == null)
+                {
+                    fetch = parent.fetch(segment, JoinType.LEFT);
+                    created.put(walked.toString(), fetch);
+                }
+                parent = fetch;
+            }
+        }
+    }
+
+    /**
+     * Builds up the criteria query to perform (Criteria Query Only)
+     */
+    private void processCriteriaQuery()
+    {
+        CriteriaQuery<E> cq = getCriteriaQuery();
+        List<Predicate> allWheres = new ArrayList<>(getFilters());
+        Predicate[] preds = new Predicate[allWheres.size()];
+        preds = allWheres.toArray(preds);
+        getCriteriaQuery().where(preds);
+        for (Expression<?> p : getGroupBys())
+        {
+            cq.groupBy(p);
+        }
+
+        for (Expression<?> expression : getHavingExpressions())
+        {
+            cq.having((Expression<Boolean>) expression);
+        }
+
+        List<Order> orderBys = new ArrayList<>();
+        if (hierarchyLevel != null && (getSelections().isEmpty() || getSelections().contains(getRoot())))
+        {
+            orderBys.addAll(getTraversalOrders());
+        }
+        getOrderBys().forEach((key, value) ->
+                                      orderBys.add(processOrderBys(key, value)));
+        if (!orderBys.isEmpty())
+        {
+            cq.orderBy(orderBys);
+        }
+
+        if (getSelections().isEmpty())
+        {
+            applyFetches();
+            getCriteriaQuery().select(getRoot());
+        }
+        else if (getSelections().size() > 1)
+        {
+            if (getConstruct() != null)
+            {
+                ArrayList<Selection<?>> aS = new ArrayList<>(getSelections());
+                Selection<?>[] selections = aS.toArray(new Selection[0]);
+                CompoundSelection<?> cs = getCriteriaBuilder().construct(getConstruct(), selections);
+                getCriteriaQuery().select(cs);
+            }
+            else
+            {
+                getCriteriaQuery().multiselect(new ArrayList<>(getSelections()));
+            }
+        }
+        else
+        {
+            getSelections().forEach(a -> getCriteriaQuery().select(a));
+        }
+    }
+
+    /**
+     * Processes the order bys into the given query
+     *
+     * @param key   The attribute to apply
+     * @param value The value to use
+     */
+    private Order processOrderBys(Attribute<?, ?> key, OrderByType value)
+    {
+        //noinspection EnhancedSwitchMigration
+        switch (value)
+        {
+
+            case DESC:
+            {
+                if (isSingularAttribute(key))
+                {
+                    return getCriteriaBuilder().desc(getRoot().get((SingularAttribute<?, ?>) key));
+                }
+                else if (isPluralOrMapAttribute(key))
+                {
+                    return getCriteriaBuilder().desc(getRoot().get((PluralAttribute<?, ?, ?>) key));
+                }
+                return getCriteriaBuilder().desc(getRoot().get((SingularAttribute<?, ?>) key));
+            }
+            case ASC:
+            default:
+            {
+                if (isSingularAttribute(key))
+                {
+                    return getCriteriaBuilder().asc(getRoot().get((SingularAttribute<?, ?>) key));
+                }
+                else if (isPluralOrMapAttribute(key))
+                {
+                    return getCriteriaBuilder().asc(getRoot().get((PluralAttribute<?, ?, ?>) key));
+                }
+                return getCriteriaBuilder().asc(getRoot().get((SingularAttribute<?, ?>) key));
+            }
+        }
+    }
+
+    /**
+     * Processors the join section
+     *
+     * @param executor Processes the joins into the expression
      */
     private void processJoins(JoinExpression<?, ?, ?> executor)
     {
-        Attribute<?, ?> value = executor.getAttribute();
-        JoinType jt = executor.getJoinType();
-        List<Predicate> onClause = new ArrayList<>();
-        if (executor.getOnBuilder() != null)
+        Attribute<?, ?> value = executor.getAttribute();
+        JoinType jt = executor.getJoinType();
+        List<Predicate> onClause = new ArrayList<>();
+        if (executor.getOnBuilder() != null)
+        {
+            executor.getOnBuilder()
+                    .select();
+            onClause.addAll(executor.getOnBuilder()
+                                    .getFilters());
+        }
+
+        Join<?, ?> join;
+        if (executor.getGeneratedRoot() == null)
+        {
+            join = getRoot().join(value.getName(), jt);
+        }
+        else
+        {
+            //join = getRoot().join(value.getName(), jt);
+            join = executor.getGeneratedRoot();
+        }
+        if (!onClause.isEmpty())
+        {
+            join = join.on(onClause.toArray(new Predicate[]{}));
+        }
+        QueryBuilder<?, ?, ?> key = executor.getExecutor();
+        if (key != null)
+        {
+            key.reset(join);
+            key.select();
+            getSelections().addAll(key.getSelections());
+            getFilters().addAll(key.getFilters());
+            getOrderBys().putAll(key.getOrderBys());
+        }
+    }
+
+    /**
+     * Returns the result set as a stream
+     *
+     * @param resultType The result type
+     * @param <T>        The Class for the type to gerenify
+     * @return Uni with a list of results, or a failure if onSelect() returns false
+     */
+    @Override
+    @SuppressWarnings({"Duplicates", "unused"})
+    public <T> Uni<List<T>> getResultStream(Class<T> resultType)
+    {
+        if (!selected)
+        {
+            select();
+        }
+        if (onSelect())
+        {
+            Mutiny.SelectionQuery<T> query = getQuery();
+            applyCache(query);
+            applyReadOnly(query);
+            applyFetchPlan(query);
+            if (getMaxResults() != null)
+            {
+                query.setMaxResults(getMaxResults());
+            }
+            if (getFirstResults() != null)
+            {
+                query.setFirstResult(getFirstResults());
+            }
+            onSelectExecution(query);
+            return execute(query::getResultList);
+        }
+        return Uni.createFrom()
+                       .failure(new NoResultException("No results found for the given criteria - onSelect() returned false"));
+    }
+
+    /**
+     * Returns a non-distinct list and returns an empty optional if a non-unique-result exception is thrown
+     *
+     * @return An optional of the result
+     */
+    @Override
+    public Uni<E> get()
+    {
+        return get(this.returnFirst);
+    }
+
+    /**
+     * Returns the first result returned
+     *
+     * @param returnFirst If the first should be returned in the instance of many results
+     * @return Optional of the required object
+     */
+    @Override
+    @NotNull
+    public Uni<E> get(boolean returnFirst)
+    {
+        this.returnFirst = returnFirst;
+        return get(getEntityClass());
+    }
+
+    /**
+     * Returns the runtime builder class.
+     *
+     * @return The concrete builder class
+     */
+    public Class<J> getMeClass()
+    {
+        return (Class<J>) getClass();
+    }
+
+    /**
+     * Returns a list (distinct or not) and returns an empty optional if returns a list, or will simply return the first result found from
+     * a list with the same criteria
+     *
+     * @return Optional of the given class type (which should be a select column)
+     */
+    @Override
+    @SuppressWarnings({"unused"})
+    @NotNull
+    public <T> Uni<T> get(@NotNull Class<T> asType)
+    {
+        List<Object> ids = getNearCacheLookup(asType);
+        if (ids != null && ids.size() == 1)
+        {
+            return (Uni<T>) nearCachedOne(ids.get(0));
+        }
+        return cached("get", asType, () -> loadOne(asType));
+    }
+
+    /**
+     * Executes the query for a single row
+     *
+     * @param asType The result type
+     * @param <T>    The result type
+     * @return Uni with the single result, or a failure when none is found
+     */
+    private <T> Uni<T> loadOne(Class<T> asType)
+    {
+        if (!selected)
+        {
+            select();
+        }
+        if (onSelect())
+        {
+            Mutiny.SelectionQuery<T> query = getQuery();
+            if (getMaxResults() != null)
+            {
+                query.setMaxResults(getMaxResults());
+            }else {
+              query.setMaxResults(1);
+            }
+            if (getFirstResults() != null)
+            {
+                query.setFirstResult(getFirstResults());
+            }
+            applyCache(query);
+            applyReadOnly(query);
+            applyFetchPlan(query);
+            onSelectExecution(query);
+            Uni<T> j;
+                return execute(query::getSingleResult)
+                           .onFailure(NonUniqueResultException.class)
+                           .invoke(a->log.fatal("getSingle instead of getAll, or filters not correct getSingleResult - " + getEntityClass().getCanonicalName() + " - " + getMeClass(),a))
+                           .invoke(res -> {
+                               if(res instanceof BaseEntity)
+                                ((BaseEntity<?, ?, ?>) res).setFake(false);
+                           });
+        }
+        return Uni.createFrom()
+                       .failure(new NoResultException("No results found for the given criteria"));
+    }
+
+    /**
+     * If this builder is configured to return the first row
+     *
+     * @return If the first record must be returned
+     */
+    @Override
+    @SuppressWarnings("WeakerAccess")
+    public boolean isReturnFirst()
+    {
+        return returnFirst;
+    }
+
+    /**
+     * If a Non-Unique Exception is thrown re-run the query as a list and return the first item
+     *
+     * @param returnFirst if must return first
+     * @return J
+     */
+    @Override
+    @SuppressWarnings({"unchecked", "unused"})
+    @NotNull
+    public @org.jspecify.annotations.NonNull J setReturnFirst(boolean returnFirst)
+    {
+        this.returnFirst = returnFirst;
+        return (J) this;
+    }
+
+    /**
+     * Returns a list of entities from a distinct or non distinct list
+     *
+     * @return A list of entities returned
+     */
+    @Override
+    public Uni<List<E>> getAll()
+    {
+        if (prefetches.isEmpty())
         {
-            executor.getOnBuilder()
-                    .select();
-            onClause.addAll(executor.getOnBuilder()
-                                    .getFilters());
+            return getAll(getEntityClass());
         }
+        return getAll(getEntityClass()).call(this::applyPrefetches);
+    }
 
-        Join<?, ?> join;
-        if (executor.getGeneratedRoot() == null)
+    /**
+     * Returns the attribute holding the materialized path of a self-referencing entity.
+     * <p>
+     * Override together with {@link #getMaterializedPathParentAttribute()} to opt in to a hierarchy path
+     * index. Every {@link #persist(BaseEntity)} and {@link #update()} through the builder then maintains a
+     * {@code /rootId/.../id/} path on the entity, moving the paths of the whole subtree when a node changes
+     * parent, and {@link #descendantsOf(BaseEntity)}, {@link #ancestorsOf(BaseEntity)} and
+     * {@link #subtreeCount(BaseEntity)} answer with plain indexed lookups instead of recursion. Index the
+     * path column for prefix searches - on PostgreSQL with {@code text_pattern_ops}. Deleting a node leaves
+     * the paths of its remaining descendants unchanged.
+     *
+     * @return The string attribute holding the path, null when the entity has no path index
+     */
+    public String getMaterializedPathAttribute()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the self-referencing attribute holding the parent identifier, used to maintain the
+     * materialized path. Dot-paths are read through loaded associations, a scalar column is preferred.
+     *
+     * @return The parent attribute, null when the entity has no path index
+     * @see #getMaterializedPathAttribute()
+     */
+    public String getMaterializedPathParentAttribute()
+    {
+        return null;
+    }
+
+    /**
+     * Persists the entity, assigning its materialized path first when the builder maintains one.
+     *
+     * @param entity The entity
+     * @return {@code Uni<E>} containing the persisted entity
+     */
+    @Override
+    @NotNull
+    public Uni<E> persist(E entity)
+    {
+        if (getMaterializedPathAttribute() == null || entity == null)
         {
-            join = getRoot().join(value.getName(), jt);
+            return super.persist(entity);
+        }
+        boolean assigned = entity.getId() != null;
+        return resolveParentPath(entity).chain(parentPath -> {
+            if (assigned)
+            {
+                writeMaterializedPath(entity, parentPath + entity.getId() + "/");
+            }
+            return super.persist(entity)
+                        .chain(persisted -> {
+                            if (assigned || persisted.getId() == null)
+                            {
+                                return Uni.createFrom()
+                                          .item(persisted);
+                            }
+                            //generated identifier, only known after the insert
+                            writeMaterializedPath(persisted, parentPath + persisted.getId() + "/");
+                            return isStateless()
+                                   ? getEntityManagerStateless().update(persisted)
+                                                                .replaceWith(persisted)
+                                   : Uni.createFrom()
+                                        .item(persisted);
+                        });
+        });
+    }
+
+    /**
+     * Updates the entity, recomputing its materialized path and moving its subtree when the builder
+     * maintains one and the parent changed.
+     *
+     * @return The updated entity
+     */
+    @Override
+    @NotNull
+    public Uni<E> update()
+    {
+        E entity = getEntity();
+        if (getMaterializedPathAttribute() == null || entity == null || entity.getId() == null)
+        {
+            return super.update();
+        }
+        String self = "/" + entity.getId() + "/";
+        return selectMaterializedPath(entity.getId())
+                       .chain(oldPath -> resolveParentPath(entity).chain(parentPath -> {
+                           if (parentPath.contains(self))
+                           {
+                               return Uni.createFrom()
+                                         .failure(new EntityAssistException("Cannot move " + getEntityClass().getSimpleName() + " [" + entity.getId()
+                                                                                    + "] below its own subtree"));
+                           }
+                           String newPath = parentPath + entity.getId() + "/";
+                           writeMaterializedPath(entity, newPath);
+                           Uni<Integer> moved = oldPath == null || oldPath.equals(newPath)
+                                                ? Uni.createFrom()
+                                                     .item(0)
+                                                : moveSubtree(oldPath, newPath);
+                           return moved.chain(() -> super.update());
+                       }));
+    }
+
+    /**
+     * Constrains this query to the descendants of the node, using a prefix search on the materialized path.
+     *
+     * @param node The node, loaded with its path
+     * @return This
+     * @see #getMaterializedPathAttribute()
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J descendantsOf(E node)
+    {
+        String path = requireMaterializedPath(node);
+        //where expressions are applied again when the builder is reset for a bulk delete or update
+        //the backslash escaping of the prefix is the default LIKE escape of PostgreSQL
+        where(getMaterializedPathAttribute(), Operand.Like, escapeLike(path) + "%");
+        where(getMaterializedPathAttribute(), Operand.NotEquals, path);
+        return (J) this;
+    }
+
+    /**
+     * Constrains this query to the ancestors of the node, looked up by the identifiers on its materialized
+     * path.
+     *
+     * @param node The node, loaded with its path
+     * @return This
+     * @see #getMaterializedPathAttribute()
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public J ancestorsOf(E node)
+    {
+        String[] segments = requireMaterializedPath(node).split("/");
+        Class<?> idType = findIdField().getType();
+        List<Object> ids = new ArrayList<>();
+        //leading empty segment before the first slash, node itself last
+        for (int i = 1; i < segments.length - 1; i++)
+        {
+            ids.add(parseIdentifier(segments[i], idType));
+        }
+        if (ids.isEmpty())
+        {
+            //a root node has no ancestors, and no row has a null identifier
+            where(findIdField().getName(), Operand.Null, (Object) null);
         }
         else
         {
-            //join = getRoot().join(value.getName(), jt);
-            join = executor.getGeneratedRoot();
+            where(findIdField().getName(), Operand.InList, ids);
         }
-        if (!onClause.isEmpty())
+        return (J) this;
+    }
+
+    /**
+     * Counts the descendants of the node with a prefix search on the materialized path.
+     *
+     * @param node The node, loaded with its path
+     * @return Uni with the number of descendants
+     * @see #getMaterializedPathAttribute()
+     */
+    @NotNull
+    public Uni<Long> subtreeCount(E node)
+    {
+        return descendantsOf(node).getCount();
+    }
+
+    /**
+     * Resolves the path of the entity's parent, {@code /} for a root or a parent without a path.
+     *
+     * @param entity The entity
+     * @return Uni with the parent path, always ending with {@code /}
+     */
+    private Uni<String> resolveParentPath(E entity)
+    {
+        Object parentId = readDottedMember(entity, getMaterializedPathParentAttribute());
+        if (parentId == null)
         {
-            join = join.on(onClause.toArray(new Predicate[]{}));
+            return Uni.createFrom()
+                      .item("/");
         }
-        QueryBuilder<?, ?, ?> key = executor.getExecutor();
-        if (key != null)
+        return selectMaterializedPath(parentId).map(path -> path == null ? "/" : path);
+    }
+
+    /**
+     * Reads the stored materialized path of a node.
+     *
+     * @param id The node identifier
+     * @return Uni with the path, null when the node does not exist
+     */
+    private Uni<String> selectMaterializedPath(Object id)
+    {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<String> query = cb.createQuery(String.class);
+        Root<E> root = query.from(getEntityClass());
+        query.select(root.get(getMaterializedPathAttribute()));
+        query.where(cb.equal(root.get(findIdField().getName()), id));
+        if (isStateless())
         {
-            key.reset(join);
-            key.select();
-            getSelections().addAll(key.getSelections());
-            getFilters().addAll(key.getFilters());
-            getOrderBys().putAll(key.getOrderBys());
+            return getEntityManagerStateless().createQuery(query)
+                                              .getSingleResultOrNull();
+        }
+        return getEntityManager().createQuery(query)
+                                 .getSingleResultOrNull();
+    }
+
+    /**
+     * Rewrites the path prefix of every descendant of a moved node in one bulk update.
+     *
+     * @param oldPath The node path before the move
+     * @param newPath The node path after the move
+     * @return Uni with the number of moved descendants
+     */
+    private Uni<Integer> moveSubtree(String oldPath, String newPath)
+    {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaUpdate<E> move = cb.createCriteriaUpdate(getEntityClass());
+        Root<E> root = move.from(getEntityClass());
+        Path<String> column = root.get(getMaterializedPathAttribute());
+        move.set(column, cb.concat(cb.literal(newPath), cb.substring(column, oldPath.length() + 1)));
+        move.where(cb.like(column, escapeLike(oldPath) + "%", '\\'), cb.notEqual(column, oldPath));
+        Uni<Integer> moved = isStateless()
+                             ? getEntityManagerStateless().createQuery(move)
+                                                          .executeUpdate()
+                             : getEntityManager().createQuery(move)
+                                                 .executeUpdate();
+        return moved.invoke(() -> QueryCaches.invalidate(getEntityClass(), getBoundSession()))
+                    .invoke(this::recordWrite);
+    }
+
+    /**
+     * Returns the materialized path of a node, failing when the builder or node has none.
+     *
+     * @param node The node
+     * @return The path
+     */
+    private String requireMaterializedPath(E node)
+    {
+        if (getMaterializedPathAttribute() == null)
+        {
+            throw new EntityAssistException(getClass().getSimpleName() + " does not maintain a materialized path, override getMaterializedPathAttribute()");
+        }
+        Object path = node == null ? null : readDottedMember(node, getMaterializedPathAttribute());
+        if (path == null)
+        {
+            throw new EntityAssistException("Node has no materialized path - persist or update it through the builder first");
+        }
+        return path.toString();
+    }
+
+    /**
+     * Stores the materialized path on the entity.
+     *
+     * @param entity The entity
+     * @param path   The path
+     */
+    private void writeMaterializedPath(E entity, String path)
+    {
+        Attribute<?, ?> attribute = IGuiceContext.get(Mutiny.SessionFactory.class)
+                                                 .getMetamodel()
+                                                 .entity(getEntityClass())
+                                                 .getAttribute(getMaterializedPathAttribute());
+        if (!(attribute.getJavaMember() instanceof Field field))
+        {
+            throw new EntityAssistException("Materialized path attribute [" + attribute.getName() + "] must be field mapped");
+        }
+        try
+        {
+            field.setAccessible(true);
+            field.set(entity, path);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            throw new EntityAssistException("Unable to write materialized path to " + getEntityClass().getName(), e);
+        }
+    }
+
+    /**
+     * Reads a dot-separated attribute path from an entity through the metamodel.
+     *
+     * @param entity The entity
+     * @param path   The attribute path
+     * @return The value, null when any step is null
+     */
+    private static Object readDottedMember(Object entity, String path)
+    {
+        Metamodel metamodel = IGuiceContext.get(Mutiny.SessionFactory.class)
+                                           .getMetamodel();
+        Object current = entity;
+        for (String segment : path.split("\\."))
+        {
+            if (current == null)
+            {
+                return null;
+            }
+            current = readMember(current, metamodel.managedType(Hibernate.getClass(current))
+                                                   .getAttribute(segment));
+        }
+        return current;
+    }
+
+    /**
+     * Converts an identifier segment of a materialized path back to the identifier type.
+     *
+     * @param segment The path segment
+     * @param idType  The identifier type
+     * @return The identifier
+     */
+    private static Object parseIdentifier(String segment, Class<?> idType)
+    {
+        if (idType == String.class)
+        {
+            return segment;
+        }
+        if (idType == Long.class || idType == long.class)
+        {
+            return Long.valueOf(segment);
+        }
+        if (idType == Integer.class || idType == int.class)
+        {
+            return Integer.valueOf(segment);
+        }
+        if (idType == UUID.class)
+        {
+            return UUID.fromString(segment);
+        }
+        throw new EntityAssistException("Materialized paths support String, Long, Integer and UUID identifiers, not " + idType.getName());
+    }
+
+    /**
+     * Escapes the LIKE wildcards of a literal prefix, using {@code \} as the escape character.
+     *
+     * @param literal The literal
+     * @return The escaped literal
+     */
+    private static String escapeLike(String literal)
+    {
+        return literal.replace("\\", "\\\\")
+                      .replace("%", "\\%")
+                      .replace("_", "\\_");
+    }
+
+    /**
+     * Returns the entities of a recursive hierarchy with the level and path each was reached at, in the
+     * traversal order of its options - ready to render as a tree without recomputing the structure.
+     *
+     * @return Uni with the hierarchy rows, or a failure if onSelect() returns false
+     * @see #withRecursiveHierarchy(String, QueryBuilder, String, HierarchyOptions)
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Uni<List<HierarchyNode<E>>> getHierarchy()
+    {
+        if (hierarchyLevel == null)
+        {
+            throw new EntityAssistException("getHierarchy() requires withRecursiveHierarchy(name, anchor, parentAttribute, options)");
+        }
+        if (!selected)
+        {
+            getSelections().clear();
+            getSelections().add(getRoot());
+            getSelections().add(hierarchyLevel);
+            getSelections().add(hierarchyPath);
+        }
+        return loadAll(Object[].class).map(rows -> {
+            List<HierarchyNode<E>> nodes = new ArrayList<>(rows.size());
+            for (Object[] row : rows)
+            {
+                E entity = (E) row[0];
+                entity.setFake(false);
+                nodes.add(new HierarchyNode<>(entity, ((Number) row[1]).intValue(), (String) row[2]));
+            }
+            return nodes;
+        });
+    }
+
+    /**
+     * Resolves the ancestor chain of many nodes at once with a single recursive query.
+     * <p>
+     * Every chain starts with the node itself, followed by its parent, up to the root - the reverse of a
+     * breadcrumb. A chain stops early where the parent attribute points back into the chain, so cyclic
+     * data cannot loop. Filters on this builder apply to the returned ancestors, and identifiers that
+     * match no node are absent from the result.
+     * <p>
+     * Generated SQL shape:
+     * <pre>{@code WITH RECURSIVE up(id, parent, level, path, start) AS (
+     *     SELECT e.id, e.parent_id, 0, '/' || e.id || '/', e.id FROM entity e WHERE e.id IN (:ids)
+     *     UNION ALL
+     *     SELECT p.id, p.parent_id, up.level + 1, up.path || p.id || '/', up.start FROM entity p, up
+     *     WHERE p.id = up.parent AND locate('/' || p.id || '/', up.path) = 0
+     * )
+     * SELECT m.*, up.level, up.start FROM entity m, up WHERE m.id = up.id ORDER BY up.level}</pre>
+     *
+     * @param ids             The identifiers of the starting nodes
+     * @param parentAttribute The self-referencing attribute holding the parent identifier
+     * @return Uni with the chains keyed by starting identifier, in the order the identifiers were given
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Uni<Map<I, List<E>>> getAncestors(Collection<I> ids, String parentAttribute)
+    {
+        if (ids == null || ids.isEmpty())
+        {
+            return Uni.createFrom()
+                      .item(new LinkedHashMap<>());
+        }
+        String cteName = resolveCteName(null);
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) getCriteriaBuilder();
+        String idName = findIdField().getName();
+        String idAlias = cteName + "_id";
+        String parentAlias = cteName + "_parent";
+        String levelAlias = cteName + "_level";
+        String pathAlias = cteName + "_path";
+        String startAlias = cteName + "_start";
+        Class<E> entityClass = getEntityClass();
+
+        // Anchor member: SELECT e.<id>, e.<parent>, 0, '/' || e.<id> || '/', e.<id> FROM entity e WHERE e.<id> IN (:ids)
+        JpaCriteriaQuery<Tuple> anchorQuery = cb.createTupleQuery();
+        JpaRoot<E> start = anchorQuery.from(entityClass);
+        Path<Object> startId = start.get(idName);
+        anchorQuery.multiselect(startId.alias(idAlias),
+                                traversePath(start, parentAttribute).alias(parentAlias),
+                                cb.literal(0)
+                                  .alias(levelAlias),
+                                appendPathSegment(cb, cb.literal("/"), startId).alias(pathAlias),
+                                start.get(idName)
+                                     .alias(startAlias));
+        anchorQuery.where(startId.in(new ArrayList<>(ids)));
+
+        // Recursive member: SELECT p.<id>, p.<parent>, cte.level + 1, cte.path || p.<id> || '/', cte.start FROM entity p, cte WHERE p.<id> = cte.parent
+        Function<JpaCteCriteria<Tuple>, AbstractQuery<Tuple>> recursiveProducer = cteRef ->
+        {
+            JpaCriteriaQuery<Tuple> recursive = cb.createTupleQuery();
+            JpaRoot<E> parent = recursive.from(entityClass);
+            JpaRoot<Tuple> childRef = recursive.from(cteRef);
+            Path<Object> parentId = parent.get(idName);
+            Expression<String> childPath = childRef.get(pathAlias);
+            recursive.multiselect(parentId.alias(idAlias),
+                                  traversePath(parent, parentAttribute).alias(parentAlias),
+                                  cb.sum(childRef.<Integer>get(levelAlias), 1)
+                                    .alias(levelAlias),
+                                  appendPathSegment(cb, childPath, parentId).alias(pathAlias),
+                                  childRef.get(startAlias)
+                                          .alias(startAlias));
+            recursive.where(cb.equal(parentId, childRef.get(parentAlias)),
+                            cb.equal(cb.locate(childPath, appendPathSegment(cb, cb.literal("/"), parentId)), 0));
+            return recursive;
+        };
+
+        JpaCriteriaQuery<?> mainQuery = (JpaCriteriaQuery<?>) getCriteriaQuery();
+        JpaCteCriteria<Tuple> cte = mainQuery.withRecursiveUnionAll(cteName, anchorQuery, recursiveProducer);
+        CteExpression<Tuple> expression = new CteExpression<Tuple>()
+                .setName(cteName)
+                .setRecursive(true)
+                .setUnionAll(true)
+                .setRecursiveProducer(recursiveProducer)
+                .setIdAlias(idAlias)
+                .setGeneratedCte(cte);
+        getCtes().add(expression);
+        JpaRoot<Object> chain = addCteReference(new CteReference(null, expression, true));
+        getSelections().clear();
+        getSelections().add(getRoot());
+        getSelections().add(chain.get(levelAlias));
+        getSelections().add(chain.get(startAlias));
+        getOrderBys().clear();
+        mainQuery.orderBy(cb.asc(chain.get(levelAlias)));
+
+        return loadAll(Object[].class).map(rows -> {
+            Map<I, List<E>> chains = new LinkedHashMap<>();
+            ids.forEach(id -> chains.put(id, new ArrayList<>()));
+            for (Object[] row : rows)
+            {
+                E entity = (E) row[0];
+                entity.setFake(false);
+                //the starting identifier is carried through the recursion with the type of the id column
+                chains.computeIfAbsent((I) row[2], id -> new ArrayList<>())
+                      .add(entity);
+            }
+            chains.values()
+                  .removeIf(List::isEmpty);
+            return chains;
+        });
+    }
+
+    /**
+     * Returns the list as the selected class type (for when specifying single select columns)
+     *
+     * @param returnClassType Returns a list of a given column
+     * @param <T>             The type of the column returned
+     * @return Uni with a list of the given column type, or a failure if onSelect() returns false
+     */
+    @Override
+    @SuppressWarnings({"Duplicates", "unused"})
+    @NotNull
+    public <T> Uni<List<T>> getAll(Class<T> returnClassType)
+    {
+        List<Object> ids = getNearCacheLookup(returnClassType);
+        if (ids != null)
+        {
+            return (Uni<List<T>>) (Uni<?>) nearCachedAll(ids);
+        }
+        return cached("getAll", returnClassType, () -> loadAll(returnClassType));
+    }
+
+    /**
+     * Executes the query for a list of rows
+     *
+     * @param returnClassType The row type
+     * @param <T>             The row type
+     * @return Uni with the rows, or a failure if onSelect() returns false
+     */
+    private <T> Uni<List<T>> loadAll(Class<T> returnClassType)
+    {
+        if (!selected)
+        {
+            select();
+        }
+        if (onSelect())
+        {
+            Mutiny.SelectionQuery<T> query = getQuery();
+            applyCache(query);
+            applyReadOnly(query);
+            applyFetchPlan(query);
+            if (getMaxResults() != null)
+            {
+                query.setMaxResults(getMaxResults());
+            }
+            if (getFirstResults() != null)
+            {
+                query.setFirstResult(getFirstResults());
+            }
+            onSelectExecution(query);
+            return execute(query::getResultList).invoke(res -> {
+                res.forEach(e -> {
+                    // Only entity results carry the "fake" flag; a scalar/tuple projection
+                    // (selectColumn(...).getAll(UUID.class), etc.) returns non-entity rows that must
+                    // not be cast to BaseEntity.
+                    if (e instanceof BaseEntity<?, ?, ?> be)
+                    {
+                        be.setFake(false);
+                    }
+                });
+            });
         }
+        return Uni.createFrom()
+                       .failure(new NoResultException("Query could not run for the given criteria - onSelect() returned false"));
     }
 
     /**
-     * Returns the result set as a stream
+     * Streams the entities of this query, reading {@link #fetchSize(int)} rows per round trip.
+     * <p>
+     * Pages are read one after the other as the subscriber requests them and cancelling the stream stops reading -
+     * and with {@link #cancellable()} cancels the page running on the server. Pages are taken by offset, so the
+     * identifier is appended to the builder's order to give every row one place in the result. On a stateful
+     * session each page is detached from the persistence context once the next page is read or the stream ends,
+     * which keeps one page in memory at a time but leaves the streamed entities unmanaged. Every subscription
+     * reads the result from the start. Without a fetch size the whole result is read in one round trip.
+     * <p>
+     * A sharded entity is streamed from the shard of the shard key only, without one the stream fails.
      *
-     * @param resultType The result type
-     * @param <T>        The Class for the type to gerenify
-     * @return Uni with a list of results, or a failure if onSelect() returns false
+     * @return Multi with the entities, or a failure if onSelect() returns false
      */
-    @Override
-    @SuppressWarnings({"Duplicates", "unused"})
-    public <T> Uni<List<T>> getResultStream(Class<T> resultType)
+    @NotNull
+    public Multi<E> stream()
     {
         if (!selected)
         {
+            orderByIdentifier();
             select();
         }
-        if (onSelect())
+        if (!onSelect())
         {
-            Mutiny.SelectionQuery<T> query = getQuery();
-            applyCache(query);
-            applyReadOnly(query);
-            if (getMaxResults() != null)
+            return Multi.createFrom()
+                        .failure(new NoResultException("Query could not run for the given criteria - onSelect() returned false"));
+        }
+        int first = getFirstResults() == null ? 0 : getFirstResults();
+        long limit = getMaxResults() == null ? Long.MAX_VALUE : getMaxResults();
+        int pageSize = fetchSize == null ? (int) Math.min(limit, Integer.MAX_VALUE) : fetchSize;
+        return Multi.createFrom()
+                    .deferred(() -> {
+                        //the progress of this subscription, a new subscription reads from the start again
+                        long[] read = {0};
+                        List<E> previous = new ArrayList<>();
+                        return Multi.createBy()
+                                    .repeating()
+                                    .uni(() -> read, progress -> distributed("stream", () -> {
+                                        detachPage(previous);
+                                        Mutiny.SelectionQuery<E> query = getQuery();
+                                        applyCache(query);
+                                        applyReadOnly(query);
+                                        applyFetchPlan(query);
+                                        query.setFirstResult(Math.toIntExact(first + progress[0]));
+                                        query.setMaxResults((int) Math.min(pageSize, limit - progress[0]));
+                                        onSelectExecution(query);
+                                        return execute(query::getResultList).invoke(page -> {
+                                            progress[0] += page.size();
+                                            previous.addAll(page);
+                                        });
+                                    }))
+                                    .whilst(page -> page.size() == pageSize && read[0] < limit && fetchSize != null)
+                                    .onItem()
+                                    .<E>disjoint()
+                                    .invoke(entity -> entity.setFake(false))
+                                    .onTermination()
+                                    .invoke(() -> detachPage(previous));
+                    });
+    }
+
+    /**
+     * Appends the identifier to the order of the builder when it is not ordered by it yet, so offset pages neither
+     * repeat nor skip rows.
+     */
+    private void orderByIdentifier()
+    {
+        String idName = findIdField().getName();
+        for (Attribute<?, ?> ordered : getOrderBys().keySet())
+        {
+            if (ordered.getName()
+                       .equals(idName))
             {
-                query.setMaxResults(getMaxResults());
+                return;
             }
-            if (getFirstResults() != null)
+        }
+        EntityType<E> entityType = IGuiceContext.get(Mutiny.SessionFactory.class)
+                                                 .getMetamodel()
+                                                 .entity(getEntityClass());
+        orderBy(entityType.getId(entityType.getIdType()
+                                           .getJavaType()));
+    }
+
+    /**
+     * Detaches the entities of a streamed page from the bound stateful session, so the persistence context does
+     * not hold every page read.
+     *
+     * @param page The entities of the page, emptied afterwards
+     */
+    private void detachPage(List<E> page)
+    {
+        if (!isStateless() && getEntityManager() != null && getEntityManager().isOpen())
+        {
+            for (E entity : page)
             {
-                query.setFirstResult(getFirstResults());
+                if (getEntityManager().contains(entity))
+                {
+                    getEntityManager().detach(entity);
+                }
             }
-            onSelectExecution(query);
-            return query.getResultList();
         }
-        return Uni.createFrom()
-                       .failure(new NoResultException("No results found for the given criteria - onSelect() returned false"));
+        page.clear();
     }
 
     /**
-     * Returns a non-distinct list and returns an empty optional if a non-unique-result exception is thrown
+     * Projects a single integral column and returns it as a primitive {@code long[]}.
+     * <p>
+     * The result rows are copied straight into the array and released, so the retained heap is one
+     * primitive slot per row instead of one boxed {@link Long}. {@code null} values are returned as
+     * {@code 0}; use {@link #getColumns(Attribute[])} when nulls must be told apart. Any previously
+     * selected columns are replaced by this projection.
      *
-     * @return An optional of the result
+     * @param attribute The numeric column to project
+     * @return Uni with the column values in result order
      */
     @Override
-    public Uni<E> get()
+    @NotNull
+    public Uni<long[]> getLongColumn(Attribute<?, ? extends Number> attribute)
     {
-        return get(this.returnFirst);
+        return getColumnBatch(List.of(attribute.getName()), new ColumnBatch.ColumnType[]{ColumnBatch.ColumnType.LONG})
+                       .map(batch -> batch.getLongs(0));
     }
 
     /**
-     * Returns the first result returned
+     * Projects a single numeric column and returns it as a primitive {@code double[]}.
+     * <p>
+     * {@code null} values are returned as {@code 0}. Any previously selected columns are replaced by
+     * this projection.
      *
-     * @param returnFirst If the first should be returned in the instance of many results
-     * @return Optional of the required object
+     * @param attribute The numeric column to project
+     * @return Uni with the column values in result order
      */
     @Override
     @NotNull
-    public Uni<E> get(boolean returnFirst)
+    public Uni<double[]> getDoubleColumn(Attribute<?, ? extends Number> attribute)
     {
-        this.returnFirst = returnFirst;
-        return get(getEntityClass());
+        return getColumnBatch(List.of(attribute.getName()), new ColumnBatch.ColumnType[]{ColumnBatch.ColumnType.DOUBLE})
+                       .map(batch -> batch.getDoubles(0));
     }
 
     /**
-     * Returns the runtime builder class.
+     * Projects the given columns and returns them in struct-of-arrays form.
+     * <p>
+     * Integral columns are stored as {@code long[]}, floating point columns as {@code double[]} and
+     * anything else as {@code Object[]}. Any previously selected columns are replaced by this projection.
      *
-     * @return The concrete builder class
+     * @param attributes The columns to project, in order
+     * @return Uni with a column batch holding one array per attribute
      */
-    public Class<J> getMeClass()
+    @Override
+    @NotNull
+    public Uni<ColumnBatch> getColumns(Attribute<?, ?>... attributes)
     {
-        return (Class<J>) getClass();
+        List<String> names = new ArrayList<>();
+        ColumnBatch.ColumnType[] types = new ColumnBatch.ColumnType[attributes.length];
+        for (int i = 0; i < attributes.length; i++)
+        {
+            names.add(attributes[i].getName());
+            types[i] = ColumnBatch.ColumnType.forJavaType(attributes[i].getJavaType());
+        }
+        return getColumnBatch(names, types);
     }
 
     /**
-     * Returns a list (distinct or not) and returns an empty optional if returns a list, or will simply return the first result found from
-     * a list with the same criteria
+     * Projects only the identifier column of the matching rows.
+     * <p>
+     * Integral identifiers are returned in a {@code long[]} column, any other identifier type (including
+     * {@link java.math.BigInteger}) in an {@code Object[]} column - in both cases column {@code 0} of the returned batch.
      *
-     * @return Optional of the given class type (which should be a select column)
+     * @return Uni with a single-column batch of identifiers
      */
     @Override
-    @SuppressWarnings({"unused"})
     @NotNull
-    public <T> Uni<T> get(@NotNull Class<T> asType)
+    public Uni<ColumnBatch> getIds()
     {
-        if (!selected)
-        {
-            select();
-        }
-        if (onSelect())
+        Field idField = findIdField();
+        return getColumnBatch(List.of(idField.getName()),
+                              new ColumnBatch.ColumnType[]{ColumnBatch.ColumnType.forJavaType(idField.getType())});
+    }
+
+    /**
+     * Replaces the selections with the named root columns and reads the rows into a column batch.
+     *
+     * @param names The root attribute names to project
+     * @param types The storage type for each column
+     * @return Uni with the filled batch
+     */
+    @SuppressWarnings("rawtypes")
+    private Uni<ColumnBatch> getColumnBatch(List<String> names, ColumnBatch.ColumnType[] types)
+    {
+        getSelectExpressions().clear();
+        getSelections().clear();
+        for (String name : names)
         {
-            Mutiny.SelectionQuery<T> query = getQuery();
-            if (getMaxResults() != null)
-            {
-                query.setMaxResults(getMaxResults());
-            }else {
-              query.setMaxResults(1);
-            }
-            if (getFirstResults() != null)
-            {
-                query.setFirstResult(getFirstResults());
-            }
-            applyCache(query);
-            applyReadOnly(query);
-            onSelectExecution(query);
-            Uni<T> j;
-                return query.getSingleResult()
-                           .onFailure(NonUniqueResultException.class)
-                           .invoke(a->log.fatal("getSingle instead of getAll, or filters not correct getSingleResult - " + getEntityClass().getCanonicalName() + " - " + getMeClass(),a))
-                           .invoke(res -> {
-                               if(res instanceof BaseEntity)
-                                ((BaseEntity<?, ?, ?>) res).setFake(false);
-                           });
+            selectColumn((Expression) getRoot().get(name));
         }
-        return Uni.createFrom()
-                       .failure(new NoResultException("No results found for the given criteria"));
+        String[] columnNames = names.toArray(new String[0]);
+        return getAll(Object.class).map(rows -> ColumnBatch.from(rows, columnNames, types));
     }
 
     /**
-     * If this builder is configured to return the first row
+     * Counts the matching rows per distinct value of the given column.
+     * <p>
+     * Generated SQL shape: {@code SELECT e.group, COUNT(e) FROM entity e WHERE <filters> GROUP BY e.group}.
+     * Enum keyed groups (for example {@link com.entityassist.enumerations.ActiveFlag}) are returned in an
+     * {@link EnumMap}, other keys in an insertion ordered map. Any previous selections are replaced.
      *
-     * @return If the first record must be returned
+     * @param groupAttribute The column to group by
+     * @param <K>            The group key type
+     * @return Uni with the row count per group key
      */
     @Override
-    @SuppressWarnings("WeakerAccess")
-    public boolean isReturnFirst()
+    @NotNull
+    public <K> Uni<Map<K, Long>> countBy(Attribute<?, K> groupAttribute)
     {
-        return returnFirst;
+        prepareGroupedAggregate(groupAttribute);
+        getSelections().add(getCriteriaBuilder().count(getRoot()));
+        return foldGroupedAggregate(groupAttribute.getJavaType(), value -> value == null ? 0L : ((Number) value).longValue(), Long::sum);
     }
 
     /**
-     * If a Non-Unique Exception is thrown re-run the query as a list and return the first item
+     * Sums a numeric column per distinct value of the group column, as a double.
      *
-     * @param returnFirst if must return first
-     * @return J
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The numeric column to sum
+     * @param <K>            The group key type
+     * @return Uni with the sum per group key, 0 when every value in a group is null
      */
     @Override
-    @SuppressWarnings({"unchecked", "unused"})
     @NotNull
-    public @org.jspecify.annotations.NonNull J setReturnFirst(boolean returnFirst)
+    @SuppressWarnings("rawtypes")
+    public <K> Uni<Map<K, Double>> sumBy(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute)
     {
-        this.returnFirst = returnFirst;
-        return (J) this;
+        prepareGroupedAggregate(groupAttribute);
+        selectSumAsDouble((Expression) getRoot().get(valueAttribute.getName()), null);
+        return foldGroupedAggregate(groupAttribute.getJavaType(), value -> value == null ? 0d : ((Number) value).doubleValue(), Double::sum);
     }
 
     /**
-     * Returns a list of entities from a distinct or non distinct list
+     * Sums an integral column per distinct value of the group column, as a long.
      *
-     * @return A list of entities returned
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The integral column to sum
+     * @param <K>            The group key type
+     * @return Uni with the sum per group key, 0 when every value in a group is null
      */
     @Override
-    public Uni<List<E>> getAll()
+    @NotNull
+    @SuppressWarnings("rawtypes")
+    public <K> Uni<Map<K, Long>> sumByAsLong(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute)
     {
-        return getAll(getEntityClass());
+        prepareGroupedAggregate(groupAttribute);
+        selectSumAsLong((Expression) getRoot().get(valueAttribute.getName()), null);
+        return foldGroupedAggregate(groupAttribute.getJavaType(), value -> value == null ? 0L : ((Number) value).longValue(), Long::sum);
     }
 
     /**
-     * Returns the list as the selected class type (for when specifying single select columns)
+     * Averages a numeric column per distinct value of the group column.
      *
-     * @param returnClassType Returns a list of a given column
-     * @param <T>             The type of the column returned
-     * @return Uni with a list of the given column type, or a failure if onSelect() returns false
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The numeric column to average
+     * @param <K>            The group key type
+     * @return Uni with the average per group key, 0 when every value in a group is null
      */
     @Override
-    @SuppressWarnings({"Duplicates", "unused"})
     @NotNull
-    public <T> Uni<List<T>> getAll(Class<T> returnClassType)
+    @SuppressWarnings("rawtypes")
+    public <K> Uni<Map<K, Double>> averageBy(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute)
     {
-        if (!selected)
+        prepareGroupedAggregate(groupAttribute);
+        if (ShardRouting.isSharded(getEntityClass()) && getShardKey() == null)
         {
-            select();
+            //averages of shards cannot be combined, gather sums and counts instead
+            Expression<? extends Number> value = getRoot().get(valueAttribute.getName());
+            selectSumAsDouble((Expression) value, null);
+            getSelections().add(getCriteriaBuilder().count(value));
+            return getAll(Object[].class).map(rows -> {
+                Map<K, double[]> totals = new LinkedHashMap<>();
+                for (Object[] row : rows)
+                {
+                    double[] total = totals.computeIfAbsent((K) row[0], key -> new double[2]);
+                    total[0] += row[1] == null ? 0d : ((Number) row[1]).doubleValue();
+                    total[1] += ((Number) row[2]).doubleValue();
+                }
+                Map<K, Double> result = newAggregateMap(groupAttribute.getJavaType());
+                if (totals.containsKey(null))
+                {
+                    result = new LinkedHashMap<>();
+                }
+                for (Map.Entry<K, double[]> total : totals.entrySet())
+                {
+                    result.put(total.getKey(), total.getValue()[1] == 0 ? 0d : total.getValue()[0] / total.getValue()[1]);
+                }
+                return result;
+            });
         }
-        if (onSelect())
-        {
-            Mutiny.SelectionQuery<T> query = getQuery();
-            applyCache(query);
-            applyReadOnly(query);
-            if (getMaxResults() != null)
-            {
-                query.setMaxResults(getMaxResults());
-            }
-            if (getFirstResults() != null)
+        selectAverage((Expression) getRoot().get(valueAttribute.getName()), null);
+        return foldGroupedAggregate(groupAttribute.getJavaType(), value -> value == null ? 0d : ((Number) value).doubleValue(), Double::sum);
+    }
+
+    /**
+     * Replaces the selections and group bys with the given group column, ready for a single aggregate.
+     *
+     * @param groupAttribute The column to group by
+     */
+    @SuppressWarnings("rawtypes")
+    private void prepareGroupedAggregate(Attribute<?, ?> groupAttribute)
+    {
+        getSelectExpressions().clear();
+        getSelections().clear();
+        getGroupByExpressions().clear();
+        getGroupBys().clear();
+        groupBy(groupAttribute);
+        selectColumn((Expression) getRoot().get(groupAttribute.getName()));
+    }
+
+    /**
+     * Executes a {@code [key, aggregate]} projection and folds the rows straight into a map.
+     *
+     * @param keyType     The group key type, enums get an {@link EnumMap}
+     * @param valueMapper Converts the raw aggregate value
+     * @param combiner    Combines the values of a key returned by more than one shard
+     * @param <K>         The group key type
+     * @param <V>         The aggregate value type
+     * @return Uni with the folded map
+     */
+    private <K, V> Uni<Map<K, V>> foldGroupedAggregate(Class<K> keyType, Function<Object, V> valueMapper, BinaryOperator<V> combiner)
+    {
+        return getAll(Object[].class).map(rows -> {
+            Map<K, V> result = newAggregateMap(keyType);
+            for (Object[] row : rows)
             {
-                query.setFirstResult(getFirstResults());
+                K key = (K) row[0];
+                if (key == null && result instanceof EnumMap)
+                {
+                    // EnumMap cannot hold the null group
+                    result = new LinkedHashMap<>(result);
+                }
+                result.merge(key, valueMapper.apply(row[1]), combiner);
             }
-            onSelectExecution(query);
-            return query.getResultList().invoke(res -> {
-                res.forEach(e -> {
-                    // Only entity results carry the "fake" flag; a scalar/tuple projection
-                    // (selectColumn(...).getAll(UUID.class), etc.) returns non-entity rows that must
-                    // not be cast to BaseEntity.
-                    if (e instanceof BaseEntity<?, ?, ?> be)
-                    {
-                        be.setFake(false);
-                    }
-                });
-            });
+            return result;
+        });
+    }
+
+    /**
+     * Creates the map implementation best suited to the key type.
+     *
+     * @param keyType The group key type
+     * @param <K>     The key type
+     * @param <V>     The value type
+     * @return An {@link EnumMap} for enum keys, otherwise a {@link LinkedHashMap}
+     */
+    @SuppressWarnings("rawtypes")
+    private static <K, V> Map<K, V> newAggregateMap(Class<K> keyType)
+    {
+        if (keyType != null && keyType.isEnum())
+        {
+            return (Map<K, V>) new EnumMap(keyType.asSubclass(Enum.class));
         }
-        return Uni.createFrom()
-                       .failure(new NoResultException("Query could not run for the given criteria - onSelect() returned false"));
+        return new LinkedHashMap<>();
     }
 
     /**
@@ -854,17 +4309,27 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         {
             throw new UnsupportedOperationException("Calling the delete method with no filters. This will truncate the table. Rather call truncate()");
         }
+        int filters = getFilters().size();
         CriteriaDelete<E> deletion = getCriteriaBuilder().createCriteriaDelete(getEntityClass());
         reset(deletion.from(getEntityClass()));
+        if (getFilters().size() < filters)
+        {
+            //predicates added straight to the filters cannot be moved to the delete root
+            throw new UnsupportedOperationException("Calling the delete method with filters that are not where expressions. These would be dropped from the delete.");
+        }
         setCriteriaDelete(deletion);
         select();
         if(isStateless())
         {
-            return getEntityManagerStateless().createQuery(deletion)
-                       .executeUpdate();
+            return withTemporaryIdFilters(() -> getEntityManagerStateless().createQuery(deletion)
+                                                                     .executeUpdate())
+                       .invoke(() -> QueryCaches.invalidate(getEntityClass(), getBoundSession()))
+                       .invoke(this::recordWrite);
         }else
-            return getEntityManager().createQuery(deletion)
-                       .executeUpdate();
+            return withTemporaryIdFilters(() -> getEntityManager().createQuery(deletion)
+                                                            .executeUpdate())
+                       .invoke(() -> QueryCaches.invalidate(getEntityClass(), getBoundSession()))
+                       .invoke(this::recordWrite);
     }
 
     /**
@@ -878,13 +4343,200 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
     {
         if (isStateless())
         {
-            return getEntityManagerStateless().delete(entity).map(_ -> entity);
+            return getEntityManagerStateless().delete(entity)
+                       .invoke(() -> QueryCaches.invalidate(entity, getBoundSession()))
+                       .invoke(this::recordWrite)
+                       .map(_ -> entity);
         }
         return getEntityManager().remove(entity)
+                       .invoke(() -> QueryCaches.invalidate(entity, getBoundSession()))
+                       .invoke(this::recordWrite)
                        .map(_ -> entity);
     }
 
 
+    /**
+     * Writes only the fields the entity marked as changed, with one update by id.
+     * <p>
+     * Unlike {@link #update()} no other column is written and no row is selected first, which keeps updates of
+     * wide rows small. Entities opt in by calling {@code markChanged(field)} from the setters of their basic
+     * attributes; a change of the identifier alone writes nothing. When the entity
+     * has a {@link Version} field the update is conditional on the version the entity holds
+     * and increments it, failing with an {@link OptimisticLockException} when the row was changed concurrently.
+     * Entities managed by a stateful session are written by a flush of the session instead, as a bulk update would
+     * leave the session's snapshot stale.
+     *
+     * @return Uni with the entity, its version advanced and changes cleared
+     */
+    @NotNull
+    public Uni<E> updateChanged()
+    {
+        E updating = getEntity();
+        if (!updating.hasChanges() || !onUpdate(updating))
+        {
+            return Uni.createFrom()
+                      .item(updating);
+        }
+        if (!isStateless() && getEntityManager().contains(updating))
+        {
+            return getEntityManager().flush()
+                                     .invoke(updating::clearChanges)
+                                     .invoke(() -> QueryCaches.invalidate(updating, getBoundSession()))
+                                     .invoke(this::recordWrite)
+                                     .replaceWith(updating);
+        }
+        String idAttribute = findIdField().getName();
+        Map<String, Object> changes = updating.getChangedValues();
+        changes.remove(idAttribute);
+        if (changes.isEmpty())
+        {
+            //the id is the key of the update and never written, no column is left to set
+            updating.clearChanges();
+            return Uni.createFrom()
+                      .item(updating);
+        }
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaUpdate<E> statement = cb.createCriteriaUpdate(getEntityClass());
+        Root<E> root = statement.from(getEntityClass());
+        changes.forEach((attribute, value) -> statement.set(attribute, value));
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(root.get(idAttribute), updating.getId()));
+        Field versionField = versionFields.computeIfAbsent(getEntityClass(), QueryBuilder::resolveVersionField)
+                                          .orElse(null);
+        Object nextVersion = null;
+        if (versionField != null)
+        {
+            Object version = readField(versionField, updating);
+            nextVersion = nextVersion(versionField, version);
+            statement.set(versionField.getName(), nextVersion);
+            where.add(version == null ? cb.isNull(root.get(versionField.getName())) : cb.equal(root.get(versionField.getName()), version));
+        }
+        statement.where(where.toArray(new Predicate[0]));
+        Object advancedVersion = nextVersion;
+        Uni<Integer> rows = isStateless()
+                            ? getEntityManagerStateless().createQuery(statement)
+                                                         .executeUpdate()
+                            : getEntityManager().createQuery(statement)
+                                                .executeUpdate();
+        return rows.map(count -> {
+                       if (count == 0)
+                       {
+                           throw versionField != null
+                                 ? new OptimisticLockException("Row of " + getEntityClass().getName() + " [" + updating.getId() + "] was changed or removed concurrently", null, updating)
+                                 : new EntityNotFoundException("No row of " + getEntityClass().getName() + " [" + updating.getId() + "] to update");
+                       }
+                       if (versionField != null)
+                       {
+                           writeField(versionField, updating, advancedVersion);
+                       }
+                       updating.clearChanges();
+                       return updating;
+                   })
+                   .invoke(() -> QueryCaches.invalidate(updating, getBoundSession()))
+                   .invoke(this::recordWrite);
+    }
+
+    /**
+     * Finds the {@link Version} field on the entity hierarchy.
+     *
+     * @param entityClass The entity class
+     * @return The accessible version field, empty when the entity is not versioned
+     */
+    private static Optional<Field> resolveVersionField(Class<?> entityClass)
+    {
+        for (Class<?> current = entityClass; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            for (Field field : current.getDeclaredFields())
+            {
+                if (field.isAnnotationPresent(Version.class))
+                {
+                    field.setAccessible(true);
+                    return Optional.of(field);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the version following the given one, incremented for numeric versions and the current time for
+     * timestamps.
+     *
+     * @param versionField The version field
+     * @param version      The current version, null for an entity that was never versioned
+     * @return The next version
+     */
+    private static Object nextVersion(Field versionField, Object version)
+    {
+        Class<?> type = versionField.getType();
+        if (type == Integer.class || type == int.class)
+        {
+            return version == null ? 0 : (Integer) version + 1;
+        }
+        if (type == Long.class || type == long.class)
+        {
+            return version == null ? 0L : (Long) version + 1;
+        }
+        if (type == Short.class || type == short.class)
+        {
+            return version == null ? (short) 0 : (short) ((Short) version + 1);
+        }
+        if (type == Instant.class)
+        {
+            return Instant.now();
+        }
+        if (type == LocalDateTime.class)
+        {
+            return LocalDateTime.now();
+        }
+        if (type == Timestamp.class)
+        {
+            return new Timestamp(System.currentTimeMillis());
+        }
+        throw new EntityAssistException("Unsupported version type " + type.getName() + " on " + versionField.getDeclaringClass()
+                                                                                                    .getName());
+    }
+
+    /**
+     * Reads an accessible field of an entity.
+     *
+     * @param field  The field
+     * @param entity The entity
+     * @return The value
+     */
+    private static Object readField(Field field, Object entity)
+    {
+        try
+        {
+            return field.get(entity);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new EntityAssistException("Unable to read field " + field.getName() + " of " + entity.getClass()
+                                                                                                   .getName(), e);
+        }
+    }
+
+    /**
+     * Writes an accessible field of an entity.
+     *
+     * @param field  The field
+     * @param entity The entity
+     * @param value  The value
+     */
+    private static void writeField(Field field, Object entity, Object value)
+    {
+        try
+        {
+            field.set(entity, value);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new EntityAssistException("Unable to write field " + field.getName() + " of " + entity.getClass()
+                                                                                                    .getName(), e);
+        }
+    }
+
     /**
      * Returns the number of rows affected by the delete.
      * WARNING : Be very careful if you haven't added a filter this will truncate the table or throw a unsupported exception if no filters.
@@ -903,9 +4555,13 @@ public abstract class QueryBuilder<J extends QueryBuilder<J, E, I>, E extends Ba
         if(isStateless())
         {
             return getEntityManagerStateless().createQuery(deletion)
-                       .executeUpdate();
+                       .executeUpdate()
+                       .invoke(() -> QueryCaches.invalidate(getEntityClass(), getBoundSession()))
+                       .invoke(this::recordWrite);
         }else
             return getEntityManager().createQuery(deletion)
-                       .executeUpdate();
+                       .executeUpdate()
+                       .invoke(() -> QueryCaches.invalidate(getEntityClass(), getBoundSession()))
+                       .invoke(this::recordWrite);
     }
 }
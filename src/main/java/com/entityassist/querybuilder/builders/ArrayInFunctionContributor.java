@@ -0,0 +1,76 @@
+package com.entityassist.querybuilder.builders;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.CockroachDialect;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the array and temporary table membership functions used for in-list and large id filters on dialects
+ * with array parameters, and reports the support to {@link StatementCancellation}. {@link InListBindings} looks the
+ * functions up in the registry of each session factory, so factories with different dialects coexist.
+ * <p>
+ * Discovered by Hibernate through the {@link FunctionContributor} service.
+ */
+public final class ArrayInFunctionContributor implements FunctionContributor
+{
+	/**
+	 * The name of the registered function - {@code ea_in_array(attribute, array)}
+	 */
+	public static final String IN_ARRAY_FUNCTION = "ea_in_array";
+	/**
+	 * The name of the registered semi-join over an unnested array - {@code ea_in_values(attribute, array)}
+	 */
+	public static final String IN_VALUES_FUNCTION = "ea_in_values";
+	/**
+	 * The name prefix of the registered semi-joins on the temporary table, completed with the value column -
+	 * {@code ea_in_temp_text_value(attribute, filterId)}
+	 */
+	public static final String IN_TEMPORARY_FUNCTION_PREFIX = "ea_in_temp_";
+
+	/**
+	 * Creates the contributor, instantiated by the service loader.
+	 */
+	public ArrayInFunctionContributor()
+	{
+		//No configuration required
+	}
+
+	@Override
+	public void contributeFunctions(FunctionContributions functionContributions)
+	{
+		Dialect dialect = functionContributions.getDialect();
+		boolean supported = dialect instanceof PostgreSQLDialect || dialect instanceof CockroachDialect;
+		StatementCancellation.setSupported(dialect instanceof PostgreSQLDialect);
+		if (supported)
+		{
+			register(functionContributions, IN_ARRAY_FUNCTION, "(?1 = any(?2))");
+			register(functionContributions, IN_VALUES_FUNCTION, "(?1 in (select unnest(?2)))");
+			for (String column : new String[]{"text_value", "long_value", "uuid_value"})
+			{
+				register(functionContributions, IN_TEMPORARY_FUNCTION_PREFIX + column,
+				         "(?1 in (select f." + column + " from " + IdFilterStrategies.TEMPORARY_TABLE + " f where f.filter_id = ?2))");
+			}
+		}
+	}
+
+	/**
+	 * Registers a two argument boolean pattern function.
+	 *
+	 * @param functionContributions The contributions
+	 * @param name                  The function name
+	 * @param pattern               The SQL pattern
+	 */
+	private static void register(FunctionContributions functionContributions, String name, String pattern)
+	{
+		functionContributions.getFunctionRegistry()
+		                     .patternDescriptorBuilder(name, pattern)
+		                     .setExactArgumentCount(2)
+		                     .setInvariantType(functionContributions.getTypeConfiguration()
+		                                                            .getBasicTypeRegistry()
+		                                                            .resolve(StandardBasicTypes.BOOLEAN))
+		                     .register();
+	}
+}
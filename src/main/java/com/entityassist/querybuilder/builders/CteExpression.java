@@ -3,6 +3,7 @@ package com.entityassist.querybuilder.builders;
 import com.entityassist.querybuilder.QueryBuilder;
 import jakarta.persistence.criteria.AbstractQuery;
 import org.hibernate.query.criteria.JpaCteCriteria;
+import org.hibernate.query.sqm.tree.cte.CteMaterialization;
 
 import java.util.function.Function;
 
@@ -40,6 +41,19 @@ public final class CteExpression<T>
 	 * {@link JpaCteCriteria} so the recursive query can reference the CTE itself.
 	 */
 	private Function<JpaCteCriteria<T>, AbstractQuery<T>> recursiveProducer;
+	/**
+	 * A normalized description of the recursive member, used in query keys. {@code null} when the member
+	 * comes from a caller supplied producer that cannot be described.
+	 */
+	private String recursiveShape;
+	/**
+	 * The alias of the identifier column projected by the CTE.
+	 */
+	private String idAlias;
+	/**
+	 * The materialization hint rendered for the CTE.
+	 */
+	private CteMaterialization materialization = CteMaterialization.UNDEFINED;
 	/**
 	 * The materialised Hibernate CTE criteria, populated once the CTE is registered.
 	 */
@@ -163,6 +177,76 @@ public final class CteExpression<T>
 		return this;
 	}
 
+	/**
+	 * Returns the normalized description of the recursive member.
+	 *
+	 * @return The recursive member shape, or {@code null} when it cannot be described
+	 */
+	public String getRecursiveShape()
+	{
+		return recursiveShape;
+	}
+
+	/**
+	 * Sets the normalized description of the recursive member.
+	 *
+	 * @param recursiveShape The recursive member shape
+	 * @return This expression
+	 */
+	public CteExpression<T> setRecursiveShape(String recursiveShape)
+	{
+		this.recursiveShape = recursiveShape;
+		return this;
+	}
+
+	/**
+	 * Returns the alias of the identifier column projected by the CTE.
+	 *
+	 * @return The identifier alias
+	 */
+	public String getIdAlias()
+	{
+		return idAlias;
+	}
+
+	/**
+	 * Sets the alias of the identifier column projected by the CTE.
+	 *
+	 * @param idAlias The identifier alias
+	 * @return This expression
+	 */
+	public CteExpression<T> setIdAlias(String idAlias)
+	{
+		this.idAlias = idAlias;
+		return this;
+	}
+
+	/**
+	 * Returns the materialization hint of the CTE.
+	 *
+	 * @return The materialization, {@link CteMaterialization#UNDEFINED} leaves the choice to the database
+	 */
+	public CteMaterialization getMaterialization()
+	{
+		return materialization;
+	}
+
+	/**
+	 * Sets the materialization hint of the CTE, applying it to the generated CTE when already registered.
+	 *
+	 * @param materialization The materialization hint
+	 * @return This expression
+	 */
+	public CteExpression<T> setMaterialization(CteMaterialization materialization)
+	{
+		this.materialization = materialization == null ? CteMaterialization.UNDEFINED : materialization;
+		if (generatedCte != null)
+		{
+			generatedCte.setMaterialization(this.materialization);
+		}
+		return this;
+	}
+
 	/**
 	 * Returns the materialized Hibernate CTE criteria.
 	 *
@@ -0,0 +1,15 @@
+package com.entityassist.querybuilder.builders;
+
+/**
+ * A reference from a builder to a Common Table Expression registered on the same or an enclosing query.
+ * <p>
+ * References are kept alongside the where expressions so that they are re-applied when the builder is
+ * reset onto a new root - for example when the builder becomes the body of another CTE.
+ *
+ * @param attribute The dot-separated attribute matched against the CTE identifiers, {@code null} for the identifier
+ * @param cte       The referenced CTE
+ * @param joined    {@code true} to join the CTE, {@code false} for an {@code IN (SELECT ...)} membership filter
+ */
+public record CteReference(String attribute, CteExpression<?> cte, boolean joined)
+{
+}
@@ -3,19 +3,23 @@ package com.entityassist.querybuilder.builders;
 import com.entityassist.BaseEntity;
 import com.entityassist.DefaultEntity;
 import com.entityassist.enumerations.GroupedFilterType;
+import com.entityassist.enumerations.IdFilterStrategy;
 import com.entityassist.enumerations.Operand;
 import com.entityassist.enumerations.OrderByType;
 import com.entityassist.enumerations.SelectAggregrate;
 import com.entityassist.querybuilder.QueryBuilder;
+import com.entityassist.services.entities.IRootEntity;
 import com.google.common.base.Strings;
 import jakarta.persistence.Id;
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.Bindable;
 import jakarta.persistence.metamodel.PluralAttribute;
 import jakarta.persistence.metamodel.SingularAttribute;
 import jakarta.validation.constraints.NotNull;
 
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.logging.Logger;
@@ -81,6 +85,10 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 	 * The set of Common Table Expressions (CTEs) registered for this query
 	 */
 	private final Set<CteExpression<?>> ctes;
+	/**
+	 * The references to registered CTEs that constrain this query
+	 */
+	private final Set<CteReference> cteReferences;
 
 	/**
 	 * A cache region name to apply
@@ -105,6 +113,10 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 	 * Returns the root object of this entity
 	 */
 	private From<?, ?> root;
+	/**
+	 * The identifiers requested through find, null when find was not used
+	 */
+	private List<Object> findIdentifiers;
 	
 	/**
 	 * Constructs a new query builder core with typed classes instantiated
@@ -122,6 +134,7 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		orderByExpressions = new LinkedHashSet<>();
 		groupByExpressions = new LinkedHashSet<>();
 		ctes = new LinkedHashSet<>();
+		cteReferences = new LinkedHashSet<>();
 	}
 	
 	/**
@@ -218,6 +231,7 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		{
 			where(getAttribute("id"), Operand.Equals, id);
 		}
+		findIdentifiers = Collections.singletonList(id);
 		return (J) this;
 	}
 	
@@ -268,9 +282,36 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		{
 			where((Attribute<Object, Object>) getAttribute("id"), Operand.InList, idList);
 		}
+		findIdentifiers = new ArrayList<>(id);
 		return (J) this;
 	}
 	
+	/**
+	 * Returns the identifiers of a plain identifier lookup.
+	 * <p>
+	 * Only a builder whose single filter came from {@code find(id)} or {@code find(ids)},
+	 * without selections, joins, CTEs, grouping or ordering, is a plain lookup.
+	 *
+	 * @return The requested identifiers, or null when the builder is not a plain identifier lookup
+	 */
+	public List<Object> getIdentifierLookup()
+	{
+		if (findIdentifiers == null
+				|| whereExpressions.size() != 1
+				|| !selectExpressions.isEmpty()
+				|| !selections.isEmpty()
+				|| !joins.isEmpty()
+				|| !ctes.isEmpty()
+				|| !cteReferences.isEmpty()
+				|| !groupByExpressions.isEmpty()
+				|| !orderBys.isEmpty()
+				|| !havingExpressions.isEmpty())
+		{
+			return null;
+		}
+		return findIdentifiers;
+	}
+	
 	/**
 	 * Returns the collection of filters that are going to be applied in build
 	 *
@@ -493,6 +534,27 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		}
 	}
 	
+	/**
+	 * Adds a membership filter on a large value collection, applied with the given strategy and applied again when
+	 * the builder is reset for a bulk delete or update
+	 *
+	 * @param attributePath The dot-separated attribute
+	 * @param values        The distinct values
+	 * @param strategy      The strategy chosen by {@link IdFilterStrategies}
+	 * @param filterId      The temporary table filter identifier, ignored by the other strategies
+	 * @return This
+	 */
+	@SuppressWarnings("unchecked")
+	protected J whereMembership(@NotNull String attributePath, List<Object> values, IdFilterStrategy strategy, long filterId)
+	{
+		MembershipExpression membership = new MembershipExpression(attributePath, WhereExpression.buildPath(getRoot(), attributePath),
+		                                                           values, strategy, filterId);
+		whereExpressions.add(membership);
+		membership.toPredicate(getCriteriaBuilder())
+		          .ifPresent(getFilters()::add);
+		return (J) this;
+	}
+
 	@SuppressWarnings("unchecked")
 	private <X, Y> J wherePath(@NotNull String attributePath, Operand operator, Object value)
 	{
@@ -853,6 +915,12 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 				we.switchRoot(newRoot);
 				doWhere(we);
 			}
+			else if (whereExpression instanceof MembershipExpression membership)
+			{
+				membership.switchRoot(newRoot)
+				          .toPredicate(getCriteriaBuilder())
+				          .ifPresent(getFilters()::add);
+			}
 		}
 		getSelectExpressions().forEach(this::redoSelectExpression);
 	}
@@ -879,6 +947,55 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		return whereExpressions;
 	}
 	
+	/**
+	 * Returns the value of a top level equals filter on the given attribute
+	 *
+	 * @param attributePath The dot-separated attribute path
+	 * @return The filtered value, null when the attribute has no top level equals filter
+	 */
+	public Object getEqualsFilterValue(String attributePath)
+	{
+		for (IFilterExpression whereExpression : whereExpressions)
+		{
+			if (whereExpression instanceof WhereExpression<?, ?> where
+					&& where.getOperand() == Operand.Equals
+					&& attributePath.equals(where.getAttributePath()))
+			{
+				return where.getExpressionValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the values of the top level equals and range filters on the given attribute
+	 *
+	 * @param attributePath The dot-separated attribute path
+	 * @return The filtered values by operand, empty when the attribute has no such filter
+	 */
+	public Map<Operand, Object> getRangeFilterValues(String attributePath)
+	{
+		Map<Operand, Object> values = new EnumMap<>(Operand.class);
+		for (IFilterExpression whereExpression : whereExpressions)
+		{
+			if (whereExpression instanceof WhereExpression<?, ?> where
+					&& attributePath.equals(where.getAttributePath())
+					&& where.getExpressionValue() != null)
+			{
+				switch (where.getOperand())
+				{
+					case Equals, LessThan, LessThanEqualTo, GreaterThan, GreaterThanEqualTo ->
+							values.put(where.getOperand(), where.getExpressionValue());
+					default ->
+					{
+						//not a range
+					}
+				}
+			}
+		}
+		return values;
+	}
+
 	/**
 	 * A set of select expression
 	 *
@@ -1668,6 +1785,17 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		return ctes;
 	}
 	
+	/**
+	 * Returns the references to registered CTEs that constrain this query.
+	 *
+	 * @return A set of CTE references
+	 */
+	@NotNull
+	public Set<CteReference> getCteReferences()
+	{
+		return cteReferences;
+	}
+	
 	/**
 	 * Sets the entity to the given item
 	 *
@@ -1781,6 +1909,185 @@ public abstract class DefaultQueryBuilder<J extends DefaultQueryBuilder<J, E, I>
 		return (J) this;
 	}
 
+	/**
+	 * Appends the normalized shape of this builder's where, select, group by and order by expressions, replacing
+	 * every bound value with a {@code ?} placeholder and collecting the values in order.
+	 * <p>
+	 * Must be called before the query is built. Returns false when part of the query cannot be described -
+	 * predicates added straight to {@link #getFilters()}, having clauses or non-path selections - in which
+	 * case the query must not be cached.
+	 *
+	 * @param shape The buffer to append the shape to
+	 * @param binds The bound values, in shape order
+	 * @return true when the whole builder was described
+	 */
+	public boolean describeQuery(StringBuilder shape, List<Object> binds)
+	{
+		if (getFilters().size() != whereExpressions.size() + cteReferences.size()
+				|| getSelections().size() != selectExpressions.size()
+				|| !havingExpressions.isEmpty())
+		{
+			return false;
+		}
+		shape.append("where(");
+		for (IFilterExpression whereExpression : whereExpressions)
+		{
+			if (!describeFilter(whereExpression, shape, binds))
+			{
+				return false;
+			}
+		}
+		shape.append(")select(");
+		for (SelectExpression selectExpression : selectExpressions)
+		{
+			String path = describePath(selectExpression.getAttribute());
+			if (path == null)
+			{
+				return false;
+			}
+			shape.append(selectExpression.getAggregrate())
+			     .append(':')
+			     .append(path)
+			     .append(';');
+		}
+		shape.append(")group(");
+		for (GroupByExpression groupByExpression : groupByExpressions)
+		{
+			shape.append(groupByExpression.getGroupByAttribute()
+			                              .getName())
+			     .append(';');
+		}
+		shape.append(")order(");
+		orderBys.forEach((attribute, direction) -> shape.append(attribute.getName())
+		                                                .append(' ')
+		                                                .append(direction)
+		                                                .append(';'));
+		shape.append(')');
+		if (construct != null)
+		{
+			shape.append("construct(")
+			     .append(construct.getName())
+			     .append(')');
+		}
+		return true;
+	}
+	
+	/**
+	 * Describes a single filter expression, recursing into grouped expressions
+	 *
+	 * @param expression The filter expression
+	 * @param shape      The shape buffer
+	 * @param binds      The bound values
+	 * @return false when the expression cannot be described
+	 */
+	private boolean describeFilter(IFilterExpression expression, StringBuilder shape, List<Object> binds)
+	{
+		if (expression instanceof WhereExpression<?, ?> where)
+		{
+			String path = describePath(where.getExpressionAttribute());
+			if (path == null)
+			{
+				path = where.getAttributePath();
+			}
+			if (path == null)
+			{
+				return false;
+			}
+			shape.append(path)
+			     .append(' ')
+			     .append(where.getOperand());
+			if (where.getOperand() != Operand.Null && where.getOperand() != Operand.NotNull)
+			{
+				shape.append(" ?");
+				binds.add(normalizeBind(where.getExpressionValue()));
+			}
+			shape.append(';');
+			return true;
+		}
+		if (expression instanceof GroupedExpression grouped)
+		{
+			shape.append(grouped.getGroupedFilterType())
+			     .append('(');
+			for (IFilterExpression child : grouped.getFilterExpressions())
+			{
+				if (!describeFilter(child, shape, binds))
+				{
+					return false;
+				}
+			}
+			shape.append(");");
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Describes a path expression as its dot-separated attribute names from the root
+	 *
+	 * @param expression The expression
+	 * @return The attribute path, or null when the expression is not a path
+	 */
+	private static String describePath(Expression<?> expression)
+	{
+		if (!(expression instanceof Path<?> path))
+		{
+			return null;
+		}
+		Deque<String> names = new ArrayDeque<>();
+		Path<?> current = path;
+		while (current != null && current.getParentPath() != null)
+		{
+			Bindable<?> model = current.getModel();
+			if (!(model instanceof Attribute<?, ?> attribute))
+			{
+				return null;
+			}
+			names.addFirst(attribute.getName());
+			current = current.getParentPath();
+		}
+		return names.isEmpty() ? null : String.join(".", names);
+	}
+	
+	/**
+	 * Converts a bound value into a form with value equality - arrays and collections become lists and
+	 * entities are reduced to their class and identifier
+	 *
+	 * @param value The bound value
+	 * @return The normalized value
+	 */
+	private static Object normalizeBind(Object value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+		if (value.getClass()
+		         .isArray())
+		{
+			List<Object> values = new ArrayList<>();
+			for (int i = 0; i < Array.getLength(value); i++)
+			{
+				values.add(normalizeBind(Array.get(value, i)));
+			}
+			return values;
+		}
+		if (value instanceof Collection<?> collection)
+		{
+			List<Object> values = new ArrayList<>(collection.size());
+			for (Object item : collection)
+			{
+				values.add(normalizeBind(item));
+			}
+			return values;
+		}
+		if (value instanceof IRootEntity<?, ?, ?> entity)
+		{
+			return entity.getClass()
+			             .getName() + "#" + entity.getId();
+		}
+		return value;
+	}
+	
 	/**
 	 * Adds an OR group to the filter expressions with the previous where statement
 	 *
@@ -0,0 +1,118 @@
+package com.entityassist.querybuilder.builders;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.enumerations.TraversalOrder;
+
+/**
+ * The traversal options of a recursive hierarchy CTE.
+ * <p>
+ * Options of {@code withRecursiveHierarchy(name, anchor, parentAttribute, options)} - the CTE then carries
+ * the level (anchors are level 0) and the {@code /id/id/} path of every row next to its identifier, which
+ * the depth limit, cycle detection and ordering are built on.
+ */
+@SuppressWarnings("unused")
+public final class HierarchyOptions
+{
+	/**
+	 * The deepest level returned, 0 for unlimited
+	 */
+	private int maxDepth;
+	/**
+	 * Whether a row whose identifier is already on its path stops the walk
+	 */
+	private boolean detectCycles = true;
+	/**
+	 * The row order of the outer query
+	 */
+	private TraversalOrder order = TraversalOrder.Unordered;
+
+	/**
+	 * Creates options with unlimited depth, cycle detection and no ordering.
+	 */
+	public HierarchyOptions()
+	{
+		//No configuration required
+	}
+
+	/**
+	 * Returns the deepest level returned.
+	 *
+	 * @return The maximum depth, 0 for unlimited
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+
+	/**
+	 * Sets the deepest level returned, the anchors being level 0.
+	 *
+	 * @param maxDepth The maximum depth, 0 for unlimited
+	 * @return This
+	 */
+	public HierarchyOptions setMaxDepth(int maxDepth)
+	{
+		if (maxDepth < 0)
+		{
+			throw new EntityAssistException("Maximum depth may not be negative");
+		}
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Returns whether cycles are detected.
+	 *
+	 * @return true when a row already on its own path ends the walk
+	 */
+	public boolean isDetectCycles()
+	{
+		return detectCycles;
+	}
+
+	/**
+	 * Sets whether cycles are detected. Disable only for data that is guaranteed acyclic and bounded by a
+	 * maximum depth.
+	 *
+	 * @param detectCycles true to stop at rows already on their path
+	 * @return This
+	 */
+	public HierarchyOptions setDetectCycles(boolean detectCycles)
+	{
+		this.detectCycles = detectCycles;
+		return this;
+	}
+
+	/**
+	 * Returns the row order of the outer query.
+	 *
+	 * @return The traversal order
+	 */
+	public TraversalOrder getOrder()
+	{
+		return order;
+	}
+
+	/**
+	 * Sets the row order of the outer query. Applied ahead of any {@code orderBy}, which then orders
+	 * siblings within a level.
+	 *
+	 * @param order The traversal order
+	 * @return This
+	 */
+	public HierarchyOptions setOrder(TraversalOrder order)
+	{
+		this.order = order == null ? TraversalOrder.Unordered : order;
+		return this;
+	}
+
+	/**
+	 * Returns a normalized description of the options, used in query keys.
+	 *
+	 * @return The options shape
+	 */
+	public String describe()
+	{
+		return "depth=" + maxDepth + ",cycles=" + detectCycles + ",order=" + order;
+	}
+}
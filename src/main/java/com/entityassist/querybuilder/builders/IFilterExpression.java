@@ -91,6 +91,26 @@ public interface IFilterExpression
 	@SuppressWarnings({"unchecked", "UnusedReturnValue"})
 	@NotNull
 	static Set buildInObject(CriteriaBuilder.In<Object> inClause, @NotNull Object object)
+	{
+		Set output = toInValues(object);
+		for (Object o : output)
+		{
+			inClause.value(o);
+		}
+		return output;
+	}
+
+	/**
+	 * Collects the values of an in clause from a single value, an array or a collection
+	 *
+	 * @param object
+	 * 		The object to come in, Not null
+	 *
+	 * @return The distinct values in their given order
+	 */
+	@SuppressWarnings({"unchecked"})
+	@NotNull
+	static Set<Object> toInValues(@NotNull Object object)
 	{
 		boolean isArray = object.getClass()
 		                        .isArray();
@@ -112,10 +132,6 @@ public interface IFilterExpression
 		{
 			output.addAll((Collection) object);
 		}
-		for (Object o : output)
-		{
-			inClause.value(o);
-		}
 		return output;
 	}
 
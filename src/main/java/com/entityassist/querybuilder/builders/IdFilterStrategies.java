@@ -0,0 +1,255 @@
+package com.entityassist.querybuilder.builders;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.enumerations.IdFilterStrategy;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static thresholds that pick how a large value collection is applied as a membership filter, and the counts of
+ * the strategies chosen.
+ * <p>
+ * Collections up to the inline limit become a plain {@code IN} list, up to the array limit a single
+ * {@code = ANY(?)} array parameter, up to the values limit a semi-join over the unnested array, and anything
+ * larger is loaded into the session-scoped temporary table {@value #TEMPORARY_TABLE} with one statement and
+ * joined. Without dialect support (see {@link ArrayInFunctionContributor}) every size is applied inline.
+ */
+public final class IdFilterStrategies
+{
+	/**
+	 * The session-scoped temporary table holding the values of the {@link IdFilterStrategy#TemporaryTable} strategy
+	 */
+	public static final String TEMPORARY_TABLE = "ea_id_filter";
+	/**
+	 * Creates the temporary table on the connection of the session when it does not exist yet
+	 */
+	public static final String CREATE_TEMPORARY_TABLE = "create temporary table if not exists " + TEMPORARY_TABLE
+			+ " (filter_id bigint not null, text_value text, long_value bigint, uuid_value uuid)";
+	/**
+	 * The default largest collection applied inline
+	 */
+	public static final int DEFAULT_INLINE_LIMIT = 256;
+	/**
+	 * The default largest collection applied as an array parameter
+	 */
+	public static final int DEFAULT_ARRAY_LIMIT = 5_000;
+	/**
+	 * The default largest collection applied as an unnested array semi-join
+	 */
+	public static final int DEFAULT_VALUES_LIMIT = 50_000;
+
+	private static final AtomicLong filterIds = new AtomicLong();
+	private static final Map<IdFilterStrategy, LongAdder> chosen = new EnumMap<>(IdFilterStrategy.class);
+	private static volatile int inlineLimit = DEFAULT_INLINE_LIMIT;
+	private static volatile int arrayLimit = DEFAULT_ARRAY_LIMIT;
+	private static volatile int valuesLimit = DEFAULT_VALUES_LIMIT;
+
+	static
+	{
+		for (IdFilterStrategy strategy : IdFilterStrategy.values())
+		{
+			chosen.put(strategy, new LongAdder());
+		}
+	}
+
+	private IdFilterStrategies()
+	{
+		// utility class
+	}
+
+	/**
+	 * Sets the size thresholds between the strategies.
+	 *
+	 * @param inlineLimit The largest collection applied inline
+	 * @param arrayLimit  The largest collection applied as an array parameter
+	 * @param valuesLimit The largest collection applied as an unnested array semi-join, larger ones use the temporary table
+	 */
+	public static void setThresholds(int inlineLimit, int arrayLimit, int valuesLimit)
+	{
+		if (inlineLimit < 0 || arrayLimit < inlineLimit || valuesLimit < arrayLimit)
+		{
+			throw new EntityAssistException("Id filter thresholds must be ascending and not negative");
+		}
+		IdFilterStrategies.inlineLimit = inlineLimit;
+		IdFilterStrategies.arrayLimit = arrayLimit;
+		IdFilterStrategies.valuesLimit = valuesLimit;
+	}
+
+	/**
+	 * Returns the largest collection applied inline.
+	 *
+	 * @return The inline limit
+	 */
+	public static int getInlineLimit()
+	{
+		return inlineLimit;
+	}
+
+	/**
+	 * Returns the largest collection applied as an array parameter.
+	 *
+	 * @return The array limit
+	 */
+	public static int getArrayLimit()
+	{
+		return arrayLimit;
+	}
+
+	/**
+	 * Returns the largest collection applied as an unnested array semi-join.
+	 *
+	 * @return The values limit
+	 */
+	public static int getValuesLimit()
+	{
+		return valuesLimit;
+	}
+
+	/**
+	 * Chooses the strategy for a collection and records the choice, falling back where the dialect or the value
+	 * type is not supported.
+	 *
+	 * @param cb        The criteria builder of the session factory the query runs on
+	 * @param values    The distinct values
+	 * @param valueType The Java type of the filtered attribute
+	 * @return The strategy
+	 */
+	public static IdFilterStrategy choose(CriteriaBuilder cb, List<Object> values, Class<?> valueType)
+	{
+		IdFilterStrategy strategy;
+		int size = values.size();
+		if (size <= inlineLimit || !InListBindings.isArraySupported(cb) || toArray(values, valueType) == null)
+		{
+			strategy = IdFilterStrategy.Inline;
+		}
+		else if (size <= arrayLimit)
+		{
+			strategy = IdFilterStrategy.Array;
+		}
+		else if (size <= valuesLimit || getTemporaryColumn(valueType) == null)
+		{
+			strategy = IdFilterStrategy.Values;
+		}
+		else
+		{
+			strategy = IdFilterStrategy.TemporaryTable;
+		}
+		chosen.get(strategy)
+		      .increment();
+		return strategy;
+	}
+
+	/**
+	 * Copies the values into an array of the attribute type, as bound by the array based strategies.
+	 *
+	 * @param values    The values
+	 * @param valueType The Java type of the filtered attribute
+	 * @return The typed array, or null when the values cannot be bound as an array of that type
+	 */
+	public static Object toArray(List<Object> values, Class<?> valueType)
+	{
+		return InListBindings.toTypedArray(values, valueType);
+	}
+
+	/**
+	 * Returns how often a strategy was chosen.
+	 *
+	 * @param strategy The strategy
+	 * @return The number of filters applied with the strategy
+	 */
+	public static long getStrategyCount(IdFilterStrategy strategy)
+	{
+		return chosen.get(strategy)
+		             .sum();
+	}
+
+	/**
+	 * Returns the temporary table column holding values of the given type.
+	 *
+	 * @param valueType The Java type of the filtered attribute
+	 * @return The column name, or null when the type cannot be stored in the temporary table
+	 */
+	public static String getTemporaryColumn(Class<?> valueType)
+	{
+		if (valueType == String.class)
+		{
+			return "text_value";
+		}
+		if (valueType == Long.class || valueType == long.class || valueType == Integer.class || valueType == int.class
+				|| valueType == Short.class || valueType == short.class)
+		{
+			return "long_value";
+		}
+		if (valueType == UUID.class)
+		{
+			return "uuid_value";
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a new identifier separating the rows of one filter in the temporary table.
+	 *
+	 * @return The filter identifier
+	 */
+	public static long nextFilterId()
+	{
+		return filterIds.incrementAndGet();
+	}
+
+	/**
+	 * Builds the membership predicate for a strategy returned by {@link #choose(CriteriaBuilder, List, Class)}.
+	 * <p>
+	 * For {@link IdFilterStrategy#TemporaryTable} the values must be loaded under the given filter identifier before
+	 * the query is executed.
+	 *
+	 * @param cb       The criteria builder
+	 * @param path     The filtered attribute
+	 * @param values   The distinct values
+	 * @param strategy The chosen strategy
+	 * @param filterId The temporary table filter identifier, ignored by the other strategies
+	 * @return The predicate
+	 */
+	@SuppressWarnings("unchecked")
+	public static Predicate buildPredicate(CriteriaBuilder cb, Expression<?> path, List<Object> values, IdFilterStrategy strategy, long filterId)
+	{
+		switch (strategy)
+		{
+			case TemporaryTable:
+			{
+				return cb.isTrue(cb.function(ArrayInFunctionContributor.IN_TEMPORARY_FUNCTION_PREFIX + getTemporaryColumn(path.getJavaType()), Boolean.class,
+				                             path, InListBindings.bindParameter(cb, filterId)));
+			}
+			case Array:
+			case Values:
+			{
+				String function = strategy == IdFilterStrategy.Array ? ArrayInFunctionContributor.IN_ARRAY_FUNCTION : ArrayInFunctionContributor.IN_VALUES_FUNCTION;
+				//bound as one parameter, a literal would render the values into the statement text
+				return cb.isTrue(cb.function(function, Boolean.class, path, InListBindings.bindParameter(cb, toArray(values, path.getJavaType()))));
+			}
+			default:
+			{
+				if (values.isEmpty())
+				{
+					return cb.disjunction();
+				}
+				CriteriaBuilder.In<Object> in = cb.in((Expression<Object>) path);
+				values.forEach(in::value);
+				//repeating the last value keeps one statement text per power of two
+				for (int i = values.size(), padded = InListBindings.paddedSize(values.size()); i < padded; i++)
+				{
+					in.value(values.get(values.size() - 1));
+				}
+				return in;
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.entityassist.querybuilder.builders;
+
+import com.entityassist.cache.CacheStatistics;
+import com.entityassist.enumerations.InListBinding;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.NodeBuilder;
+
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Static configuration of how in-list filters are bound, and statistics on the statement texts they produce.
+ * <p>
+ * Every distinct statement text is prepared and planned separately by the driver and the database, so an
+ * {@code IN} list with one parameter per value defeats the prepared statement cache whenever the list size
+ * changes. {@link InListBinding#Array} binds the whole list as one array parameter; {@link InListBinding#Padded}
+ * limits the number of texts to one per power of two. The statement statistics count an in-list rendering as a
+ * hit when the same attribute, binding and parameter count was rendered before - an estimate of the prepared
+ * statement cache hit rate attributable to in-list filters.
+ */
+public final class InListBindings
+{
+	/**
+	 * The number of distinct in-list shapes remembered for the statement statistics
+	 */
+	private static final int MAXIMUM_TRACKED_SHAPES = 10_000;
+	private static final Set<String> renderedShapes = ConcurrentHashMap.newKeySet();
+	private static final CacheStatistics statementStatistics = new CacheStatistics("in-list-statements");
+	private static volatile InListBinding binding = InListBinding.Auto;
+
+	private InListBindings()
+	{
+		// utility class
+	}
+
+	/**
+	 * Returns the configured binding.
+	 *
+	 * @return The binding, {@link InListBinding#Auto} by default
+	 */
+	public static InListBinding getBinding()
+	{
+		return binding;
+	}
+
+	/**
+	 * Sets the binding for all in-list filters built from now on.
+	 *
+	 * @param binding The binding
+	 */
+	public static void setBinding(InListBinding binding)
+	{
+		InListBindings.binding = Objects.requireNonNull(binding, "binding may not be null");
+	}
+
+	/**
+	 * Returns whether the dialect of the criteria builder's session factory supports array parameters, that is
+	 * whether {@link ArrayInFunctionContributor} registered its functions in that factory.
+	 *
+	 * @param criteriaBuilder The criteria builder of the session factory, null when unknown
+	 * @return true when {@code = ANY(?)} can be rendered
+	 */
+	public static boolean isArraySupported(CriteriaBuilder criteriaBuilder)
+	{
+		return criteriaBuilder instanceof NodeBuilder nodeBuilder
+				&& nodeBuilder.getQueryEngine()
+				              .getSqmFunctionRegistry()
+				              .findFunctionDescriptor(ArrayInFunctionContributor.IN_ARRAY_FUNCTION) != null;
+	}
+
+	/**
+	 * Resolves the binding to use, falling back to padding where arrays are not supported.
+	 *
+	 * @param criteriaBuilder The criteria builder of the session factory, null when unknown
+	 * @return {@link InListBinding#Array}, {@link InListBinding#Padded} or {@link InListBinding#Expanded}
+	 */
+	public static InListBinding resolve(CriteriaBuilder criteriaBuilder)
+	{
+		InListBinding configured = binding;
+		if (configured == InListBinding.Auto || configured == InListBinding.Array)
+		{
+			return isArraySupported(criteriaBuilder) ? InListBinding.Array : InListBinding.Padded;
+		}
+		return configured;
+	}
+
+	/**
+	 * Returns the padded parameter count for a list size - the next power of two.
+	 *
+	 * @param size The number of values
+	 * @return The padded size, at least the given size
+	 */
+	public static int paddedSize(int size)
+	{
+		if (size <= 1)
+		{
+			return size;
+		}
+		int padded = Integer.highestOneBit(size - 1) << 1;
+		return padded < 0 ? size : padded;
+	}
+
+	/**
+	 * Returns the statistics of statement texts produced by in-list filters.
+	 *
+	 * @return The hit and miss counts, a hit being a previously rendered in-list shape
+	 */
+	public static CacheStatistics getStatementStatistics()
+	{
+		return statementStatistics;
+	}
+
+	/**
+	 * Records the rendered shape of an in-list filter.
+	 *
+	 * @param attributePath The filtered attribute
+	 * @param binding       The applied binding
+	 * @param parameters    The number of bound parameters
+	 */
+	static void recordShape(String attributePath, InListBinding binding, int parameters)
+	{
+		String shape = attributePath + ":" + binding + ":" + parameters;
+		if (renderedShapes.contains(shape))
+		{
+			statementStatistics.recordHit();
+			return;
+		}
+		statementStatistics.recordMiss();
+		if (renderedShapes.size() < MAXIMUM_TRACKED_SHAPES)
+		{
+			renderedShapes.add(shape);
+		}
+	}
+
+	/**
+	 * Copies the values into an array of the attribute type, as required to bind an array parameter.
+	 *
+	 * @param values    The values
+	 * @param valueType The Java type of the filtered attribute
+	 * @return The typed array, or null when the values cannot be bound as an array of that type
+	 */
+	static Object toTypedArray(List<Object> values, Class<?> valueType)
+	{
+		Class<?> componentType = box(valueType);
+		if (componentType == null || componentType == Object.class || values.isEmpty())
+		{
+			return null;
+		}
+		Object array = Array.newInstance(componentType, values.size());
+		for (int i = 0; i < values.size(); i++)
+		{
+			Object value = values.get(i);
+			if (value == null || !componentType.isInstance(value))
+			{
+				return null;
+			}
+			Array.set(array, i, value);
+		}
+		return array;
+	}
+
+	/**
+	 * Binds a value, for example an array of in-list values, as one parameter of the statement.
+	 * <p>
+	 * {@code value()} renders a parameter under Hibernate's default value handling mode, so the statement text stays
+	 * the same whatever the value. Partition bounds are the opposite case and are rendered with {@code literal()}
+	 * so the planner can prune on them.
+	 *
+	 * @param criteriaBuilder The criteria builder
+	 * @param value           The value
+	 * @return The parameter expression
+	 */
+	static Expression<Object> bindParameter(CriteriaBuilder criteriaBuilder, Object value)
+	{
+		return ((HibernateCriteriaBuilder) criteriaBuilder).value(value);
+	}
+
+	private static Class<?> box(Class<?> type)
+	{
+		if (type == null || !type.isPrimitive())
+		{
+			return type;
+		}
+		return Array.get(Array.newInstance(type, 1), 0)
+		            .getClass();
+	}
+}
@@ -0,0 +1,51 @@
+package com.entityassist.querybuilder.builders;
+
+import com.entityassist.enumerations.IdFilterStrategy;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Predicate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A membership filter on a large value collection, applied with the strategy chosen by {@link IdFilterStrategies}
+ * and re-applied to a new root when the builder is reset for a bulk delete or update
+ */
+final class MembershipExpression
+		implements IFilterExpression
+{
+	private final String attributePath;
+	private final List<Object> values;
+	private final IdFilterStrategy strategy;
+	private final long filterId;
+	private Expression<?> path;
+
+	MembershipExpression(String attributePath, Expression<?> path, List<Object> values, IdFilterStrategy strategy, long filterId)
+	{
+		this.attributePath = attributePath;
+		this.path = path;
+		this.values = values;
+		this.strategy = strategy;
+		this.filterId = filterId;
+	}
+
+	/**
+	 * Resolves the filtered attribute on a new root
+	 *
+	 * @param root The new root
+	 * @return This
+	 */
+	MembershipExpression switchRoot(From<?, ?> root)
+	{
+		path = WhereExpression.buildPath(root, attributePath);
+		return this;
+	}
+
+	@Override
+	public Optional<Predicate> toPredicate(CriteriaBuilder builder)
+	{
+		return Optional.of(IdFilterStrategies.buildPredicate(builder, path, values, strategy, filterId));
+	}
+}
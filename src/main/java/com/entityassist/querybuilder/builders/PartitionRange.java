@@ -0,0 +1,122 @@
+package com.entityassist.querybuilder.builders;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.enumerations.PartitionInterval;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A half-open range {@code [from, to)} of a temporal partition key.
+ * <p>
+ * Boundaries of zoned values are computed in UTC, the bounds keep the Java type of the range they were split from.
+ *
+ * @param from The inclusive lower bound
+ * @param to   The exclusive upper bound
+ */
+public record PartitionRange(Object from, Object to)
+{
+	/**
+	 * Splits the range on the partition boundaries of the interval.
+	 *
+	 * @param interval The width of each partition
+	 * @return One range per partition touched, the first and last cut to this range
+	 */
+	public List<PartitionRange> split(PartitionInterval interval)
+	{
+		LocalDateTime start = toLocal(from);
+		LocalDateTime end = toLocal(to);
+		List<PartitionRange> ranges = new ArrayList<>();
+		while (start.isBefore(end))
+		{
+			LocalDateTime boundary = nextBoundary(start, interval);
+			LocalDateTime stop = boundary.isBefore(end) ? boundary : end;
+			ranges.add(new PartitionRange(fromLocal(start, from), fromLocal(stop, from)));
+			start = stop;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Returns the start of the partition following the one holding the value.
+	 *
+	 * @param value    The value
+	 * @param interval The width of each partition
+	 * @return The next partition boundary
+	 */
+	static LocalDateTime nextBoundary(LocalDateTime value, PartitionInterval interval)
+	{
+		LocalDate day = value.toLocalDate();
+		LocalDate next = switch (interval)
+		{
+			case Day -> day.plusDays(1);
+			case Week -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+			                .plusWeeks(1);
+			case Month -> day.withDayOfMonth(1)
+			                 .plusMonths(1);
+			case Quarter -> day.withDayOfMonth(1)
+			                   .withMonth((day.getMonthValue() - 1) / 3 * 3 + 1)
+			                   .plusMonths(3);
+			case Year -> day.withDayOfYear(1)
+			                .plusYears(1);
+		};
+		return next.atStartOfDay();
+	}
+
+	private static LocalDateTime toLocal(Object value)
+	{
+		if (value instanceof LocalDateTime local)
+		{
+			return local;
+		}
+		if (value instanceof LocalDate date)
+		{
+			return date.atStartOfDay();
+		}
+		if (value instanceof Instant instant)
+		{
+			return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+		}
+		if (value instanceof OffsetDateTime offset)
+		{
+			return offset.withOffsetSameInstant(ZoneOffset.UTC)
+			             .toLocalDateTime();
+		}
+		if (value instanceof ZonedDateTime zoned)
+		{
+			return LocalDateTime.ofInstant(zoned.toInstant(), ZoneOffset.UTC);
+		}
+		throw new EntityAssistException("Partition ranges support LocalDate, LocalDateTime, Instant, OffsetDateTime and ZonedDateTime, not "
+				                                + (value == null ? "null" : value.getClass()
+				                                                                 .getName()));
+	}
+
+	private static Object fromLocal(LocalDateTime value, Object template)
+	{
+		if (template instanceof LocalDate)
+		{
+			return value.toLocalDate();
+		}
+		if (template instanceof Instant)
+		{
+			return value.toInstant(ZoneOffset.UTC);
+		}
+		if (template instanceof OffsetDateTime)
+		{
+			return value.atOffset(ZoneOffset.UTC);
+		}
+		if (template instanceof ZonedDateTime)
+		{
+			return value.atZone(ZoneOffset.UTC);
+		}
+		return value;
+	}
+}
@@ -1,7 +1,12 @@
 package com.entityassist.querybuilder.builders;
 
 import com.entityassist.RootEntity;
+import com.entityassist.cache.QueryCaches;
+import com.entityassist.identifiers.IdGenerator;
+import com.entityassist.routing.ReplicaRouter;
 import com.entityassist.services.querybuilders.IQueryBuilderRoot;
+import com.entityassist.writebehind.WriteBehind;
+import com.entityassist.writebehind.WriteBehindBuffer;
 import com.guicedee.client.IGuiceContext;
 import io.smallrye.mutiny.Uni;
 import jakarta.persistence.criteria.CriteriaBuilder;
@@ -18,6 +23,8 @@ import org.hibernate.reactive.mutiny.Mutiny;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -273,8 +280,32 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         return statelessSession;
     }
 
+    /**
+     * Returns the session this builder executes on.
+     *
+     * @return The stateless session when the builder is stateless, otherwise the session
+     */
+    protected Object getBoundSession()
+    {
+        return isStateless() ? getEntityManagerStateless() : getEntityManager();
+    }
+
+    /**
+     * Marks the bound session as having written, so that its later reads are not served by a lagging replica.
+     *
+     * @see ReplicaRouter
+     */
+    protected void recordWrite()
+    {
+        ReplicaRouter.recordWrite(getBoundSession());
+    }
+
     /**
      * Persists this entity. Uses the get instance entity manager to operate.
+     * <p>
+     * When the entity type is buffered by {@link WriteBehind} the entity is queued for a later batch insert instead,
+     * and the returned Uni completes once it is queued. An entity without an identifier receives one from
+     * {@link #getIdGenerator()} when the builder declares a generator.
      *
      * @return {@code Uni<E>} containing the persisted entity
      */
@@ -286,30 +317,16 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         {
             if (onCreate(entity))
             {
-                if (isStateless())
-                {
-                    //A stateless session never fires JPA entity lifecycle callbacks, so any @PrePersist
-                    //assigned identifiers (or defaulted columns) would silently never be applied and
-                    //Hibernate would fail with "Identifier of entity ... must be manually assigned before calling 'insert()'"
-                    applyPrePersistCallbacks(entity);
-                    assertIdentifierAssigned(entity);
-                    return getEntityManagerStateless().insert(entity)
-                               .onItem()
-                               .invoke(e -> {
-                                   entity.setFake(false);
-                                   setEntity(entity);
-                               })
-                               .map(v -> entity);
-                }else
+                IdGenerator<I> idGenerator = getIdGenerator();
+                if (idGenerator != null && entity.getId() == null)
                 {
-                    return getEntityManager().persist(entity)
-                               .onItem()
-                               .invoke(e -> {
-                                   entity.setFake(false);
-                                   setEntity(entity);
-                               })
-                               .map(v -> entity);
+                    return idGenerator.reserve(1)
+                                      .chain(ids -> {
+                                          entity.setId(ids.get(0));
+                                          return create(entity);
+                                      });
                 }
+                return create(entity);
             }
             return Uni.createFrom().item(entity);
         }
@@ -327,6 +344,49 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         }
     }
 
+    /**
+     * Writes an entity approved by {@link #onCreate(RootEntity)} through the write-behind buffer or the bound session.
+     *
+     * @param entity The entity
+     * @return {@code Uni<E>} containing the persisted entity
+     */
+    @SuppressWarnings("unchecked")
+    private Uni<E> create(E entity)
+    {
+        WriteBehindBuffer<E> buffer = WriteBehind.getBuffer((Class<E>) entity.getClass());
+        if (buffer != null)
+        {
+            prepareStatelessInsert(entity);
+            return buffer.enqueue(entity);
+        }
+        if (isStateless())
+        {
+            prepareStatelessInsert(entity);
+            return getEntityManagerStateless().insert(entity)
+                       .onItem()
+                       .invoke(e -> {
+                           entity.setFake(false);
+                           entity.clearChanges();
+                           setEntity(entity);
+                           QueryCaches.invalidate(entity, getBoundSession());
+                           recordWrite();
+                       })
+                       .map(v -> entity);
+        }else
+        {
+            return getEntityManager().persist(entity)
+                       .onItem()
+                       .invoke(e -> {
+                           entity.setFake(false);
+                           entity.clearChanges();
+                           setEntity(entity);
+                           QueryCaches.invalidate(entity, getBoundSession());
+                           recordWrite();
+                       })
+                       .map(v -> entity);
+        }
+    }
+
 
     /**
      * Persists the entity currently attached to this builder.
@@ -350,6 +410,70 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         return true;
     }
 
+    /**
+     * Prepares an entity for an insert through a stateless session, applying what a stateful persist would.
+     * <p>
+     * Call after {@link #onCreate(RootEntity)} approved the entity.
+     *
+     * @param entity The entity about to be inserted
+     */
+    public void prepareStatelessInsert(E entity)
+    {
+        //A stateless session never fires JPA entity lifecycle callbacks, so any @PrePersist
+        //assigned identifiers (or defaulted columns) would silently never be applied and
+        //Hibernate would fail with "Identifier of entity ... must be manually assigned before calling 'insert()'"
+        applyPrePersistCallbacks(entity);
+        assertIdentifierAssigned(entity);
+    }
+
+    /**
+     * The in-process generator of identifiers for entities persisted without one, none by default.
+     * <p>
+     * Override to return a shared generator from {@link com.entityassist.identifiers.IdGenerators}, so that stateless
+     * and batch inserts do not need a sequence round trip per row.
+     *
+     * @return The identifier generator, null when identifiers are assigned elsewhere
+     */
+    public IdGenerator<I> getIdGenerator()
+    {
+        return null;
+    }
+
+    /**
+     * Assigns identifiers from {@link #getIdGenerator()} to the entities without one, reserving them together.
+     *
+     * @param entities The entities about to be inserted
+     * @return Uni completing once the identifiers are assigned
+     */
+    public Uni<Void> assignIdentifiers(List<E> entities)
+    {
+        IdGenerator<I> idGenerator = getIdGenerator();
+        if (idGenerator == null)
+        {
+            return Uni.createFrom().voidItem();
+        }
+        List<E> unassigned = new ArrayList<>();
+        for (E entity : entities)
+        {
+            if (entity.getId() == null)
+            {
+                unassigned.add(entity);
+            }
+        }
+        if (unassigned.isEmpty())
+        {
+            return Uni.createFrom().voidItem();
+        }
+        return idGenerator.reserve(unassigned.size())
+                          .invoke(ids -> {
+                              for (int i = 0; i < unassigned.size(); i++)
+                              {
+                                  unassigned.get(i).setId(ids.get(i));
+                              }
+                          })
+                          .replaceWithVoid();
+    }
+
     /**
      * Cache of {@code @PrePersist} annotated callbacks per entity class, resolved from the entire
      * class hierarchy (mapped superclasses included), ordered super class first as per JPA.
@@ -440,7 +564,7 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         throw new IllegalStateException("Identifier of entity '" + entity.getClass()
                                                                         .getCanonicalName()
                 + "' was not assigned before a stateless insert. Assign the id in the query builder onCreate(), "
-                + "a @PrePersist callback, or mark the builder as isIdGenerated() = true.");
+                + "a @PrePersist callback, declare a getIdGenerator(), or mark the builder as isIdGenerated() = true.");
     }
 
     /**
@@ -467,6 +591,9 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
 
     /**
      * Merges this entity with the database copy. Uses getInstance(EntityManager.class)
+     * <p>
+     * Writes every column, and on a stateful session selects the row first - use {@code updateChanged()} for
+     * entities that track their changed fields.
      *
      * @return This
      */
@@ -478,11 +605,19 @@ public abstract class QueryBuilderRoot<J extends QueryBuilderRoot<J, E, I>,
         {
             if (onUpdate(getEntity()))
             {
+                E updating = getEntity();
                 if (isStateless())
                 {
-                    return getEntityManagerStateless().update(getEntity()).replaceWith(getEntity());
+                    return getEntityManagerStateless().update(updating)
+                               .invoke(updating::clearChanges)
+                               .invoke(() -> QueryCaches.invalidate(updating, getBoundSession()))
+                               .invoke(this::recordWrite)
+                               .replaceWith(updating);
                 }
-                return getEntityManager().merge(getEntity());
+                return getEntityManager().merge(updating)
+                           .invoke(updating::clearChanges)
+                           .invoke(() -> QueryCaches.invalidate(updating, getBoundSession()))
+                           .invoke(this::recordWrite);
             }
         }
         catch (IllegalStateException ise)
@@ -0,0 +1,68 @@
+package com.entityassist.querybuilder.builders;
+
+import io.smallrye.mutiny.Uni;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+/**
+ * Cancels statements on the database server when the caller abandons a query.
+ * <p>
+ * Cancelling the subscription of a reactive query only stops the client from waiting - the server keeps executing
+ * the statement and the pooled connection stays busy. On PostgreSQL the backend process of the session's
+ * connection is resolved before the query runs, and a cancelled or timed out query is cancelled with
+ * {@code pg_cancel_backend} on a separate connection of the same session factory. Support is registered by {@link ArrayInFunctionContributor}.
+ */
+public final class StatementCancellation
+{
+	/**
+	 * Resolves the backend process serving the connection of the session
+	 */
+	public static final String BACKEND_ID_QUERY = "select pg_backend_pid()";
+
+	private static volatile boolean supported;
+
+	private StatementCancellation()
+	{
+		// utility class
+	}
+
+	/**
+	 * Returns whether the dialect of the session factory supports server-side cancellation.
+	 *
+	 * @return true on PostgreSQL
+	 */
+	public static boolean isSupported()
+	{
+		return supported;
+	}
+
+	/**
+	 * Records whether the dialect supports server-side cancellation.
+	 *
+	 * @param supported true on PostgreSQL
+	 */
+	static void setSupported(boolean supported)
+	{
+		StatementCancellation.supported = supported;
+	}
+
+	/**
+	 * Cancels the statement currently running on the given backend, from a separate connection of the session
+	 * factory the backend belongs to.
+	 * <p>
+	 * The backend cancels whatever it runs when the request arrives, so only call this while the statement is known
+	 * to be in flight.
+	 *
+	 * @param sessionFactory The session factory of the session executing the statement
+	 * @param backendId      The backend process identifier
+	 * @return Uni completing once the cancel request was sent, never failing
+	 */
+	public static Uni<Void> cancel(Mutiny.SessionFactory sessionFactory, Number backendId)
+	{
+		return sessionFactory.withStatelessSession(session -> session.createNativeQuery("select pg_cancel_backend(?1)")
+		                                                             .setParameter(1, backendId.intValue())
+		                                                             .getSingleResult())
+		                     .replaceWithVoid()
+		                     .onFailure()
+		                     .recoverWithNull();
+	}
+}
@@ -1,12 +1,15 @@
 package com.entityassist.querybuilder.builders;
 
 import com.entityassist.EntityAssistException;
+import com.entityassist.enumerations.InListBinding;
 import com.entityassist.enumerations.Operand;
 
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -170,19 +173,11 @@ final class WhereExpression<X, Y>
 		{
 			case InList:
 			{
-				Expression<Object> path;
-				path = (Expression<Object>) expressionAttribute;
-				CriteriaBuilder.In<Object> in = getCriteriaBuilder().in(path);
-				IFilterExpression.buildInObject(in, value);
-				return Optional.of(in);
+				return Optional.of(buildInList(value));
 			}
 			case NotInList:
 			{
-				Expression<Object> path = null;
-				path = (Expression<Object>) expressionAttribute;
-				CriteriaBuilder.In<Object> in = getCriteriaBuilder().in(path);
-				IFilterExpression.buildInObject(in, value);
-				return Optional.of(getCriteriaBuilder().not(in));
+				return Optional.of(getCriteriaBuilder().not(buildInList(value)));
 			}
 			default:
 			{
@@ -191,6 +186,42 @@ final class WhereExpression<X, Y>
 		}
 	}
 
+	/**
+	 * Builds the membership predicate of an in-list filter with the binding resolved by {@link InListBindings}
+	 *
+	 * @param value The single value, array or collection
+	 * @return The membership predicate
+	 */
+	@SuppressWarnings("unchecked")
+	private Predicate buildInList(Object value)
+	{
+		Expression<Object> path = (Expression<Object>) expressionAttribute;
+		List<Object> values = new ArrayList<>(IFilterExpression.toInValues(value));
+		InListBinding binding = InListBindings.resolve(getCriteriaBuilder());
+		Object array = binding == InListBinding.Array ? InListBindings.toTypedArray(values, path.getJavaType()) : null;
+		if (array != null)
+		{
+			InListBindings.recordShape(attributePath, binding, 1);
+			//bound as one parameter, a literal would render the values into the statement text
+			return getCriteriaBuilder().isTrue(getCriteriaBuilder().function(ArrayInFunctionContributor.IN_ARRAY_FUNCTION, Boolean.class,
+			                                                                 path, InListBindings.bindParameter(getCriteriaBuilder(), array)));
+		}
+		if (binding != InListBinding.Expanded && !values.isEmpty())
+		{
+			//repeating the last value changes neither IN nor NOT IN
+			binding = InListBinding.Padded;
+			Object last = values.get(values.size() - 1);
+			for (int i = values.size(), padded = InListBindings.paddedSize(values.size()); i < padded; i++)
+			{
+				values.add(last);
+			}
+		}
+		CriteriaBuilder.In<Object> in = getCriteriaBuilder().in(path);
+		values.forEach(in::value);
+		InListBindings.recordShape(attributePath, binding, values.size());
+		return in;
+	}
+
 	@SuppressWarnings("unchecked")
 	@NotNull
 	private <T extends Comparable<T>> Optional<Predicate> processWhereCompare(WhereExpression whereExpression)
@@ -247,6 +278,16 @@ final class WhereExpression<X, Y>
 		return this;
 	}
 
+	/**
+	 * Returns the dot-separated attribute path this expression filters on
+	 *
+	 * @return The attribute path, null when built from a raw expression
+	 */
+	public String getAttributePath()
+	{
+		return attributePath;
+	}
+
 	/**
 	 * The applicable operand to apply
 	 *
@@ -0,0 +1,334 @@
+package com.entityassist.querybuilder.results;
+
+import com.entityassist.EntityAssistException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A compact, column-oriented (struct-of-arrays) result set for scalar projections.
+ * <p>
+ * Numeric columns are stored as primitive {@code long[]} or {@code double[]} arrays, with an optional
+ * {@link BitSet} tracking which rows were {@code null}. Non-numeric columns fall back to an
+ * {@code Object[]}. The batch is filled once from the result rows, after which the row list can be
+ * released - the retained heap is one primitive slot per row instead of one boxed object per value.
+ */
+@SuppressWarnings("unused")
+public final class ColumnBatch
+{
+    /**
+     * The storage type of a single column.
+     */
+    public enum ColumnType
+    {
+        /**
+         * Integral values held in a {@code long[]}
+         */
+        LONG,
+        /**
+         * Floating point values held in a {@code double[]}
+         */
+        DOUBLE,
+        /**
+         * Any other value held in an {@code Object[]}
+         */
+        OBJECT;
+
+        /**
+         * Resolves the storage type for a given Java type.
+         *
+         * @param type The Java type of the column
+         * @return LONG for integral numbers, DOUBLE for floating numbers, otherwise OBJECT - {@link BigInteger} and
+         * {@link BigDecimal} stay boxed as they do not fit a primitive without overflow or rounding
+         */
+        public static ColumnType forJavaType(Class<?> type)
+        {
+            if (type == null)
+            {
+                return OBJECT;
+            }
+            if (type == long.class || type == int.class || type == short.class || type == byte.class
+                || Long.class.equals(type) || Integer.class.equals(type) || Short.class.equals(type)
+                || Byte.class.equals(type))
+            {
+                return LONG;
+            }
+            if (type == double.class || type == float.class
+                || Double.class.equals(type) || Float.class.equals(type))
+            {
+                return DOUBLE;
+            }
+            return OBJECT;
+        }
+    }
+
+    private final String[] names;
+    private final ColumnType[] types;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int rowCount;
+
+    private ColumnBatch(String[] names, ColumnType[] types, Object[] columns, BitSet[] nulls, int rowCount)
+    {
+        this.names = names;
+        this.types = types;
+        this.columns = columns;
+        this.nulls = nulls;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Builds a column batch from query result rows.
+     * <p>
+     * A single-column projection produces one value per row, a multi-column projection produces an
+     * {@code Object[]} per row - both shapes are accepted.
+     *
+     * @param rows  The result rows
+     * @param names The column names, in selection order
+     * @param types The storage type for each column
+     * @return A filled column batch
+     */
+    public static ColumnBatch from(List<?> rows, String[] names, ColumnType[] types)
+    {
+        if (names.length != types.length)
+        {
+            throw new EntityAssistException("Column names and column types must be the same length");
+        }
+        int columnCount = names.length;
+        int rowCount = rows.size();
+        Object[] columns = new Object[columnCount];
+        BitSet[] nulls = new BitSet[columnCount];
+        for (int c = 0; c < columnCount; c++)
+        {
+            columns[c] = switch (types[c])
+            {
+                case LONG -> new long[rowCount];
+                case DOUBLE -> new double[rowCount];
+                case OBJECT -> new Object[rowCount];
+            };
+        }
+
+        int r = 0;
+        for (Object row : rows)
+        {
+            for (int c = 0; c < columnCount; c++)
+            {
+                Object value = columnCount == 1 ? row : ((Object[]) row)[c];
+                if (value == null)
+                {
+                    if (nulls[c] == null)
+                    {
+                        nulls[c] = new BitSet(rowCount);
+                    }
+                    nulls[c].set(r);
+                    continue;
+                }
+                switch (types[c])
+                {
+                    case LONG -> ((long[]) columns[c])[r] = toLong(names[c], toNumber(names[c], value));
+                    case DOUBLE -> ((double[]) columns[c])[r] = toNumber(names[c], value).doubleValue();
+                    case OBJECT -> ((Object[]) columns[c])[r] = value;
+                }
+            }
+            r++;
+        }
+        return new ColumnBatch(names.clone(), types.clone(), columns, nulls, rowCount);
+    }
+
+    /**
+     * Converts an integral value to a long, rejecting values a {@code long[]} column cannot hold exactly.
+     *
+     * @param column The column name
+     * @param value  The value
+     * @return The exact long value
+     */
+    private static long toLong(String column, Number value)
+    {
+        try
+        {
+            if (value instanceof BigInteger big)
+            {
+                return big.longValueExact();
+            }
+            if (value instanceof BigDecimal big)
+            {
+                return big.longValueExact();
+            }
+        }
+        catch (ArithmeticException e)
+        {
+            throw new EntityAssistException("Column [" + column + "] value " + value + " does not fit a long column", e);
+        }
+        return value.longValue();
+    }
+
+    private static Number toNumber(String column, Object value)
+    {
+        if (value instanceof Number number)
+        {
+            return number;
+        }
+        throw new EntityAssistException("Column [" + column + "] returned a non-numeric value of type " + value.getClass()
+                                                                                                          .getName());
+    }
+
+    /**
+     * Returns the number of rows in this batch.
+     *
+     * @return The row count
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of columns in this batch.
+     *
+     * @return The column count
+     */
+    public int getColumnCount()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of the given column.
+     *
+     * @param column The column index
+     * @return The column name
+     */
+    public String getColumnName(int column)
+    {
+        return names[column];
+    }
+
+    /**
+     * Returns the storage type of the given column.
+     *
+     * @param column The column index
+     * @return The column type
+     */
+    public ColumnType getColumnType(int column)
+    {
+        return types[column];
+    }
+
+    /**
+     * Returns the index of the named column.
+     *
+     * @param name The column name
+     * @return The column index
+     */
+    public int indexOf(String name)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equals(name))
+            {
+                return i;
+            }
+        }
+        throw new EntityAssistException("No column named [" + name + "] in this batch");
+    }
+
+    /**
+     * Returns the backing {@code long[]} of an integral column. Null rows hold {@code 0}.
+     *
+     * @param column The column index
+     * @return The column values
+     */
+    public long[] getLongs(int column)
+    {
+        return (long[]) typed(column, ColumnType.LONG);
+    }
+
+    /**
+     * Returns the backing {@code long[]} of an integral column. Null rows hold {@code 0}.
+     *
+     * @param name The column name
+     * @return The column values
+     */
+    public long[] getLongs(String name)
+    {
+        return getLongs(indexOf(name));
+    }
+
+    /**
+     * Returns the backing {@code double[]} of a floating point column. Null rows hold {@code 0}.
+     *
+     * @param column The column index
+     * @return The column values
+     */
+    public double[] getDoubles(int column)
+    {
+        return (double[]) typed(column, ColumnType.DOUBLE);
+    }
+
+    /**
+     * Returns the backing {@code double[]} of a floating point column. Null rows hold {@code 0}.
+     *
+     * @param name The column name
+     * @return The column values
+     */
+    public double[] getDoubles(String name)
+    {
+        return getDoubles(indexOf(name));
+    }
+
+    /**
+     * Returns the backing {@code Object[]} of a non-numeric column.
+     *
+     * @param column The column index
+     * @return The column values
+     */
+    public Object[] getObjects(int column)
+    {
+        return (Object[]) typed(column, ColumnType.OBJECT);
+    }
+
+    /**
+     * Returns the backing {@code Object[]} of a non-numeric column.
+     *
+     * @param name The column name
+     * @return The column values
+     */
+    public Object[] getObjects(String name)
+    {
+        return getObjects(indexOf(name));
+    }
+
+    /**
+     * Returns whether the value at the given position was {@code null} in the result.
+     *
+     * @param column The column index
+     * @param row    The row index
+     * @return true when the database returned null
+     */
+    public boolean isNull(int column, int row)
+    {
+        return nulls[column] != null && nulls[column].get(row);
+    }
+
+    /**
+     * Returns whether the given column contains any {@code null} values.
+     *
+     * @param column The column index
+     * @return true when at least one row was null
+     */
+    public boolean hasNulls(int column)
+    {
+        return nulls[column] != null && !nulls[column].isEmpty();
+    }
+
+    private Object typed(int column, ColumnType expected)
+    {
+        if (types[column] != expected)
+        {
+            throw new EntityAssistException("Column [" + names[column] + "] is stored as " + types[column] + ", not " + expected);
+        }
+        return columns[column];
+    }
+}
@@ -0,0 +1,13 @@
+package com.entityassist.querybuilder.results;
+
+/**
+ * A row of a recursive hierarchy traversal with its position in the tree.
+ *
+ * @param entity The entity
+ * @param level  The distance from the anchor the row was reached from, anchors are level 0
+ * @param path   The identifiers from the anchor down to the entity, as {@code /anchor/.../id/}
+ * @param <E>    The entity type
+ */
+public record HierarchyNode<E>(E entity, int level, String path)
+{
+}
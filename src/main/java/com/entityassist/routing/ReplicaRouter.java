@@ -0,0 +1,358 @@
+package com.entityassist.routing;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.enumerations.ReplicaConsistency;
+import com.entityassist.enumerations.ReplicaSelection;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.guicedee.client.IGuiceContext;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Static registry of the read replicas that read-only builders are routed to.
+ * <p>
+ * No replica is registered by default, so every query runs on the session handed to the builder. Once replicas
+ * are registered with {@link #register(String)}, terminal reads of builders marked {@code setReadOnly(true)} - or
+ * explicitly {@code onReplica()} - run on a stateless session of a replica picked by the {@link ReplicaSelection}.
+ * Writes through the builders mark their session; later reads of that session follow the
+ * {@link ReplicaConsistency} so a request always reads its own writes.
+ */
+public final class ReplicaRouter
+{
+    /**
+     * Reads the WAL position of the primary after the session's writes
+     */
+    public static final String PRIMARY_POSITION_QUERY = "select cast(pg_current_wal_lsn() as text)";
+    /**
+     * Checks whether a replica replayed a WAL position, always true on a server that is not a standby
+     */
+    public static final String REPLAYED_QUERY = "select coalesce(pg_last_wal_replay_lsn() >= cast(?1 as pg_lsn), true)";
+
+    private static final List<Replica> replicas = new CopyOnWriteArrayList<>();
+    private static final Map<Object, Boolean> writtenSessions = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+    private static final LongAdder primaryFallbacks = new LongAdder();
+    private static volatile ReplicaSelection selection = ReplicaSelection.RoundRobin;
+    private static volatile ReplicaConsistency consistency = ReplicaConsistency.Primary;
+    private static volatile Duration maximumReplayWait = Duration.ofMillis(500);
+    private static volatile Duration replayPollInterval = Duration.ofMillis(20);
+
+    private ReplicaRouter()
+    {
+        // utility class
+    }
+
+    /**
+     * Registers the session factory bound to a named persistence unit as a read replica.
+     *
+     * @param persistenceUnit The persistence unit name of the replica
+     * @return The registered replica
+     */
+    public static Replica register(String persistenceUnit)
+    {
+        return register(persistenceUnit, IGuiceContext.get(Key.get(Mutiny.SessionFactory.class, Names.named(persistenceUnit))));
+    }
+
+    /**
+     * Registers a session factory as a read replica.
+     *
+     * @param name           The name reported in the replica statistics
+     * @param sessionFactory The session factory connected to the replica
+     * @return The registered replica
+     */
+    public static Replica register(String name, Mutiny.SessionFactory sessionFactory)
+    {
+        Replica replica = new Replica(Objects.requireNonNull(name, "name may not be null"),
+                                      Objects.requireNonNull(sessionFactory, "sessionFactory may not be null"));
+        replicas.add(replica);
+        return replica;
+    }
+
+    /**
+     * Removes every registered replica, routing all reads to the primary again.
+     */
+    public static void clear()
+    {
+        replicas.clear();
+    }
+
+    /**
+     * Returns whether any replica is registered.
+     *
+     * @return true when reads may be routed
+     */
+    public static boolean isEnabled()
+    {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Returns the registered replicas with their statistics.
+     *
+     * @return The replicas, in registration order
+     */
+    public static List<Replica> getReplicas()
+    {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * Sets how a replica is picked.
+     *
+     * @param selection The selection, {@link ReplicaSelection#RoundRobin} by default
+     */
+    public static void setSelection(ReplicaSelection selection)
+    {
+        ReplicaRouter.selection = Objects.requireNonNull(selection, "selection may not be null");
+    }
+
+    /**
+     * Returns how a replica is picked.
+     *
+     * @return The selection
+     */
+    public static ReplicaSelection getSelection()
+    {
+        return selection;
+    }
+
+    /**
+     * Sets how reads of a session that wrote are kept consistent.
+     *
+     * @param consistency The consistency, {@link ReplicaConsistency#Primary} by default
+     */
+    public static void setConsistency(ReplicaConsistency consistency)
+    {
+        ReplicaRouter.consistency = Objects.requireNonNull(consistency, "consistency may not be null");
+    }
+
+    /**
+     * Returns how reads of a session that wrote are kept consistent.
+     *
+     * @return The consistency
+     */
+    public static ReplicaConsistency getConsistency()
+    {
+        return consistency;
+    }
+
+    /**
+     * Sets how long {@link ReplicaConsistency#AwaitReplay} waits for a replica to catch up, and how often it checks.
+     *
+     * @param maximumWait  The longest wait before falling back to the primary
+     * @param pollInterval The pause between checks
+     */
+    public static void setReplayWait(Duration maximumWait, Duration pollInterval)
+    {
+        if (maximumWait == null || maximumWait.isNegative() || pollInterval == null || pollInterval.isNegative() || pollInterval.isZero())
+        {
+            throw new EntityAssistException("Replay wait must not be negative and the poll interval must be positive");
+        }
+        ReplicaRouter.maximumReplayWait = maximumWait;
+        ReplicaRouter.replayPollInterval = pollInterval;
+    }
+
+    /**
+     * Picks the replica for the next routed read.
+     *
+     * @return The replica, null when none is registered
+     */
+    public static Replica select()
+    {
+        List<Replica> available = replicas;
+        if (available.isEmpty())
+        {
+            return null;
+        }
+        if (selection == ReplicaSelection.LeastLoaded)
+        {
+            Replica least = null;
+            for (Replica replica : available)
+            {
+                if (least == null || replica.inFlight.get() < least.inFlight.get())
+                {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+        return available.get(Math.floorMod(nextReplica.getAndIncrement(), available.size()));
+    }
+
+    /**
+     * Marks a session as having written, so its later reads follow the {@link ReplicaConsistency}.
+     *
+     * @param session The primary session that wrote
+     */
+    public static void recordWrite(Object session)
+    {
+        if (session != null && isEnabled())
+        {
+            writtenSessions.put(session, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns whether writes were made through the session.
+     *
+     * @param session The primary session
+     * @return true after {@link #recordWrite(Object)}
+     */
+    public static boolean hasWritten(Object session)
+    {
+        return session != null && writtenSessions.containsKey(session);
+    }
+
+    /**
+     * Records that a routed read was served by the primary to keep read-your-writes consistency.
+     */
+    public static void recordPrimaryFallback()
+    {
+        primaryFallbacks.increment();
+    }
+
+    /**
+     * Returns the number of routed reads served by the primary to keep read-your-writes consistency.
+     *
+     * @return The fallback count
+     */
+    public static long getPrimaryFallbacks()
+    {
+        return primaryFallbacks.sum();
+    }
+
+    /**
+     * Waits until the replica replayed the given WAL position of the primary.
+     *
+     * @param replica  A session on the replica
+     * @param position The primary WAL position, as read by {@link #PRIMARY_POSITION_QUERY}
+     * @return Uni with true when the replica caught up within the maximum wait
+     */
+    public static Uni<Boolean> awaitReplay(Mutiny.StatelessSession replica, String position)
+    {
+        return pollReplay(replica, position, System.nanoTime() + maximumReplayWait.toNanos());
+    }
+
+    private static Uni<Boolean> pollReplay(Mutiny.StatelessSession replica, String position, long deadline)
+    {
+        return replica.createNativeQuery(REPLAYED_QUERY, Boolean.class)
+                      .setParameter(1, position)
+                      .getSingleResult()
+                      .chain(caughtUp -> caughtUp || System.nanoTime() - deadline >= 0
+                                         ? Uni.createFrom()
+                                              .item(caughtUp)
+                                         : pause(replayPollInterval).chain(() -> pollReplay(replica, position, deadline)));
+    }
+
+    /**
+     * Completes after the given time, on the caller's Vert.x context when there is one.
+     *
+     * @param duration The pause
+     * @return Uni completing after the pause
+     */
+    private static Uni<Void> pause(Duration duration)
+    {
+        Context context = Vertx.currentContext();
+        if (context == null)
+        {
+            return Uni.createFrom()
+                      .voidItem()
+                      .onItem()
+                      .delayIt()
+                      .by(duration);
+        }
+        return Uni.createFrom()
+                  .emitter(emitter -> context.owner()
+                                             .setTimer(Math.max(1, duration.toMillis()), id -> emitter.complete(null)));
+    }
+
+    /**
+     * A registered read replica with its load statistics
+     */
+    public static final class Replica
+    {
+        private final String name;
+        private final Mutiny.SessionFactory sessionFactory;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder executions = new LongAdder();
+
+        private Replica(String name, Mutiny.SessionFactory sessionFactory)
+        {
+            this.name = name;
+            this.sessionFactory = sessionFactory;
+        }
+
+        /**
+         * Runs a read on a new stateless session of this replica, counting it as in flight until it terminates.
+         *
+         * @param work The read
+         * @param <T>  The result type
+         * @return Uni with the result of the read
+         */
+        public <T> Uni<T> withSession(Function<Mutiny.StatelessSession, Uni<T>> work)
+        {
+            return Uni.createFrom()
+                      .deferred(() -> {
+                          inFlight.incrementAndGet();
+                          executions.increment();
+                          return sessionFactory.withStatelessSession(work)
+                                               .onTermination()
+                                               .invoke(inFlight::decrementAndGet);
+                      });
+        }
+
+        /**
+         * Returns the replica name.
+         *
+         * @return The name
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the session factory connected to the replica.
+         *
+         * @return The session factory
+         */
+        public Mutiny.SessionFactory getSessionFactory()
+        {
+            return sessionFactory;
+        }
+
+        /**
+         * Returns the number of reads currently running on the replica.
+         *
+         * @return The in-flight count
+         */
+        public int getInFlight()
+        {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns the number of reads routed to the replica.
+         *
+         * @return The execution count
+         */
+        public long getExecutions()
+        {
+            return executions.sum();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.entityassist.routing;
+
+import java.util.List;
+
+/**
+ * Maps entities and shard keys to the persistence units holding them.
+ * <p>
+ * Register an implementation with {@link ShardRouting#setRouter(ShardRouter)}. Builders of a sharded entity run a
+ * query with a shard key - set through {@code shardKey(key)} or an equals filter on the shard key attribute - on
+ * the routed persistence unit only, and scatter every other query across all shards, merging the results.
+ */
+public interface ShardRouter
+{
+    /**
+     * Returns the attribute holding the shard key of an entity type.
+     *
+     * @param entityClass The entity type
+     * @return The attribute name, or null when the entity type is not sharded
+     */
+    String getShardKeyAttribute(Class<?> entityClass);
+
+    /**
+     * Returns the persistence unit holding the rows of a shard key.
+     *
+     * @param entityClass The entity type
+     * @param shardKey    The shard key, for example the tenant identifier
+     * @return The persistence unit name
+     */
+    String route(Class<?> entityClass, Object shardKey);
+
+    /**
+     * Returns every persistence unit holding rows of an entity type, queried by scatter-gather.
+     *
+     * @param entityClass The entity type
+     * @return The persistence unit names
+     */
+    List<String> getShards(Class<?> entityClass);
+}
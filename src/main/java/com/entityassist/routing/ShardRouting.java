@@ -0,0 +1,153 @@
+package com.entityassist.routing;
+
+import com.entityassist.EntityAssistException;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.guicedee.client.IGuiceContext;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static registry of the active {@link ShardRouter} and the session factories of its persistence units.
+ * <p>
+ * No router is registered by default, so every query runs on the session handed to the builder. Session factories
+ * are resolved from Guice by persistence unit name on first use, or registered explicitly with
+ * {@link #registerSessionFactory(String, Mutiny.SessionFactory)}. Use {@link #getSessionFactory(Class, Object)} to
+ * open the session for writes of a shard key.
+ */
+public final class ShardRouting
+{
+    private static final Map<String, Mutiny.SessionFactory> sessionFactories = new ConcurrentHashMap<>();
+    private static final LongAdder targeted = new LongAdder();
+    private static final LongAdder scattered = new LongAdder();
+    private static volatile ShardRouter router;
+
+    private ShardRouting()
+    {
+        // utility class
+    }
+
+    /**
+     * Registers the shard router.
+     *
+     * @param router The router, null to stop routing
+     */
+    public static void setRouter(ShardRouter router)
+    {
+        ShardRouting.router = router;
+    }
+
+    /**
+     * Returns the shard router.
+     *
+     * @return The router, null when none is registered
+     */
+    public static ShardRouter getRouter()
+    {
+        return router;
+    }
+
+    /**
+     * Returns the shard key attribute of an entity type.
+     *
+     * @param entityClass The entity type
+     * @return The attribute name, null when no router is registered or the type is not sharded
+     */
+    public static String getShardKeyAttribute(Class<?> entityClass)
+    {
+        ShardRouter active = router;
+        return active == null ? null : active.getShardKeyAttribute(entityClass);
+    }
+
+    /**
+     * Returns whether queries on an entity type are routed across shards.
+     *
+     * @param entityClass The entity type
+     * @return true when the router shards the type
+     */
+    public static boolean isSharded(Class<?> entityClass)
+    {
+        return getShardKeyAttribute(entityClass) != null;
+    }
+
+    /**
+     * Registers the session factory of a persistence unit, instead of resolving it from Guice.
+     *
+     * @param persistenceUnit The persistence unit name
+     * @param sessionFactory  The session factory
+     */
+    public static void registerSessionFactory(String persistenceUnit, Mutiny.SessionFactory sessionFactory)
+    {
+        sessionFactories.put(Objects.requireNonNull(persistenceUnit, "persistenceUnit may not be null"),
+                             Objects.requireNonNull(sessionFactory, "sessionFactory may not be null"));
+    }
+
+    /**
+     * Returns the session factory of a persistence unit.
+     *
+     * @param persistenceUnit The persistence unit name
+     * @return The session factory
+     */
+    public static Mutiny.SessionFactory getSessionFactory(String persistenceUnit)
+    {
+        return sessionFactories.computeIfAbsent(persistenceUnit,
+                                                unit -> IGuiceContext.get(Key.get(Mutiny.SessionFactory.class, Names.named(unit))));
+    }
+
+    /**
+     * Returns the session factory holding the rows of a shard key.
+     *
+     * @param entityClass The entity type
+     * @param shardKey    The shard key
+     * @return The session factory of the routed persistence unit
+     */
+    public static Mutiny.SessionFactory getSessionFactory(Class<?> entityClass, Object shardKey)
+    {
+        ShardRouter active = router;
+        if (active == null)
+        {
+            throw new EntityAssistException("No shard router is registered");
+        }
+        return getSessionFactory(active.route(entityClass, shardKey));
+    }
+
+    /**
+     * Records a query routed to a single shard.
+     */
+    public static void recordTargeted()
+    {
+        targeted.increment();
+    }
+
+    /**
+     * Records a query scattered across all shards.
+     */
+    public static void recordScattered()
+    {
+        scattered.increment();
+    }
+
+    /**
+     * Returns the number of queries routed to a single shard.
+     *
+     * @return The targeted query count
+     */
+    public static long getTargeted()
+    {
+        return targeted.sum();
+    }
+
+    /**
+     * Returns the number of queries scattered across all shards.
+     *
+     * @return The scattered query count
+     */
+    public static long getScattered()
+    {
+        return scattered.sum();
+    }
+}
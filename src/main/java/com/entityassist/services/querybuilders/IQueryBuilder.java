@@ -1,11 +1,14 @@
 package com.entityassist.services.querybuilders;
 
+import com.entityassist.querybuilder.results.ColumnBatch;
 import com.entityassist.services.entities.IBaseEntity;
 import io.smallrye.mutiny.Uni;
+import jakarta.persistence.metamodel.Attribute;
 import org.hibernate.reactive.mutiny.Mutiny;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Execution-focused SPI for query builders.
@@ -127,6 +130,76 @@ public interface IQueryBuilder<J extends IQueryBuilder<J, E, I>,
 
     <T> Uni<List<T>> getAll(Class<T> returnClassType);
 
+    /**
+     * Projects a single integral column and returns it as a primitive array
+     *
+     * @param attribute The numeric column to project
+     * @return The column values in result order, nulls as 0
+     */
+    Uni<long[]> getLongColumn(Attribute<?, ? extends Number> attribute);
+
+    /**
+     * Projects a single numeric column and returns it as a primitive array
+     *
+     * @param attribute The numeric column to project
+     * @return The column values in result order, nulls as 0
+     */
+    Uni<double[]> getDoubleColumn(Attribute<?, ? extends Number> attribute);
+
+    /**
+     * Projects the given columns and returns them in struct-of-arrays form
+     *
+     * @param attributes The columns to project, in order
+     * @return A column batch holding one array per attribute
+     */
+    Uni<ColumnBatch> getColumns(Attribute<?, ?>... attributes);
+
+    /**
+     * Projects only the identifier column of the matching rows
+     *
+     * @return A single-column batch of identifiers
+     */
+    Uni<ColumnBatch> getIds();
+
+    /**
+     * Counts the matching rows per distinct value of the given column
+     *
+     * @param groupAttribute The column to group by
+     * @param <K>            The group key type
+     * @return The row count per group key
+     */
+    <K> Uni<Map<K, Long>> countBy(Attribute<?, K> groupAttribute);
+
+    /**
+     * Sums a numeric column per distinct value of the group column
+     *
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The numeric column to sum
+     * @param <K>            The group key type
+     * @return The sum per group key
+     */
+    <K> Uni<Map<K, Double>> sumBy(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute);
+
+    /**
+     * Sums an integral column per distinct value of the group column
+     *
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The integral column to sum
+     * @param <K>            The group key type
+     * @return The sum per group key
+     */
+    <K> Uni<Map<K, Long>> sumByAsLong(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute);
+
+    /**
+     * Averages a numeric column per distinct value of the group column
+     *
+     * @param groupAttribute The column to group by
+     * @param valueAttribute The numeric column to average
+     * @param <K>            The group key type
+     * @return The average per group key
+     */
+    <K> Uni<Map<K, Double>> averageBy(Attribute<?, K> groupAttribute, Attribute<?, ? extends Number> valueAttribute);
+
     /**
      * Returns the number of rows affected by the delete.
      * <p>
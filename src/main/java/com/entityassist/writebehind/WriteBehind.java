@@ -0,0 +1,191 @@
+package com.entityassist.writebehind;
+
+import com.entityassist.RootEntity;
+import com.guicedee.client.IGuiceContext;
+import io.smallrye.mutiny.Uni;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Static registry of the write-behind buffers, one per entity type.
+ * <p>
+ * No entity type is buffered by default. Once {@link #enable(Class, int, int, Duration)} is called for a type,
+ * {@code persist()} on its builders runs {@code onCreate} and the pre-persist callbacks, queues the entity and
+ * returns without a round trip - the entity is inserted later by a batch through a stateless session. Buffered
+ * entities are not visible to queries until they are flushed and are lost if the process dies first, so only
+ * enable it for append-only, high-rate types such as telemetry. Buffers are flushed in registration order on
+ * shutdown by {@link WriteBehindShutdown}.
+ */
+@Log4j2
+public final class WriteBehind
+{
+    private static final Map<Class<?>, WriteBehindBuffer<?>> buffers = new ConcurrentHashMap<>();
+    private static final CopyOnWriteArrayList<Class<?>> registrationOrder = new CopyOnWriteArrayList<>();
+    private static volatile Mutiny.SessionFactory sessionFactory;
+
+    private WriteBehind()
+    {
+        // utility class
+    }
+
+    /**
+     * Buffers the persists of an entity type, replacing any previous buffer after flushing it.
+     *
+     * @param entityClass   The entity type
+     * @param capacity      The maximum number of queued entities before callers wait for room
+     * @param batchSize     The number of entities inserted per statement batch, a full batch is flushed straight away
+     * @param flushInterval The longest an entity waits before it is flushed
+     * @param <E>           The entity type
+     * @return The started buffer
+     */
+    public static <E extends RootEntity<E, ?, ?>> WriteBehindBuffer<E> enable(Class<E> entityClass, int capacity, int batchSize, Duration flushInterval)
+    {
+        WriteBehindBuffer<E> buffer = new WriteBehindBuffer<>(entityClass, capacity, batchSize, flushInterval, WriteBehind::getSessionFactory);
+        WriteBehindBuffer<?> previous = buffers.put(entityClass, buffer);
+        registrationOrder.addIfAbsent(entityClass);
+        if (previous != null)
+        {
+            previous.stop();
+            previous.flushAll()
+                    .subscribe()
+                    .with(done -> {
+                    }, failure -> log.error("Flushing the replaced write-behind buffer of {} failed", entityClass.getName(), failure));
+        }
+        buffer.start();
+        return buffer;
+    }
+
+    /**
+     * Stops buffering an entity type, flushing what is queued.
+     *
+     * @param entityClass The entity type
+     * @return Uni completing once the queued entities are flushed
+     */
+    public static Uni<Void> disable(Class<?> entityClass)
+    {
+        WriteBehindBuffer<?> buffer = buffers.remove(entityClass);
+        registrationOrder.remove(entityClass);
+        if (buffer == null)
+        {
+            return Uni.createFrom()
+                      .voidItem();
+        }
+        buffer.stop();
+        return buffer.flushAll();
+    }
+
+    /**
+     * Returns whether the persists of an entity type are buffered.
+     *
+     * @param entityClass The entity type
+     * @return true when enabled
+     */
+    public static boolean isEnabled(Class<?> entityClass)
+    {
+        return buffers.containsKey(entityClass);
+    }
+
+    /**
+     * Returns the buffer of an entity type.
+     *
+     * @param entityClass The entity type
+     * @param <E>         The entity type
+     * @return The buffer, null when the type is not buffered
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends RootEntity<E, ?, ?>> WriteBehindBuffer<E> getBuffer(Class<E> entityClass)
+    {
+        return (WriteBehindBuffer<E>) buffers.get(entityClass);
+    }
+
+    /**
+     * Returns the active buffers.
+     *
+     * @return The buffers in registration order
+     */
+    public static List<WriteBehindBuffer<?>> getBuffers()
+    {
+        List<WriteBehindBuffer<?>> active = new ArrayList<>();
+        for (Class<?> entityClass : registrationOrder)
+        {
+            WriteBehindBuffer<?> buffer = buffers.get(entityClass);
+            if (buffer != null)
+            {
+                active.add(buffer);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Flushes every buffer, one after the other in registration order.
+     *
+     * @return Uni completing once every buffer is drained
+     */
+    public static Uni<Void> flushAll()
+    {
+        Uni<Void> flushed = Uni.createFrom()
+                               .voidItem();
+        for (WriteBehindBuffer<?> buffer : getBuffers())
+        {
+            flushed = flushed.chain(buffer::flushAll);
+        }
+        return flushed;
+    }
+
+    /**
+     * Stops the periodic flushes and drains every buffer, waiting at most the given time.
+     *
+     * @param timeout The longest to wait for the buffers to drain
+     */
+    public static void shutdown(Duration timeout)
+    {
+        List<WriteBehindBuffer<?>> draining = getBuffers();
+        draining.forEach(WriteBehindBuffer::stop);
+        for (WriteBehindBuffer<?> buffer : draining)
+        {
+            try
+            {
+                buffer.flushAll()
+                      .await()
+                      .atMost(timeout);
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Write-behind buffer of {} was not drained on shutdown, {} entities are lost", buffer.getEntityClass()
+                                                                                                              .getName(),
+                          buffer.getQueueDepth() + buffer.getWaiting(), e);
+            }
+        }
+        buffers.clear();
+        registrationOrder.clear();
+    }
+
+    /**
+     * Sets the session factory the buffers insert through.
+     *
+     * @param sessionFactory The session factory, null for the default session factory from Guice
+     */
+    public static void setSessionFactory(Mutiny.SessionFactory sessionFactory)
+    {
+        WriteBehind.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Returns the session factory the buffers insert through.
+     *
+     * @return The configured session factory, or the default one from Guice
+     */
+    public static Mutiny.SessionFactory getSessionFactory()
+    {
+        Mutiny.SessionFactory configured = sessionFactory;
+        return configured != null ? configured : IGuiceContext.get(Mutiny.SessionFactory.class);
+    }
+}
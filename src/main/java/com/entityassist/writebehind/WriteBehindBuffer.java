@@ -0,0 +1,483 @@
+package com.entityassist.writebehind;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.RootEntity;
+import com.entityassist.cache.QueryCaches;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded in-memory queue of entities of one type, inserted in batches through a stateless session.
+ * <p>
+ * {@link #enqueue(RootEntity)} completes as soon as the entity is queued. When the queue is full the caller's Uni
+ * completes only once a flush made room, which pushes back on producers instead of growing the heap. At most
+ * {@code capacity} callers wait for room, further callers fail straight away. The queue is flushed in insertion
+ * order whenever it holds a full batch and on every flush interval, one batch at a time. A batch that fails is
+ * retried on the following flushes; after {@link #MAXIMUM_ATTEMPTS} attempts its entities are inserted one at a
+ * time and only the entities that fail on their own are dropped.
+ *
+ * @param <E> The entity type
+ */
+@Log4j2
+public final class WriteBehindBuffer<E extends RootEntity<E, ?, ?>>
+{
+    /**
+     * The number of times a failing batch is inserted before its entities are inserted one at a time
+     */
+    public static final int MAXIMUM_ATTEMPTS = 3;
+
+    private final Class<E> entityClass;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Supplier<Mutiny.SessionFactory> sessionFactory;
+
+    private final Deque<E> queue = new ArrayDeque<>();
+    private final Deque<Waiting<E>> waiting = new ArrayDeque<>();
+    private List<E> failedBatch;
+    private int failedAttempts;
+    private Uni<Void> running;
+    private Cancellable ticker;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maximumFlushNanos = new AtomicLong();
+
+    /**
+     * Creates a buffer, started with {@link #start()}.
+     *
+     * @param entityClass    The entity type
+     * @param capacity       The maximum number of queued entities
+     * @param batchSize      The number of entities inserted per statement batch
+     * @param flushInterval  The longest an entity waits before it is flushed
+     * @param sessionFactory Supplies the session factory the batches are inserted through
+     */
+    WriteBehindBuffer(Class<E> entityClass, int capacity, int batchSize, Duration flushInterval, Supplier<Mutiny.SessionFactory> sessionFactory)
+    {
+        if (capacity < 1 || batchSize < 1 || flushInterval == null || flushInterval.isNegative() || flushInterval.isZero())
+        {
+            throw new EntityAssistException("Write-behind capacity, batch size and flush interval must be positive");
+        }
+        this.entityClass = entityClass;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Starts the periodic flush.
+     */
+    synchronized void start()
+    {
+        if (ticker == null)
+        {
+            ticker = Multi.createFrom()
+                          .ticks()
+                          .every(flushInterval)
+                          .onOverflow()
+                          .drop()
+                          .subscribe()
+                          .with(tick -> flush().subscribe()
+                                               .with(done -> {
+                                               }, failure -> log.error("Write-behind flush of {} failed", entityClass.getName(), failure)));
+        }
+    }
+
+    /**
+     * Stops the periodic flush, queued entities stay queued until {@link #flushAll()}.
+     */
+    synchronized void stop()
+    {
+        if (ticker != null)
+        {
+            ticker.cancel();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Queues an entity for insertion.
+     *
+     * @param entity The entity, with its identifier and pre-persist state already applied
+     * @return Uni with the entity, completing once it is queued, or failing when the queue is full and as many
+     *         callers as it holds are already waiting
+     */
+    public Uni<E> enqueue(E entity)
+    {
+        return Uni.createFrom()
+                  .emitter(emitter -> {
+                      boolean full;
+                      boolean overflowing = false;
+                      synchronized (this)
+                      {
+                          full = queue.size() >= capacity;
+                          if (full && waiting.size() >= capacity)
+                          {
+                              overflowing = true;
+                          }
+                          else if (full)
+                          {
+                              waiting.addLast(new Waiting<>(entity, emitter));
+                          }
+                          else
+                          {
+                              queue.addLast(entity);
+                          }
+                      }
+                      if (overflowing)
+                      {
+                          rejected.increment();
+                          emitter.fail(new EntityAssistException("Write-behind queue of " + entityClass.getName() + " is full and "
+                                                                 + capacity + " callers are already waiting for room"));
+                          return;
+                      }
+                      if (full)
+                      {
+                          backpressured.increment();
+                          flush().subscribe()
+                                 .with(done -> {
+                                 }, failure -> log.error("Write-behind flush of {} failed", entityClass.getName(), failure));
+                          return;
+                      }
+                      enqueued.increment();
+                      emitter.complete(entity);
+                      if (getQueueDepth() >= batchSize)
+                      {
+                          flush().subscribe()
+                                 .with(done -> {
+                                 }, failure -> log.error("Write-behind flush of {} failed", entityClass.getName(), failure));
+                      }
+                  });
+    }
+
+    /**
+     * Inserts the next batch, or joins the batch insert already running.
+     *
+     * @return Uni completing once the batch is written or kept for a retry
+     */
+    public Uni<Void> flush()
+    {
+        List<Waiting<E>> admitted = new ArrayList<>();
+        Uni<Void> flush;
+        synchronized (this)
+        {
+            if (running != null)
+            {
+                return running;
+            }
+            List<E> batch = failedBatch != null ? failedBatch : nextBatch(admitted);
+            if (batch.isEmpty())
+            {
+                return Uni.createFrom()
+                          .voidItem();
+            }
+            boolean isolated = failedBatch != null && failedAttempts >= MAXIMUM_ATTEMPTS;
+            long started = System.nanoTime();
+            flush = (isolated ? insertEach(batch) : insert(batch).replaceWith(batch))
+                    .onItemOrFailure()
+                    .transformToUni((written, failure) -> {
+                        recordLatency(System.nanoTime() - started);
+                        return completeFlush(batch, written, failure) ? flush() : Uni.createFrom()
+                                                                                     .voidItem();
+                    })
+                    .memoize()
+                    .indefinitely();
+            running = flush;
+        }
+        //the admitted callers continue downstream, never while holding the lock
+        admitted.forEach(next -> next.emitter()
+                                     .complete(next.entity()));
+        return flush;
+    }
+
+    /**
+     * Flushes until the queue and the entities waiting for room are written or dropped.
+     *
+     * @return Uni completing once the buffer is drained
+     */
+    public Uni<Void> flushAll()
+    {
+        return flush().chain(() -> isEmpty() ? Uni.createFrom()
+                                                  .voidItem() : flushAll());
+    }
+
+    /**
+     * Takes the next batch from the queue and admits waiting entities into the room it frees.
+     *
+     * @param admitted Receives the admitted callers, completed by the caller once the lock is released
+     * @return The batch, empty when nothing is queued
+     */
+    private List<E> nextBatch(List<Waiting<E>> admitted)
+    {
+        List<E> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (batch.size() < batchSize && !queue.isEmpty())
+        {
+            batch.add(queue.pollFirst());
+        }
+        while (queue.size() < capacity && !waiting.isEmpty())
+        {
+            Waiting<E> next = waiting.pollFirst();
+            queue.addLast(next.entity());
+            admitted.add(next);
+        }
+        enqueued.add(admitted.size());
+        return batch;
+    }
+
+    /**
+     * Inserts a batch with one statement batch in its own stateless transaction.
+     *
+     * @param batch The batch
+     * @return Uni completing once the batch is committed
+     */
+    private Uni<Void> insert(List<E> batch)
+    {
+        return sessionFactory.get()
+                             .withStatelessTransaction(session -> session.insertAll(batchSize, batch.toArray()));
+    }
+
+    /**
+     * Inserts the entities of a batch that failed every attempt one at a time, each in its own transaction, and drops
+     * the entities that fail on their own.
+     *
+     * @param batch The failed batch
+     * @return Uni with the written entities
+     */
+    private Uni<List<E>> insertEach(List<E> batch)
+    {
+        return Multi.createFrom()
+                    .iterable(batch)
+                    .onItem()
+                    .transformToUniAndConcatenate(entity -> insert(List.of(entity)).replaceWith(List.of(entity))
+                                                                                   .onFailure()
+                                                                                   .recoverWithItem(failure -> {
+                                                                                       log.error("Dropping {} entity after {} failed write-behind inserts",
+                                                                                                 entityClass.getName(), MAXIMUM_ATTEMPTS + 1, failure);
+                                                                                       dropped.increment();
+                                                                                       return List.of();
+                                                                                   }))
+                    .onItem()
+                    .<E>disjoint()
+                    .collect()
+                    .asList();
+    }
+
+    /**
+     * Records the outcome of a batch insert.
+     *
+     * @param batch   The inserted batch
+     * @param written The written entities of the batch, null when the batch failed
+     * @param failure The failure, null when the batch was written
+     * @return true when a full batch is queued, waiting callers remain or the failed batch is to be inserted one
+     *         entity at a time, and the next flush should run straight away
+     */
+    private boolean completeFlush(List<E> batch, List<E> written, Throwable failure)
+    {
+        if (failure == null)
+        {
+            for (E entity : written)
+            {
+                entity.setFake(false);
+                entity.clearChanges();
+            }
+            flushed.add(written.size());
+            QueryCaches.invalidate(entityClass);
+        }
+        else
+        {
+            failures.increment();
+            log.warn("Write-behind insert of {} {} entities failed", batch.size(), entityClass.getName(), failure);
+        }
+        synchronized (this)
+        {
+            running = null;
+            if (failure == null)
+            {
+                failedBatch = null;
+                failedAttempts = 0;
+                return queue.size() >= batchSize || !waiting.isEmpty();
+            }
+            failedBatch = batch;
+            //after the last attempt the entities are inserted one at a time, so one bad row does not drop the others
+            return ++failedAttempts >= MAXIMUM_ATTEMPTS;
+        }
+    }
+
+    private void recordLatency(long nanos)
+    {
+        flushes.increment();
+        flushNanos.add(nanos);
+        lastFlushNanos.set(nanos);
+        maximumFlushNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns if nothing is queued, waiting for room or waiting for a retry.
+     *
+     * @return true when the buffer is drained
+     */
+    public synchronized boolean isEmpty()
+    {
+        return queue.isEmpty() && waiting.isEmpty() && failedBatch == null && running == null;
+    }
+
+    /**
+     * Returns the buffered entity type.
+     *
+     * @return The entity class
+     */
+    public Class<E> getEntityClass()
+    {
+        return entityClass;
+    }
+
+    /**
+     * Returns the number of queued entities.
+     *
+     * @return The queue depth
+     */
+    public synchronized int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of callers waiting for room in the queue.
+     *
+     * @return The waiting caller count
+     */
+    public synchronized int getWaiting()
+    {
+        return waiting.size();
+    }
+
+    /**
+     * Returns the number of entities accepted into the queue.
+     *
+     * @return The enqueued count
+     */
+    public long getEnqueued()
+    {
+        return enqueued.sum();
+    }
+
+    /**
+     * Returns the number of entities inserted.
+     *
+     * @return The flushed count
+     */
+    public long getFlushed()
+    {
+        return flushed.sum();
+    }
+
+    /**
+     * Returns the number of batch inserts, successful or not.
+     *
+     * @return The flush count
+     */
+    public long getFlushes()
+    {
+        return flushes.sum();
+    }
+
+    /**
+     * Returns the number of failed batch inserts.
+     *
+     * @return The failure count
+     */
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of entities dropped after {@link #MAXIMUM_ATTEMPTS} failed batch inserts and a failed insert
+     * of their own.
+     *
+     * @return The dropped count
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of callers that had to wait for room in the queue.
+     *
+     * @return The backpressured caller count
+     */
+    public long getBackpressured()
+    {
+        return backpressured.sum();
+    }
+
+    /**
+     * Returns the number of callers failed because the queue was full and as many callers as it holds were waiting.
+     *
+     * @return The rejected caller count
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the duration of the last batch insert.
+     *
+     * @return The last flush latency
+     */
+    public Duration getLastFlushLatency()
+    {
+        return Duration.ofNanos(lastFlushNanos.get());
+    }
+
+    /**
+     * Returns the mean duration of the batch inserts.
+     *
+     * @return The mean flush latency, zero before the first flush
+     */
+    public Duration getMeanFlushLatency()
+    {
+        long count = flushes.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(flushNanos.sum() / count);
+    }
+
+    /**
+     * Returns the longest batch insert.
+     *
+     * @return The maximum flush latency
+     */
+    public Duration getMaximumFlushLatency()
+    {
+        return Duration.ofNanos(maximumFlushNanos.get());
+    }
+
+    /**
+     * A caller waiting for room in the queue
+     */
+    private record Waiting<E>(E entity, UniEmitter<? super E> emitter)
+    {
+    }
+}
@@ -0,0 +1,37 @@
+package com.entityassist.writebehind;
+
+import com.guicedee.client.services.lifecycle.IGuicePreDestroy;
+
+import java.time.Duration;
+
+/**
+ * Drains the write-behind buffers when the injector shuts down, before the persistence units are closed.
+ */
+public class WriteBehindShutdown implements IGuicePreDestroy<WriteBehindShutdown>
+{
+    /**
+     * The longest the shutdown waits for each buffer to drain
+     */
+    public static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Creates the shutdown hook, loaded through the service loader.
+     */
+    public WriteBehindShutdown()
+    {
+        //No configuration required
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        WriteBehind.shutdown(DRAIN_TIMEOUT);
+    }
+
+    @Override
+    public Integer sortOrder()
+    {
+        //before the persistence services stop
+        return Integer.MIN_VALUE + 100;
+    }
+}
@@ -8,6 +8,12 @@ module com.entityassist {
     exports com.entityassist.querybuilder;
     exports com.entityassist.exceptions;
     exports com.entityassist.querybuilder.builders;
+    exports com.entityassist.querybuilder.results;
+    exports com.entityassist.cache;
+    exports com.entityassist.routing;
+    exports com.entityassist.annotations;
+    exports com.entityassist.writebehind;
+    exports com.entityassist.identifiers;
 
     requires transitive com.guicedee.persistence;
 
@@ -20,7 +26,11 @@ module com.entityassist {
 
     requires transitive org.hibernate.reactive;
     requires io.smallrye.mutiny;
+    requires io.vertx.core;
     requires transitive org.hibernate.orm.core;
 
+    provides org.hibernate.boot.model.FunctionContributor with com.entityassist.querybuilder.builders.ArrayInFunctionContributor;
+    provides com.guicedee.client.services.lifecycle.IGuicePreDestroy with com.entityassist.writebehind.WriteBehindShutdown;
+
     opens com.entityassist to org.hibernate.orm.core, tools.jackson.databind, com.google.guice, org.hibernate.validator;
 }
@@ -0,0 +1,37 @@
+package com.test;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.querybuilder.results.ColumnBatch;
+import com.entityassist.querybuilder.results.ColumnBatch.ColumnType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnBatchTest
+{
+    @Test
+    void arbitraryPrecisionTypesStayBoxed()
+    {
+        assertEquals(ColumnType.LONG, ColumnType.forJavaType(Long.class));
+        assertEquals(ColumnType.DOUBLE, ColumnType.forJavaType(double.class));
+        assertEquals(ColumnType.OBJECT, ColumnType.forJavaType(BigInteger.class));
+        assertEquals(ColumnType.OBJECT, ColumnType.forJavaType(BigDecimal.class));
+    }
+
+    @Test
+    void longColumnsRejectValuesThatDoNotFit()
+    {
+        ColumnBatch batch = ColumnBatch.from(List.of(BigInteger.TEN, new BigDecimal("12.000")), new String[]{"amount"}, new ColumnType[]{ColumnType.LONG});
+        assertArrayEquals(new long[]{10, 12}, batch.getLongs(0));
+        assertThrows(EntityAssistException.class,
+                     () -> ColumnBatch.from(List.of(BigInteger.TWO.pow(64)), new String[]{"amount"}, new ColumnType[]{ColumnType.LONG}));
+        assertThrows(EntityAssistException.class,
+                     () -> ColumnBatch.from(List.of(new BigDecimal("1.5")), new String[]{"amount"}, new ColumnType[]{ColumnType.LONG}));
+    }
+}
@@ -0,0 +1,68 @@
+package com.test;
+
+import com.sun.management.ThreadMXBean;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the heap allocated per entity for construction and for the hydration bookkeeping of the builders.
+ */
+@Log4j2
+class EntityAllocationTest
+{
+    private static final int ENTITIES = 100_000;
+
+    private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Returns the bytes allocated per entity by the factory, keeping every entity reachable so none is scalar replaced.
+     */
+    private static double allocatedPerEntity(IntFunction<TaxonomyNode> factory)
+    {
+        TaxonomyNode[] retained = new TaxonomyNode[ENTITIES];
+        //warm up so the measured run is compiled
+        for (int round = 0; round < 3; round++)
+        {
+            for (int i = 0; i < ENTITIES; i++)
+            {
+                retained[i] = factory.apply(i);
+            }
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ENTITIES; i++)
+        {
+            retained[i] = factory.apply(i);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertFalse(retained[ENTITIES - 1] == null);
+        return (double) allocated / ENTITIES;
+    }
+
+    @Test
+    void constructionAndHydrationAllocateNoPropertyMap()
+    {
+        double constructed = allocatedPerEntity(i -> new TaxonomyNode());
+        double hydrated = allocatedPerEntity(i -> {
+            TaxonomyNode node = new TaxonomyNode();
+            node.setFake(false);
+            assertFalse(node.isFake());
+            return node;
+        });
+        double withProperties = allocatedPerEntity(i -> {
+            TaxonomyNode node = new TaxonomyNode();
+            node.getProperties();
+            return node;
+        });
+        log.info("Bytes per entity - constructed {}, hydrated {}, with property map {}", constructed, hydrated, withProperties);
+
+        //an empty HashMap alone is 48 bytes
+        assertTrue(hydrated < constructed + 8, "hydration allocates beyond the entity itself");
+        assertTrue(withProperties - constructed >= 40, "the measurement does not see the property map");
+    }
+}
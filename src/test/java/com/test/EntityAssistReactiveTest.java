@@ -5,17 +5,60 @@ import com.google.inject.name.Names;
 import com.guicedee.client.IGuiceContext;
 import com.guicedee.persistence.PersistService;
 import com.guicedee.persistence.bind.JtaPersistService;
+import com.entityassist.EA;
+import com.entityassist.EntityAssistException;
+import com.entityassist.UnitOfWork;
+import com.entityassist.cache.QueryCaches;
+import com.entityassist.enumerations.IdFilterStrategy;
+import com.entityassist.enumerations.IngestOrdering;
 import com.entityassist.enumerations.Operand;
+import com.entityassist.enumerations.OrderByType;
+import com.entityassist.enumerations.ReplicaConsistency;
+import com.entityassist.enumerations.TraversalOrder;
+import com.entityassist.querybuilder.builders.HierarchyOptions;
+import com.entityassist.querybuilder.builders.IdFilterStrategies;
+import com.entityassist.querybuilder.builders.InListBindings;
+import com.entityassist.querybuilder.results.HierarchyNode;
+import com.entityassist.routing.ReplicaRouter;
+import com.entityassist.routing.ShardRouter;
+import com.entityassist.routing.ShardRouting;
+import com.entityassist.writebehind.WriteBehind;
+import com.entityassist.writebehind.WriteBehindBuffer;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.QueryTimeoutException;
 import lombok.extern.log4j.Log4j2;
+import org.hibernate.Hibernate;
+import org.hibernate.query.sqm.tree.cte.CteMaterialization;
 import org.hibernate.reactive.mutiny.Mutiny;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -166,6 +209,41 @@ public class EntityAssistReactiveTest
         ).await().indefinitely();
     }
 
+    @Test
+    public void testCommonTableExpressionReuse()
+    {
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClass().setId("cter1").setName("Rho").setDescription("REUSE")
+                                         .builder(session).persist()
+                                         .chain(() -> new EntityClass().setId("cter2").setName("Ray").setDescription("REUSE")
+                                                                       .builder(session).persist())
+                                         .chain(() -> new EntityClass().setId("cter3").setName("Sigma").setDescription("REUSE")
+                                                                       .builder(session).persist())
+                                         .chain(() -> new EntityClass().setId("cter4").setName("Rex").setDescription("OTHER")
+                                                                       .builder(session).persist())
+                ).chain(() -> {
+                    var reuseRows = new EntityClass().builder(session)
+                                                     .where("description", Operand.Equals, "REUSE");
+                    var query = new EntityClass().builder(session)
+                                                 .declareCte("reuse_rows", reuseRows, CteMaterialization.MATERIALIZED);
+
+                    // Second CTE built on the first one, outer query joins the first one directly
+                    var startingWithR = new EntityClass().builder(session)
+                                                         .where("name", Operand.Like, "R%")
+                                                         .whereInCte(null, query.getCte("reuse_rows"));
+                    return query.with("reuse_r", startingWithR, CteMaterialization.NOT_MATERIALIZED)
+                                .joinCte(null, "reuse_rows")
+                                .getAll()
+                                .invoke(results -> {
+                                    // Rho + Ray; Sigma excluded by name, Rex by description
+                                    assertEquals(2, results.size());
+                                    assertTrue(results.stream().allMatch(e -> "REUSE".equals(e.getDescription())));
+                                });
+                })
+        ).await().indefinitely();
+    }
+
     @Test
     public void testRecursiveHierarchyCommonTableExpression()
     {
@@ -203,4 +281,1046 @@ public class EntityAssistReactiveTest
                 })
         ).await().indefinitely();
     }
+
+    @Test
+    public void testRecursiveHierarchyWithCycleAndDepth()
+    {
+        // Cycle: c1 -> c2 -> c3 -> c1 (corrupt parent data)
+        // Chain: d1 -> d2 -> d3
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new CategoryNode().setId("c1").setName("cycle").setParentId("c3")
+                                          .builder(session).persist()
+                                          .chain(() -> new CategoryNode().setId("c2").setName("cycle").setParentId("c1")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("c3").setName("cycle").setParentId("c2")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("d1").setName("chain").setParentId(null)
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("d2").setName("chain").setParentId("d1")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("d3").setName("chain").setParentId("d2")
+                                                                         .builder(session).persist())
+                ).chain(() -> new CategoryNode().builder(session)
+                                                .withRecursiveHierarchy("cycle_tree",
+                                                                        new CategoryNode().builder(session).where("id", Operand.Equals, "c1"),
+                                                                        "parentId",
+                                                                        new HierarchyOptions().setOrder(TraversalOrder.BreadthFirst))
+                                                .getHierarchy()
+                                                .invoke(nodes -> {
+                                                    // the walk stops when c1 is reached again
+                                                    assertEquals(List.of("c1", "c2", "c3"),
+                                                                 nodes.stream().map(n -> n.entity().getId()).toList());
+                                                    assertEquals(List.of(0, 1, 2),
+                                                                 nodes.stream().map(HierarchyNode::level).toList());
+                                                    assertEquals("/c1/c2/c3/", nodes.get(2).path());
+                                                }))
+                 .chain(() -> new CategoryNode().builder(session)
+                                                .withRecursiveHierarchy("depth_tree",
+                                                                        new CategoryNode().builder(session).where("id", Operand.Equals, "d1"),
+                                                                        "parentId",
+                                                                        new HierarchyOptions().setMaxDepth(1).setOrder(TraversalOrder.DepthFirst))
+                                                .getAll()
+                                                .invoke(results -> assertEquals(List.of("d1", "d2"),
+                                                                                results.stream().map(CategoryNode::getId).toList())))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testAncestorChains()
+    {
+        // Tree: a1 -> a2 -> a3 -> a3/5, a1 -> a4
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new CategoryNode().setId("a1").setName("ancestor-root").setParentId(null)
+                                          .builder(session).persist()
+                                          .chain(() -> new CategoryNode().setId("a2").setName("ancestor").setParentId("a1")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("a3").setName("ancestor").setParentId("a2")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("a4").setName("ancestor").setParentId("a1")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new CategoryNode().setId("a3/5").setName("ancestor").setParentId("a3")
+                                                                         .builder(session).persist())
+                ).chain(() -> new CategoryNode().builder(session)
+                                                .getAncestors(List.of("a3", "a4", "missing", "a3/5"), "parentId")
+                                                .invoke(chains -> {
+                                                    assertEquals(List.of("a3", "a4", "a3/5"), List.copyOf(chains.keySet()));
+                                                    assertEquals(List.of("a3/5", "a3", "a2", "a1"),
+                                                                 chains.get("a3/5").stream().map(CategoryNode::getId).toList());
+                                                    assertEquals(List.of("a3", "a2", "a1"),
+                                                                 chains.get("a3").stream().map(CategoryNode::getId).toList());
+                                                    assertEquals(List.of("a4", "a1"),
+                                                                 chains.get("a4").stream().map(CategoryNode::getId).toList());
+                                                }))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testMaterializedPathIndex()
+    {
+        // Tree: t1 -> t2 -> t3, t1 -> t4
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new TaxonomyNode().setId("t1").setName("taxonomy-root")
+                                          .builder(session).persist()
+                                          .chain(() -> new TaxonomyNode().setId("t2").setParentId("t1")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new TaxonomyNode().setId("t3").setParentId("t2")
+                                                                         .builder(session).persist())
+                                          .chain(() -> new TaxonomyNode().setId("t4").setParentId("t1")
+                                                                         .builder(session).persist())
+                )
+        ).await().indefinitely();
+
+        sessionFactory.withSession(session ->
+                new TaxonomyNode().builder(session).find("t3").get()
+                                  .invoke(t3 -> assertEquals("/t1/t2/t3/", t3.getPath()))
+                                  .chain(t3 -> new TaxonomyNode().builder(session).ancestorsOf(t3).getAll())
+                                  .invoke(ancestors -> assertEquals(List.of("t1", "t2"),
+                                                                    ancestors.stream().map(TaxonomyNode::getId).sorted().toList()))
+                                  .chain(() -> new TaxonomyNode().builder(session).find("t1").get())
+                                  .chain(t1 -> new TaxonomyNode().builder(session).subtreeCount(t1))
+                                  .invoke(count -> assertEquals(3L, count))
+        ).await().indefinitely();
+
+        // Move t2 (and t3 with it) below t4
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new TaxonomyNode().builder(session).find("t2").get()
+                                          .chain(t2 -> t2.setParentId("t4").builder(session).update())
+                )
+        ).await().indefinitely();
+
+        sessionFactory.withSession(session ->
+                new TaxonomyNode().builder(session).find("t3").get()
+                                  .invoke(t3 -> assertEquals("/t1/t4/t2/t3/", t3.getPath()))
+        ).await().indefinitely();
+
+        // Delete the subtree below t4, keeping t4 and t1
+        sessionFactory.withTransaction((session, tx) ->
+                new TaxonomyNode().builder(session).find("t4").get()
+                                  .chain(t4 -> new TaxonomyNode().builder(session).descendantsOf(t4).delete())
+                                  .invoke(deleted -> assertEquals(2, deleted))
+        ).await().indefinitely();
+
+        sessionFactory.withSession(session ->
+                new TaxonomyNode().builder(session).find("t1").get()
+                                  .chain(t1 -> new TaxonomyNode().builder(session).subtreeCount(t1))
+                                  .invoke(count -> assertEquals(1L, count))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testRecursiveGraphTraversal()
+    {
+        // Edges: g1 -> g2 -> g3 -> g1 (cycle), g3 -> g4; g5 unreachable
+        GraphNode g1 = new GraphNode().setId("g1");
+        GraphNode g2 = new GraphNode().setId("g2");
+        GraphNode g3 = new GraphNode().setId("g3");
+        GraphNode g4 = new GraphNode().setId("g4");
+        GraphNode g5 = new GraphNode().setId("g5");
+        g1.getEdges().add(g2);
+        g2.getEdges().add(g3);
+        g3.getEdges().add(g1);
+        g3.getEdges().add(g4);
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        g1.builder(session).persist()
+                          .chain(() -> g2.builder(session).persist())
+                          .chain(() -> g3.builder(session).persist())
+                          .chain(() -> g4.builder(session).persist())
+                          .chain(() -> g5.builder(session).persist())
+                )
+        ).await().indefinitely();
+
+        sessionFactory.withSession(session ->
+                new GraphNode().builder(session)
+                               .withRecursiveGraph("reach", new GraphNode().builder(session).where("id", Operand.Equals, "g1"), "edges")
+                               .getAll()
+                               .invoke(reached -> assertEquals(List.of("g1", "g2", "g3", "g4"),
+                                                               reached.stream().map(GraphNode::getId).sorted().toList()))
+                               .chain(() -> new GraphNode().builder(session)
+                                                           .withRecursiveGraph("near", new GraphNode().builder(session).where("id", Operand.Equals, "g1"), "edges", 1)
+                                                           .getAll())
+                               .invoke(reached -> assertEquals(List.of("g1", "g2"),
+                                                               reached.stream().map(GraphNode::getId).sorted().toList()))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testPrimitiveColumnProjection()
+    {
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClassTwo().setId("col1").setName("columnar").setValue(3)
+                                            .builder(session).persist()
+                                            .chain(() -> new EntityClassTwo().setId("col2").setName("columnar").setValue(5)
+                                                                             .builder(session).persist())
+                                            .chain(() -> new EntityClassTwo().setId("col3").setName("columnar").setValue(null)
+                                                                             .builder(session).persist())
+                ).chain(() -> new EntityClassTwo().builder(session)
+                                                  .where("name", Operand.Equals, "columnar")
+                                                  .orderBy(EntityClassTwo_.id)
+                                                  .getColumns(EntityClassTwo_.id, EntityClassTwo_.value)
+                                                  .invoke(batch -> {
+                                                      assertEquals(3, batch.getRowCount());
+                                                      assertEquals(2, batch.getColumnCount());
+                                                      assertArrayEquals(new Object[]{"col1", "col2", "col3"}, batch.getObjects("id"));
+                                                      assertArrayEquals(new long[]{3L, 5L, 0L}, batch.getLongs("value"));
+                                                      assertTrue(batch.isNull(1, 2));
+                                                  }))
+                  .chain(() -> new EntityClassTwo().builder(session)
+                                                   .where("name", Operand.Equals, "columnar")
+                                                   .getLongColumn(EntityClassTwo_.value)
+                                                   .invoke(values -> assertEquals(8L, Arrays.stream(values).sum())))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testGroupedAggregateMaps()
+    {
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClassTwo().setId("agg1").setName("agg-a").setValue(1)
+                                            .builder(session).persist()
+                                            .chain(() -> new EntityClassTwo().setId("agg2").setName("agg-a").setValue(2)
+                                                                             .builder(session).persist())
+                                            .chain(() -> new EntityClassTwo().setId("agg3").setName("agg-b").setValue(10)
+                                                                             .builder(session).persist())
+                ).chain(() -> new EntityClassTwo().builder(session)
+                                                  .where("name", Operand.Like, "agg-%")
+                                                  .countBy(EntityClassTwo_.name)
+                                                  .invoke(counts -> assertEquals(Map.of("agg-a", 2L, "agg-b", 1L), counts)))
+                  .chain(() -> new EntityClassTwo().builder(session)
+                                                   .where("name", Operand.Like, "agg-%")
+                                                   .sumByAsLong(EntityClassTwo_.name, EntityClassTwo_.value)
+                                                   .invoke(sums -> assertEquals(Map.of("agg-a", 3L, "agg-b", 10L), sums)))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testQueryResultCacheInvalidation()
+    {
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClass().setId("rc1").setName("result-cached")
+                                         .builder(session).persist()
+                ).chain(() -> new EntityClass().builder(session)
+                                               .where("name", Operand.Equals, "result-cached")
+                                               .cacheResults(Duration.ofMinutes(1))
+                                               .getCount()
+                                               .invoke(count -> assertEquals(1L, count)))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("name", Operand.Equals, "result-cached")
+                                                .cacheResults(Duration.ofMinutes(1))
+                                                .getCount()
+                                                .invoke(count -> assertEquals(1L, count)))
+                  .chain(() -> session.withTransaction(tx ->
+                          new EntityClass().setId("rc2").setName("result-cached")
+                                           .builder(session).persist()))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("name", Operand.Equals, "result-cached")
+                                                .cacheResults(Duration.ofMinutes(1))
+                                                .getCount()
+                                                .invoke(count -> assertEquals(2L, count)))
+        ).await().indefinitely();
+        assertTrue(QueryCaches.getResultCache()
+                              .getStatistics(EntityClass.class.getName())
+                              .getHits() >= 1);
+    }
+
+    @Test
+    public void testEntityNearCache()
+    {
+        var nearCache = QueryCaches.getNearCache();
+        nearCache.enable(EntityClass.class, 100, Duration.ofMinutes(1));
+        try
+        {
+            sessionFactory.withTransaction((session, tx) ->
+                    new EntityClass().setId("nc1").setName("near-cached")
+                                     .builder(session).persist()
+                                     .chain(() -> new EntityClass().setId("nc2").setName("near-cached")
+                                                                   .builder(session).persist())
+            ).await().indefinitely();
+            sessionFactory.withStatelessSession(session ->
+                    new EntityClass().builder(session).find("nc1").get()
+                                     .chain(() -> new EntityClass().builder(session).find("nc1").get())
+                                     .invoke(found -> assertEquals("near-cached", found.getName()))
+                                     .chain(() -> new EntityClass().builder(session)
+                                                                   .find(List.of("nc2", "nc1"))
+                                                                   .getAll())
+                                     .invoke(found -> assertEquals(List.of("nc2", "nc1"), found.stream()
+                                                                                              .map(EntityClass::getId)
+                                                                                              .toList()))
+            ).await().indefinitely();
+            assertEquals(2, nearCache.getStatistics(EntityClass.class).getHits());
+            assertEquals(2, nearCache.getSize(EntityClass.class));
+            assertTrue(nearCache.getEstimatedBytes(EntityClass.class) > 0);
+            //stateful sessions load managed instances and bypass the near-cache
+            sessionFactory.withSession(session -> new EntityClass().builder(session).find("nc1").get()
+                                                                   .invoke(found -> assertTrue(session.contains(found)))
+            ).await().indefinitely();
+            assertEquals(2, nearCache.getStatistics(EntityClass.class).getHits());
+        }
+        finally
+        {
+            nearCache.disable(EntityClass.class);
+        }
+    }
+
+    @Test
+    public void testNegativeResultCache()
+    {
+        var negativeCache = QueryCaches.getNegativeCache();
+        long hitsBefore = negativeCache.getStatistics().getHits();
+        Function<Mutiny.Session, Uni<Boolean>> lookup = session ->
+                new EntityClass().builder(session)
+                                 .find("nm1")
+                                 .cacheMisses(Duration.ofMinutes(1))
+                                 .get()
+                                 .map(found -> true)
+                                 .onFailure(NoResultException.class)
+                                 .recoverWithItem(false);
+        sessionFactory.withSession(session ->
+                lookup.apply(session)
+                      .invoke(found -> assertFalse(found))
+                      .chain(() -> lookup.apply(session))
+                      .invoke(found -> assertFalse(found))
+                      .chain(() -> session.withTransaction(tx ->
+                              new EntityClass().setId("nm1").setName("negative-cached")
+                                               .builder(session).persist()))
+                      .chain(() -> lookup.apply(session))
+                      .invoke(found -> assertTrue(found))
+        ).await().indefinitely();
+        assertEquals(hitsBefore + 1, negativeCache.getStatistics().getHits());
+    }
+
+    @Test
+    public void testInListBinding()
+    {
+        var statements = InListBindings.getStatementStatistics();
+        long hitsBefore = statements.getHits();
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClass().setId("inl1").setName("in-list").builder(session).persist()
+                                         .chain(() -> new EntityClass().setId("inl2").setName("in-list").builder(session).persist())
+                                         .chain(() -> new EntityClass().setId("inl3").setName("in-list").builder(session).persist())
+                ).chain(() -> new EntityClass().builder(session)
+                                               .where("id", Operand.InList, List.of("inl1", "inl2", "inl3"))
+                                               .getCount()
+                                               .invoke(count -> assertEquals(3L, count)))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("id", Operand.InList, List.of("inl1", "inl3"))
+                                                .getCount()
+                                                .invoke(count -> assertEquals(2L, count)))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("name", Operand.Equals, "in-list")
+                                                .where("id", Operand.NotInList, List.of("inl1", "inl2", "inl3"))
+                                                .getCount()
+                                                .invoke(count -> assertEquals(0L, count)))
+        ).await().indefinitely();
+        assertTrue(statements.getHits() > hitsBefore);
+        //support is looked up in the function registry of the factory the query runs on
+        assertTrue(InListBindings.isArraySupported(sessionFactory.getCriteriaBuilder()));
+    }
+
+    @Test
+    public void testLargeIdFilterStrategies()
+    {
+        List<String> ids = List.of("big1", "big2", "big3", "big4", "big5");
+        IdFilterStrategies.setThresholds(1, 2, 3);
+        try
+        {
+            sessionFactory.withSession(session ->
+                    session.withTransaction(tx -> {
+                        Uni<?> persisted = Uni.createFrom().voidItem();
+                        for (String id : ids)
+                        {
+                            persisted = persisted.chain(() -> new EntityClass().setId(id).setName("big-filter").builder(session).persist());
+                        }
+                        return persisted;
+                    }).chain(() -> {
+                        Uni<?> checked = Uni.createFrom().voidItem();
+                        for (int size = 1; size <= ids.size(); size++)
+                        {
+                            long expected = size;
+                            var builder = new EntityClass().builder(session)
+                                                           .whereIdIn(ids.subList(0, size));
+                            checked = checked.chain(() -> builder.getCount()
+                                                                 .invoke(count -> assertEquals(expected, count)));
+                        }
+                        return checked;
+                    }).chain(() -> {
+                        var builder = new EntityClass().builder(session)
+                                                       .whereIn("id", ids);
+                        assertEquals(List.of(IdFilterStrategy.TemporaryTable),
+                                     builder.getIdFilterStrategies());
+                        return builder.getAll()
+                                      .invoke(all -> assertEquals(ids.size(), all.size()));
+                    })
+            ).await().indefinitely();
+        }
+        finally
+        {
+            IdFilterStrategies.setThresholds(
+                    IdFilterStrategies.DEFAULT_INLINE_LIMIT,
+                    IdFilterStrategies.DEFAULT_ARRAY_LIMIT,
+                    IdFilterStrategies.DEFAULT_VALUES_LIMIT);
+        }
+    }
+
+    @Test
+    public void testDeleteWhereIdIn()
+    {
+        sessionFactory.withTransaction((session, tx) -> {
+            Uni<?> persisted = Uni.createFrom().voidItem();
+            for (String id : List.of("wd1", "wd2", "wd3", "wd4"))
+            {
+                persisted = persisted.chain(() -> new EntityClass().setId(id).setName("where-in-delete").builder(session).persist());
+            }
+            return persisted;
+        }).await().indefinitely();
+        Integer deleted = sessionFactory.withTransaction((session, tx) ->
+                new EntityClass().builder(session)
+                                 .whereIdIn(List.of("wd1", "wd2"))
+                                 .delete()
+        ).await().indefinitely();
+        assertEquals(2, deleted);
+        IdFilterStrategies.setThresholds(0, 0, 0);
+        try
+        {
+            deleted = sessionFactory.withTransaction((session, tx) -> {
+                var builder = new EntityClass().builder(session)
+                                               .whereIdIn(List.of("wd3"));
+                assertEquals(List.of(IdFilterStrategy.TemporaryTable), builder.getIdFilterStrategies());
+                return builder.delete();
+            }).await().indefinitely();
+            assertEquals(1, deleted);
+        }
+        finally
+        {
+            IdFilterStrategies.setThresholds(IdFilterStrategies.DEFAULT_INLINE_LIMIT,
+                                             IdFilterStrategies.DEFAULT_ARRAY_LIMIT,
+                                             IdFilterStrategies.DEFAULT_VALUES_LIMIT);
+        }
+        Long remaining = sessionFactory.withSession(session ->
+                new EntityClass().builder(session)
+                                 .where("name", Operand.Equals, "where-in-delete")
+                                 .getCount()
+        ).await().indefinitely();
+        assertEquals(1L, remaining);
+    }
+
+    @Test
+    public void testExecutionHints()
+    {
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new EntityClass().setId("hint1").setName("hinted").builder(session).persist()
+                                         .chain(() -> new EntityClass().setId("hint2").setName("hinted").builder(session).persist())
+                                         .chain(() -> new EntityClass().setId("hint3").setName("hinted").builder(session).persist())
+                ).chain(() -> new EntityClass().builder(session)
+                                               .where("name", Operand.Equals, "hinted")
+                                               .deadline(Instant.now().minusSeconds(1))
+                                               .getCount()
+                                               .map(count -> false)
+                                               .onFailure(QueryTimeoutException.class)
+                                               .recoverWithItem(true)
+                                               .invoke(timedOut -> assertTrue(timedOut)))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("name", Operand.Equals, "hinted")
+                                                .timeout(Duration.ofSeconds(30))
+                                                .getCount()
+                                                .invoke(count -> assertEquals(3L, count)))
+                  .chain(() -> new EntityClass().builder(session)
+                                                .where("name", Operand.Equals, "hinted")
+                                                .orderBy(EntityClass_.id)
+                                                .fetchSize(2)
+                                                .stream()
+                                                .map(EntityClass::getId)
+                                                .collect()
+                                                .asList()
+                                                .invoke(ids -> assertEquals(List.of("hint1", "hint2", "hint3"), ids)))
+                  .chain(() -> {
+                      //unordered pages are ordered by id, detached once read, and every subscription reads from the start
+                      Multi<EntityClass> streamed = new EntityClass().builder(session)
+                                                                     .where("name", Operand.Equals, "hinted")
+                                                                     .fetchSize(2)
+                                                                     .stream();
+                      return streamed.collect()
+                                     .asList()
+                                     .invoke(rows -> assertEquals(List.of("hint1", "hint2", "hint3"), rows.stream().map(EntityClass::getId).toList()))
+                                     .invoke(rows -> assertTrue(rows.stream().noneMatch(session::contains)))
+                                     .chain(() -> streamed.collect()
+                                                          .asList())
+                                     .invoke(rows -> assertEquals(List.of("hint1", "hint2", "hint3"), rows.stream().map(EntityClass::getId).toList()));
+                  })
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testReadReplicaRouting()
+    {
+        var replica = ReplicaRouter.register("entityAssistReactive");
+        try
+        {
+            long fallbacksBefore = ReplicaRouter.getPrimaryFallbacks();
+            sessionFactory.withSession(session ->
+                    session.withTransaction(tx -> new EntityClass().setId("rep1").setName("replicated").builder(session).persist())
+                           .chain(() -> new EntityClass().builder(session)
+                                                         .where("name", Operand.Equals, "replicated")
+                                                         .setReadOnly(true)
+                                                         .getCount()
+                                                         .invoke(count -> assertEquals(1L, count)))
+            ).await().indefinitely();
+            assertEquals(fallbacksBefore + 1, ReplicaRouter.getPrimaryFallbacks());
+            assertEquals(0, replica.getExecutions());
+
+            sessionFactory.withSession(session -> new EntityClass().builder(session)
+                                                                   .where("name", Operand.Equals, "replicated")
+                                                                   .setReadOnly(true)
+                                                                   .getAll()
+                                                                   .invoke(rows -> assertEquals(1, rows.size())))
+                          .await().indefinitely();
+            assertEquals(1, replica.getExecutions());
+
+            ReplicaRouter.setConsistency(ReplicaConsistency.AwaitReplay);
+            sessionFactory.withSession(session ->
+                    session.withTransaction(tx -> new EntityClass().setId("rep2").setName("replicated").builder(session).persist())
+                           .chain(() -> new EntityClass().builder(session)
+                                                         .where("name", Operand.Equals, "replicated")
+                                                         .onReplica()
+                                                         .getCount()
+                                                         .invoke(count -> assertEquals(2L, count)))
+            ).await().indefinitely();
+            //one session to await the replay, one to read
+            assertEquals(3, replica.getExecutions());
+            assertEquals(0, replica.getInFlight());
+        }
+        finally
+        {
+            ReplicaRouter.clear();
+            ReplicaRouter.setConsistency(ReplicaConsistency.Primary);
+        }
+    }
+
+    @Test
+    public void testShardRouting()
+    {
+        //two shards backed by the same database, so every scattered row is found twice
+        ShardRouting.registerSessionFactory("shard-a", sessionFactory);
+        ShardRouting.registerSessionFactory("shard-b", sessionFactory);
+        ShardRouting.setRouter(new ShardRouter()
+        {
+            @Override
+            public String getShardKeyAttribute(Class<?> entityClass)
+            {
+                return entityClass == EntityClassTwo.class ? "name" : null;
+            }
+
+            @Override
+            public String route(Class<?> entityClass, Object shardKey)
+            {
+                return "shard-a";
+            }
+
+            @Override
+            public List<String> getShards(Class<?> entityClass)
+            {
+                return List.of("shard-a", "shard-b");
+            }
+        });
+        try
+        {
+            sessionFactory.withSession(session ->
+                    session.withTransaction(tx ->
+                            new EntityClassTwo().setId("shd1").setName("sharded").setValue(1).builder(session).persist()
+                                                .chain(() -> new EntityClassTwo().setId("shd2").setName("sharded").setValue(2).builder(session).persist())
+                                                .chain(() -> new EntityClassTwo().setId("shd3").setName("sharded").setValue(3).builder(session).persist())
+                    ).chain(() -> new EntityClassTwo().builder(session)
+                                                      .where("name", Operand.Equals, "sharded")
+                                                      .getCount()
+                                                      .invoke(count -> assertEquals(3L, count)))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .getCount()
+                                                       .invoke(count -> assertEquals(6L, count)))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .orderBy(EntityClassTwo_.value, OrderByType.DESC)
+                                                       .setMaxResults(3)
+                                                       .getAll()
+                                                       .invoke(rows -> assertEquals(List.of("shd3", "shd3", "shd2"),
+                                                                                    rows.stream().map(EntityClassTwo::getId).toList())))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .sumByAsLong(EntityClassTwo_.name, EntityClassTwo_.value)
+                                                       .invoke(sums -> assertEquals(Map.of("sharded", 12L), sums)))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .averageBy(EntityClassTwo_.name, EntityClassTwo_.value)
+                                                       .invoke(averages -> assertEquals(Map.of("sharded", 2d), averages)))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .orderBy(EntityClassTwo_.value, OrderByType.DESC)
+                                                       .get()
+                                                       .invoke(row -> assertEquals("shd3", row.getId())))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .selectColumn(EntityClassTwo_.value)
+                                                       .orderBy(EntityClassTwo_.value, OrderByType.DESC)
+                                                       .setMaxResults(3)
+                                                       .getAll(Integer.class)
+                                                       .invoke(values -> assertEquals(List.of(3, 3, 2), values)))
+                      .chain(() -> new EntityClassTwo().builder(session)
+                                                       .where("id", Operand.Like, "shd%")
+                                                       .stream()
+                                                       .collect()
+                                                       .asList()
+                                                       .onItemOrFailure()
+                                                       .transform((rows, failure) -> {
+                                                           assertTrue(failure instanceof EntityAssistException);
+                                                           return rows;
+                                                       }))
+            ).await().indefinitely();
+        }
+        finally
+        {
+            ShardRouting.setRouter(null);
+        }
+    }
+
+    @Test
+    public void testPartitionedQueries()
+    {
+        LocalDateTime january = LocalDateTime.parse("2026-01-20T08:00:00");
+        LocalDateTime february = LocalDateTime.parse("2026-02-10T08:00:00");
+        LocalDateTime march = LocalDateTime.parse("2026-03-05T08:00:00");
+        sessionFactory.withSession(session ->
+                session.withTransaction(tx ->
+                        new PartitionedEvent().setId("pe1").setName("partitioned").setOccurredAt(january).builder(session).persist()
+                                              .chain(() -> new PartitionedEvent().setId("pe2").setName("partitioned").setOccurredAt(february).builder(session).persist())
+                                              .chain(() -> new PartitionedEvent().setId("pe3").setName("partitioned").setOccurredAt(march).builder(session).persist())
+                ).chain(() -> {
+                    PartitionedEvent.PartitionedEventQueryBuilder split = new PartitionedEvent().builder(session)
+                                                                                                .inPartitionRange(LocalDateTime.parse("2026-01-01T00:00:00"),
+                                                                                                                  LocalDateTime.parse("2026-03-01T00:00:00"))
+                                                                                                .splitByPartition();
+                    assertEquals(2, split.getPartitionRanges().size());
+                    return split.getCount()
+                                .invoke(count -> assertEquals(2L, count));
+                })
+                  .chain(() -> new PartitionedEvent().builder(session)
+                                                     .inPartitionRange(LocalDateTime.parse("2026-01-01T00:00:00"),
+                                                                       LocalDateTime.parse("2026-04-01T00:00:00"))
+                                                     .splitByPartition()
+                                                     .orderBy(PartitionedEvent_.occurredAt, OrderByType.DESC)
+                                                     .setMaxResults(2)
+                                                     .getAll()
+                                                     .invoke(rows -> assertEquals(List.of("pe3", "pe2"),
+                                                                                  rows.stream().map(PartitionedEvent::getId).toList())))
+                  .chain(() -> new PartitionedEvent().builder(session)
+                                                     .where("occurredAt", Operand.GreaterThanEqualTo, february)
+                                                     .getCount()
+                                                     .invoke(count -> assertEquals(2L, count)))
+        ).await().indefinitely();
+    }
+
+    @Test
+    public void testPartitionPredicateRendering()
+    {
+        //show_sql prints every statement, read them back to see how the values are rendered
+        PrintStream console = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try
+        {
+            sessionFactory.withSession(session -> new PartitionedEvent().builder(session)
+                                                                        .inPartitionRange(LocalDateTime.parse("2026-01-01T00:00:00"),
+                                                                                          LocalDateTime.parse("2026-02-01T00:00:00"))
+                                                                        .where("id", Operand.InList, List.of("pe-rendered-1", "pe-rendered-2"))
+                                                                        .getAll())
+                          .await().indefinitely();
+        }
+        finally
+        {
+            System.setOut(console);
+        }
+        String statements = printed.toString(StandardCharsets.UTF_8)
+                                   .replaceAll("(?s)/\\*.*?\\*/", "");
+        //the partition bounds are literals the planner prunes on, the in-list values are bound parameters
+        assertTrue(statements.contains("2026-01-01"), statements);
+        assertTrue(statements.contains("2026-02-01"), statements);
+        assertFalse(statements.contains("pe-rendered-1"), statements);
+    }
+
+    @Test
+    public void testUpdateChanged()
+    {
+        TrackedDocument document = new TrackedDocument().setId("td1")
+                                                        .setTitle("draft")
+                                                        .setBody("a long body that is not rewritten");
+        sessionFactory.withTransaction(session -> document.builder(session).persist()).await().indefinitely();
+        assertFalse(document.hasChanges());
+
+        TrackedDocument stale = sessionFactory.withSession(session -> new TrackedDocument().builder(session).find("td1").get())
+                                              .await().indefinitely();
+
+        document.setTitle("final");
+        assertEquals(Set.of("title"), document.getChangedFields());
+        sessionFactory.withTransaction(session -> document.builder(session).updateChanged()).await().indefinitely();
+        assertFalse(document.hasChanges());
+        assertEquals(1, document.getVersion());
+
+        stale.setBody("a concurrent body");
+        Throwable conflict = sessionFactory.withTransaction(session -> stale.builder(session).updateChanged())
+                                           .onItemOrFailure()
+                                           .transform((item, failure) -> failure)
+                                           .await().indefinitely();
+        assertTrue(conflict instanceof OptimisticLockException);
+
+        TrackedDocument stored = sessionFactory.withSession(session -> new TrackedDocument().builder(session).find("td1").get())
+                                               .await().indefinitely();
+        assertEquals("final", stored.getTitle());
+        assertEquals("a long body that is not rewritten", stored.getBody());
+        assertEquals(1, stored.getVersion());
+    }
+
+    @Test
+    public void testWriteBehind()
+    {
+        WriteBehindBuffer<TaxonomyNode> buffer =
+                WriteBehind.enable(TaxonomyNode.class, 4, 2, Duration.ofMillis(50));
+        try
+        {
+            sessionFactory.withSession(session -> {
+                Uni<TaxonomyNode> queued = Uni.createFrom().nullItem();
+                for (int i = 0; i < 6; i++)
+                {
+                    TaxonomyNode node = new TaxonomyNode().setId("wb" + i).setName("buffered");
+                    queued = queued.chain(() -> node.builder(session).persist());
+                }
+                return queued;
+            }).await().indefinitely();
+            WriteBehind.flushAll().await().indefinitely();
+
+            assertEquals(0, buffer.getQueueDepth());
+            assertEquals(6, buffer.getFlushed());
+            assertTrue(buffer.getFlushes() >= 3);
+            Long stored = sessionFactory.withSession(session -> new TaxonomyNode().builder(session)
+                                                                                  .where("id", Operand.Like, "wb%")
+                                                                                  .getCount())
+                                        .await().indefinitely();
+            assertEquals(6L, stored);
+        }
+        finally
+        {
+            WriteBehind.disable(TaxonomyNode.class).await().indefinitely();
+        }
+    }
+
+    @Test
+    public void testIngest()
+    {
+        List<TaxonomyNode> inserted = EA.ingest(Multi.createFrom()
+                                                    .range(0, 10)
+                                                    .map(i -> new TaxonomyNode().setId("in" + i).setName("ingested")))
+                                        .parallelism(3)
+                                        .batchSize(3)
+                                        .persist()
+                                        .collect().asList()
+                                        .await().indefinitely();
+        assertEquals(IntStream.range(0, 10).mapToObj(i -> "in" + i).toList(),
+                     inserted.stream().map(TaxonomyNode::getId).toList());
+        assertFalse(inserted.get(0).isFake());
+
+        List<String> skipped = new CopyOnWriteArrayList<>();
+        List<TaxonomyNode> retried = EA.ingest(Multi.createFrom()
+                                                   .items("in0", "in10", "in11")
+                                                   .map(id -> new TaxonomyNode().setId(id).setName("ingested")))
+                                       .batchSize(3)
+                                       .ordering(IngestOrdering.Unordered)
+                                       .onItemFailure((node, failure) -> skipped.add(node.getId()))
+                                       .persist()
+                                       .collect().asList()
+                                       .await().indefinitely();
+        assertEquals(List.of("in0"), skipped);
+        assertEquals(2, retried.size());
+
+        Long stored = sessionFactory.withSession(session -> new TaxonomyNode().builder(session)
+                                                                              .where("name", Operand.Equals, "ingested")
+                                                                              .getCount())
+                                    .await().indefinitely();
+        assertEquals(12L, stored);
+
+        //the first batch fails on in0 and is retried entity by entity, so it finishes after the later batches
+        List<TaxonomyNode> ordered = EA.ingest(Multi.createFrom()
+                                                   .items("in0", "so0", "so1", "so2", "so3", "so4", "so5")
+                                                   .map(id -> new TaxonomyNode().setId(id).setName("ordered")))
+                                       .parallelism(3)
+                                       .batchSize(2)
+                                       .ordering(IngestOrdering.SourceOrder)
+                                       .onItemFailure((node, failure) -> {})
+                                       .persist()
+                                       .collect().asList()
+                                       .await().indefinitely();
+        assertEquals(List.of("so0", "so1", "so2", "so3", "so4", "so5"),
+                     ordered.stream().map(TaxonomyNode::getId).toList());
+    }
+
+    @Test
+    public void testUnitOfWork()
+    {
+        TaxonomyNode first = new TaxonomyNode().setId("uow1").setName("unit");
+        TaxonomyNode second = new TaxonomyNode().setId("uow2").setName("unit");
+        TaxonomyNode discarded = new TaxonomyNode().setId("uow3").setName("unit");
+        TrackedDocument document = new TrackedDocument().setId("uow-doc").setTitle("draft");
+        UnitOfWork unitOfWork = new UnitOfWork().persist(second)
+                                                .persist(first)
+                                                .update(second.setName("unit"))
+                                                .persist(discarded)
+                                                .delete(discarded)
+                                                .persist(document)
+                                                .update(document.setBody("body"));
+        assertEquals(3, unitOfWork.getPendingCount());
+        unitOfWork.commit(sessionFactory)
+                  .await().indefinitely();
+        assertEquals(2, unitOfWork.getStatementCount());
+        assertEquals(0, unitOfWork.getPendingCount());
+        assertFalse(first.isFake());
+
+        unitOfWork.update(first.setName("unit-updated"))
+                  .update(document.setTitle("final"))
+                  .delete(second)
+                  .delete(second);
+        assertEquals(3, unitOfWork.getPendingCount());
+        assertThrows(EntityAssistException.class, () -> new UnitOfWork().delete(first)
+                                                                        .update(first));
+        unitOfWork.commit(sessionFactory)
+                  .await().indefinitely();
+        assertEquals(3, unitOfWork.getStatementCount());
+
+        Long remaining = sessionFactory.withSession(session -> new TaxonomyNode().builder(session)
+                                                                                 .where("name", Operand.Like, "unit%")
+                                                                                 .getCount())
+                                       .await().indefinitely();
+        assertEquals(1L, remaining);
+        TrackedDocument stored = sessionFactory.withSession(session -> new TrackedDocument().builder(session).find("uow-doc").get())
+                                               .await().indefinitely();
+        assertEquals("final", stored.getTitle());
+        assertEquals("body", stored.getBody());
+
+        //the child is registered first and sorts before its parent, the parent row must still be written first
+        LinkedNode parent = new LinkedNode().setId("uow-b");
+        LinkedNode child = new LinkedNode().setId("uow-a").setParent(parent);
+        new UnitOfWork().persist(child)
+                        .persist(parent)
+                        .commit(sessionFactory)
+                        .await().indefinitely();
+        LinkedNode linked = sessionFactory.withSession(session -> session.find(LinkedNode.class, "uow-a")
+                                                                         .call(found -> session.fetch(found.getParent())))
+                                          .await().indefinitely();
+        assertEquals("uow-b", linked.getParent().getId());
+
+        new UnitOfWork().delete(parent)
+                        .delete(child)
+                        .commit(sessionFactory)
+                        .await().indefinitely();
+        LinkedNode removed = sessionFactory.withSession(session -> session.find(LinkedNode.class, "uow-b"))
+                                           .await().indefinitely();
+        assertNull(removed);
+    }
+
+    @Test
+    public void testGeneratedIdentifiers()
+    {
+        sessionFactory.withStatelessSession(session -> session.createNativeQuery("create sequence if not exists sequenced_note_seq")
+                                                              .executeUpdate())
+                      .await().indefinitely();
+
+        SequencedNote stateless = sessionFactory.withStatelessTransaction(session -> new SequencedNote().setText("generated")
+                                                                                                         .builder(session)
+                                                                                                         .persist())
+                                                .await().indefinitely();
+        assertNotNull(stateless.getId());
+        SequencedNote stateful = sessionFactory.withTransaction(session -> new SequencedNote().setText("generated")
+                                                                                               .builder(session)
+                                                                                               .persist())
+                                               .await().indefinitely();
+        assertEquals(stateless.getId() + 1, stateful.getId());
+
+        List<SequencedNote> ingested = EA.ingest(Multi.createFrom()
+                                                     .range(0, 25)
+                                                     .map(i -> new SequencedNote().setText("generated")))
+                                         .batchSize(7)
+                                         .persist()
+                                         .collect().asList()
+                                         .await().indefinitely();
+        assertEquals(25, ingested.stream().map(SequencedNote::getId).distinct().count());
+
+        Long stored = sessionFactory.withSession(session -> new SequencedNote().builder(session)
+                                                                               .where("text", Operand.Equals, "generated")
+                                                                               .getCount())
+                                    .await().indefinitely();
+        assertEquals(27L, stored);
+    }
+
+    @Test
+    public void testFetchJoinsAndEntityGraphs()
+    {
+        GraphNode root = new GraphNode().setId("fj1");
+        GraphNode left = new GraphNode().setId("fj2");
+        GraphNode right = new GraphNode().setId("fj3");
+        root.getEdges().add(left);
+        root.getEdges().add(right);
+        sessionFactory.withTransaction(session -> left.builder(session).persist()
+                                                      .chain(() -> right.builder(session).persist())
+                                                      .chain(() -> root.builder(session).persist())
+                                                      .chain(() -> new EntityClassTwo().setId("fj4").setName("fetched").builder(session).persist())
+                                                      .chain(() -> new EntityClassTwo().setId("fj5").setName("fetched").builder(session).persist()))
+                      .await().indefinitely();
+
+        List<GraphNode> fetched = sessionFactory.withSession(session -> new GraphNode().builder(session)
+                                                                                       .where("id", Operand.Equals, "fj1")
+                                                                                       .fetch("edges")
+                                                                                       .getAll())
+                                                .await().indefinitely();
+        assertEquals(1, fetched.size());
+        assertTrue(Hibernate.isInitialized(fetched.get(0).getEdges()));
+        assertEquals(2, fetched.get(0).getEdges().size());
+
+        List<GraphNode> graphed = sessionFactory.withSession(session -> {
+                                                    EntityGraph<GraphNode> graph = session.createEntityGraph(GraphNode.class);
+                                                    graph.addAttributeNodes("edges");
+                                                    return new GraphNode().builder(session)
+                                                                          .where("id", Operand.Equals, "fj1")
+                                                                          .withEntityGraph(graph)
+                                                                          .getAll();
+                                                })
+                                                .await().indefinitely();
+        assertEquals(1, graphed.size());
+        assertTrue(Hibernate.isInitialized(graphed.get(0).getEdges()));
+        assertEquals(2, graphed.get(0).getEdges().size());
+
+        //a projection keeps repeated values even with a fetch registered
+        List<Object> names = sessionFactory.withSession(session -> new EntityClassTwo().builder(session)
+                                                                                       .where("name", Operand.Equals, "fetched")
+                                                                                       .fetch("entityClass")
+                                                                                       .selectColumn(EntityClassTwo_.name)
+                                                                                       .getAll(Object.class))
+                                           .await().indefinitely();
+        assertEquals(List.of("fetched", "fetched"), names);
+    }
+
+    @Test
+    public void testNestedPrefetch()
+    {
+        GraphNode root = new GraphNode().setId("pf1");
+        GraphNode child = new GraphNode().setId("pf2");
+        GraphNode grandChild = new GraphNode().setId("pf3");
+        GraphNode leaf = new GraphNode().setId("pf4");
+        root.getEdges().add(child);
+        root.getEdges().add(leaf);
+        child.getEdges().add(grandChild);
+        sessionFactory.withTransaction(session -> grandChild.builder(session).persist()
+                                                            .chain(() -> leaf.builder(session).persist())
+                                                            .chain(() -> child.builder(session).persist())
+                                                            .chain(() -> root.builder(session).persist()))
+                      .await().indefinitely();
+
+        sessionFactory.withStatelessSession(session -> {
+                          GraphNode.GraphNodeQueryBuilder builder = new GraphNode().builder(session)
+                                                                                   .where("id", Operand.Equals, "pf1")
+                                                                                   .prefetch("edges.edges");
+                          return builder.getAll()
+                                        .chain(() -> builder.getAll())
+                                        .invoke(owners -> {
+                                            assertEquals(1, owners.size());
+                                            //a second execution replaces the rows of the first instead of appending to them
+                                            assertEquals(List.of("pf2", "pf4"), builder.getPrefetched("edges")
+                                                                                       .get("pf1")
+                                                                                       .stream()
+                                                                                       .map(node -> ((GraphNode) node).getId())
+                                                                                       .sorted()
+                                                                                       .toList());
+                                            assertEquals(List.of("pf3"), builder.getPrefetched("edges.edges")
+                                                                                .get("pf2")
+                                                                                .stream()
+                                                                                .map(node -> ((GraphNode) node).getId())
+                                                                                .toList());
+                                            assertFalse(builder.getPrefetched("edges.edges").containsKey("pf4"));
+                                        });
+                      })
+                      .await().indefinitely();
+
+        GraphNode loaded = sessionFactory.withSession(session -> new GraphNode().builder(session)
+                                                                                .where("id", Operand.Equals, "pf1")
+                                                                                .prefetch("edges.edges")
+                                                                                .getAll()
+                                                                                .map(owners -> owners.get(0)))
+                                         .await().indefinitely();
+        assertTrue(Hibernate.isInitialized(loaded.getEdges()));
+        GraphNode loadedChild = loaded.getEdges()
+                                      .stream()
+                                      .filter(node -> node.getId().equals("pf2"))
+                                      .findFirst()
+                                      .orElseThrow();
+        assertTrue(Hibernate.isInitialized(loadedChild.getEdges()));
+        assertEquals("pf3", loadedChild.getEdges().iterator().next().getId());
+    }
+
+    @Test
+    public void testQueryResultCacheReadBeforeCommit()
+    {
+        sessionFactory.withTransaction((session, tx) ->
+                new EntityClass().setId("pc1").setName("pending-commit")
+                                 .builder(session).persist()
+        ).await().indefinitely();
+        sessionFactory.withTransaction((session, tx) ->
+                new EntityClass().setId("pc2").setName("pending-commit")
+                                 .builder(session).persist()
+                                 //another session reads the committed state and must not cache it
+                                 .chain(() -> sessionFactory.openSession()
+                                                            .chain(reader -> new EntityClass().builder(reader)
+                                                                                              .where("name", Operand.Equals, "pending-commit")
+                                                                                              .cacheResults(Duration.ofMinutes(1))
+                                                                                              .getCount()
+                                                                                              .eventually(reader::close)))
+                                 .invoke(count -> assertEquals(1L, count))
+        ).await().indefinitely();
+        Long count = sessionFactory.withSession(session ->
+                new EntityClass().builder(session)
+                                 .where("name", Operand.Equals, "pending-commit")
+                                 .cacheResults(Duration.ofMinutes(1))
+                                 .getCount()
+        ).await().indefinitely();
+        assertEquals(2L, count);
+        assertFalse(QueryCaches.isWritePending(List.<Class<?>>of(EntityClass.class)));
+    }
+
+    @Test
+    public void testNegativeResultCacheMissBeforeCommit()
+    {
+        Function<Mutiny.Session, Uni<Boolean>> lookup = session ->
+                new EntityClass().builder(session)
+                                 .find("nm2")
+                                 .cacheMisses(Duration.ofMinutes(1))
+                                 .get()
+                                 .map(found -> true)
+                                 .onFailure(NoResultException.class)
+                                 .recoverWithItem(false);
+        sessionFactory.withTransaction((session, tx) ->
+                new EntityClass().setId("nm2").setName("negative-pending")
+                                 .builder(session).persist()
+                                 //another session does not see the row yet and must not remember the miss
+                                 .chain(() -> sessionFactory.openSession()
+                                                            .chain(reader -> lookup.apply(reader)
+                                                                                   .eventually(reader::close)))
+                                 .invoke(found -> assertFalse(found))
+        ).await().indefinitely();
+        assertTrue(sessionFactory.withSession(lookup::apply)
+                                 .await()
+                                 .indefinitely());
+    }
 }
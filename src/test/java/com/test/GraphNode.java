@@ -0,0 +1,66 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Graph node with directed edges mapped through a join table, used to exercise recursive graph traversal.
+ */
+@Entity
+@Accessors(chain = true)
+@Table(name = "graph_node")
+public class GraphNode extends BaseEntity<GraphNode, GraphNode.GraphNodeQueryBuilder, String>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    @Getter
+    @Setter
+    private String id;
+
+    @ManyToMany
+    @JoinTable(name = "graph_edge",
+               joinColumns = @JoinColumn(name = "from_id"),
+               inverseJoinColumns = @JoinColumn(name = "to_id"))
+    @Getter
+    private Set<GraphNode> edges = new HashSet<>();
+
+    @Override
+    public String getId()
+    {
+        return id;
+    }
+
+    @Override
+    public GraphNode setId(String id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public static class GraphNodeQueryBuilder extends QueryBuilder<GraphNodeQueryBuilder, GraphNode, String>
+    {
+        public GraphNodeQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.test;
+
+import com.entityassist.EntityAssistException;
+import com.entityassist.identifiers.HiLoIdGenerator;
+import com.entityassist.identifiers.IdGenerators;
+import com.entityassist.identifiers.SnowflakeIdGenerator;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest
+{
+    @Test
+    void uuidV7IsTimeOrdered()
+    {
+        UUID previous = IdGenerators.uuidV7()
+                                    .next();
+        assertEquals(7, previous.version());
+        assertEquals(2, previous.variant());
+        assertTrue(Math.abs((previous.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60_000);
+        for (int i = 0; i < 10_000; i++)
+        {
+            UUID next = IdGenerators.uuidV7()
+                                    .next();
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    void snowflakeIsUniqueAcrossThreads()
+    {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(42);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 8)
+                 .parallel()
+                 .forEach(thread -> {
+                     long previous = 0;
+                     for (int i = 0; i < 20_000; i++)
+                     {
+                         long id = generator.next();
+                         assertTrue(id > previous);
+                         assertEquals(42, (id >>> 12) & 1023);
+                         ids.add(id);
+                         previous = id;
+                     }
+                 });
+        assertEquals(160_000, ids.size());
+        assertThrows(EntityAssistException.class, () -> new SnowflakeIdGenerator(1024));
+    }
+
+    @Test
+    void hiLoFetchesOneValuePerBlock()
+    {
+        AtomicLong sequence = new AtomicLong(1);
+        AtomicInteger calls = new AtomicInteger();
+        HiLoIdGenerator generator = new HiLoIdGenerator(10, () -> {
+            calls.incrementAndGet();
+            return Uni.createFrom()
+                      .item(sequence.getAndIncrement());
+        });
+        assertThrows(EntityAssistException.class, generator::next);
+
+        List<Long> ids = generator.reserve(25)
+                                  .await()
+                                  .indefinitely();
+        assertEquals(LongStream.range(10, 35)
+                               .boxed()
+                               .toList(), ids);
+        //one value per started block, the third block is only half used so nothing is prefetched yet
+        assertEquals(3, calls.get());
+        assertEquals(5, generator.getAvailable());
+
+        assertEquals(35L, generator.next());
+        //half of the third block is used, the fourth is fetched in the background
+        assertEquals(4, calls.get());
+        assertEquals(14, generator.getAvailable());
+    }
+}
@@ -0,0 +1,39 @@
+package com.test;
+
+import com.entityassist.enumerations.InListBinding;
+import com.entityassist.querybuilder.builders.InListBindings;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InListBindingsTest
+{
+    @Test
+    void paddingRoundsUpToPowersOfTwo()
+    {
+        assertEquals(0, InListBindings.paddedSize(0));
+        assertEquals(1, InListBindings.paddedSize(1));
+        assertEquals(2, InListBindings.paddedSize(2));
+        assertEquals(4, InListBindings.paddedSize(3));
+        assertEquals(8, InListBindings.paddedSize(5));
+        assertEquals(1024, InListBindings.paddedSize(1000));
+    }
+
+    @Test
+    void configuredBindingIsResolved()
+    {
+        InListBinding original = InListBindings.getBinding();
+        try
+        {
+            InListBindings.setBinding(InListBinding.Expanded);
+            assertEquals(InListBinding.Expanded, InListBindings.resolve(null));
+            InListBindings.setBinding(InListBinding.Array);
+            //without a session factory arrays are not known to be supported
+            assertEquals(InListBinding.Padded, InListBindings.resolve(null));
+        }
+        finally
+        {
+            InListBindings.setBinding(original);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Self-referential entity with a foreign key to its parent, used to exercise the write order of a unit of work.
+ */
+@Entity
+@Accessors(chain = true)
+@Table(name = "linked_node")
+public class LinkedNode extends BaseEntity<LinkedNode, LinkedNode.LinkedNodeQueryBuilder, String>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    @Getter
+    @Setter
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    @Getter
+    @Setter
+    private LinkedNode parent;
+
+    @Override
+    public String getId()
+    {
+        return id;
+    }
+
+    @Override
+    public LinkedNode setId(String id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public static class LinkedNodeQueryBuilder extends QueryBuilder<LinkedNodeQueryBuilder, LinkedNode, String>
+    {
+        public LinkedNodeQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.test;
+
+import com.entityassist.cache.CacheStatistics;
+import com.entityassist.cache.LruQueryResultCache;
+import com.entityassist.cache.QueryKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruQueryResultCacheTest
+{
+    private static QueryKey key(String name)
+    {
+        return new QueryKey(EntityClass.class, "getAll<>where(name Equals ?;)", List.of(name), Set.of());
+    }
+
+    @Test
+    void hitsMissesAndInvalidation()
+    {
+        LruQueryResultCache cache = new LruQueryResultCache();
+        QueryKey key = key("a");
+        assertFalse(cache.get("r", key).isPresent());
+
+        cache.put("r", key, List.of("row"), Duration.ofMinutes(1), cache.version(key));
+        assertEquals(List.of("row"), cache.get("r", key("a")).orElseThrow());
+
+        cache.invalidate(EntityClass.class);
+        assertFalse(cache.get("r", key).isPresent());
+
+        CacheStatistics stats = cache.getStatistics("r");
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+    }
+
+    @Test
+    void staleVersionIsNotStored()
+    {
+        LruQueryResultCache cache = new LruQueryResultCache();
+        QueryKey key = key("a");
+        long version = cache.version(key);
+        cache.invalidate(EntityClass.class);
+        cache.put("r", key, List.of("row"), Duration.ofMinutes(1), version);
+        assertFalse(cache.get("r", key).isPresent());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByWeight()
+    {
+        LruQueryResultCache cache = new LruQueryResultCache().setMaximumWeight("r", 4);
+        cache.put("r", key("a"), List.of(1, 2), Duration.ofMinutes(1), 0);
+        cache.put("r", key("b"), List.of(3, 4), Duration.ofMinutes(1), 0);
+        assertTrue(cache.get("r", key("a")).isPresent());
+        cache.put("r", key("c"), List.of(5), Duration.ofMinutes(1), 0);
+
+        assertTrue(cache.get("r", key("a")).isPresent());
+        assertFalse(cache.get("r", key("b")).isPresent());
+        assertTrue(cache.get("r", key("c")).isPresent());
+        assertEquals(1, cache.getStatistics("r").getEvictions());
+    }
+}
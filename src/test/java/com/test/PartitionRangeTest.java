@@ -0,0 +1,44 @@
+package com.test;
+
+import com.entityassist.enumerations.PartitionInterval;
+import com.entityassist.querybuilder.builders.PartitionRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionRangeTest
+{
+    @Test
+    void rangesAreCutOnPartitionBoundaries()
+    {
+        List<PartitionRange> ranges = new PartitionRange(LocalDateTime.parse("2026-01-15T10:00:00"), LocalDateTime.parse("2026-03-02T00:00:00"))
+                                              .split(PartitionInterval.Month);
+        assertEquals(List.of(new PartitionRange(LocalDateTime.parse("2026-01-15T10:00:00"), LocalDateTime.parse("2026-02-01T00:00:00")),
+                             new PartitionRange(LocalDateTime.parse("2026-02-01T00:00:00"), LocalDateTime.parse("2026-03-01T00:00:00")),
+                             new PartitionRange(LocalDateTime.parse("2026-03-01T00:00:00"), LocalDateTime.parse("2026-03-02T00:00:00"))),
+                     ranges);
+    }
+
+    @Test
+    void boundsKeepTheirType()
+    {
+        assertEquals(List.of(new PartitionRange(LocalDate.parse("2026-02-11"), LocalDate.parse("2026-04-01")),
+                             new PartitionRange(LocalDate.parse("2026-04-01"), LocalDate.parse("2026-05-01"))),
+                     new PartitionRange(LocalDate.parse("2026-02-11"), LocalDate.parse("2026-05-01")).split(PartitionInterval.Quarter));
+        assertEquals(List.of(new PartitionRange(Instant.parse("2026-03-01T12:00:00Z"), Instant.parse("2026-03-02T00:00:00Z")),
+                             new PartitionRange(Instant.parse("2026-03-02T00:00:00Z"), Instant.parse("2026-03-02T06:00:00Z"))),
+                     new PartitionRange(Instant.parse("2026-03-01T12:00:00Z"), Instant.parse("2026-03-02T06:00:00Z")).split(PartitionInterval.Week));
+    }
+
+    @Test
+    void emptyRangeHasNoPartitions()
+    {
+        LocalDate day = LocalDate.parse("2026-06-01");
+        assertEquals(List.of(), new PartitionRange(day, day).split(PartitionInterval.Day));
+    }
+}
@@ -0,0 +1,68 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.annotations.Partitioned;
+import com.entityassist.enumerations.PartitionInterval;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event entity declared as monthly range partitioned on its occurrence time, used to exercise partition-aware builders.
+ */
+@Entity
+@Accessors(chain = true)
+@Table(name = "partitioned_event")
+@Partitioned(attribute = "occurredAt", interval = PartitionInterval.Month)
+public class PartitionedEvent extends BaseEntity<PartitionedEvent, PartitionedEvent.PartitionedEventQueryBuilder, String>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    @Getter
+    @Setter
+    private String id;
+
+    @Column(name = "name")
+    @Getter
+    @Setter
+    private String name;
+
+    @Column(name = "occurred_at")
+    @Getter
+    @Setter
+    private LocalDateTime occurredAt;
+
+    @Override
+    public String getId()
+    {
+        return id;
+    }
+
+    @Override
+    public PartitionedEvent setId(String id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public static class PartitionedEventQueryBuilder extends QueryBuilder<PartitionedEventQueryBuilder, PartitionedEvent, String>
+    {
+        public PartitionedEventQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.identifiers.IdGenerator;
+import com.entityassist.identifiers.IdGenerators;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Entity whose builder assigns identifiers from pooled hi/lo sequence blocks, used to exercise in-process id generation.
+ */
+@Entity
+@Accessors(chain = true)
+@Table(name = "sequenced_note")
+public class SequencedNote extends BaseEntity<SequencedNote, SequencedNote.SequencedNoteQueryBuilder, Long>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "text")
+    @Getter
+    @Setter
+    private String text;
+
+    @Override
+    public Long getId()
+    {
+        return id;
+    }
+
+    @Override
+    public SequencedNote setId(Long id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public static class SequencedNoteQueryBuilder extends QueryBuilder<SequencedNoteQueryBuilder, SequencedNote, Long>
+    {
+        public SequencedNoteQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+
+        @Override
+        public IdGenerator<Long> getIdGenerator()
+        {
+            return IdGenerators.hiLo("sequenced_note_seq", 10);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.test;
+
+import com.entityassist.cache.SingleFlight;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest
+{
+    @Test
+    void concurrentSubscribersShareOneExecution()
+    {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger started = new AtomicInteger();
+        AtomicReference<UniEmitter<? super String>> query = new AtomicReference<>();
+        Uni<String> slow = Uni.createFrom()
+                              .emitter(emitter -> {
+                                  started.incrementAndGet();
+                                  query.set(emitter);
+                              });
+
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        singleFlight.execute("key", () -> slow).subscribe().with(first::set);
+        singleFlight.execute("key", () -> slow).subscribe().with(second::set);
+        query.get().complete("result");
+
+        assertEquals(1, started.get());
+        assertEquals("result", first.get());
+        assertEquals("result", second.get());
+        assertEquals(1, singleFlight.getCoalesced());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void onlyTheLastCancellationCancelsTheQuery()
+    {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Uni<String> slow = Uni.createFrom()
+                              .<String>emitter(emitter -> {
+                              })
+                              .onCancellation()
+                              .invoke(() -> cancelled.set(true));
+
+        Cancellable first = singleFlight.execute("key", () -> slow).subscribe().with(item -> {
+        });
+        Cancellable second = singleFlight.execute("key", () -> slow).subscribe().with(item -> {
+        });
+
+        first.cancel();
+        assertFalse(cancelled.get());
+        second.cancel();
+        assertTrue(cancelled.get());
+        assertEquals(1, singleFlight.getCancellations());
+    }
+}
@@ -0,0 +1,79 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Self-referential entity with a builder maintained materialized path, used to exercise hierarchy path indexes.
+ */
+@Entity
+@Accessors(chain = true)
+@Table(name = "taxonomy_node")
+public class TaxonomyNode extends BaseEntity<TaxonomyNode, TaxonomyNode.TaxonomyNodeQueryBuilder, String>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    @Getter
+    @Setter
+    private String id;
+
+    @Column(name = "name")
+    @Getter
+    @Setter
+    private String name;
+
+    @Column(name = "parent_id")
+    @Getter
+    @Setter
+    private String parentId;
+
+    @Column(name = "path")
+    @Getter
+    private String path;
+
+    @Override
+    public String getId()
+    {
+        return id;
+    }
+
+    @Override
+    public TaxonomyNode setId(String id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public static class TaxonomyNodeQueryBuilder extends QueryBuilder<TaxonomyNodeQueryBuilder, TaxonomyNode, String>
+    {
+        public TaxonomyNodeQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+
+        @Override
+        public String getMaterializedPathAttribute()
+        {
+            return "path";
+        }
+
+        @Override
+        public String getMaterializedPathParentAttribute()
+        {
+            return "parentId";
+        }
+    }
+}
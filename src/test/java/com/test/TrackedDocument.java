@@ -0,0 +1,74 @@
+package com.test;
+
+import com.entityassist.BaseEntity;
+import com.entityassist.querybuilder.QueryBuilder;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+
+/**
+ * Versioned entity whose setters mark changed fields, used to exercise changed-field updates.
+ */
+@Entity
+@Table(name = "tracked_document")
+public class TrackedDocument extends BaseEntity<TrackedDocument, TrackedDocument.TrackedDocumentQueryBuilder, String>
+{
+    @Id
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "title")
+    @Getter
+    private String title;
+
+    @Column(name = "body")
+    @Getter
+    private String body;
+
+    @Version
+    @Column(name = "version")
+    @Getter
+    private Integer version;
+
+    @Override
+    public String getId()
+    {
+        return id;
+    }
+
+    @Override
+    public TrackedDocument setId(String id)
+    {
+        this.id = id;
+        return this;
+    }
+
+    public TrackedDocument setTitle(String title)
+    {
+        this.title = title;
+        return markChanged("title");
+    }
+
+    public TrackedDocument setBody(String body)
+    {
+        this.body = body;
+        return markChanged("body");
+    }
+
+    public static class TrackedDocumentQueryBuilder extends QueryBuilder<TrackedDocumentQueryBuilder, TrackedDocument, String>
+    {
+        public TrackedDocumentQueryBuilder()
+        {
+            super();
+        }
+
+        @Override
+        public boolean isIdGenerated()
+        {
+            return false;
+        }
+    }
+}
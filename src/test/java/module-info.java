@@ -6,6 +6,7 @@ module entity.assist.test {
     requires transitive com.guicedee.persistence;
 
     requires org.junit.jupiter.api;
+    requires jdk.management;
     requires junit;
 
     requires jakarta.xml.bind;